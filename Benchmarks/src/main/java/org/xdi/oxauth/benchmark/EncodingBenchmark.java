@@ -0,0 +1,75 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xdi.oxauth.model.util.Base64Util;
+import org.xdi.oxauth.model.util.TokenHashUtil;
+
+/**
+ * Token hashing and base64url encoding which are executed several times per each request.
+ *
+ * @version October 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+
+    /**
+     * Size of data to encode: hash, signature and typical token payload
+     */
+    @Param({"32", "256", "1024"})
+    private int size;
+
+    private String token;
+    private byte[] data;
+    private String encodedData;
+
+    @Setup
+    public void setUp() {
+        token = UUID.randomUUID().toString();
+
+        data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        encodedData = Base64Util.base64urlencode(data);
+    }
+
+    @Benchmark
+    public String getHashedToken() {
+        return TokenHashUtil.getHashedToken(token);
+    }
+
+    @Benchmark
+    public String base64urlencode() {
+        return Base64Util.base64urlencode(data);
+    }
+
+    @Benchmark
+    public byte[] base64urldecode() {
+        return Base64Util.base64urldecode(encodedData);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xdi.oxauth.model.crypto.encryption.BlockEncryptionAlgorithm;
+import org.xdi.oxauth.model.crypto.encryption.KeyEncryptionAlgorithm;
+import org.xdi.oxauth.model.exception.InvalidJweException;
+import org.xdi.oxauth.model.jwe.Jwe;
+import org.xdi.oxauth.model.jwe.JweDecrypterImpl;
+import org.xdi.oxauth.model.jwe.JweEncrypterImpl;
+import org.xdi.oxauth.model.jwt.JwtClaims;
+import org.xdi.oxauth.model.jwt.JwtHeader;
+import org.xdi.oxauth.model.jwt.JwtType;
+import org.xdi.oxauth.model.util.Util;
+
+/**
+ * Encryption and decryption of JWE with {@link JweEncrypterImpl} and {@link JweDecrypterImpl}
+ * for each pair of key encryption and block encryption algorithms.
+ *
+ * @version October 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JweBenchmark {
+
+    @Param({"RSA1_5", "RSA-OAEP", "A128KW", "A256KW"})
+    private String keyEncryptionAlgorithm;
+
+    @Param({"A128CBC+HS256", "A256CBC+HS512", "A128GCM", "A256GCM"})
+    private String blockEncryptionAlgorithm;
+
+    private JwtHeader header;
+    private JwtClaims claims;
+    private JweEncrypterImpl encrypter;
+    private JweDecrypterImpl decrypter;
+    private String encryptedJwe;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkData.init();
+
+        KeyEncryptionAlgorithm keyAlgorithm = KeyEncryptionAlgorithm.fromName(keyEncryptionAlgorithm);
+        BlockEncryptionAlgorithm blockAlgorithm = BlockEncryptionAlgorithm.fromName(blockEncryptionAlgorithm);
+
+        if ((keyAlgorithm == KeyEncryptionAlgorithm.RSA1_5) || (keyAlgorithm == KeyEncryptionAlgorithm.RSA_OAEP)) {
+            KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+            keyGen.initialize(2048, new SecureRandom());
+            KeyPair keyPair = keyGen.generateKeyPair();
+
+            encrypter = new JweEncrypterImpl(keyAlgorithm, blockAlgorithm, keyPair.getPublic());
+            decrypter = new JweDecrypterImpl(keyPair.getPrivate());
+        } else {
+            byte[] sharedSymmetricKey = BenchmarkData.SHARED_SECRET.getBytes(Util.UTF8_STRING_ENCODING);
+
+            encrypter = new JweEncrypterImpl(keyAlgorithm, blockAlgorithm, sharedSymmetricKey);
+            decrypter = new JweDecrypterImpl(sharedSymmetricKey);
+        }
+
+        header = new JwtHeader();
+        header.setType(JwtType.JWT);
+        header.setAlgorithm(keyAlgorithm);
+        header.setEncryptionMethod(blockAlgorithm);
+        claims = BenchmarkData.newClaims();
+
+        encryptedJwe = encrypt().toString();
+        if (decrypter.decrypt(encryptedJwe) == null) {
+            throw new IllegalStateException("Failed to decrypt JWE, algorithms: " + keyEncryptionAlgorithm + ", " + blockEncryptionAlgorithm);
+        }
+    }
+
+    @Benchmark
+    public Jwe encrypt() throws InvalidJweException {
+        Jwe jwe = new Jwe();
+        jwe.setHeader(header);
+        jwe.setClaims(claims);
+
+        return encrypter.encrypt(jwe);
+    }
+
+    @Benchmark
+    public Jwe decrypt() throws InvalidJweException {
+        return decrypter.decrypt(encryptedJwe);
+    }
+
+}
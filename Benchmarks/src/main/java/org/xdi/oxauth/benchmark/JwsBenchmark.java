@@ -0,0 +1,93 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xdi.oxauth.model.crypto.signature.ECDSAKeyFactory;
+import org.xdi.oxauth.model.crypto.signature.RSAKeyFactory;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithmFamily;
+import org.xdi.oxauth.model.jws.AbstractJwsSigner;
+import org.xdi.oxauth.model.jws.ECDSASigner;
+import org.xdi.oxauth.model.jws.HMACSigner;
+import org.xdi.oxauth.model.jws.RSASigner;
+import org.xdi.oxauth.model.jwt.Jwt;
+
+/**
+ * Signature generation and validation with {@link RSASigner}, {@link ECDSASigner} and {@link HMACSigner}.
+ *
+ * @version October 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwsBenchmark {
+
+    @Param({"HS256", "HS384", "HS512", "RS256", "RS384", "RS512", "ES256", "ES384", "ES512"})
+    private String algorithm;
+
+    private AbstractJwsSigner signer;
+    private AbstractJwsSigner verifier;
+    private String signingInput;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkData.init();
+
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.fromString(algorithm);
+        if (SignatureAlgorithmFamily.HMAC.equals(signatureAlgorithm.getFamily())) {
+            signer = new HMACSigner(signatureAlgorithm, BenchmarkData.SHARED_SECRET);
+            verifier = signer;
+        } else if (SignatureAlgorithmFamily.RSA.equals(signatureAlgorithm.getFamily())) {
+            RSAKeyFactory keyFactory = new RSAKeyFactory(signatureAlgorithm, null);
+            signer = new RSASigner(signatureAlgorithm, keyFactory.getPrivateKey());
+            verifier = new RSASigner(signatureAlgorithm, keyFactory.getPublicKey());
+        } else {
+            ECDSAKeyFactory keyFactory = new ECDSAKeyFactory(signatureAlgorithm, null);
+            signer = new ECDSASigner(signatureAlgorithm, keyFactory.getPrivateKey());
+            verifier = new ECDSASigner(signatureAlgorithm, keyFactory.getPublicKey());
+        }
+
+        Jwt jwt = new Jwt();
+        jwt.setHeader(BenchmarkData.newHeader());
+        jwt.getHeader().setAlgorithm(signatureAlgorithm);
+        jwt.setClaims(BenchmarkData.newClaims());
+
+        signingInput = jwt.getSigningInput();
+        signature = signer.generateSignature(signingInput);
+        if (!verifier.validateSignature(signingInput, signature)) {
+            throw new IllegalStateException("Generated signature is not valid, algorithm: " + algorithm);
+        }
+    }
+
+    @Benchmark
+    public String sign() throws Exception {
+        return signer.generateSignature(signingInput);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return verifier.validateSignature(signingInput, signature);
+    }
+
+}
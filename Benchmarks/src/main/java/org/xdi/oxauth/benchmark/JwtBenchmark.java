@@ -0,0 +1,85 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.jws.HMACSigner;
+import org.xdi.oxauth.model.jwt.Jwt;
+
+/**
+ * Parsing and serialization of JWT, without signature calculation.
+ *
+ * @version October 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private String encodedJwt;
+    private Jwt parsedJwt;
+    private Jwt newJwt;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkData.init();
+
+        Jwt jwt = new Jwt();
+        jwt.setHeader(BenchmarkData.newHeader());
+        jwt.getHeader().setAlgorithm(SignatureAlgorithm.HS256);
+        jwt.setClaims(BenchmarkData.newClaims());
+        new HMACSigner(SignatureAlgorithm.HS256, BenchmarkData.SHARED_SECRET).sign(jwt);
+
+        encodedJwt = jwt.toString();
+        parsedJwt = Jwt.parse(encodedJwt);
+        newJwt = jwt;
+    }
+
+    @Benchmark
+    public Jwt parse() throws InvalidJwtException {
+        return Jwt.parse(encodedJwt);
+    }
+
+    /**
+     * Parsed JWT reuses encoded parts
+     */
+    @Benchmark
+    public String signingInputOfParsedJwt() throws InvalidJwtException {
+        return parsedJwt.getSigningInput();
+    }
+
+    /**
+     * JWT created by server serializes header and claims on each call
+     */
+    @Benchmark
+    public String signingInputOfNewJwt() throws InvalidJwtException {
+        return newJwt.getSigningInput();
+    }
+
+    @Benchmark
+    public JSONObject claimsToJsonObject() throws InvalidJwtException {
+        return newJwt.getClaims().toJsonObject();
+    }
+
+}
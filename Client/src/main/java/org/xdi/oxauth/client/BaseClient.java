@@ -222,7 +222,7 @@ public abstract class BaseClient<T extends BaseRequest, V extends BaseResponse>
 
     protected void initClientRequest() {
         if (this.executor == null) {
-            this.clientRequest = new ClientRequest(getUrl());
+            this.clientRequest = new ClientRequest(getUrl(), ClientHttpTransport.instance().getExecutor());
         } else {
             this.clientRequest = new ClientRequest(getUrl(), this.executor);
         }
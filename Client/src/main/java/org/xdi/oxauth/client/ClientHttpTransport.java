@@ -0,0 +1,235 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.jboss.resteasy.client.ClientExecutor;
+import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
+
+/**
+ * Shared HTTP transport of oxAuth clients. Connections are pooled (with per route limit) and kept alive between
+ * calls, so clients don't pay TCP and TLS handshake per request. It's used by all clients and client factories
+ * unless executor is set explicitly.
+ * <p>
+ * Pool is configured with system properties before first use:
+ * "oxauth.client.http.maxTotal" (default 200), "oxauth.client.http.maxPerRoute" (default 50),
+ * "oxauth.client.http.connectTimeout", "oxauth.client.http.socketTimeout" (milliseconds, default 10000 and 30000),
+ * "oxauth.client.http.keepAlive" (seconds, default 60).
+ * <p>
+ * Cookies are not kept, client is shared by all users of application. Pool statistics of default transport are
+ * exported over JMX as {@link #OBJECT_NAME} with id of transport instance, so applications deployed in the same
+ * JVM don't replace each other's statistics.
+ * <p>
+ * Application has to call {@link #shutdownInstance()} when it's stopped (e.g. from
+ * ServletContextListener.contextDestroyed), otherwise pool and its idle connection evictor thread outlive it.
+ *
+ * @version October 18, 2026
+ */
+public class ClientHttpTransport implements ClientHttpTransportMXBean {
+
+    public static final String OBJECT_NAME = "org.xdi.oxauth.client:type=ClientHttpTransport";
+
+    private static final Logger LOG = Logger.getLogger(ClientHttpTransport.class);
+
+    private static volatile ClientHttpTransport instance;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ClientExecutor executor;
+    private final ObjectName objectName;
+
+    public ClientHttpTransport(int maxTotal, int maxPerRoute, int connectTimeout, int socketTimeout, final int keepAliveSeconds) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxTotal);
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        this.connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout).build();
+
+        // Use keep-alive announced by server, but not longer than configured one
+        ConnectionKeepAliveStrategy keepAliveStrategy = new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                long maxDuration = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+
+                return (duration > 0) && (duration < maxDuration) ? duration : maxDuration;
+            }
+        };
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveSeconds, TimeUnit.SECONDS)
+                .build();
+
+        this.executor = new SharedExecutor(httpClient);
+        this.objectName = createObjectName(this);
+    }
+
+    public static ClientHttpTransport instance() {
+        if (instance == null) {
+            synchronized (ClientHttpTransport.class) {
+                if (instance == null) {
+                    instance = new ClientHttpTransport(
+                            Integer.getInteger("oxauth.client.http.maxTotal", 200),
+                            Integer.getInteger("oxauth.client.http.maxPerRoute", 50),
+                            Integer.getInteger("oxauth.client.http.connectTimeout", 10000),
+                            Integer.getInteger("oxauth.client.http.socketTimeout", 30000),
+                            Integer.getInteger("oxauth.client.http.keepAlive", 60));
+                    registerMBean(instance);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Replaces default transport, previous one is shut down.
+     */
+    public static synchronized void setInstance(ClientHttpTransport transport) {
+        ClientHttpTransport previous = instance;
+        instance = transport;
+
+        if ((previous != null) && (previous != transport)) {
+            previous.shutdown();
+        }
+
+        if (transport != null) {
+            registerMBean(transport);
+        }
+    }
+
+    /**
+     * Shuts down default transport if it was created, next call of {@link #instance()} creates new one.
+     */
+    public static synchronized void shutdownInstance() {
+        ClientHttpTransport previous = instance;
+        instance = null;
+
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * @return executor backed by connection pool, {@link ClientExecutor#close()} doesn't close the pool
+     */
+    public ClientExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return pool statistics: leased, available, pending connections and max total
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    @Override
+    public int getAvailableConnections() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return connectionManager.getTotalStats().getPending();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return connectionManager.getTotalStats().getMax();
+    }
+
+    /**
+     * Unregisters pool statistics MBean, stops idle connection evictor and closes all pooled connections.
+     */
+    public void shutdown() {
+        unregisterMBean(this);
+
+        try {
+            // Closes evictor and connection manager registered by client builder
+            httpClient.close();
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+        }
+
+        connectionManager.shutdown();
+    }
+
+    private static ObjectName createObjectName(ClientHttpTransport transport) {
+        try {
+            return new ObjectName(OBJECT_NAME + ",id=" + Integer.toHexString(System.identityHashCode(transport)));
+        } catch (Exception e) {
+            // Not possible, name is constant except hex id
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void registerMBean(ClientHttpTransport transport) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(transport.objectName)) {
+                mBeanServer.registerMBean(transport, transport.objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to register pool statistics MBean: " + e.getMessage());
+        }
+    }
+
+    private static void unregisterMBean(ClientHttpTransport transport) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(transport.objectName)) {
+                mBeanServer.unregisterMBean(transport.objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to unregister pool statistics MBean: " + e.getMessage());
+        }
+    }
+
+    private static class SharedExecutor extends ApacheHttpClient4Executor {
+
+        public SharedExecutor(CloseableHttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        public void close() {
+            // Pool is shared between clients, it's closed by ClientHttpTransport.shutdown()
+        }
+
+    }
+
+}
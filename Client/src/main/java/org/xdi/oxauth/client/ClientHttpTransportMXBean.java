@@ -0,0 +1,24 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client;
+
+/**
+ * Connection pool statistics of default {@link ClientHttpTransport} exported over JMX.
+ *
+ * @version October 18, 2026
+ */
+public interface ClientHttpTransportMXBean {
+
+    int getLeasedConnections();
+
+    int getAvailableConnections();
+
+    int getPendingConnections();
+
+    int getMaxConnections();
+
+}
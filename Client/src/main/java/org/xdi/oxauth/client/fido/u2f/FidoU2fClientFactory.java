@@ -7,6 +7,7 @@
 package org.xdi.oxauth.client.fido.u2f;
 
 import org.jboss.resteasy.client.ProxyFactory;
+import org.xdi.oxauth.client.ClientHttpTransport;
 import org.xdi.oxauth.model.fido.u2f.U2fConfiguration;
 
 /**
@@ -26,15 +27,15 @@ public class FidoU2fClientFactory {
     }
 
     public U2fConfigurationService createMetaDataConfigurationService(String umaMetaDataUri) {
-        return ProxyFactory.create(U2fConfigurationService.class, umaMetaDataUri);
+        return ProxyFactory.create(U2fConfigurationService.class, umaMetaDataUri, ClientHttpTransport.instance().getExecutor());
     }
 
     public AuthenticationRequestService createAuthenticationRequestService(U2fConfiguration metadataConfiguration) {
-        return ProxyFactory.create(AuthenticationRequestService.class, metadataConfiguration.getAuthenticationEndpoint());
+        return ProxyFactory.create(AuthenticationRequestService.class, metadataConfiguration.getAuthenticationEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public RegistrationRequestService createRegistrationRequestService(U2fConfiguration metadataConfiguration) {
-        return ProxyFactory.create(RegistrationRequestService.class, metadataConfiguration.getRegistrationEndpoint());
+        return ProxyFactory.create(RegistrationRequestService.class, metadataConfiguration.getRegistrationEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
 }
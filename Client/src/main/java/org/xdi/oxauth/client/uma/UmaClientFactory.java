@@ -8,6 +8,7 @@ package org.xdi.oxauth.client.uma;
 
 import org.jboss.resteasy.client.ClientExecutor;
 import org.jboss.resteasy.client.ProxyFactory;
+import org.xdi.oxauth.client.ClientHttpTransport;
 import org.xdi.oxauth.model.uma.UmaConfiguration;
 
 /**
@@ -28,7 +29,7 @@ public class UmaClientFactory {
     }
 
     public ResourceSetRegistrationService createResourceSetRegistrationService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(ResourceSetRegistrationService.class, metadataConfiguration.getResourceSetRegistrationEndpoint());
+        return ProxyFactory.create(ResourceSetRegistrationService.class, metadataConfiguration.getResourceSetRegistrationEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public ResourceSetRegistrationService createResourceSetRegistrationService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -36,7 +37,7 @@ public class UmaClientFactory {
     }
 
     public CreateRptService createRequesterPermissionTokenService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(CreateRptService.class, metadataConfiguration.getRptEndpoint());
+        return ProxyFactory.create(CreateRptService.class, metadataConfiguration.getRptEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public CreateRptService createRequesterPermissionTokenService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -44,7 +45,7 @@ public class UmaClientFactory {
     }
 
     public CreateGatService createGatService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(CreateGatService.class, metadataConfiguration.getGatEndpoint());
+        return ProxyFactory.create(CreateGatService.class, metadataConfiguration.getGatEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public CreateGatService createGatService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -52,7 +53,7 @@ public class UmaClientFactory {
     }
 
     public PermissionRegistrationService createResourceSetPermissionRegistrationService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(PermissionRegistrationService.class, metadataConfiguration.getPermissionRegistrationEndpoint());
+        return ProxyFactory.create(PermissionRegistrationService.class, metadataConfiguration.getPermissionRegistrationEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public PermissionRegistrationService createResourceSetPermissionRegistrationService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -60,7 +61,7 @@ public class UmaClientFactory {
     }
 
     public RptStatusService createRptStatusService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(RptStatusService.class, metadataConfiguration.getIntrospectionEndpoint());
+        return ProxyFactory.create(RptStatusService.class, metadataConfiguration.getIntrospectionEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public RptStatusService createRptStatusService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -68,7 +69,7 @@ public class UmaClientFactory {
     }
 
     public RptAuthorizationRequestService createAuthorizationRequestService(UmaConfiguration metadataConfiguration) {
-        return ProxyFactory.create(RptAuthorizationRequestService.class, metadataConfiguration.getAuthorizationEndpoint());
+        return ProxyFactory.create(RptAuthorizationRequestService.class, metadataConfiguration.getAuthorizationEndpoint(), ClientHttpTransport.instance().getExecutor());
     }
 
     public RptAuthorizationRequestService createAuthorizationRequestService(UmaConfiguration metadataConfiguration, ClientExecutor clientExecutor) {
@@ -76,7 +77,7 @@ public class UmaClientFactory {
     }
 
     public UmaConfigurationService createMetaDataConfigurationService(String umaMetaDataUri) {
-        return ProxyFactory.create(UmaConfigurationService.class, umaMetaDataUri);
+        return ProxyFactory.create(UmaConfigurationService.class, umaMetaDataUri, ClientHttpTransport.instance().getExecutor());
     }
 
     public UmaConfigurationService createMetaDataConfigurationService(String umaMetaDataUri, ClientExecutor clientExecutor) {
@@ -88,7 +89,7 @@ public class UmaClientFactory {
     }
 
     public ScopeService createScopeService(String umaMetaDataUri) {
-        return ProxyFactory.create(ScopeService.class, umaMetaDataUri);
+        return ProxyFactory.create(ScopeService.class, umaMetaDataUri, ClientHttpTransport.instance().getExecutor());
     }
 
 }
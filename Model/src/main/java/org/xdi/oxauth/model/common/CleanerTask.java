@@ -0,0 +1,52 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.common;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonValue;
+
+/**
+ * Clean up tasks which are scheduled independently by cleaner timer.
+ *
+ * @version October 18, 2026
+ */
+public enum CleanerTask {
+    TOKEN("token"),
+    GRANT("grant"),
+    CLIENT("client"),
+    RPT("rpt"),
+    PERMISSION("permission"),
+    U2F_REQUEST("u2f_request"),
+    U2F_DEVICE("u2f_device"),
+    METRIC("metric");
+
+    private final String value;
+
+    private CleanerTask(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static CleanerTask fromString(String string) {
+        for (CleanerTask v : values()) {
+            if (v.getValue().equalsIgnoreCase(string)) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    @JsonValue
+    public String toString() {
+        return value;
+    }
+}
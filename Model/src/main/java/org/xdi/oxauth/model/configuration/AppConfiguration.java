@@ -7,6 +7,9 @@
 package org.xdi.oxauth.model.configuration;
 
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.xdi.oxauth.model.common.AuditLogOverflowPolicy;
+import org.xdi.oxauth.model.common.CleanerTask;
+import org.xdi.oxauth.model.common.U2fRequestStoreType;
 import org.xdi.oxauth.model.common.WebKeyStorage;
 
 import java.util.ArrayList;
@@ -161,6 +164,55 @@ public class AppConfiguration implements Configuration {
      */
     private Integer sessionCookieExpiration;
 
+    /**
+     * Regions of the in-process near-cache (client, scope, session) which sit in front of the shared cache
+     */
+    private List<NearCacheConfiguration> nearCacheConfigurations;
+
+    /**
+     * Per task schedule of cleaner timer (interval, batch size, threads)
+     */
+    private List<CleanerTaskConfiguration> cleanerTaskConfigurations;
+
+    /**
+     * Keep compact list of revoked JWT access tokens (by jti and session) in cache service until tokens expire
+     */
+    private Boolean jwtAccessTokenRevocationEnabled;
+
+    /**
+     * Cache-Control max-age (in seconds) of discovery and JWKS responses
+     */
+    private Integer discoveryCacheControlMaxAge;
+
+    /**
+     * Audit log entries are queued and sent to JMS in batches by background thread
+     */
+    private Integer auditLogQueueSize;
+    private Integer auditLogBatchSize;
+    private AuditLogOverflowPolicy auditLogOverflowPolicy;
+
+    /**
+     * Lifetime (in seconds) of resolved sector_identifier_uri content when response has no caching headers
+     */
+    private Integer sectorIdentifierUriCacheLifetime;
+
+    private Integer pairwiseIdCacheLifetime;
+    private Boolean pairwiseIdMigrationEnabled;
+    private Integer pairwiseIdMigrationInterval;
+
+    private Integer u2fDeviceCacheLifetime;
+    private Integer u2fDeviceUpdateFlushInterval;
+
+    private U2fRequestStoreType u2fRequestStoreType;
+
+    private Integer accessTimeUpdateFlushInterval;
+
+    private Boolean ldapAuthParallelLookupEnabled;
+    private Integer ldapAuthLookupTimeout;
+    private Integer ldapAuthNegativeCacheLifetime;
+
+    private Integer jwksCacheLifetime;
+
     public Boolean getFrontChannelLogoutSessionSupported() {
         return frontChannelLogoutSessionSupported;
     }
@@ -1202,4 +1254,183 @@ public class AppConfiguration implements Configuration {
     public void setSessionCookieExpiration(Integer sessionCookieExpiration) {
         this.sessionCookieExpiration = sessionCookieExpiration;
     }
-}
\ No newline at end of file
+
+    public List<NearCacheConfiguration> getNearCacheConfigurations() {
+        if (nearCacheConfigurations == null) {
+            nearCacheConfigurations = new ArrayList<NearCacheConfiguration>();
+        }
+
+        return nearCacheConfigurations;
+    }
+
+    public void setNearCacheConfigurations(List<NearCacheConfiguration> nearCacheConfigurations) {
+        this.nearCacheConfigurations = nearCacheConfigurations;
+    }
+
+    public List<CleanerTaskConfiguration> getCleanerTaskConfigurations() {
+        if (cleanerTaskConfigurations == null) {
+            cleanerTaskConfigurations = new ArrayList<CleanerTaskConfiguration>();
+        }
+
+        return cleanerTaskConfigurations;
+    }
+
+    public void setCleanerTaskConfigurations(List<CleanerTaskConfiguration> cleanerTaskConfigurations) {
+        this.cleanerTaskConfigurations = cleanerTaskConfigurations;
+    }
+
+    public CleanerTaskConfiguration getCleanerTaskConfiguration(CleanerTask task) {
+        for (CleanerTaskConfiguration taskConfiguration : getCleanerTaskConfigurations()) {
+            if (taskConfiguration.getTask() == task) {
+                return taskConfiguration;
+            }
+        }
+
+        return new CleanerTaskConfiguration(task);
+    }
+
+    public Boolean getJwtAccessTokenRevocationEnabled() {
+        return jwtAccessTokenRevocationEnabled != null ? jwtAccessTokenRevocationEnabled : true;
+    }
+
+    public void setJwtAccessTokenRevocationEnabled(Boolean jwtAccessTokenRevocationEnabled) {
+        this.jwtAccessTokenRevocationEnabled = jwtAccessTokenRevocationEnabled;
+    }
+
+    public Integer getDiscoveryCacheControlMaxAge() {
+        return discoveryCacheControlMaxAge != null ? discoveryCacheControlMaxAge : 60;
+    }
+
+    public void setDiscoveryCacheControlMaxAge(Integer discoveryCacheControlMaxAge) {
+        this.discoveryCacheControlMaxAge = discoveryCacheControlMaxAge;
+    }
+
+    public Integer getAuditLogQueueSize() {
+        return auditLogQueueSize != null && auditLogQueueSize > 0 ? auditLogQueueSize : 10000;
+    }
+
+    public void setAuditLogQueueSize(Integer auditLogQueueSize) {
+        this.auditLogQueueSize = auditLogQueueSize;
+    }
+
+    public Integer getAuditLogBatchSize() {
+        return auditLogBatchSize != null && auditLogBatchSize > 0 ? auditLogBatchSize : 100;
+    }
+
+    public void setAuditLogBatchSize(Integer auditLogBatchSize) {
+        this.auditLogBatchSize = auditLogBatchSize;
+    }
+
+    public AuditLogOverflowPolicy getAuditLogOverflowPolicy() {
+        return auditLogOverflowPolicy != null ? auditLogOverflowPolicy : AuditLogOverflowPolicy.DROP;
+    }
+
+    public void setAuditLogOverflowPolicy(AuditLogOverflowPolicy auditLogOverflowPolicy) {
+        this.auditLogOverflowPolicy = auditLogOverflowPolicy;
+    }
+
+    public Integer getSectorIdentifierUriCacheLifetime() {
+        return sectorIdentifierUriCacheLifetime != null && sectorIdentifierUriCacheLifetime >= 0 ? sectorIdentifierUriCacheLifetime : 300;
+    }
+
+    public void setSectorIdentifierUriCacheLifetime(Integer sectorIdentifierUriCacheLifetime) {
+        this.sectorIdentifierUriCacheLifetime = sectorIdentifierUriCacheLifetime;
+    }
+
+    public Integer getPairwiseIdCacheLifetime() {
+        return pairwiseIdCacheLifetime != null && pairwiseIdCacheLifetime > 0 ? pairwiseIdCacheLifetime : 86400;
+    }
+
+    public void setPairwiseIdCacheLifetime(Integer pairwiseIdCacheLifetime) {
+        this.pairwiseIdCacheLifetime = pairwiseIdCacheLifetime;
+    }
+
+    public Boolean getPairwiseIdMigrationEnabled() {
+        return pairwiseIdMigrationEnabled != null ? pairwiseIdMigrationEnabled : false;
+    }
+
+    public void setPairwiseIdMigrationEnabled(Boolean pairwiseIdMigrationEnabled) {
+        this.pairwiseIdMigrationEnabled = pairwiseIdMigrationEnabled;
+    }
+
+    public Integer getPairwiseIdMigrationInterval() {
+        return pairwiseIdMigrationInterval != null && pairwiseIdMigrationInterval > 0 ? pairwiseIdMigrationInterval : 3600;
+    }
+
+    public void setPairwiseIdMigrationInterval(Integer pairwiseIdMigrationInterval) {
+        this.pairwiseIdMigrationInterval = pairwiseIdMigrationInterval;
+    }
+
+    public Integer getU2fDeviceCacheLifetime() {
+        return u2fDeviceCacheLifetime != null && u2fDeviceCacheLifetime > 0 ? u2fDeviceCacheLifetime : 300;
+    }
+
+    public void setU2fDeviceCacheLifetime(Integer u2fDeviceCacheLifetime) {
+        this.u2fDeviceCacheLifetime = u2fDeviceCacheLifetime;
+    }
+
+    public Integer getU2fDeviceUpdateFlushInterval() {
+        return u2fDeviceUpdateFlushInterval != null && u2fDeviceUpdateFlushInterval > 0 ? u2fDeviceUpdateFlushInterval : 10;
+    }
+
+    public void setU2fDeviceUpdateFlushInterval(Integer u2fDeviceUpdateFlushInterval) {
+        this.u2fDeviceUpdateFlushInterval = u2fDeviceUpdateFlushInterval;
+    }
+
+    public U2fRequestStoreType getU2fRequestStoreType() {
+        return u2fRequestStoreType != null ? u2fRequestStoreType : U2fRequestStoreType.CACHE;
+    }
+
+    public void setU2fRequestStoreType(U2fRequestStoreType u2fRequestStoreType) {
+        this.u2fRequestStoreType = u2fRequestStoreType;
+    }
+
+    public Integer getAccessTimeUpdateFlushInterval() {
+        return accessTimeUpdateFlushInterval != null && accessTimeUpdateFlushInterval > 0 ? accessTimeUpdateFlushInterval : 30;
+    }
+
+    public void setAccessTimeUpdateFlushInterval(Integer accessTimeUpdateFlushInterval) {
+        this.accessTimeUpdateFlushInterval = accessTimeUpdateFlushInterval;
+    }
+
+    public Boolean getLdapAuthParallelLookupEnabled() {
+        return ldapAuthParallelLookupEnabled != null ? ldapAuthParallelLookupEnabled : false;
+    }
+
+    public void setLdapAuthParallelLookupEnabled(Boolean ldapAuthParallelLookupEnabled) {
+        this.ldapAuthParallelLookupEnabled = ldapAuthParallelLookupEnabled;
+    }
+
+    /**
+     * @return time in milliseconds to wait for user lookup in backend LDAP auth servers in parallel mode
+     */
+    public Integer getLdapAuthLookupTimeout() {
+        return ldapAuthLookupTimeout != null && ldapAuthLookupTimeout > 0 ? ldapAuthLookupTimeout : 3000;
+    }
+
+    public void setLdapAuthLookupTimeout(Integer ldapAuthLookupTimeout) {
+        this.ldapAuthLookupTimeout = ldapAuthLookupTimeout;
+    }
+
+    /**
+     * @return time in seconds to remember that user is not in backend LDAP auth server, 0 disables it
+     */
+    public Integer getLdapAuthNegativeCacheLifetime() {
+        return ldapAuthNegativeCacheLifetime != null ? Math.max(0, ldapAuthNegativeCacheLifetime) : 60;
+    }
+
+    public void setLdapAuthNegativeCacheLifetime(Integer ldapAuthNegativeCacheLifetime) {
+        this.ldapAuthNegativeCacheLifetime = ldapAuthNegativeCacheLifetime;
+    }
+
+    /**
+     * @return time in seconds to cache client's JWKS if jwks_uri response has no cache headers
+     */
+    public Integer getJwksCacheLifetime() {
+        return jwksCacheLifetime != null && jwksCacheLifetime >= 0 ? jwksCacheLifetime : 300;
+    }
+
+    public void setJwksCacheLifetime(Integer jwksCacheLifetime) {
+        this.jwksCacheLifetime = jwksCacheLifetime;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.configuration;
+
+import org.xdi.oxauth.model.common.CleanerTask;
+
+/**
+ * Schedule of one clean up task. Tasks without configuration run with defaults
+ * ({@link #DEFAULT_INTERVAL} and {@link #DEFAULT_BATCH_SIZE}).
+ *
+ * @version October 18, 2026
+ */
+public class CleanerTaskConfiguration {
+
+    // Same as fixed schedule of all tasks before they were configured separately
+    public static final int DEFAULT_INTERVAL = 30;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_THREADS = 1;
+
+    private CleanerTask task;
+    private Boolean enabled;
+    private Integer interval;
+    private Integer batchSize;
+    private Integer threads;
+
+    public CleanerTaskConfiguration() {
+    }
+
+    public CleanerTaskConfiguration(CleanerTask task) {
+        this.task = task;
+    }
+
+    public CleanerTask getTask() {
+        return task;
+    }
+
+    public void setTask(CleanerTask task) {
+        this.task = task;
+    }
+
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : true;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return interval between runs in seconds, <code>null</code> means {@link #DEFAULT_INTERVAL}
+     */
+    public Integer getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Integer interval) {
+        this.interval = interval;
+    }
+
+    public Integer getBatchSize() {
+        if (batchSize == null || batchSize <= 0) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return number of threads used by task which supports parallel processing (token clean up is sharded by client)
+     */
+    public Integer getThreads() {
+        if (threads == null || threads <= 0) {
+            return DEFAULT_THREADS;
+        }
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.configuration;
+
+/**
+ * Configuration of one region of the in-process near-cache which sits in front of the shared cache service.
+ * Regions which are not configured (or disabled) always go to the shared cache.
+ *
+ * @version October 18, 2026
+ */
+public class NearCacheConfiguration {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final int DEFAULT_TTL = 30; // 30 seconds
+
+    private String region;
+    private Boolean enabled;
+    private Integer maxSize;
+    private Integer ttl;
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : false;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return maximum number of entries kept in the region, older entries are evicted once reached
+     */
+    public Integer getMaxSize() {
+        if (maxSize == null || maxSize <= 0) {
+            return DEFAULT_MAX_SIZE;
+        }
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return time to live of entry in seconds (counted from write)
+     */
+    public Integer getTtl() {
+        if (ttl == null || ttl <= 0) {
+            return DEFAULT_TTL;
+        }
+        return ttl;
+    }
+
+    public void setTtl(Integer ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -130,27 +130,43 @@ public abstract class AbstractCryptoProvider {
         for (int i = 0; i < webKeys.length(); i++) {
             JSONObject key = webKeys.getJSONObject(i);
             if (alias.equals(key.getString(KEY_ID))) {
-                SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.fromString(key.getString(ALGORITHM));
-                if (signatureAlgorithm != null) {
-                    if (signatureAlgorithm.getFamily().equals(SignatureAlgorithmFamily.RSA)) {
-                        publicKey = new RSAPublicKeyImpl(
-                                new BigInteger(1, Base64Util.base64urldecode(key.getString(MODULUS))),
-                                new BigInteger(1, Base64Util.base64urldecode(key.getString(EXPONENT))));
-                    } else if (signatureAlgorithm.getFamily().equals(SignatureAlgorithmFamily.EC)) {
-                        AlgorithmParameters parameters = AlgorithmParameters.getInstance(SignatureAlgorithmFamily.EC);
-                        parameters.init(new ECGenParameterSpec(signatureAlgorithm.getCurve().getAlias()));
-                        ECParameterSpec ecParameters = parameters.getParameterSpec(ECParameterSpec.class);
-
-                        publicKey = KeyFactory.getInstance(SignatureAlgorithmFamily.EC).generatePublic(new ECPublicKeySpec(
-                                new ECPoint(
-                                        new BigInteger(1, Base64Util.base64urldecode(key.getString(X))),
-                                        new BigInteger(1, Base64Util.base64urldecode(key.getString(Y)))
-                                ), ecParameters));
-                    }
+                PublicKey decodedKey = decodePublicKey(key);
+                if (decodedKey != null) {
+                    publicKey = decodedKey;
                 }
             }
         }
 
         return publicKey;
     }
-}
\ No newline at end of file
+
+    /**
+     * Decodes public key from single JWK
+     *
+     * @return decoded key or null if algorithm of key is not supported
+     */
+    public PublicKey decodePublicKey(JSONObject key) throws Exception {
+        java.security.PublicKey publicKey = null;
+
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.fromString(key.getString(ALGORITHM));
+        if (signatureAlgorithm != null) {
+            if (signatureAlgorithm.getFamily().equals(SignatureAlgorithmFamily.RSA)) {
+                publicKey = new RSAPublicKeyImpl(
+                        new BigInteger(1, Base64Util.base64urldecode(key.getString(MODULUS))),
+                        new BigInteger(1, Base64Util.base64urldecode(key.getString(EXPONENT))));
+            } else if (signatureAlgorithm.getFamily().equals(SignatureAlgorithmFamily.EC)) {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance(SignatureAlgorithmFamily.EC);
+                parameters.init(new ECGenParameterSpec(signatureAlgorithm.getCurve().getAlias()));
+                ECParameterSpec ecParameters = parameters.getParameterSpec(ECParameterSpec.class);
+
+                publicKey = KeyFactory.getInstance(SignatureAlgorithmFamily.EC).generatePublic(new ECPublicKeySpec(
+                        new ECPoint(
+                                new BigInteger(1, Base64Util.base64urldecode(key.getString(X))),
+                                new BigInteger(1, Base64Util.base64urldecode(key.getString(Y)))
+                        ), ecParameters));
+            }
+        }
+
+        return publicKey;
+    }
+}
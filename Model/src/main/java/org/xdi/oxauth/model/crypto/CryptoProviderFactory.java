@@ -15,6 +15,9 @@ import org.xdi.oxauth.model.configuration.AppConfiguration;
  */
 public class CryptoProviderFactory {
 
+    // Key store is loaded once and reused until it is modified or reset
+    private static volatile OxAuthCryptoProvider keyStoreCryptoProvider;
+
     public static AbstractCryptoProvider getCryptoProvider(AppConfiguration configuration) throws Exception {
         AbstractCryptoProvider cryptoProvider = null;
         WebKeyStorage webKeyStorage = configuration.getWebKeysStorage();
@@ -24,7 +27,7 @@ public class CryptoProviderFactory {
                 String keyStoreFile = configuration.getKeyStoreFile();
                 String keyStoreSecret = configuration.getKeyStoreSecret();
                 String dnName = configuration.getDnName();
-                cryptoProvider = new OxAuthCryptoProvider(keyStoreFile, keyStoreSecret, dnName);
+                cryptoProvider = getKeyStoreCryptoProvider(keyStoreFile, keyStoreSecret, dnName);
                 break;
             case PKCS11:
                 cryptoProvider = new OxElevenCryptoProvider(
@@ -38,4 +41,28 @@ public class CryptoProviderFactory {
 
         return cryptoProvider;
     }
+
+    private static OxAuthCryptoProvider getKeyStoreCryptoProvider(String keyStoreFile, String keyStoreSecret, String dnName) throws Exception {
+        OxAuthCryptoProvider cryptoProvider = keyStoreCryptoProvider;
+        if ((cryptoProvider != null) && cryptoProvider.isActual(keyStoreFile, keyStoreSecret, dnName)) {
+            return cryptoProvider;
+        }
+
+        synchronized (CryptoProviderFactory.class) {
+            cryptoProvider = keyStoreCryptoProvider;
+            if ((cryptoProvider == null) || !cryptoProvider.isActual(keyStoreFile, keyStoreSecret, dnName)) {
+                cryptoProvider = new OxAuthCryptoProvider(keyStoreFile, keyStoreSecret, dnName);
+                keyStoreCryptoProvider = cryptoProvider;
+            }
+        }
+
+        return cryptoProvider;
+    }
+
+    /**
+     * Drops cached key store provider with all decoded keys. Next call reloads key store.
+     */
+    public static void reset() {
+        keyStoreCryptoProvider = null;
+    }
 }
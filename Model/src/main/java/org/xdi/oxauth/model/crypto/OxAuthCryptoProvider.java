@@ -6,6 +6,8 @@
 
 package org.xdi.oxauth.model.crypto;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 import org.bouncycastle.asn1.ASN1EncodableVector;
@@ -20,6 +22,7 @@ import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.apache.commons.lang.StringUtils;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
@@ -51,6 +54,10 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.xdi.oxauth.model.jwk.JWKParameter.*;
 
@@ -63,10 +70,25 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
 
     private static final Logger LOG = Logger.getLogger(OxAuthCryptoProvider.class);
 
+    private static final int JWKS_PUBLIC_KEYS_CACHE_SIZE = 1000;
+
+    private static final int MAX_POOLED_INSTANCES = 64; // per algorithm
+
+    // Signature and Mac are not thread safe, idle instances are kept in bounded pool per algorithm.
+    // Pool is not bound to container threads, so it doesn't keep classloader alive after redeploy
+    private static final ConcurrentMap<String, BlockingQueue<Signature>> SIGNATURES = new ConcurrentHashMap<String, BlockingQueue<Signature>>();
+    private static final ConcurrentMap<String, BlockingQueue<Mac>> MACS = new ConcurrentHashMap<String, BlockingQueue<Mac>>();
+
     private KeyStore keyStore;
     private String keyStoreFile;
     private String keyStoreSecret;
     private String dnName;
+    private volatile long keyStoreLastModified;
+
+    private final ConcurrentMap<String, PrivateKey> privateKeys = new ConcurrentHashMap<String, PrivateKey>();
+    private final ConcurrentMap<String, PublicKey> publicKeys = new ConcurrentHashMap<String, PublicKey>();
+    private final Cache<String, PublicKey> jwksPublicKeys = CacheBuilder.newBuilder()
+            .maximumSize(JWKS_PUBLIC_KEYS_CACHE_SIZE).build();
 
     public OxAuthCryptoProvider() throws Exception {
         this(null, null, null);
@@ -89,6 +111,8 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
                 }
                 final InputStream is = new FileInputStream(keyStoreFile);
                 keyStore.load(is, keyStoreSecret.toCharArray());
+                is.close();
+                keyStoreLastModified = f.lastModified();
             } catch (Exception e) {
                 LOG.error(e.getMessage(), e);
             }
@@ -125,8 +149,7 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
         String alias = UUID.randomUUID().toString();
 
         keyStore.setKeyEntry(alias, pk, keyStoreSecret.toCharArray(), chain);
-        FileOutputStream stream = new FileOutputStream(keyStoreFile);
-        keyStore.store(stream, keyStoreSecret.toCharArray());
+        storeKeyStore();
 
         PublicKey publicKey = keyPair.getPublic();
 
@@ -159,19 +182,25 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
             return "";
         } else if (SignatureAlgorithmFamily.HMAC.equals(signatureAlgorithm.getFamily())) {
             SecretKey secretKey = new SecretKeySpec(sharedSecret.getBytes(Util.UTF8_STRING_ENCODING), signatureAlgorithm.getAlgorithm());
-            Mac mac = Mac.getInstance(signatureAlgorithm.getAlgorithm());
-            mac.init(secretKey);
-            byte[] sig = mac.doFinal(signingInput.getBytes());
-            return Base64Util.base64urlencode(sig);
+            Mac mac = getMac(signatureAlgorithm, secretKey);
+            try {
+                byte[] sig = mac.doFinal(signingInput.getBytes());
+                return Base64Util.base64urlencode(sig);
+            } finally {
+                releaseMac(signatureAlgorithm, mac);
+            }
         } else { // EC or RSA
             PrivateKey privateKey = getPrivateKey(alias);
 
-            Signature signature = Signature.getInstance(signatureAlgorithm.getAlgorithm(), "BC");
-            //Signature signature = Signature.getInstance(signatureAlgorithm.getAlgorithm());
-            signature.initSign(privateKey);
-            signature.update(signingInput.getBytes());
+            Signature signature = getSignature(signatureAlgorithm);
+            try {
+                signature.initSign(privateKey);
+                signature.update(signingInput.getBytes());
 
-            return Base64Util.base64urlencode(signature.sign());
+                return Base64Util.base64urlencode(signature.sign());
+            } finally {
+                releaseSignature(signatureAlgorithm, signature);
+            }
         }
     }
 
@@ -199,11 +228,14 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
 
                 byte[] signature = Base64Util.base64urldecode(encodedSignature);
 
-                Signature verifier = Signature.getInstance(signatureAlgorithm.getAlgorithm(), "BC");
-                //Signature verifier = Signature.getInstance(signatureAlgorithm.getAlgorithm());
-                verifier.initVerify(publicKey);
-                verifier.update(signingInput.getBytes());
-                verified = verifier.verify(signature);
+                Signature verifier = getSignature(signatureAlgorithm);
+                try {
+                    verifier.initVerify(publicKey);
+                    verifier.update(signingInput.getBytes());
+                    verified = verifier.verify(signature);
+                } finally {
+                    releaseSignature(signatureAlgorithm, verifier);
+                }
             } catch (NoSuchAlgorithmException e) {
                 LOG.error(e.getMessage(), e);
                 verified = false;
@@ -234,11 +266,53 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
     @Override
     public boolean deleteKey(String alias) throws Exception {
         keyStore.deleteEntry(alias);
-        FileOutputStream stream = new FileOutputStream(keyStoreFile);
-        keyStore.store(stream, keyStoreSecret.toCharArray());
+        storeKeyStore();
+
+        privateKeys.remove(alias);
+        publicKeys.remove(alias);
         return true;
     }
 
+    private void storeKeyStore() throws Exception {
+        FileOutputStream stream = new FileOutputStream(keyStoreFile);
+        try {
+            keyStore.store(stream, keyStoreSecret.toCharArray());
+        } finally {
+            stream.close();
+        }
+
+        // Own changes must not be taken as external key store modification
+        keyStoreLastModified = new File(keyStoreFile).lastModified();
+    }
+
+    /**
+     * @return true if provider was created for the same key store and key store file was not modified since it was loaded
+     */
+    public boolean isActual(String keyStoreFile, String keyStoreSecret, String dnName) {
+        if (!StringUtils.equals(this.keyStoreFile, keyStoreFile) || !StringUtils.equals(this.keyStoreSecret, keyStoreSecret)
+                || !StringUtils.equals(this.dnName, dnName)) {
+            return false;
+        }
+
+        return Util.isNullOrEmpty(keyStoreFile) || (new File(keyStoreFile).lastModified() == keyStoreLastModified);
+    }
+
+    @Override
+    public PublicKey decodePublicKey(JSONObject key) throws Exception {
+        // JWKs of clients may reuse key ids, cache decoded key by whole JWK
+        String cacheKey = key.toString();
+
+        PublicKey publicKey = jwksPublicKeys.getIfPresent(cacheKey);
+        if (publicKey == null) {
+            publicKey = super.decodePublicKey(key);
+            if (publicKey != null) {
+                jwksPublicKeys.put(cacheKey, publicKey);
+            }
+        }
+
+        return publicKey;
+    }
+
     public PublicKey getPublicKey(String alias) {
         PublicKey publicKey = null;
 
@@ -247,11 +321,17 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
                 return null;
             }
 
+            publicKey = publicKeys.get(alias);
+            if (publicKey != null) {
+                return publicKey;
+            }
+
             java.security.cert.Certificate certificate = keyStore.getCertificate(alias);
             if (certificate == null) {
                 return null;
             }
             publicKey = certificate.getPublicKey();
+            publicKeys.put(alias, publicKey);
         } catch (KeyStoreException e) {
             e.printStackTrace();
         }
@@ -265,15 +345,72 @@ public class OxAuthCryptoProvider extends AbstractCryptoProvider {
             return null;
         }
 
+        PrivateKey privateKey = privateKeys.get(alias);
+        if (privateKey != null) {
+            return privateKey;
+        }
+
         Key key = keyStore.getKey(alias, keyStoreSecret.toCharArray());
         if (key == null) {
             return null;
         }
-        PrivateKey privateKey = (PrivateKey) key;
+        privateKey = (PrivateKey) key;
+        privateKeys.put(alias, privateKey);
 
         return privateKey;
     }
 
+    /**
+     * Instance has to be returned with {@link #releaseSignature(SignatureAlgorithm, Signature)} after use
+     */
+    private static Signature getSignature(SignatureAlgorithm signatureAlgorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+        Signature signature = getPool(SIGNATURES, signatureAlgorithm.getAlgorithm()).poll();
+        if (signature == null) {
+            signature = Signature.getInstance(signatureAlgorithm.getAlgorithm(), "BC");
+        }
+
+        return signature;
+    }
+
+    private static void releaseSignature(SignatureAlgorithm signatureAlgorithm, Signature signature) {
+        // Dropped if pool is full
+        getPool(SIGNATURES, signatureAlgorithm.getAlgorithm()).offer(signature);
+    }
+
+    /**
+     * Returns instance initialized with given key, so key of previous user of pooled instance is never used.
+     * Instance has to be returned with {@link #releaseMac(SignatureAlgorithm, Mac)} after use
+     */
+    private static Mac getMac(SignatureAlgorithm signatureAlgorithm, SecretKey secretKey) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = getPool(MACS, signatureAlgorithm.getAlgorithm()).poll();
+        if (mac == null) {
+            mac = Mac.getInstance(signatureAlgorithm.getAlgorithm());
+        }
+
+        mac.init(secretKey);
+        return mac;
+    }
+
+    private static void releaseMac(SignatureAlgorithm signatureAlgorithm, Mac mac) {
+        // Clears data of unfinished operation only. Pooled instance keeps last secret key until getMac initializes
+        // it with key of next user
+        mac.reset();
+        getPool(MACS, signatureAlgorithm.getAlgorithm()).offer(mac);
+    }
+
+    private static <T> BlockingQueue<T> getPool(ConcurrentMap<String, BlockingQueue<T>> pools, String algorithm) {
+        BlockingQueue<T> pool = pools.get(algorithm);
+        if (pool == null) {
+            BlockingQueue<T> newPool = new ArrayBlockingQueue<T>(MAX_POOLED_INSTANCES);
+            pool = pools.putIfAbsent(algorithm, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+
+        return pool;
+    }
+
     public X509Certificate generateV3Certificate(KeyPair keyPair, String issuer, String signatureAlgorithm, Long expirationTime) throws CertIOException, OperatorCreationException, CertificateException {
         PrivateKey privateKey = keyPair.getPrivate();
         PublicKey publicKey = keyPair.getPublic();
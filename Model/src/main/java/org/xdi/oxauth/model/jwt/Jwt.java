@@ -56,19 +56,23 @@ public class Jwt extends JsonWebResponse {
             return null;
         }
 
-        String encodedHeader = null;
-        String encodedClaims = null;
-        String encodedSignature = null;
-
-        String[] jwtParts = encodedJwt.split("\\.");
-        if (jwtParts.length == 2) { // Signature Algorithm NONE
-            encodedHeader = jwtParts[0];
-            encodedClaims = jwtParts[1];
+        // Segments are kept as they are, signature is verified against original encoded header and claims
+        int headerEnd = encodedJwt.indexOf('.');
+        if (headerEnd == -1) {
+            throw new InvalidJwtException("Invalid JWT format.");
+        }
+
+        String encodedHeader = encodedJwt.substring(0, headerEnd);
+        String encodedClaims;
+        String encodedSignature;
+
+        int claimsEnd = encodedJwt.indexOf('.', headerEnd + 1);
+        if (claimsEnd == -1) { // Signature Algorithm NONE
+            encodedClaims = encodedJwt.substring(headerEnd + 1);
             encodedSignature = "";
-        } else if (jwtParts.length == 3) {
-            encodedHeader = jwtParts[0];
-            encodedClaims = jwtParts[1];
-            encodedSignature = jwtParts[2];
+        } else if (encodedJwt.indexOf('.', claimsEnd + 1) == -1) {
+            encodedClaims = encodedJwt.substring(headerEnd + 1, claimsEnd);
+            encodedSignature = encodedJwt.substring(claimsEnd + 1);
         } else {
             throw new InvalidJwtException("Invalid JWT format.");
         }
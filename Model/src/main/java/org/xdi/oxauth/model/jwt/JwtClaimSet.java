@@ -282,6 +282,11 @@ public abstract class JwtClaimSet {
     }
 
     public void load(String base64JsonObject) throws InvalidJwtException {
+        if (JwtClaimsParser.isStreamingEnabled()) {
+            loadStreaming(base64JsonObject);
+            return;
+        }
+
         try {
             String jsonObjectString = new String(Base64Util.base64urldecode(base64JsonObject), Util.UTF8_STRING_ENCODING);
             load(new JSONObject(jsonObjectString));
@@ -293,4 +298,21 @@ public abstract class JwtClaimSet {
             throw new InvalidJwtException(e);
         }
     }
+
+    /**
+     * Reads claims from decoded bytes with streaming parser, neither JSON string nor JSON tree is created.
+     */
+    private void loadStreaming(String base64JsonObject) throws InvalidJwtException {
+        Map<String, Object> loadedClaims;
+        try {
+            loadedClaims = JwtClaimsParser.parse(Base64Util.base64urldecode(base64JsonObject));
+        } catch (InvalidJwtException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidJwtException(e);
+        }
+
+        claims.clear();
+        claims.putAll(loadedClaims);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.jwt;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+
+/**
+ * Streaming parser of JWT header and claims. Top level members are read directly into claims map without
+ * building JSON tree, values have the same types as values of parsed {@link JSONObject} (Integer, Long,
+ * Double, Boolean, String, {@link JSONObject#NULL}, {@link JSONArray} and {@link JSONObject}).
+ * <p>
+ * Enabled with system property "oxauth.jwt.streamingParser=true".
+ *
+ * @version October 18, 2026
+ */
+public final class JwtClaimsParser {
+
+    public static final String STREAMING_PARSER_PROPERTY = "oxauth.jwt.streamingParser";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static volatile boolean streamingEnabled = Boolean.getBoolean(STREAMING_PARSER_PROPERTY);
+
+    private JwtClaimsParser() {
+    }
+
+    public static boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    public static void setStreamingEnabled(boolean streamingEnabled) {
+        JwtClaimsParser.streamingEnabled = streamingEnabled;
+    }
+
+    public static Map<String, Object> parse(byte[] json) throws InvalidJwtException {
+        JsonParser parser = null;
+        try {
+            parser = JSON_FACTORY.createJsonParser(json);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidJwtException("JSON object is expected.");
+            }
+
+            Map<String, Object> claims = new LinkedHashMap<String, Object>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                claims.put(name, readValue(parser, parser.nextToken()));
+            }
+
+            if (parser.nextToken() != null) {
+                throw new InvalidJwtException("Unexpected content after JSON object.");
+            }
+
+            return claims;
+        } catch (IOException e) {
+            throw new InvalidJwtException(e);
+        } catch (JSONException e) {
+            throw new InvalidJwtException(e);
+        } finally {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    // nothing to release, parser reads byte array
+                }
+            }
+        }
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException, JSONException {
+        if (token == null) {
+            throw new IOException("Unexpected end of JSON.");
+        }
+
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return parser.getIntValue();
+                    case LONG:
+                        return parser.getLongValue();
+                    default:
+                        return parser.getDoubleValue();
+                }
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return JSONObject.NULL;
+            case START_ARRAY:
+                JSONArray array = new JSONArray();
+                for (JsonToken next = parser.nextToken(); next != JsonToken.END_ARRAY; next = parser.nextToken()) {
+                    array.put(readValue(parser, next));
+                }
+                return array;
+            case START_OBJECT:
+                JSONObject object = new JSONObject();
+                for (JsonToken next = parser.nextToken(); next != JsonToken.END_OBJECT; next = parser.nextToken()) {
+                    if (next != JsonToken.FIELD_NAME) {
+                        throw new IOException("Field name is expected.");
+                    }
+                    String name = parser.getCurrentName();
+                    object.put(name, readValue(parser, parser.nextToken()));
+                }
+                return object;
+            default:
+                throw new IOException("Unexpected JSON token: " + token);
+        }
+    }
+
+}
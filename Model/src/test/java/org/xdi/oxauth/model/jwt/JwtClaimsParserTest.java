@@ -0,0 +1,79 @@
+package org.xdi.oxauth.model.jwt;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.util.Base64Util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class JwtClaimsParserTest {
+
+    private static final String CLAIMS = "{\"iss\":\"https://op.example.com\",\"aud\":[\"a\",\"b\"],\"exp\":1500000000," +
+            "\"big\":15000000000000,\"ratio\":1.5,\"verified\":true,\"nonce\":null,\"address\":{\"country\":\"US\"}}";
+
+    @Test
+    public void valuesHaveJettisonTypes() throws Exception {
+        Map<String, Object> claims = JwtClaimsParser.parse(CLAIMS.getBytes("UTF-8"));
+
+        assertEquals(claims.get("iss"), "https://op.example.com");
+        assertTrue(claims.get("aud") instanceof JSONArray);
+        assertEquals(claims.get("exp"), 1500000000);
+        assertEquals(claims.get("big"), 15000000000000L);
+        assertEquals(claims.get("ratio"), 1.5);
+        assertEquals(claims.get("verified"), Boolean.TRUE);
+        assertEquals(claims.get("nonce"), JSONObject.NULL);
+        assertTrue(claims.get("address") instanceof JSONObject);
+    }
+
+    @Test
+    public void streamingAndTreeParsingGiveSameClaims() throws Exception {
+        String encoded = Base64Util.base64urlencode(CLAIMS.getBytes("UTF-8"));
+
+        JwtClaimsParser.setStreamingEnabled(false);
+        JwtClaims treeClaims = new JwtClaims(encoded);
+        JwtClaimsParser.setStreamingEnabled(true);
+        try {
+            JwtClaims streamingClaims = new JwtClaims(encoded);
+
+            assertEquals(streamingClaims.toJsonString(), treeClaims.toJsonString());
+            assertEquals(streamingClaims.getClaimAsStringList("aud"), Arrays.asList("a", "b"));
+            assertEquals(streamingClaims.getClaimAsDate("exp"), treeClaims.getClaimAsDate("exp"));
+        } finally {
+            JwtClaimsParser.setStreamingEnabled(false);
+        }
+    }
+
+    @Test(expectedExceptions = InvalidJwtException.class)
+    public void notObjectIsRejected() throws Exception {
+        JwtClaimsParser.parse("[1,2]".getBytes("UTF-8"));
+    }
+
+    @Test(expectedExceptions = InvalidJwtException.class)
+    public void truncatedObjectIsRejected() throws Exception {
+        JwtClaimsParser.parse("{\"iss\":\"a\",\"aud\":[\"b\"".getBytes("UTF-8"));
+    }
+
+    @Test
+    public void parseKeepsEncodedSegments() throws Exception {
+        String header = Base64Util.base64urlencode("{\"alg\":\"none\"}".getBytes("UTF-8"));
+        String claims = Base64Util.base64urlencode(CLAIMS.getBytes("UTF-8"));
+
+        Jwt jwt = Jwt.parse(header + "." + claims + ".");
+        assertEquals(jwt.getSigningInput(), header + "." + claims);
+        assertEquals(jwt.getEncodedSignature(), "");
+    }
+
+    @Test(expectedExceptions = InvalidJwtException.class)
+    public void moreThanThreeSegmentsAreRejected() throws Exception {
+        Jwt.parse("a.b.c.d");
+    }
+}
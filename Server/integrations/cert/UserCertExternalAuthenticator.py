@@ -58,12 +58,17 @@ class PersonAuthentication(PersonAuthenticationType):
             crl_max_response_size = StringHelper.toInteger(configurationAttributes.get("crl_max_response_size").getValue2(), crl_max_response_size)
             print "Cert. Initialization. CRL max response size is '%d'" % crl_max_response_size
 
+        crl_cache_dir = None
+        if configurationAttributes.containsKey("crl_cache_dir"):
+            crl_cache_dir = configurationAttributes.get("crl_cache_dir").getValue2()
+            print "Cert. Initialization. CRL cache folder is '%s'" % crl_cache_dir
+
         # Define array to order methods correctly
         self.validator_types = [ 'generic', 'path', 'ocsp', 'crl']
         self.validators = { 'generic' : [GenericCertificateVerifier(), False],
                             'path' : [PathCertificateVerifier(False), False],
                             'ocsp' : [OCSPCertificateVerifier(), False],
-                            'crl' : [CRLCertificateVerifier(crl_max_response_size), False] }
+                            'crl' : [CRLCertificateVerifier(crl_max_response_size, crl_cache_dir), False] }
 
         for type in self.validator_types:
             validator_param_name = "use_%s_validator" % type
@@ -1,14 +1,20 @@
 package org.xdi.oxauth.audit;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import javax.ejb.Asynchronous;
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
@@ -27,12 +33,20 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.audit.OAuth2AuditLog;
+import org.xdi.oxauth.model.common.AuditLogOverflowPolicy;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.MetricService;
 import org.xdi.oxauth.util.ServerUtil;
 import org.xdi.service.cdi.event.ConfigurationUpdate;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Objects;
 
+/**
+ * Audit log entries are put into bounded queue and sent by background thread in batches
+ * through long-lived JMS session. Queue size is applied on start only.
+ */
 @Named
 @ApplicationScoped
 @DependsOn("appInitializer")
@@ -46,6 +60,7 @@ public class ApplicationAuditLogger {
 	private final int ACK_MODE = Session.AUTO_ACKNOWLEDGE;
 	private final String CLIENT_QUEUE_NAME = "oauth2.audit.logging";
 	private final boolean transacted = false;
+	private final long POLL_TIMEOUT = 1000; // 1 second
 
 	private volatile PooledConnectionFactory pooledConnectionFactory;
 
@@ -56,8 +71,22 @@ public class ApplicationAuditLogger {
 	@Inject
 	private AppConfiguration appConfiguration;
 
+	@Inject
+	private MetricService metricService;
+
 	private final ReentrantLock lock = new ReentrantLock();
 
+	private BlockingQueue<OAuth2AuditLog> queue;
+	private ExecutorService sender;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong sentCount = new AtomicLong();
+
+	// JMS session and producer are not thread safe, they are used by sender thread only
+	private QueueConnection connection;
+	private QueueSession session;
+	private MessageProducer producer;
+
 	private boolean updateState;
 	private Boolean enabledOAuthAuditnLogging;
 
@@ -67,31 +96,136 @@ public class ApplicationAuditLogger {
 
     @PostConstruct
 	public void init() {
-		if (BooleanUtils.isNotTrue(isEnabledOAuthAuditnLogging())) {
-			return;
-		}
-
-		tryToEstablishJMSConnection();
+		this.queue = new ArrayBlockingQueue<OAuth2AuditLog>(appConfiguration.getAuditLogQueueSize());
+		registerMetrics();
+
+		this.sender = ServerUtil.createFixedExecutor(1, "oxauth-audit-sender");
+		this.sender.execute(new Runnable() {
+			@Override
+			public void run() {
+				sendQueuedMessages();
+			}
+		});
 	}
 
-	@Asynchronous
 	public void sendMessage(OAuth2AuditLog oAuth2AuditLog) {
 		if (BooleanUtils.isNotTrue(isEnabledOAuthAuditnLogging())) {
 			return;
 		}
 
-		if ((this.pooledConnectionFactory == null) || isJmsConfigChanged()) {
-			if (tryToEstablishJMSConnection())
-				loggingThroughJMS(oAuth2AuditLog);
-			else
-				loggingThroughFile(oAuth2AuditLog);
-		} else {
-			loggingThroughJMS(oAuth2AuditLog);
+		if (appConfiguration.getAuditLogOverflowPolicy() == AuditLogOverflowPolicy.BLOCK) {
+			try {
+				queue.put(oAuth2AuditLog);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				droppedCount.incrementAndGet();
+			}
+		} else if (!queue.offer(oAuth2AuditLog)) {
+			droppedCount.incrementAndGet();
 		}
 	}
 
 	@PreDestroy
 	public void destroy() {
+		if (this.sender != null) {
+			this.sender.shutdownNow();
+			try {
+				this.sender.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		destroyConnectionFactory();
+	}
+
+	/**
+	 * @return count of entries which were not logged because queue was full
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return count of entries waiting to be sent
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	private void registerMetrics() {
+		MetricRegistry registry = metricService.getLocalMetricRegistry();
+		registerGauge(registry, "queue_size", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return queue.size();
+			}
+		});
+		registerGauge(registry, "dropped", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return droppedCount.get();
+			}
+		});
+		registerGauge(registry, "sent", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return sentCount.get();
+			}
+		});
+	}
+
+	private void registerGauge(MetricRegistry registry, String name, Gauge<?> gauge) {
+		String fullName = MetricRegistry.name(ApplicationAuditLogger.class, name);
+		registry.remove(fullName);
+		registry.register(fullName, gauge);
+	}
+
+	private void sendQueuedMessages() {
+		final List<OAuth2AuditLog> batch = new ArrayList<OAuth2AuditLog>();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				OAuth2AuditLog oAuth2AuditLog = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+				if (oAuth2AuditLog == null) {
+					continue;
+				}
+
+				batch.add(oAuth2AuditLog);
+				queue.drainTo(batch, appConfiguration.getAuditLogBatchSize() - 1);
+				try {
+					sendBatch(batch);
+				} catch (Exception e) {
+					log.error("Failed to send audit log batch", e);
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			log.debug("Audit log sender was interrupted");
+		} finally {
+			// Don't lose queued entries on shutdown
+			queue.drainTo(batch);
+			for (OAuth2AuditLog oAuth2AuditLog : batch) {
+				loggingThroughFile(oAuth2AuditLog);
+			}
+			closeJmsSession();
+		}
+	}
+
+	private void sendBatch(List<OAuth2AuditLog> batch) {
+		if ((this.pooledConnectionFactory == null) || isJmsConfigChanged()) {
+			closeJmsSession();
+			if (!tryToEstablishJMSConnection()) {
+				for (OAuth2AuditLog oAuth2AuditLog : batch) {
+					loggingThroughFile(oAuth2AuditLog);
+				}
+				return;
+			}
+		}
+
+		loggingThroughJMS(batch);
+	}
+
+	private void destroyConnectionFactory() {
 		if (this.pooledConnectionFactory == null)
 			return;
 		this.pooledConnectionFactory.clear();
@@ -102,7 +236,7 @@ public class ApplicationAuditLogger {
 		lock.lock();
 		try {
 			// Check if another thread init JMS pool already
-			if ((this.pooledConnectionFactory != null) && !isJmsConfigChanged()) {
+			if ((this.pooledConnectionFactory == null) || isJmsConfigChanged()) {
 				return tryToEstablishJMSConnectionImpl();
 			}
 
@@ -113,7 +247,7 @@ public class ApplicationAuditLogger {
 	}
 
 	private boolean tryToEstablishJMSConnectionImpl() {
-		destroy();
+		destroyConnectionFactory();
 
 		Set<String> jmsBrokerURISet = getJmsBrokerURISet();
 		if (BooleanUtils.isNotTrue(isEnabledOAuthAuditnLogging()) || CollectionUtils.isEmpty(jmsBrokerURISet))
@@ -147,38 +281,58 @@ public class ApplicationAuditLogger {
 		return true;
 	}
 
-	private void loggingThroughJMS(OAuth2AuditLog oAuth2AuditLog) {
-		QueueConnection connection = null;
-		try {
-			connection = pooledConnectionFactory.createQueueConnection();
-			connection.start();
+	private void loggingThroughJMS(List<OAuth2AuditLog> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			OAuth2AuditLog oAuth2AuditLog = batch.get(i);
+			try {
+				if (this.producer == null) {
+					openJmsSession();
+				}
+
+				TextMessage txtMessage = this.session.createTextMessage();
+				txtMessage.setText(ServerUtil.asJson(oAuth2AuditLog));
+				this.producer.send(txtMessage);
+				sentCount.incrementAndGet();
+			} catch (IOException e) {
+				log.error("Can't serialize the audit log", e);
+			} catch (Exception e) {
+				log.error("Can't send message, please check your activeMQ configuration.", e);
+
+				// Session may be broken, open new one for next batch and keep rest of this batch in log file
+				closeJmsSession();
+				for (int j = i; j < batch.size(); j++) {
+					loggingThroughFile(batch.get(j));
+				}
+				return;
+			}
+		}
+	}
+
+	private void openJmsSession() throws JMSException {
+		this.connection = pooledConnectionFactory.createQueueConnection();
+		this.connection.start();
 
-			QueueSession session = connection.createQueueSession(transacted, ACK_MODE);
-			MessageProducer producer = session.createProducer(session.createQueue(CLIENT_QUEUE_NAME));
+		this.session = connection.createQueueSession(transacted, ACK_MODE);
+		this.producer = session.createProducer(session.createQueue(CLIENT_QUEUE_NAME));
+	}
 
-			TextMessage txtMessage = session.createTextMessage();
-			txtMessage.setText(ServerUtil.asPrettyJson(oAuth2AuditLog));
-			producer.send(txtMessage);
+	private void closeJmsSession() {
+		this.producer = null;
+		this.session = null;
+		if (this.connection == null)
+			return;
+		try {
+			// Closes session and producer too
+			this.connection.close();
 		} catch (JMSException e) {
-			log.error("Can't send message", e);
-		} catch (IOException e) {
-			log.error("Can't serialize the audit log", e);
-		} catch (Exception e) {
-			log.error("Can't send message, please check your activeMQ configuration.", e);
-		} finally {
-			if (connection == null)
-				return;
-			try {
-				connection.close();
-			} catch (JMSException e) {
-				log.error("Can't close connection.");
-			}
+			log.error("Can't close connection.");
 		}
+		this.connection = null;
 	}
 
 	private void loggingThroughFile(OAuth2AuditLog oAuth2AuditLog) {
 		try {
-			log.info(ServerUtil.asPrettyJson(oAuth2AuditLog));
+			log.info(ServerUtil.asJson(oAuth2AuditLog));
 		} catch (IOException e) {
 			log.error("Can't serialize the audit log", e);
 		}
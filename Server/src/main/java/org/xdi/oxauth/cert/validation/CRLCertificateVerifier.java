@@ -8,53 +8,30 @@ package org.xdi.oxauth.cert.validation;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.BigInteger;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.security.NoSuchProviderException;
 import java.security.Principal;
-import java.security.cert.CRLException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509CRL;
-import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.ASN1TaggedObject;
 import org.bouncycastle.asn1.DERIA5String;
-import org.bouncycastle.asn1.DERInteger;
-import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.x509.CRLDistPoint;
 import org.bouncycastle.asn1.x509.DistributionPoint;
 import org.bouncycastle.asn1.x509.DistributionPointName;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
-import org.bouncycastle.asn1.x509.X509Extensions;
-import org.bouncycastle.x509.NoSuchParserException;
-import org.bouncycastle.x509.util.StreamParsingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.IndexedCrl;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.CertificateValidity;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.ValidatorSourceType;
 import org.xdi.oxauth.model.util.SecurityProviderUtility;
-
-import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import org.xdi.util.StringHelper;
 
 /**
  * Certificate verifier based on CRL
@@ -68,23 +45,20 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	private int maxCrlSize;
 
-	private LoadingCache<String, X509CRL> crlCache;
-
 	public CRLCertificateVerifier(final int maxCrlSize) {
+		this(maxCrlSize, null);
+	}
+
+	/**
+	 * @param crlCacheDir folder where last good CRLs are kept between restarts, default is used if it's empty
+	 */
+	public CRLCertificateVerifier(final int maxCrlSize, final String crlCacheDir) {
 		SecurityProviderUtility.installBCProvider(true);
 
 		this.maxCrlSize = maxCrlSize;
-		
-		CacheLoader<String, X509CRL> checkedLoader = new CacheLoader<String, X509CRL>() {
-			public X509CRL load(String crlURL) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException, MalformedURLException, IOException, ExecutionException {
-				X509CRL result = requestCRL(crlURL);
-				Preconditions.checkNotNull(result);
-
-				return result;
-			}
-		};
-
-		this.crlCache = CacheBuilder.newBuilder().maximumSize(10).expireAfterWrite(60, TimeUnit.MINUTES).build(checkedLoader);
+		if (StringHelper.isNotEmpty(crlCacheDir)) {
+			CrlStore.instance().setPersistenceDir(crlCacheDir);
+		}
 	}
 
 	@Override
@@ -103,25 +77,25 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 			log.debug("CRL's URL for '" + subjectX500Principal + "' is '" + crlURL + "'");
 
-			X509CRL x509crl = getCrl(crlURL);
-			if (!validateCRL(x509crl, certificate, issuer, validationDate)) {
+			IndexedCrl crl = getCrl(crlURL, issuer);
+			if (!validateCRL(crl, certificate, issuer, validationDate)) {
 				log.error("The CRL is not valid!");
 				status.setValidity(CertificateValidity.INVALID);
 				return status;
 			}
 
-			X509CRLEntry crlEntry = x509crl.getRevokedCertificate(certificate.getSerialNumber());
-			if (crlEntry == null) {
+			Date revocationDate = crl.getRevocationDate(certificate.getSerialNumber());
+			if (revocationDate == null) {
 				log.debug("CRL status is valid for '" + subjectX500Principal + "'");
 				status.setValidity(CertificateValidity.VALID);
-			} else if (crlEntry.getRevocationDate().after(validationDate)) {
+			} else if (revocationDate.after(validationDate)) {
 				log.warn("CRL revocation time after the validation date, the certificate '" + subjectX500Principal + "' was valid at " + validationDate);
-				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
+				status.setRevocationObjectIssuingTime(crl.getThisUpdate());
 				status.setValidity(CertificateValidity.VALID);
 			} else {
-				log.info("CRL for certificate '" + subjectX500Principal + "' is revoked since " + crlEntry.getRevocationDate());
-				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
-				status.setRevocationDate(crlEntry.getRevocationDate());
+				log.info("CRL for certificate '" + subjectX500Principal + "' is revoked since " + revocationDate);
+				status.setRevocationObjectIssuingTime(crl.getThisUpdate());
+				status.setRevocationDate(revocationDate);
 				status.setValidity(CertificateValidity.REVOKED);
 			}
 		} catch (Exception ex) {
@@ -131,40 +105,31 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 		return status;
 	}
 
-	private boolean validateCRL(X509CRL x509crl, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
+	private boolean validateCRL(IndexedCrl crl, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
 		Principal subjectX500Principal = certificate.getSubjectX500Principal();
 
-		if (x509crl == null) {
+		if (crl == null) {
 			log.error("No CRL found for certificate '" + subjectX500Principal + "'");
 			return false;
 		}
 
-		if (log.isTraceEnabled()) {
-			try {
-				log.trace("CRL number: " + getCrlNumber(x509crl));
-			} catch (IOException ex) {
-				log.error("Failed to get CRL number", ex);
-			}
-		}
-
-		if (!x509crl.getIssuerX500Principal().equals(issuerCertificate.getSubjectX500Principal())) {
+		if (!crl.getIssuer().equals(issuerCertificate.getSubjectX500Principal())) {
 			log.error("The CRL must be signed by the issuer '" + subjectX500Principal + "' but instead is signed by '"
-					+ x509crl.getIssuerX500Principal() + "'");
+					+ crl.getIssuer() + "'");
 			return false;
 		}
 
-		try {
-			x509crl.verify(issuerCertificate.getPublicKey());
-		} catch (Exception ex) {
-			log.error("The signature verification for CRL cannot be performed", ex);
+		// Signature was verified with this key when CRL was loaded
+		if (!crl.getIssuerKey().equals(issuerCertificate.getPublicKey())) {
+			log.error("The signature verification for CRL cannot be performed, CRL was verified with another key");
 			return false;
 		}
 
 		log.debug("CRL validationDate: " + validationDate);
-		log.debug("CRL nextUpdate: " + x509crl.getThisUpdate());
-		log.debug("CRL thisUpdate: " + x509crl.getNextUpdate());
+		log.debug("CRL thisUpdate: " + crl.getThisUpdate());
+		log.debug("CRL nextUpdate: " + crl.getNextUpdate());
 
-		if (x509crl.getNextUpdate() != null && validationDate.after(x509crl.getNextUpdate())) {
+		if (crl.getNextUpdate() != null && validationDate.after(crl.getNextUpdate())) {
 			log.error("CRL is too old");
 			return false;
 		}
@@ -183,58 +148,13 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	}
 
-	private X509CRL getCrl(String url) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException,
-			MalformedURLException, IOException, ExecutionException {
+	private IndexedCrl getCrl(String url, X509Certificate issuer) {
 		if (!(url.startsWith("http://") || url.startsWith("https://"))) {
 			log.error("It's possbiel to downloid CRL via HTTP and HTTPS only");
 			return null;
 		}
-		
-		String cacheKey = url.toLowerCase();
-		X509CRL crl = crlCache.get(cacheKey);
-
-		return crl;
-	}
-
-	public X509CRL requestCRL(String url) throws IOException, MalformedURLException, CertificateException, CRLException {
-		HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
-		try {
-			con.setUseCaches(false);
-
-			InputStream in = new BoundedInputStream(con.getInputStream(), maxCrlSize);
-			try {
-				CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-				X509CRL crl = (X509CRL) certificateFactory.generateCRL(in);
-				log.debug("CRL size: " + crl.getEncoded().length + " bytes");
-
-				return crl;
-			} finally {
-				IOUtils.closeQuietly(in);
-			}
-		} catch (IOException ex) {
-			log.error("Failed to download CRL from '" + url + "'", ex);
-		} finally {
-			if (con != null) {
-				con.disconnect();
-			}
-		}
-		
-		return null;
-	}
-
-	@SuppressWarnings({ "deprecation", "resource" })
-	private BigInteger getCrlNumber(X509CRL crl) throws IOException {
-		byte[] crlNumberExtensionValue = crl.getExtensionValue(X509Extensions.CRLNumber.getId());
-		if (crlNumberExtensionValue == null) {
-			return null;
-		}
-
-		DEROctetString octetString = (DEROctetString) (new ASN1InputStream(new ByteArrayInputStream(crlNumberExtensionValue)).readObject());
-		byte[] octets = octetString.getOctets();
-		DERInteger integer = (DERInteger) new ASN1InputStream(octets).readObject();
-		BigInteger crlNumber = integer.getPositiveValue();
 
-		return crlNumber;
+		return CrlStore.instance().getCrl(url, issuer, maxCrlSize);
 	}
 
 	public String getCrlUri(X509Certificate certificate) throws IOException {
@@ -295,7 +215,7 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	@Override
 	public void destroy() {
-		crlCache.cleanUp();
+		// CRL store is shared with verifiers created after script reload
 	}
 
 }
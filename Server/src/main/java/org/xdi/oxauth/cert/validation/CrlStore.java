@@ -0,0 +1,338 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.DERInteger;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x509.X509Extensions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.IndexedCrl;
+import org.xdi.oxauth.util.ServerUtil;
+
+/**
+ * Process wide CRL store shared by all {@link CRLCertificateVerifier} instances (they are re-created on each
+ * script reload). CRL is downloaded on request thread only the first time its URL is used and there is no
+ * copy on disk. After that it's refreshed in background before nextUpdate and request threads always get
+ * last good CRL. Each CRL is verified and indexed once per download.
+ *
+ * @version October 18, 2026
+ */
+public class CrlStore {
+
+	private static final Logger log = LoggerFactory.getLogger(CrlStore.class);
+
+	public static final String DEFAULT_PERSISTENCE_DIR = System.getProperty("java.io.tmpdir") + File.separator + "oxauth-crl";
+
+	private static final long MAX_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(60);
+	private static final long MIN_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+	private static final long IDLE_TIMEOUT = TimeUnit.DAYS.toMillis(1);
+
+	// First download is done on request thread which holds source lock
+	private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+	private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+	private static final CrlStore instance = new CrlStore();
+
+	private final ConcurrentMap<String, Source> sources = new ConcurrentHashMap<String, Source>();
+	private final ScheduledExecutorService refreshExecutor = ServerUtil.createExecutor();
+
+	private volatile File persistenceDir = new File(DEFAULT_PERSISTENCE_DIR);
+
+	private CrlStore() {
+	}
+
+	public static CrlStore instance() {
+		return instance;
+	}
+
+	public void setPersistenceDir(String persistenceDir) {
+		this.persistenceDir = new File(persistenceDir);
+	}
+
+	/**
+	 * Stops background refresh. Loaded CRLs are still returned, new ones are downloaded on request thread only.
+	 */
+	public void shutdown() {
+		refreshExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return last good CRL published at given URL and signed by issuer or null if it's not possible to get it
+	 */
+	public IndexedCrl getCrl(String url, X509Certificate issuer, int maxCrlSize) {
+		String key = url.toLowerCase();
+		Source source = sources.get(key);
+		if (source == null) {
+			Source newSource = new Source(key, url);
+			source = sources.putIfAbsent(key, newSource);
+			if (source == null) {
+				source = newSource;
+			}
+		}
+
+		source.maxCrlSize = maxCrlSize;
+		source.lastAccessTime = System.currentTimeMillis();
+
+		IndexedCrl crl = source.crl;
+		if ((crl != null) && crl.getIssuerKey().equals(issuer.getPublicKey())) {
+			return crl;
+		}
+
+		synchronized (source) {
+			crl = source.crl;
+			if ((crl != null) && crl.getIssuerKey().equals(issuer.getPublicKey())) {
+				return crl;
+			}
+
+			// Don't stall each request while CRL is not available, background refresh retries it
+			boolean sameIssuer = (source.issuer != null) && source.issuer.getPublicKey().equals(issuer.getPublicKey());
+			if (sameIssuer && (System.currentTimeMillis() - source.loadTime < RETRY_INTERVAL)) {
+				return crl;
+			}
+
+			// First use after start up or issuer key was changed
+			source.issuer = issuer;
+			source.loadTime = System.currentTimeMillis();
+			crl = loadFromDisk(source);
+			if ((crl == null) || isExpired(crl)) {
+				IndexedCrl downloadedCrl = download(source);
+				if (downloadedCrl != null) {
+					crl = downloadedCrl;
+				}
+			}
+
+			source.crl = crl;
+			scheduleRefresh(source);
+
+			return crl;
+		}
+	}
+
+	private void refresh(Source source) {
+		if (System.currentTimeMillis() - source.lastAccessTime > IDLE_TIMEOUT) {
+			log.debug("CRL '" + source.url + "' is not used anymore");
+			sources.remove(source.key, source);
+			return;
+		}
+
+		IndexedCrl crl = download(source);
+		synchronized (source) {
+			if (crl != null) {
+				source.crl = crl;
+			}
+			scheduleRefresh(source);
+		}
+	}
+
+	private void scheduleRefresh(final Source source) {
+		if (source.refreshFuture != null) {
+			source.refreshFuture.cancel(false);
+		}
+
+		long delay = getRefreshDelay(source.crl);
+		try {
+			source.refreshFuture = refreshExecutor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						refresh(source);
+					} catch (Exception ex) {
+						log.error("Failed to refresh CRL '" + source.url + "'", ex);
+					}
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			// Store is shut down
+			source.refreshFuture = null;
+			return;
+		}
+
+		log.debug("CRL '" + source.url + "' will be refreshed in " + TimeUnit.MILLISECONDS.toSeconds(delay) + " seconds");
+	}
+
+	private long getRefreshDelay(IndexedCrl crl) {
+		if (crl == null) {
+			return RETRY_INTERVAL;
+		}
+
+		if (crl.getNextUpdate() == null) {
+			return MAX_REFRESH_INTERVAL;
+		}
+
+		// Get new CRL before current one expires, CA usually publishes it ahead of nextUpdate
+		long validity = crl.getNextUpdate().getTime() - crl.getThisUpdate().getTime();
+		long delay = crl.getNextUpdate().getTime() - System.currentTimeMillis() - Math.max(MIN_REFRESH_INTERVAL, validity / 10);
+
+		return Math.min(MAX_REFRESH_INTERVAL, Math.max(MIN_REFRESH_INTERVAL, delay));
+	}
+
+	private boolean isExpired(IndexedCrl crl) {
+		return (crl.getNextUpdate() != null) && (crl.getNextUpdate().getTime() < System.currentTimeMillis());
+	}
+
+	private IndexedCrl download(Source source) {
+		byte[] encodedCrl = requestCrl(source.url, source.maxCrlSize);
+		if (encodedCrl == null) {
+			return null;
+		}
+
+		IndexedCrl crl = index(source, encodedCrl);
+		if (crl != null) {
+			storeToDisk(source, encodedCrl);
+		}
+
+		return crl;
+	}
+
+	private IndexedCrl index(Source source, byte[] encodedCrl) {
+		X509Certificate issuer = source.issuer;
+		try {
+			CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+			X509CRL x509crl = (X509CRL) certificateFactory.generateCRL(new ByteArrayInputStream(encodedCrl));
+
+			if (!x509crl.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+				log.error("The CRL '" + source.url + "' must be signed by the issuer '" + issuer.getSubjectX500Principal()
+						+ "' but instead is signed by '" + x509crl.getIssuerX500Principal() + "'");
+				return null;
+			}
+
+			x509crl.verify(issuer.getPublicKey());
+
+			IndexedCrl crl = IndexedCrl.index(x509crl, issuer.getPublicKey());
+			if (log.isDebugEnabled()) {
+				log.debug("CRL '" + source.url + "' loaded, size: " + encodedCrl.length + " bytes, revoked: " + crl.getRevokedCount()
+						+ ", number: " + getCrlNumber(x509crl) + ", nextUpdate: " + crl.getNextUpdate());
+			}
+
+			return crl;
+		} catch (Exception ex) {
+			log.error("Failed to load CRL '" + source.url + "'", ex);
+		}
+
+		return null;
+	}
+
+	private byte[] requestCrl(String url, int maxCrlSize) {
+		HttpURLConnection con = null;
+		try {
+			con = (HttpURLConnection) new URL(url).openConnection();
+			con.setConnectTimeout(CONNECT_TIMEOUT);
+			con.setReadTimeout(READ_TIMEOUT);
+			con.setUseCaches(false);
+
+			InputStream in = new BoundedInputStream(con.getInputStream(), maxCrlSize);
+			try {
+				return IOUtils.toByteArray(in);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		} catch (IOException ex) {
+			log.error("Failed to download CRL from '" + url + "'", ex);
+		} finally {
+			if (con != null) {
+				con.disconnect();
+			}
+		}
+
+		return null;
+	}
+
+	private IndexedCrl loadFromDisk(Source source) {
+		File file = getFile(source);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			return index(source, FileUtils.readFileToByteArray(file));
+		} catch (IOException ex) {
+			log.error("Failed to read CRL from '" + file + "'", ex);
+		}
+
+		return null;
+	}
+
+	private void storeToDisk(Source source, byte[] encodedCrl) {
+		File file = getFile(source);
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try {
+			FileUtils.writeByteArrayToFile(tmpFile, encodedCrl);
+			if (!tmpFile.renameTo(file)) {
+				FileUtils.deleteQuietly(file);
+				if (!tmpFile.renameTo(file)) {
+					log.error("Failed to store CRL to '" + file + "'");
+				}
+			}
+		} catch (IOException ex) {
+			log.error("Failed to store CRL to '" + file + "'", ex);
+		}
+	}
+
+	private File getFile(Source source) {
+		return new File(persistenceDir, DigestUtils.sha256Hex(source.key) + ".crl");
+	}
+
+	@SuppressWarnings({ "deprecation", "resource" })
+	private BigInteger getCrlNumber(X509CRL crl) throws IOException {
+		byte[] crlNumberExtensionValue = crl.getExtensionValue(X509Extensions.CRLNumber.getId());
+		if (crlNumberExtensionValue == null) {
+			return null;
+		}
+
+		DEROctetString octetString = (DEROctetString) (new ASN1InputStream(new ByteArrayInputStream(crlNumberExtensionValue)).readObject());
+		byte[] octets = octetString.getOctets();
+		DERInteger integer = (DERInteger) new ASN1InputStream(octets).readObject();
+		BigInteger crlNumber = integer.getPositiveValue();
+
+		return crlNumber;
+	}
+
+	private static class Source {
+
+		private final String key;
+		private final String url;
+
+		private volatile X509Certificate issuer;
+		private volatile int maxCrlSize;
+		private volatile long lastAccessTime;
+		private volatile IndexedCrl crl;
+
+		private long loadTime;
+		private ScheduledFuture<?> refreshFuture;
+
+		public Source(String key, String url) {
+			this.key = key;
+			this.url = url;
+		}
+
+	}
+
+}
@@ -17,18 +17,24 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.IOUtils;
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.ASN1TaggedObject;
 import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AccessDescription;
 import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
 import org.bouncycastle.asn1.x509.X509ObjectIdentifiers;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.CertificateID;
@@ -42,6 +48,7 @@ import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.SingleResp;
 import org.bouncycastle.operator.DigestCalculator;
 import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,16 +57,30 @@ import org.xdi.oxauth.cert.validation.model.ValidationStatus.CertificateValidity
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.ValidatorSourceType;
 import org.xdi.oxauth.model.util.SecurityProviderUtility;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Certificate verifier based on OCSP
  * 
  * @author Yuriy Movchan
- * @version March 10, 2016
+ * @version October 18, 2026
  */
 public class OCSPCertificateVerifier implements CertificateVerifier {
 
 	private static final Logger log = LoggerFactory.getLogger(OCSPCertificateVerifier.class);
 
+	// Request is done on authentication request thread
+	private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+	private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+	/*
+	 * Responses with nextUpdate keyed by (issuer, serial). It's shared with verifiers created after script reload.
+	 * Upper bound of entry life time is here, actual one is nextUpdate of response.
+	 */
+	private static final Cache<String, CachedResponse> responseCache = CacheBuilder.newBuilder().maximumSize(10000)
+			.expireAfterWrite(1, TimeUnit.DAYS).build();
+
 	public OCSPCertificateVerifier() {
 		SecurityProviderUtility.installBCProvider(true);
 	}
@@ -83,6 +104,14 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 			DigestCalculator digestCalculator = new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1);
 			CertificateID certificateId = new CertificateID(digestCalculator, new JcaX509CertificateHolder(certificate), certificate.getSerialNumber());
 
+			String cacheKey = getCacheKey(certificateId);
+			CachedResponse cachedResponse = responseCache.getIfPresent(cacheKey);
+			if ((cachedResponse != null) && cachedResponse.nextUpdate.after(new Date())) {
+				log.debug("OCSP response for '" + subjectX500Principal + "' is taken from cache, nextUpdate: " + cachedResponse.nextUpdate);
+				applyResponse(status, cachedResponse, validationDate);
+				return status;
+			}
+
 			// Generate OCSP request
 			OCSPReq ocspReq = generateOCSPRequest(certificateId);
 
@@ -96,6 +125,12 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 
 			boolean foundResponse = false;
 			BasicOCSPResp basicOCSPResp = (BasicOCSPResp) ocspResp.getResponseObject();
+			if (!isResponseSignatureValid(basicOCSPResp, issuer, validationDate)) {
+				log.error("OCSP response for '" + subjectX500Principal + "' is not signed by issuer or by its OCSP responder");
+				status.setValidity(CertificateValidity.INVALID);
+				return status;
+			}
+
 			SingleResp[] singleResps = basicOCSPResp.getResponses();
 			for (SingleResp singleResp : singleResps) {
 				CertificateID responseCertificateId = singleResp.getCertID();
@@ -109,26 +144,13 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 				log.debug("OCSP thisUpdate: " + singleResp.getThisUpdate());
 				log.debug("OCSP nextUpdate: " + singleResp.getNextUpdate());
 
-				status.setRevocationObjectIssuingTime(basicOCSPResp.getProducedAt());
-
-				Object certStatus = singleResp.getCertStatus();
-				if (certStatus == CertificateStatus.GOOD) {
-					log.debug("OCSP status is valid for '" + certificate.getSubjectX500Principal() + "'");
-					status.setValidity(CertificateValidity.VALID);
-				} else {
-					if (singleResp.getCertStatus() instanceof RevokedStatus) {
-						log.warn("OCSP status is revoked for: " + subjectX500Principal);
-						if (validationDate.before(((RevokedStatus) singleResp.getCertStatus()).getRevocationTime())) {
-							log.warn("OCSP revocation time after the validation date, the certificate '" + subjectX500Principal + "' was valid at " + validationDate);
-							status.setValidity(CertificateValidity.VALID);
-						} else {
-							Date revocationDate = ((RevokedStatus) singleResp.getCertStatus()).getRevocationTime();
-							log.info("OCSP for certificate '" + subjectX500Principal + "' is revoked since " + revocationDate);
-							status.setRevocationDate(revocationDate);
-							status.setRevocationObjectIssuingTime(singleResp.getThisUpdate());
-							status.setValidity(CertificateValidity.REVOKED);
-						}
-					}
+				CachedResponse response = new CachedResponse(singleResp, basicOCSPResp.getProducedAt());
+				applyResponse(status, response, validationDate);
+
+				// Without nextUpdate newer information is always available on server. Unknown status is not cached
+				boolean knownStatus = (response.certStatus == CertificateStatus.GOOD) || (response.certStatus instanceof RevokedStatus);
+				if ((response.nextUpdate != null) && knownStatus) {
+					responseCache.put(cacheKey, response);
 				}
 			}
 
@@ -142,6 +164,75 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 		return status;
 	}
 
+	/**
+	 * Response must be signed either by issuer itself or by delegated responder which certificate is included in
+	 * response, signed by issuer and has OCSPSigning extended key usage (RFC 6960, 4.2.2.2)
+	 */
+	private boolean isResponseSignatureValid(BasicOCSPResp basicOCSPResp, X509Certificate issuer, Date validationDate) {
+		try {
+			if (basicOCSPResp.isSignatureValid(new JcaContentVerifierProviderBuilder().setProvider("BC").build(issuer.getPublicKey()))) {
+				return true;
+			}
+		} catch (Exception ex) {
+			log.debug("OCSP response is not signed by issuer", ex);
+		}
+
+		X500Name issuerName = X500Name.getInstance(issuer.getSubjectX500Principal().getEncoded());
+		for (X509CertificateHolder responderCert : basicOCSPResp.getCerts()) {
+			try {
+				if (!issuerName.equals(responderCert.getIssuer()) || !responderCert.isValidOn(validationDate)) {
+					continue;
+				}
+
+				ExtendedKeyUsage extendedKeyUsage = ExtendedKeyUsage.fromExtensions(responderCert.getExtensions());
+				if ((extendedKeyUsage == null) || !extendedKeyUsage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)) {
+					continue;
+				}
+
+				if (!responderCert.isSignatureValid(new JcaContentVerifierProviderBuilder().setProvider("BC").build(issuer))) {
+					continue;
+				}
+
+				if (basicOCSPResp.isSignatureValid(new JcaContentVerifierProviderBuilder().setProvider("BC").build(responderCert))) {
+					log.debug("OCSP response is signed by delegated responder '" + responderCert.getSubject() + "'");
+					return true;
+				}
+			} catch (Exception ex) {
+				log.debug("Failed to verify OCSP response with responder certificate '" + responderCert.getSubject() + "'", ex);
+			}
+		}
+
+		return false;
+	}
+
+	private void applyResponse(ValidationStatus status, CachedResponse response, Date validationDate) {
+		Principal subjectX500Principal = status.getCertificate().getSubjectX500Principal();
+
+		status.setRevocationObjectIssuingTime(response.producedAt);
+
+		if (response.certStatus == CertificateStatus.GOOD) {
+			log.debug("OCSP status is valid for '" + subjectX500Principal + "'");
+			status.setValidity(CertificateValidity.VALID);
+		} else if (response.certStatus instanceof RevokedStatus) {
+			log.warn("OCSP status is revoked for: " + subjectX500Principal);
+			Date revocationDate = ((RevokedStatus) response.certStatus).getRevocationTime();
+			if (validationDate.before(revocationDate)) {
+				log.warn("OCSP revocation time after the validation date, the certificate '" + subjectX500Principal + "' was valid at " + validationDate);
+				status.setValidity(CertificateValidity.VALID);
+			} else {
+				log.info("OCSP for certificate '" + subjectX500Principal + "' is revoked since " + revocationDate);
+				status.setRevocationDate(revocationDate);
+				status.setRevocationObjectIssuingTime(response.thisUpdate);
+				status.setValidity(CertificateValidity.REVOKED);
+			}
+		}
+	}
+
+	private String getCacheKey(CertificateID certificateId) {
+		return Hex.encodeHexString(certificateId.getIssuerNameHash()) + ":" + Hex.encodeHexString(certificateId.getIssuerKeyHash()) + ":"
+				+ certificateId.getSerialNumber().toString(16);
+	}
+
 	private OCSPReq generateOCSPRequest(CertificateID certificateId) throws OCSPException, OperatorCreationException, CertificateEncodingException {
 		OCSPReqBuilder ocspReqGenerator = new OCSPReqBuilder();
 
@@ -192,6 +283,8 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 
 		HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
 		try {
+			con.setConnectTimeout(CONNECT_TIMEOUT);
+			con.setReadTimeout(READ_TIMEOUT);
 			con.setRequestProperty("Content-Type", "application/ocsp-request");
 			con.setRequestProperty("Accept", "application/ocsp-response");
 
@@ -241,4 +334,20 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 	public void destroy() {
 	}
 
+	private static class CachedResponse {
+
+		private final Object certStatus;
+		private final Date producedAt;
+		private final Date thisUpdate;
+		private final Date nextUpdate;
+
+		public CachedResponse(SingleResp singleResp, Date producedAt) {
+			this.certStatus = singleResp.getCertStatus();
+			this.producedAt = producedAt;
+			this.thisUpdate = singleResp.getThisUpdate();
+			this.nextUpdate = singleResp.getNextUpdate();
+		}
+
+	}
+
 }
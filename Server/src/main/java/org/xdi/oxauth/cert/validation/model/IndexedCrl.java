@@ -0,0 +1,163 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation.model;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Immutable CRL which signature was verified at load time. Revoked serial numbers are kept
+ * sorted in one byte array (with offsets) instead of CRL entry objects, lookup is binary search.
+ *
+ * @version October 18, 2026
+ */
+public class IndexedCrl {
+
+	private static final Comparator<byte[]> SERIAL_COMPARATOR = new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] serial1, byte[] serial2) {
+			return compareSerials(serial1, 0, serial1.length, serial2);
+		}
+	};
+
+	private final X500Principal issuer;
+	private final PublicKey issuerKey;
+	private final Date thisUpdate;
+	private final Date nextUpdate;
+
+	private final byte[] serials;
+	private final int[] offsets;
+	private final long[] revocationDates;
+
+	private IndexedCrl(X500Principal issuer, PublicKey issuerKey, Date thisUpdate, Date nextUpdate, byte[] serials, int[] offsets,
+			long[] revocationDates) {
+		this.issuer = issuer;
+		this.issuerKey = issuerKey;
+		this.thisUpdate = thisUpdate;
+		this.nextUpdate = nextUpdate;
+		this.serials = serials;
+		this.offsets = offsets;
+		this.revocationDates = revocationDates;
+	}
+
+	/**
+	 * @param crl CRL which signature was verified with issuerKey
+	 */
+	public static IndexedCrl index(X509CRL crl, PublicKey issuerKey) {
+		Set<? extends X509CRLEntry> revokedCertificates = crl.getRevokedCertificates();
+		int count = revokedCertificates == null ? 0 : revokedCertificates.size();
+
+		byte[][] entrySerials = new byte[count][];
+		final long[] entryDates = new long[count];
+		Integer[] order = new Integer[count];
+		int totalLength = 0;
+		if (revokedCertificates != null) {
+			int i = 0;
+			for (X509CRLEntry entry : revokedCertificates) {
+				entrySerials[i] = entry.getSerialNumber().toByteArray();
+				entryDates[i] = entry.getRevocationDate().getTime();
+				order[i] = i;
+				totalLength += entrySerials[i].length;
+				i++;
+			}
+		}
+
+		final byte[][] sortSerials = entrySerials;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer index1, Integer index2) {
+				return SERIAL_COMPARATOR.compare(sortSerials[index1], sortSerials[index2]);
+			}
+		});
+
+		byte[] serials = new byte[totalLength];
+		int[] offsets = new int[count + 1];
+		long[] revocationDates = new long[count];
+		int offset = 0;
+		for (int i = 0; i < count; i++) {
+			byte[] serial = entrySerials[order[i]];
+			System.arraycopy(serial, 0, serials, offset, serial.length);
+			offsets[i] = offset;
+			revocationDates[i] = entryDates[order[i]];
+			offset += serial.length;
+		}
+		offsets[count] = offset;
+
+		return new IndexedCrl(crl.getIssuerX500Principal(), issuerKey, crl.getThisUpdate(), crl.getNextUpdate(), serials, offsets,
+				revocationDates);
+	}
+
+	/**
+	 * @return revocation date or null if certificate with given serial number is not revoked
+	 */
+	public Date getRevocationDate(BigInteger serialNumber) {
+		byte[] serial = serialNumber.toByteArray();
+
+		int low = 0;
+		int high = revocationDates.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int result = compareSerials(serials, offsets[middle], offsets[middle + 1] - offsets[middle], serial);
+			if (result < 0) {
+				low = middle + 1;
+			} else if (result > 0) {
+				high = middle - 1;
+			} else {
+				return new Date(revocationDates[middle]);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Serials are minimal two's complement representations, so shorter ones go first
+	 */
+	private static int compareSerials(byte[] data, int offset, int length, byte[] serial) {
+		if (length != serial.length) {
+			return length < serial.length ? -1 : 1;
+		}
+
+		for (int i = 0; i < length; i++) {
+			int result = (data[offset + i] & 0xff) - (serial[i] & 0xff);
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		return 0;
+	}
+
+	public X500Principal getIssuer() {
+		return issuer;
+	}
+
+	public PublicKey getIssuerKey() {
+		return issuerKey;
+	}
+
+	public Date getThisUpdate() {
+		return thisUpdate;
+	}
+
+	public Date getNextUpdate() {
+		return nextUpdate;
+	}
+
+	public int getRevokedCount() {
+		return revocationDates.length;
+	}
+
+}
@@ -13,7 +13,12 @@ import org.xdi.oxauth.model.authorize.AuthorizeErrorResponseType;
 import org.xdi.oxauth.model.common.*;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.error.ErrorResponseFactory;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.jwt.JwtClaimName;
+import org.xdi.oxauth.model.jwt.JwtClaims;
 import org.xdi.oxauth.model.uma.UmaScopeType;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.token.JwtAccessTokenService;
 import org.xdi.oxauth.service.token.TokenService;
 import org.xdi.oxauth.util.ServerUtil;
 
@@ -44,6 +49,8 @@ public class IntrospectionWebService {
     private ErrorResponseFactory errorResponseFactory;
     @Inject
     private AuthorizationGrantList authorizationGrantList;
+    @Inject
+    private JwtAccessTokenService jwtAccessTokenService;
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
@@ -74,6 +81,17 @@ public class IntrospectionWebService {
                     if (authorizationAccessToken != null && authorizationAccessToken.isValid() && isPat) {
                         final IntrospectionResponse response = new IntrospectionResponse(false);
 
+                        if (jwtAccessTokenService.isJwt(p_token)) {
+                            // self-contained access token, answer from claims without LDAP lookups
+                            final Jwt jwt = jwtAccessTokenService.validate(p_token);
+                            if (jwt != null) {
+                                fillResponse(response, jwt);
+                            } else {
+                                log.debug("JWT access_token is not valid: " + p_token);
+                            }
+                            return Response.status(Response.Status.OK).entity(ServerUtil.asJson(response)).build();
+                        }
+
                         final AuthorizationGrant grantOfIntrospectionToken = authorizationGrantList.getAuthorizationGrantByAccessToken(p_token);
                         if (grantOfIntrospectionToken != null) {
                             final AbstractToken tokenToIntrospect = grantOfIntrospectionToken.getAccessToken(p_token);
@@ -112,4 +130,21 @@ public class IntrospectionWebService {
 
         return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.INVALID_REQUEST)).build();
     }
+
+    private void fillResponse(IntrospectionResponse response, Jwt jwt) {
+        final JwtClaims claims = jwt.getClaims();
+        final String clientId = claims.getClaimAsString(JwtAccessTokenService.CLIENT_ID);
+
+        response.setActive(true);
+        response.setExpiresAt(claims.getClaimAsDate(JwtClaimName.EXPIRATION_TIME));
+        response.setIssuedAt(claims.getClaimAsDate(JwtClaimName.ISSUED_AT));
+        response.setAcrValues(claims.getClaimAsString(JwtClaimName.AUTHENTICATION_CONTEXT_CLASS_REFERENCE));
+        response.setScopes(Util.splittedStringAsList(claims.getClaimAsString(JwtAccessTokenService.SCOPE), " "));
+        response.setClientId(clientId);
+        response.setUsername(claims.getClaimAsString(JwtAccessTokenService.USERNAME));
+        response.setIssuer(appConfiguration.getIssuer());
+        response.setAudience(clientId);
+        response.setJti(claims.getClaimAsString(JwtClaimName.JWT_ID));
+        response.setTokenType(TokenType.BEARER.getName());
+    }
 }
@@ -12,7 +12,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 import org.slf4j.Logger;
-import org.xdi.oxauth.model.config.WebKeysConfiguration;
+import org.xdi.oxauth.service.DiscoveryService;
 
 /**
  * Provides interface for JWK REST web services
@@ -27,20 +27,28 @@ public class JwkRestWebServiceImpl implements JwkRestWebService {
     private Logger log;
 
     @Inject
-    private WebKeysConfiguration webKeysConfiguration;
+    private DiscoveryService discoveryService;
 
     @Override
-    public Response requestJwk(SecurityContext sec) {
+    public Response requestJwk(SecurityContext sec, String ifNoneMatch) {
         log.debug("Attempting to request JWK, Is Secure = {}", sec.isSecure());
-        Response.ResponseBuilder builder = Response.ok();
 
-        try {
-            builder.entity(webKeysConfiguration.toString());
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            builder = Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()); // 500
+        // Pre-encoded document, rebuilt when keys are reloaded with configuration
+        final DiscoveryService.Document jwks = discoveryService.getJwks();
+        if (jwks == null) {
+            log.error("JWK document is not available");
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).build(); // 500
         }
 
+        Response.ResponseBuilder builder;
+        if (jwks.isNotModified(ifNoneMatch)) {
+            builder = Response.notModified();
+        } else {
+            builder = Response.ok(jwks.getContent());
+        }
+        builder.header("ETag", jwks.getEtag());
+        builder.header("Cache-Control", discoveryService.getCacheControl());
+
         return builder.build();
     }
-}
\ No newline at end of file
+}
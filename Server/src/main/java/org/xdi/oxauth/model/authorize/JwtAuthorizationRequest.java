@@ -33,9 +33,9 @@ import org.xdi.oxauth.model.jwt.JwtHeader;
 import org.xdi.oxauth.model.jwt.JwtHeaderName;
 import org.xdi.oxauth.model.registration.Client;
 import org.xdi.oxauth.model.util.Base64Util;
-import org.xdi.oxauth.model.util.JwtUtil;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.JwksResolver;
 import org.xdi.oxauth.util.ServerUtil;
 import org.xdi.service.cdi.util.CdiUtil;
 import org.xdi.util.security.StringEncrypter;
@@ -325,7 +325,7 @@ public class JwtAuthorizationRequest {
         ClientService clientService = CdiUtil.bean(ClientService.class); 
         String sharedSecret = clientService.decryptSecret(client.getClientSecret());
         JSONObject jwks = Strings.isNullOrEmpty(client.getJwks()) ?
-                JwtUtil.getJSONWebKeys(client.getJwksUri()) :
+                CdiUtil.bean(JwksResolver.class).getJwks(client.getJwksUri(), keyId) :
                 new JSONObject(client.getJwks());
         AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(
         		appConfiguration);
@@ -13,7 +13,7 @@ import org.xdi.oxauth.model.authorize.ScopeChecker;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.ldap.TokenLdap;
 import org.xdi.oxauth.model.registration.Client;
-import org.xdi.oxauth.util.TokenHashUtil;
+import org.xdi.oxauth.model.util.TokenHashUtil;
 
 import javax.inject.Inject;
 import java.util.*;
@@ -17,8 +17,9 @@ import org.xdi.oxauth.model.ldap.TokenLdap;
 import org.xdi.oxauth.model.registration.Client;
 import org.xdi.oxauth.model.token.IdTokenFactory;
 import org.xdi.oxauth.model.token.JsonWebResponse;
+import org.xdi.oxauth.model.util.TokenHashUtil;
 import org.xdi.oxauth.service.GrantService;
-import org.xdi.oxauth.util.TokenHashUtil;
+import org.xdi.oxauth.service.token.JwtAccessTokenService;
 import org.xdi.service.CacheService;
 import org.xdi.util.security.StringEncrypter;
 
@@ -48,6 +49,9 @@ public class AuthorizationGrant extends AbstractAuthorizationGrant {
 	@Inject
 	private IdTokenFactory idTokenFactory;
 
+	@Inject
+	private JwtAccessTokenService jwtAccessTokenService;
+
 	private boolean isCachedWithNoPersistence = false;
 
 	public AuthorizationGrant() {}
@@ -82,7 +86,7 @@ public class AuthorizationGrant extends AbstractAuthorizationGrant {
 			if (getAuthorizationGrantType() == AuthorizationGrantType.AUTHORIZATION_CODE) {
 				MemcachedGrant memcachedGrant = new MemcachedGrant(this);
 				cacheService.put(Integer.toString(getAuthorizationCode().getExpiresIn()), memcachedGrant.cacheKey(),
-						memcachedGrant);
+						memcachedGrant.toBytes());
 			} else {
 				throw new UnsupportedOperationException(
 						"Grant caching is not supported for : " + getAuthorizationGrantType());
@@ -123,7 +127,9 @@ public class AuthorizationGrant extends AbstractAuthorizationGrant {
 	public AccessToken createAccessToken() {
 		try {
 			final AccessToken accessToken = super.createAccessToken();
-			if (accessToken.getExpiresIn() > 0) {
+			if (isAccessTokenAsJwt()) {
+				accessToken.setCode(jwtAccessTokenService.createJwt(this, accessToken));
+			} else if (accessToken.getExpiresIn() > 0) {
 				persist(asToken(accessToken));
 			}
 			return accessToken;
@@ -137,7 +143,9 @@ public class AuthorizationGrant extends AbstractAuthorizationGrant {
 	public AccessToken createLongLivedAccessToken() {
 		try {
 			final AccessToken accessToken = super.createLongLivedAccessToken();
-			if (accessToken.getExpiresIn() > 0) {
+			if (isAccessTokenAsJwt()) {
+				accessToken.setCode(jwtAccessTokenService.createJwt(this, accessToken));
+			} else if (accessToken.getExpiresIn() > 0) {
 				persist(asToken(accessToken));
 			}
 			return accessToken;
@@ -188,6 +196,14 @@ public class AuthorizationGrant extends AbstractAuthorizationGrant {
 		}
 	}
 
+	/**
+	 * Self-contained access tokens are signed and not persisted, see {@link JwtAccessTokenService}
+	 */
+	private boolean isAccessTokenAsJwt() {
+		final Client client = getClient();
+		return client != null && client.isAccessTokenAsJwt();
+	}
+
 	public void persist(TokenLdap p_token) {
 		grantService.persist(p_token);
 	}
@@ -14,21 +14,30 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.authorize.JwtAuthorizationRequest;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.jwt.JwtClaimName;
+import org.xdi.oxauth.model.jwt.JwtClaims;
 import org.xdi.oxauth.model.ldap.TokenLdap;
 import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.model.util.TokenHashUtil;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.ClientService;
 import org.xdi.oxauth.service.GrantService;
 import org.xdi.oxauth.service.UserService;
+import org.xdi.oxauth.service.token.JwtAccessTokenService;
 import org.xdi.service.CacheService;
 
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Component to hold in memory authorization grant objects.
@@ -59,6 +68,9 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
     @Inject
     private CacheService cacheService;
 
+    @Inject
+    private JwtAccessTokenService jwtAccessTokenService;
+
     @Override
     public void removeAuthorizationGrants(List<AuthorizationGrant> authorizationGrants) {
         if (authorizationGrants != null && !authorizationGrants.isEmpty()) {
@@ -82,7 +94,7 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
     	grant.init(user, client, authenticationTime);
 
         MemcachedGrant memcachedGrant = new MemcachedGrant(grant);
-        cacheService.put(Integer.toString(grant.getAuthorizationCode().getExpiresIn()), memcachedGrant.cacheKey(), memcachedGrant);
+        cacheService.put(Integer.toString(grant.getAuthorizationCode().getExpiresIn()), memcachedGrant.cacheKey(), memcachedGrant.toBytes());
         log.trace("Put authorization grant in cache, code: " + grant.getAuthorizationCode().getCode() + ", clientId: " + grant.getClientId());
         return grant;
     }
@@ -119,9 +131,42 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
             cachedGrant = cacheService.get(null, MemcachedGrant.cacheKey(clientId, authorizationCode));
             log.trace("Failed to fetch authorization grant from cache, code: " + authorizationCode + ", clientId: " + clientId);
         }
+
+        if (cachedGrant instanceof byte[]) {
+            return asCodeGrant((byte[]) cachedGrant);
+        }
+
+        // Full grant put in cache before upgrade
         return cachedGrant instanceof MemcachedGrant ? ((MemcachedGrant) cachedGrant).asCodeGrant(grantInstance) : null;
     }
 
+    private AuthorizationCodeGrant asCodeGrant(byte[] record) {
+        MemcachedGrant memcachedGrant;
+        try {
+            memcachedGrant = MemcachedGrant.fromBytes(record);
+        } catch (IOException e) {
+            log.error("Failed to decode authorization grant from cache", e);
+            return null;
+        }
+
+        Client client = clientService.getClient(memcachedGrant.getClientId());
+        if (client == null) {
+            log.trace("Failed to load client of cached authorization grant, clientId: " + memcachedGrant.getClientId());
+            return null;
+        }
+
+        User user = userService.getUserByDn(memcachedGrant.getUserDn());
+        if (user == null) {
+            log.trace("Failed to load user of cached authorization grant, userDn: " + memcachedGrant.getUserDn());
+            return null;
+        }
+
+        memcachedGrant.setClient(client);
+        memcachedGrant.setUser(user);
+
+        return memcachedGrant.asCodeGrant(grantInstance);
+    }
+
     @Override
     public AuthorizationGrant getAuthorizationGrantByRefreshToken(String clientId, String refreshTokenCode) {
         return load(clientId, refreshTokenCode);
@@ -133,12 +178,7 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
         try {
             final List<TokenLdap> entries = grantService.getGrantsOfClient(clientId);
             if (entries != null && !entries.isEmpty()) {
-                for (TokenLdap t : entries) {
-                    final AuthorizationGrant grant = asGrant(t);
-                    if (grant != null) {
-                        result.add(grant);
-                    }
-                }
+                result.addAll(asGrants(entries));
             }
         } catch (Exception e) {
         	log.trace(e.getMessage(), e);
@@ -148,6 +188,11 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
 
     @Override
     public AuthorizationGrant getAuthorizationGrantByAccessToken(String accessToken) {
+        if (jwtAccessTokenService.isJwt(accessToken)) {
+            final Jwt jwt = jwtAccessTokenService.validate(accessToken);
+            return jwt != null ? asGrant(asTokenLdap(accessToken, jwt)) : null;
+        }
+
         final TokenLdap tokenLdap = grantService.getGrantsByCode(accessToken);
         if (tokenLdap != null && (tokenLdap.getTokenTypeEnum() == org.xdi.oxauth.model.ldap.TokenType.ACCESS_TOKEN || tokenLdap.getTokenTypeEnum() == org.xdi.oxauth.model.ldap.TokenType.LONG_LIVED_ACCESS_TOKEN)) {
             return asGrant(tokenLdap);
@@ -191,12 +236,79 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
         return "";
     }
 
+    /**
+     * Builds grants for list of tokens. Users and clients referenced by tokens are resolved in bulk
+     * (one search per chunk of distinct IDs) instead of two lookups per token.
+     */
+    public List<AuthorizationGrant> asGrants(List<TokenLdap> tokens) {
+        final List<AuthorizationGrant> result = new ArrayList<AuthorizationGrant>();
+        if (tokens == null || tokens.isEmpty()) {
+            return result;
+        }
+
+        final Set<String> userIds = new HashSet<String>();
+        final Set<String> clientIds = new HashSet<String>();
+        for (TokenLdap t : tokens) {
+            if (StringUtils.isNotBlank(t.getUserId())) {
+                userIds.add(t.getUserId());
+            }
+            clientIds.add(extractClientIdFromTokenDn(t.getDn()));
+        }
+
+        final Map<String, User> users = userService.getUsers(userIds);
+        final Map<String, Client> clients = clientService.getClientsByIds(clientIds);
+
+        for (TokenLdap t : tokens) {
+            final User user = StringUtils.isNotBlank(t.getUserId()) ? users.get(t.getUserId().toLowerCase()) : null;
+            final Client client = clients.get(extractClientIdFromTokenDn(t.getDn()));
+
+            final AuthorizationGrant grant = asGrant(t, user, client);
+            if (grant != null) {
+                result.add(grant);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds transient token entry from validated JWT access token, it is never persisted.
+     */
+    private TokenLdap asTokenLdap(String accessToken, Jwt jwt) {
+        final JwtClaims claims = jwt.getClaims();
+        final String id = claims.getClaimAsString(JwtClaimName.JWT_ID);
+        final String grantId = claims.getClaimAsString(JwtAccessTokenService.GRANT_ID);
+
+        final TokenLdap result = new TokenLdap();
+        result.setDn(grantService.buildDn(id, grantId, claims.getClaimAsString(JwtAccessTokenService.CLIENT_ID)));
+        result.setId(id);
+        result.setGrantId(grantId);
+        result.setGrantType(claims.getClaimAsString(JwtAccessTokenService.GRANT_TYPE));
+        result.setTokenTypeEnum(org.xdi.oxauth.model.ldap.TokenType.ACCESS_TOKEN);
+        result.setTokenCode(TokenHashUtil.getHashedToken(accessToken));
+        result.setCreationDate(claims.getClaimAsDate(JwtClaimName.ISSUED_AT));
+        result.setExpirationDate(claims.getClaimAsDate(JwtClaimName.EXPIRATION_TIME));
+        result.setUserId(claims.getClaimAsString(JwtAccessTokenService.USERNAME));
+        result.setClientId(claims.getClaimAsString(JwtAccessTokenService.CLIENT_ID));
+        result.setScope(claims.getClaimAsString(JwtAccessTokenService.SCOPE));
+        result.setAuthMode(claims.getClaimAsString(JwtClaimName.AUTHENTICATION_CONTEXT_CLASS_REFERENCE));
+        result.setAuthenticationTime(claims.getClaimAsDate(JwtClaimName.AUTHENTICATION_TIME));
+        return result;
+    }
+
     public AuthorizationGrant asGrant(TokenLdap tokenLdap) {
+        if (tokenLdap == null) {
+            return null;
+        }
+
+        final User user = userService.getUser(tokenLdap.getUserId());
+        final Client client = clientService.getClient(extractClientIdFromTokenDn(tokenLdap.getDn()));
+        return asGrant(tokenLdap, user, client);
+    }
+
+    private AuthorizationGrant asGrant(TokenLdap tokenLdap, User user, Client client) {
         if (tokenLdap != null) {
             final AuthorizationGrantType grantType = AuthorizationGrantType.fromString(tokenLdap.getGrantType());
             if (grantType != null) {
-                final User user = userService.getUser(tokenLdap.getUserId());
-                final Client client = clientService.getClient(extractClientIdFromTokenDn(tokenLdap.getDn()));
                 final Date authenticationTime = tokenLdap.getAuthenticationTime();
                 final String nonce = tokenLdap.getNonce();
 
@@ -3,21 +3,40 @@ package org.xdi.oxauth.model.common;
 import org.xdi.oxauth.model.registration.Client;
 
 import javax.enterprise.inject.Instance;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
+ * Authorization code grant kept in cache. It's put in cache as compact record (see {@link #toBytes()}) which
+ * references user and client by DN and client id, they are loaded back from their own caches/LDAP.
+ *
  * @author yuriyz on 02/14/2017.
  */
 public class MemcachedGrant implements Serializable {
 
+    /**
+     * Version of compact record, it's first byte of record and has to be changed if layout is changed.
+     */
+    public static final byte RECORD_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private String authorizationCodeString;
     private Date authorizationCodeCreationDate;
     private Date authorizationCodeExpirationDate;
 
     private User user;
     private Client client;
+    private String userDn;
+    private String clientId;
     private Date authenticationTime;
     private Set<String> scopes;
     private String grantId;
@@ -37,6 +56,8 @@ public class MemcachedGrant implements Serializable {
         authorizationCodeExpirationDate = codeGrant.getAuthorizationCode().getExpirationDate();
         user = codeGrant.getUser();
         client = codeGrant.getClient();
+        userDn = user != null ? user.getDn() : null;
+        clientId = client != null ? client.getClientId() : null;
         authenticationTime = codeGrant.getAuthenticationTime();
         scopes = codeGrant.getScopes();
         grantId = codeGrant.getGrantId();
@@ -55,6 +76,22 @@ public class MemcachedGrant implements Serializable {
         this.user = user;
     }
 
+    public String getUserDn() {
+        return userDn;
+    }
+
+    public void setUserDn(String userDn) {
+        this.userDn = userDn;
+    }
+
+    public String getClientId() {
+        return clientId != null ? clientId : (client != null ? client.getClientId() : null);
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
     public Set<String> getScopes() {
         return scopes;
     }
@@ -87,6 +124,22 @@ public class MemcachedGrant implements Serializable {
         this.authenticationTime = authenticationTime;
     }
 
+    public Date getAuthorizationCodeCreationDate() {
+        return authorizationCodeCreationDate;
+    }
+
+    public void setAuthorizationCodeCreationDate(Date authorizationCodeCreationDate) {
+        this.authorizationCodeCreationDate = authorizationCodeCreationDate;
+    }
+
+    public Date getAuthorizationCodeExpirationDate() {
+        return authorizationCodeExpirationDate;
+    }
+
+    public void setAuthorizationCodeExpirationDate(Date authorizationCodeExpirationDate) {
+        this.authorizationCodeExpirationDate = authorizationCodeExpirationDate;
+    }
+
     public String getAuthorizationCodeString() {
         return authorizationCodeString;
     }
@@ -152,7 +205,124 @@ public class MemcachedGrant implements Serializable {
     }
 
     public String cacheKey() {
-        return cacheKey(client.getClientId(), authorizationCodeString);
+        return cacheKey(getClientId(), authorizationCodeString);
+    }
+
+    /**
+     * Encodes grant as compact record: version, authorization code with dates, user DN, client id, authentication
+     * time, scopes, grant id, nonce, PKCE fields, ACR and session DN. User and client are not included.
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeByte(RECORD_VERSION);
+            writeString(out, authorizationCodeString);
+            writeDate(out, authorizationCodeCreationDate);
+            writeDate(out, authorizationCodeExpirationDate);
+            writeString(out, userDn != null ? userDn : (user != null ? user.getDn() : null));
+            writeString(out, getClientId());
+            writeDate(out, authenticationTime);
+            if (scopes == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(scopes.size());
+                for (String scope : scopes) {
+                    writeString(out, scope);
+                }
+            }
+            writeString(out, grantId);
+            writeString(out, nonce);
+            writeString(out, codeChallenge);
+            writeString(out, codeChallengeMethod);
+            writeString(out, acrValues);
+            writeString(out, sessionDn);
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Not possible, data is written to memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes compact record created by {@link #toBytes()}. User and client of returned grant are not set.
+     *
+     * @throws IOException if record is malformed or has unsupported version
+     */
+    public static MemcachedGrant fromBytes(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported authorization grant record version: " + version);
+        }
+
+        MemcachedGrant grant = new MemcachedGrant();
+        grant.authorizationCodeString = readString(in);
+        grant.authorizationCodeCreationDate = readDate(in);
+        grant.authorizationCodeExpirationDate = readDate(in);
+        grant.userDn = readString(in);
+        grant.clientId = readString(in);
+        grant.authenticationTime = readDate(in);
+        int scopeCount = in.readInt();
+        if ((scopeCount < -1) || (scopeCount > in.available() / 4)) {
+            // Each scope takes at least 4 bytes (its length)
+            throw new IOException("Invalid scope count: " + scopeCount);
+        }
+        if (scopeCount >= 0) {
+            grant.scopes = new HashSet<String>();
+            for (int i = 0; i < scopeCount; i++) {
+                grant.scopes.add(readString(in));
+            }
+        }
+        grant.grantId = readString(in);
+        grant.nonce = readString(in);
+        grant.codeChallenge = readString(in);
+        grant.codeChallengeMethod = readString(in);
+        grant.acrValues = readString(in);
+        grant.sessionDn = readString(in);
+
+        return grant;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if ((length < 0) || (length > in.available())) {
+            // Record is read from byte array, length can't exceed rest of it
+            throw new IOException("Invalid string length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
     }
 
     public static String cacheKey(String clientId, String code) {
@@ -163,8 +333,8 @@ public class MemcachedGrant implements Serializable {
     public String toString() {
         return "MemcachedGrant{" +
                 "authorizationCode=" + authorizationCodeString +
-                ", user=" + user +
-                ", client=" + client +
+                ", userDn=" + userDn +
+                ", clientId=" + getClientId() +
                 ", authenticationTime=" + authenticationTime +
                 '}';
     }
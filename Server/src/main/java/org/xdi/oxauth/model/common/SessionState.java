@@ -76,6 +76,19 @@ public class SessionState implements Serializable {
     @Transient
     private transient boolean persisted;
 
+    // State of session in session store, it's maintained by SessionStore
+    @Transient
+    private transient long revision;
+
+    @Transient
+    private transient Map<String, String> storedSessionAttributes;
+
+    @Transient
+    private transient byte[] storedRecord;
+
+    @Transient
+    private transient long storedAt;
+
     public SessionState() {
     }
 
@@ -201,6 +214,44 @@ public class SessionState implements Serializable {
         this.persisted = persisted;
     }
 
+    /**
+     * @return revision of session in session store when it was read or written last time
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * @return session attributes as they were read or written last time, they are used to find out attribute changes
+     */
+    public Map<String, String> getStoredSessionAttributes() {
+        return storedSessionAttributes;
+    }
+
+    public void setStoredSessionAttributes(Map<String, String> storedSessionAttributes) {
+        this.storedSessionAttributes = storedSessionAttributes;
+    }
+
+    public byte[] getStoredRecord() {
+        return storedRecord;
+    }
+
+    public void setStoredRecord(byte[] storedRecord) {
+        this.storedRecord = storedRecord;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    public void setStoredAt(long storedAt) {
+        this.storedAt = storedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
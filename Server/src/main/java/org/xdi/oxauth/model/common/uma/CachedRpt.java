@@ -0,0 +1,50 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.common.uma;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.xdi.oxauth.model.uma.persistence.ResourceSetPermission;
+import org.xdi.oxauth.model.util.TokenHashUtil;
+
+/**
+ * RPT kept in cache together with its resolved permissions.
+ *
+ * @version October 18, 2026
+ */
+public class CachedRpt implements Serializable {
+
+    private static final long serialVersionUID = 3847293481253486121L;
+
+    private final UmaRPT rpt;
+    private final List<ResourceSetPermission> permissions;
+
+    public CachedRpt(UmaRPT rpt, List<ResourceSetPermission> permissions) {
+        this.rpt = rpt;
+        this.permissions = permissions;
+    }
+
+    public UmaRPT getRpt() {
+        return rpt;
+    }
+
+    /**
+     * @return resolved permissions or null if they were not resolved yet
+     */
+    public List<ResourceSetPermission> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * RPT code is hashed, so it's not exposed in cache keys (same as token codes in LDAP)
+     */
+    public static String cacheKey(String rptCode) {
+        return "rpt_" + TokenHashUtil.getHashedToken(rptCode);
+    }
+
+}
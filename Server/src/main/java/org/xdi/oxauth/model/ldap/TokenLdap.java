@@ -6,6 +6,7 @@
 
 package org.xdi.oxauth.model.ldap;
 
+import java.io.Serializable;
 import java.util.Date;
 
 import org.gluu.site.ldap.persistence.annotation.LdapAttribute;
@@ -21,7 +22,9 @@ import org.gluu.site.ldap.persistence.annotation.LdapObjectClass;
 
 @LdapEntry
 @LdapObjectClass(values = {"top", "oxAuthToken"})
-public class TokenLdap {
+public class TokenLdap implements Serializable {
+
+    private static final long serialVersionUID = 6726419630327625172L;
 
     @LdapDN
     private String dn;
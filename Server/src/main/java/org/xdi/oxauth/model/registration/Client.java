@@ -148,6 +148,11 @@ public class Client implements Serializable {
     @LdapAttribute(name = "oxAuthRequestURI")
     private String[] requestUris;
 
+    // Compiled on first use, dropped together with cached client or when URIs are changed
+    private transient volatile RegisteredUriMatcher redirectUriMatcher;
+    private transient volatile RegisteredUriMatcher postLogoutRedirectUriMatcher;
+    private transient volatile RegisteredUriMatcher frontChannelLogoutUriMatcher;
+
     @LdapAttribute(name = "oxAuthScope")
     private String[] scopes;
 
@@ -166,6 +171,9 @@ public class Client implements Serializable {
     @LdapAttribute(name = "oxPersistClientAuthorizations")
     private boolean persistClientAuthorizations;
 
+    @LdapAttribute(name = "oxAccessTokenAsJwt")
+    private boolean accessTokenAsJwt;
+
     @LdapAttributesList(name = "name", value = "values", sortByName = true)
     private List<CustomAttribute> customAttributes = new ArrayList<CustomAttribute>();
 
@@ -218,6 +226,17 @@ public class Client implements Serializable {
      */
     public void setFrontChannelLogoutUri(String[] frontChannelLogoutUri) {
         this.frontChannelLogoutUri = frontChannelLogoutUri;
+        this.frontChannelLogoutUriMatcher = null;
+    }
+
+    public RegisteredUriMatcher getFrontChannelLogoutUriMatcher() {
+        RegisteredUriMatcher matcher = frontChannelLogoutUriMatcher;
+        if (matcher == null) {
+            matcher = RegisteredUriMatcher.of(frontChannelLogoutUri);
+            frontChannelLogoutUriMatcher = matcher;
+        }
+
+        return matcher;
     }
 
     /**
@@ -350,6 +369,17 @@ public class Client implements Serializable {
      */
     public void setRedirectUris(String[] redirectUris) {
         this.redirectUris = redirectUris;
+        this.redirectUriMatcher = null;
+    }
+
+    public RegisteredUriMatcher getRedirectUriMatcher() {
+        RegisteredUriMatcher matcher = redirectUriMatcher;
+        if (matcher == null) {
+            matcher = RegisteredUriMatcher.of(redirectUris);
+            redirectUriMatcher = matcher;
+        }
+
+        return matcher;
     }
 
     /**
@@ -924,6 +954,17 @@ public class Client implements Serializable {
      */
     public void setPostLogoutRedirectUris(String[] postLogoutRedirectUris) {
         this.postLogoutRedirectUris = postLogoutRedirectUris;
+        this.postLogoutRedirectUriMatcher = null;
+    }
+
+    public RegisteredUriMatcher getPostLogoutRedirectUriMatcher() {
+        RegisteredUriMatcher matcher = postLogoutRedirectUriMatcher;
+        if (matcher == null) {
+            matcher = RegisteredUriMatcher.of(postLogoutRedirectUris);
+            postLogoutRedirectUriMatcher = matcher;
+        }
+
+        return matcher;
     }
 
     /**
@@ -1012,6 +1053,14 @@ public class Client implements Serializable {
         this.persistClientAuthorizations = persistClientAuthorizations;
     }
 
+    public boolean isAccessTokenAsJwt() {
+        return accessTokenAsJwt;
+    }
+
+    public void setAccessTokenAsJwt(boolean accessTokenAsJwt) {
+        this.accessTokenAsJwt = accessTokenAsJwt;
+    }
+
     public List<CustomAttribute> getCustomAttributes() {
         return customAttributes;
     }
@@ -7,10 +7,6 @@
 package org.xdi.oxauth.model.registration;
 
 import org.apache.commons.lang.StringUtils;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.jboss.resteasy.client.ClientRequest;
-import org.jboss.resteasy.client.ClientResponse;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.common.SubjectType;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
@@ -19,18 +15,16 @@ import org.xdi.oxauth.model.register.ApplicationType;
 import org.xdi.oxauth.model.register.RegisterErrorResponseType;
 import org.xdi.oxauth.model.util.URLPatternList;
 import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.SectorIdentifierUriResolver;
 import org.xdi.oxauth.util.ServerUtil;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.HttpMethod;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
-import java.net.ConnectException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.UnknownHostException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -51,6 +45,9 @@ public class RegisterParamsValidator {
     @Inject
     private AppConfiguration appConfiguration;
 
+    @Inject
+    private SectorIdentifierUriResolver sectorIdentifierUriResolver;
+
     private static final String HTTP = "http";
     private static final String HTTPS = "https";
     private static final String LOCALHOST = "localhost";
@@ -165,30 +162,12 @@ public class RegisterParamsValidator {
                     valid = false;
                 }
 
-                ClientRequest clientRequest = new ClientRequest(sectorIdentifierUrl);
-                clientRequest.setHttpMethod(HttpMethod.GET);
-
-                ClientResponse<String> clientResponse = clientRequest.get(String.class);
-                int status = clientResponse.getStatus();
-
-                if (status == 200) {
-                    String entity = clientResponse.getEntity(String.class);
-
-                    JSONArray sectorIdentifierJsonArray = new JSONArray(entity);
-                    valid = Util.asList(sectorIdentifierJsonArray).containsAll(redirectUris);
-                }
+                // Revalidate, RP could update its document just before registration
+                Set<String> sectorRedirectUris = sectorIdentifierUriResolver.resolve(sectorIdentifierUrl);
+                valid &= (sectorRedirectUris != null) && sectorRedirectUris.containsAll(redirectUris);
             } catch (URISyntaxException e) {
                 log.trace(e.getMessage(), e);
                 valid = false;
-            } catch (UnknownHostException e) {
-                log.trace(e.getMessage(), e);
-                valid = false;
-            } catch (ConnectException e) {
-                log.trace(e.getMessage(), e);
-                valid = false;
-            } catch (JSONException e) {
-                log.trace(e.getMessage(), e);
-                valid = false;
             } catch (Exception e) {
                 log.trace(e.getMessage(), e);
                 valid = false;
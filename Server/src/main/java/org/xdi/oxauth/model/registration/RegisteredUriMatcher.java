@@ -0,0 +1,134 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.registration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.xdi.oxauth.client.QueryStringDecoder;
+
+/**
+ * Immutable matcher of URIs registered by client (redirect, post logout, front channel logout URIs).
+ * Registered URIs are parsed once: URI matches if it's equal to registered one or if it has the same
+ * base (URI without query) and the same query parameters in any order.
+ *
+ * @version October 18, 2026
+ */
+public class RegisteredUriMatcher {
+
+    public static final RegisteredUriMatcher EMPTY = new RegisteredUriMatcher(Collections.<String>emptyList());
+
+    private final List<String> uris;
+    private final Set<String> exactUris;
+    private final Map<String, Set<Map<String, String>>> paramsByBase;
+
+    private RegisteredUriMatcher(Collection<String> registeredUris) {
+        List<String> uris = new ArrayList<String>(registeredUris.size());
+        Set<String> exactUris = new HashSet<String>();
+        Map<String, Set<Map<String, String>>> paramsByBase = new HashMap<String, Set<Map<String, String>>>();
+
+        for (String uri : registeredUris) {
+            if (StringUtils.isBlank(uri)) {
+                continue;
+            }
+
+            uris.add(uri);
+            exactUris.add(uri);
+
+            String base = uriWithoutParams(uri);
+            Set<Map<String, String>> paramSets = paramsByBase.get(base);
+            if (paramSets == null) {
+                paramSets = new HashSet<Map<String, String>>();
+                paramsByBase.put(base, paramSets);
+            }
+            paramSets.add(Collections.unmodifiableMap(getParams(uri)));
+        }
+
+        this.uris = Collections.unmodifiableList(uris);
+        this.exactUris = exactUris;
+        this.paramsByBase = paramsByBase;
+    }
+
+    public static RegisteredUriMatcher of(String[] registeredUris) {
+        if ((registeredUris == null) || (registeredUris.length == 0)) {
+            return EMPTY;
+        }
+
+        return new RegisteredUriMatcher(Arrays.asList(registeredUris));
+    }
+
+    public static RegisteredUriMatcher of(Collection<String> registeredUris) {
+        if ((registeredUris == null) || registeredUris.isEmpty()) {
+            return EMPTY;
+        }
+
+        return new RegisteredUriMatcher(registeredUris);
+    }
+
+    public boolean matches(String uri) {
+        if (StringUtils.isBlank(uri)) {
+            return false;
+        }
+
+        if (exactUris.contains(uri)) {
+            return true;
+        }
+
+        Set<Map<String, String>> paramSets = paramsByBase.get(uriWithoutParams(uri));
+
+        return (paramSets != null) && paramSets.contains(getParams(uri));
+    }
+
+    public boolean matchesExactly(String uri) {
+        return (uri != null) && exactUris.contains(uri);
+    }
+
+    /**
+     * @return registered URI if there is only one, otherwise null
+     */
+    public String getSingleUri() {
+        return uris.size() == 1 ? uris.get(0) : null;
+    }
+
+    /**
+     * @return not blank registered URIs in registration order
+     */
+    public List<String> getUris() {
+        return uris;
+    }
+
+    public boolean isEmpty() {
+        return uris.isEmpty();
+    }
+
+    private static Map<String, String> getParams(String uri) {
+        int paramsIndex = uri.indexOf("?");
+        if (paramsIndex == -1) {
+            return Collections.emptyMap();
+        }
+
+        return QueryStringDecoder.decode(uri.substring(paramsIndex + 1));
+    }
+
+    private static String uriWithoutParams(String uri) {
+        int paramsIndex = uri.indexOf("?");
+        if (paramsIndex == -1) {
+            return uri;
+        }
+
+        return uri.substring(0, paramsIndex);
+    }
+
+}
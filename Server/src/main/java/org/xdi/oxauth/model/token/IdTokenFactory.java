@@ -11,7 +11,6 @@ import org.apache.commons.lang.StringUtils;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 import org.xdi.model.AuthenticationScriptUsageType;
-import org.xdi.model.GluuAttribute;
 import org.xdi.model.custom.script.conf.CustomScriptConfiguration;
 import org.xdi.model.custom.script.type.auth.PersonAuthenticationType;
 import org.xdi.oxauth.model.authorize.Claim;
@@ -34,12 +33,12 @@ import org.xdi.oxauth.model.jwt.JwtSubClaimObject;
 import org.xdi.oxauth.model.jwt.JwtType;
 import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
 import org.xdi.oxauth.model.registration.Client;
-import org.xdi.oxauth.model.util.JwtUtil;
+import org.xdi.oxauth.model.userinfo.ClaimPlan;
 import org.xdi.oxauth.model.util.Util;
-import org.xdi.oxauth.service.AttributeService;
+import org.xdi.oxauth.service.ClaimPlanService;
 import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.JwksResolver;
 import org.xdi.oxauth.service.PairwiseIdentifierService;
-import org.xdi.oxauth.service.ScopeService;
 import org.xdi.oxauth.service.external.ExternalAuthenticationService;
 import org.xdi.oxauth.service.external.ExternalDynamicScopeService;
 import org.xdi.oxauth.service.external.context.DynamicScopeExternalContext;
@@ -78,10 +77,7 @@ public class IdTokenFactory {
     private ClientService clientService;
 
     @Inject
-    private ScopeService scopeService;
-
-    @Inject
-    private AttributeService attributeService;
+    private ClaimPlanService claimPlanService;
 
     @Inject
     private PairwiseIdentifierService pairwiseIdentifierService;
@@ -92,6 +88,9 @@ public class IdTokenFactory {
     @Inject
     private WebKeysConfiguration webKeysConfiguration;
 
+    @Inject
+    private JwksResolver jwksResolver;
+
     public Jwt generateSignedIdToken(IAuthorizationGrant authorizationGrant, String nonce,
                                      AuthorizationCode authorizationCode, AccessToken accessToken,
                                      Set<String> scopes, boolean includeIdTokenClaims) throws Exception {
@@ -128,87 +127,42 @@ public class IdTokenFactory {
         }
         jwt.getClaims().setClaim(JwtClaimName.OX_OPENID_CONNECT_VERSION, appConfiguration.getOxOpenIdConnectVersion());
 
-        List<org.xdi.oxauth.model.common.Scope> dynamicScopes = Lists.newArrayList();
-        if (includeIdTokenClaims) {
-            for (String scopeName : scopes) {
-                org.xdi.oxauth.model.common.Scope scope = scopeService.getScopeByDisplayName(scopeName);
-                if ((scope != null) && (org.xdi.oxauth.model.common.ScopeType.DYNAMIC == scope.getScopeType())) {
-                    dynamicScopes.add(scope);
-                    continue;
-                }
-
-                if (scope != null && scope.getOxAuthClaims() != null) {
-                    if (scope.getIsOxAuthGroupClaims()) {
-                        JwtSubClaimObject groupClaim = new JwtSubClaimObject();
-                        groupClaim.setName(scope.getDisplayName());
-
-                        for (String claimDn : scope.getOxAuthClaims()) {
-                            GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
-                            String claimName = gluuAttribute.getOxAuthClaimName();
-                            String ldapName = gluuAttribute.getName();
-                            String attributeValue;
-
-                            if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                                if (ldapName.equals("uid")) {
-                                    attributeValue = authorizationGrant.getUser().getUserId();
-                                } else {
-                                    attributeValue = authorizationGrant.getUser().getAttribute(gluuAttribute.getName());
-                                }
-
-                                groupClaim.setClaim(claimName, attributeValue);
-                            }
-                        }
-
-                        jwt.getClaims().setClaim(scope.getDisplayName(), groupClaim);
-                    } else {
-                        for (String claimDn : scope.getOxAuthClaims()) {
-                            GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
-                            String claimName = gluuAttribute.getOxAuthClaimName();
-                            String ldapName = gluuAttribute.getName();
-                            String attributeValue;
+        ClaimPlan claimPlan = getClaimPlan(authorizationGrant, scopes, includeIdTokenClaims);
+        List<org.xdi.oxauth.model.common.Scope> dynamicScopes = Lists.newArrayList(claimPlan.getDynamicScopes());
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopeClaims()) {
+            if (scopeClaims.isGroupClaims()) {
+                JwtSubClaimObject groupClaim = new JwtSubClaimObject();
+                groupClaim.setName(scopeClaims.getScopeName());
 
-                            if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                                if (ldapName.equals("uid")) {
-                                    attributeValue = authorizationGrant.getUser().getUserId();
-                                } else {
-                                    attributeValue = authorizationGrant.getUser().getAttribute(gluuAttribute.getName());
-                                }
+                for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+                    groupClaim.setClaim(claimMapping.getClaimName(), getAttributeValue(authorizationGrant.getUser(), claimMapping));
+                }
 
-                                jwt.getClaims().setClaim(claimName, attributeValue);
-                            }
-                        }
-                    }
+                jwt.getClaims().setClaim(scopeClaims.getScopeName(), groupClaim);
+            } else {
+                for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+                    jwt.getClaims().setClaim(claimMapping.getClaimName(), getAttributeValue(authorizationGrant.getUser(), claimMapping));
                 }
             }
         }
 
-        if (authorizationGrant.getJwtAuthorizationRequest() != null
-                && authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember() != null) {
-            for (Claim claim : authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember().getClaims()) {
-                boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
-                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
-
-                if (gluuAttribute != null) {
-                    String ldapClaimName = gluuAttribute.getName();
-                    Object attribute = authorizationGrant.getUser().getAttribute(ldapClaimName, optional);
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            jwt.getClaims().setClaim(claim.getName(), values);
-                        } else {
-                            String value = (String) attribute;
-                            jwt.getClaims().setClaim(claim.getName(), value);
+        for (ClaimPlan.ClaimMapping claimMapping : claimPlan.getRequestedClaims()) {
+            boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
+            Object attribute = authorizationGrant.getUser().getAttribute(claimMapping.getLdapName(), optional);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    jwt.getClaims().setClaim(claimMapping.getClaimName(), values);
+                } else {
+                    String value = (String) attribute;
+                    jwt.getClaims().setClaim(claimMapping.getClaimName(), value);
                 }
             }
         }
@@ -323,62 +277,31 @@ public class IdTokenFactory {
         }
         jwe.getClaims().setClaim(JwtClaimName.OX_OPENID_CONNECT_VERSION, appConfiguration.getOxOpenIdConnectVersion());
 
-        List<org.xdi.oxauth.model.common.Scope> dynamicScopes = Lists.newArrayList();
-        if (includeIdTokenClaims) {
-            for (String scopeName : scopes) {
-                org.xdi.oxauth.model.common.Scope scope = scopeService.getScopeByDisplayName(scopeName);
-                if (org.xdi.oxauth.model.common.ScopeType.DYNAMIC == scope.getScopeType()) {
-                    dynamicScopes.add(scope);
-                    continue;
-                }
-
-                if (scope != null && scope.getOxAuthClaims() != null) {
-                    for (String claimDn : scope.getOxAuthClaims()) {
-                        GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
-                        String claimName = gluuAttribute.getOxAuthClaimName();
-                        String ldapName = gluuAttribute.getName();
-                        String attributeValue;
-
-                        if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                            if (ldapName.equals("uid")) {
-                                attributeValue = authorizationGrant.getUser().getUserId();
-                            } else {
-                                attributeValue = authorizationGrant.getUser().getAttribute(gluuAttribute.getName());
-                            }
-
-                            jwe.getClaims().setClaim(claimName, attributeValue);
-                        }
-                    }
-                }
+        ClaimPlan claimPlan = getClaimPlan(authorizationGrant, scopes, includeIdTokenClaims);
+        List<org.xdi.oxauth.model.common.Scope> dynamicScopes = Lists.newArrayList(claimPlan.getDynamicScopes());
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopeClaims()) {
+            for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+                jwe.getClaims().setClaim(claimMapping.getClaimName(), getAttributeValue(authorizationGrant.getUser(), claimMapping));
             }
         }
 
-        if (authorizationGrant.getJwtAuthorizationRequest() != null
-                && authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember() != null) {
-            for (Claim claim : authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember().getClaims()) {
-                boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
-                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
-
-                if (gluuAttribute != null) {
-                    String ldapClaimName = gluuAttribute.getName();
-                    Object attribute = authorizationGrant.getUser().getAttribute(ldapClaimName, optional);
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            jwe.getClaims().setClaim(claim.getName(), values);
-                        } else {
-                            String value = (String) attribute;
-                            jwe.getClaims().setClaim(claim.getName(), value);
+        for (ClaimPlan.ClaimMapping claimMapping : claimPlan.getRequestedClaims()) {
+            boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
+            Object attribute = authorizationGrant.getUser().getAttribute(claimMapping.getLdapName(), optional);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    jwe.getClaims().setClaim(claimMapping.getClaimName(), values);
+                } else {
+                    String value = (String) attribute;
+                    jwe.getClaims().setClaim(claimMapping.getClaimName(), value);
                 }
             }
         }
@@ -424,10 +347,11 @@ public class IdTokenFactory {
         // Encryption
         if (keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA_OAEP
                 || keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA1_5) {
-            JSONObject jsonWebKeys = JwtUtil.getJSONWebKeys(authorizationGrant.getClient().getJwksUri());
+            String jwksUri = authorizationGrant.getClient().getJwksUri();
+            JSONObject jsonWebKeys = jwksResolver.getJwks(jwksUri);
             AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
             String keyId = cryptoProvider.getKeyId(JSONWebKeySet.fromJSONObject(jsonWebKeys), SignatureAlgorithm.RS256);
-            PublicKey publicKey = cryptoProvider.getPublicKey(keyId, jsonWebKeys);
+            PublicKey publicKey = jwksResolver.getPublicKey(jwksUri, keyId);
 
             if (publicKey != null) {
                 JweEncrypter jweEncrypter = new JweEncrypterImpl(keyEncryptionAlgorithm, blockEncryptionAlgorithm, publicKey);
@@ -468,4 +392,24 @@ public class IdTokenFactory {
         }
     }
 
-}
\ No newline at end of file
+    private ClaimPlan getClaimPlan(IAuthorizationGrant authorizationGrant, Set<String> scopes, boolean includeIdTokenClaims) {
+        List<Claim> requestedClaims = null;
+        if (authorizationGrant.getJwtAuthorizationRequest() != null
+                && authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember() != null) {
+            requestedClaims = authorizationGrant.getJwtAuthorizationRequest().getIdTokenMember().getClaims();
+        }
+
+        // Claims requested in request object are returned even if scope claims are not included
+        Collection<String> planScopes = includeIdTokenClaims ? scopes : Collections.<String>emptySet();
+
+        return claimPlanService.getClaimPlan(planScopes, requestedClaims);
+    }
+
+    private String getAttributeValue(User user, ClaimPlan.ClaimMapping claimMapping) {
+        if (claimMapping.isUserId()) {
+            return user.getUserId();
+        }
+
+        return user.getAttribute(claimMapping.getLdapName());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.userinfo;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.xdi.oxauth.model.common.Scope;
+
+/**
+ * Immutable projection of scopes and requested claims to user attributes. It's compiled once per
+ * scope set and claims request, so userinfo and id_token don't resolve scope claims per request and
+ * user entry is loaded with needed attributes only.
+ *
+ * @version October 18, 2026
+ */
+public class ClaimPlan {
+
+    private final List<ScopeClaims> scopeClaims;
+    private final List<Scope> dynamicScopes;
+    private final List<ClaimMapping> requestedClaims;
+    private final String[] returnAttributes;
+
+    public ClaimPlan(List<ScopeClaims> scopeClaims, List<Scope> dynamicScopes, List<ClaimMapping> requestedClaims,
+                     String[] returnAttributes) {
+        this.scopeClaims = Collections.unmodifiableList(scopeClaims);
+        this.dynamicScopes = Collections.unmodifiableList(dynamicScopes);
+        this.requestedClaims = Collections.unmodifiableList(requestedClaims);
+        this.returnAttributes = returnAttributes;
+    }
+
+    public List<ScopeClaims> getScopeClaims() {
+        return scopeClaims;
+    }
+
+    public List<Scope> getDynamicScopes() {
+        return dynamicScopes;
+    }
+
+    /**
+     * @return claims requested in "claims" member of request object
+     */
+    public List<ClaimMapping> getRequestedClaims() {
+        return requestedClaims;
+    }
+
+    /**
+     * @return user attributes which have to be loaded or null if all attributes are needed (dynamic scope
+     * scripts may use any of them)
+     */
+    public String[] getReturnAttributes() {
+        return returnAttributes == null ? null : returnAttributes.clone();
+    }
+
+    public static class ScopeClaims {
+
+        private final String scopeName;
+        private final boolean groupClaims;
+        private final List<ClaimMapping> claims;
+
+        public ScopeClaims(String scopeName, boolean groupClaims, List<ClaimMapping> claims) {
+            this.scopeName = scopeName;
+            this.groupClaims = groupClaims;
+            this.claims = Collections.unmodifiableList(claims);
+        }
+
+        public String getScopeName() {
+            return scopeName;
+        }
+
+        public boolean isGroupClaims() {
+            return groupClaims;
+        }
+
+        public List<ClaimMapping> getClaims() {
+            return claims;
+        }
+
+    }
+
+    public static class ClaimMapping {
+
+        private final String claimName;
+        private final String ldapName;
+
+        public ClaimMapping(String claimName, String ldapName) {
+            this.claimName = claimName;
+            this.ldapName = ldapName;
+        }
+
+        public String getClaimName() {
+            return claimName;
+        }
+
+        public String getLdapName() {
+            return ldapName;
+        }
+
+        public boolean isUserId() {
+            return "uid".equals(ldapName);
+        }
+
+    }
+
+}
@@ -95,6 +95,7 @@ import org.xdi.oxauth.service.ClientService;
 import org.xdi.oxauth.service.InumService;
 import org.xdi.oxauth.service.MetricService;
 import org.xdi.oxauth.service.ScopeService;
+import org.xdi.oxauth.service.SectorIdentifierUriResolver;
 import org.xdi.oxauth.service.external.ExternalDynamicClientRegistrationService;
 import org.xdi.oxauth.service.token.TokenService;
 import org.xdi.oxauth.util.ServerUtil;
@@ -136,6 +137,9 @@ public class RegisterRestWebServiceImpl implements RegisterRestWebService {
     @Inject
     private RegisterParamsValidator registerParamsValidator;
 
+    @Inject
+    private SectorIdentifierUriResolver sectorIdentifierUriResolver;
+
     @Inject
     private AppConfiguration appConfiguration;
 
@@ -301,6 +305,10 @@ public class RegisterRestWebServiceImpl implements RegisterRestWebService {
             p_client.setClientName(requestObject.getClientName());
         }
         if (StringUtils.isNotBlank(requestObject.getSectorIdentifierUri())) {
+            String previousSectorIdentifierUri = p_client.getSectorIdentifierUri();
+            if (StringUtils.isNotBlank(previousSectorIdentifierUri) && !previousSectorIdentifierUri.equals(requestObject.getSectorIdentifierUri())) {
+                sectorIdentifierUriResolver.evict(previousSectorIdentifierUri);
+            }
             p_client.setSectorIdentifierUri(requestObject.getSectorIdentifierUri());
         }
         List<ResponseType> responseTypes = requestObject.getResponseTypes();
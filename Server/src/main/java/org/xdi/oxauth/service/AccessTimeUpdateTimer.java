@@ -0,0 +1,173 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.Asynchronous;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.slf4j.Logger;
+import org.xdi.ldap.model.CustomAttribute;
+import org.xdi.ldap.model.CustomEntry;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.cdi.event.AccessTimeUpdateEvent;
+import org.xdi.service.cdi.event.Scheduled;
+import org.xdi.service.timer.event.TimerEvent;
+import org.xdi.service.timer.schedule.TimerSchedule;
+
+/**
+ * Write-behind of access timestamps (oxLastAccessTime, oxLastLogonTime) of clients and users. Updates are
+ * coalesced per DN, only latest value of each attribute is written. Pending updates are merged into LDAP every
+ * accessTimeUpdateFlushInterval seconds, so stored timestamps are at most that much behind.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class AccessTimeUpdateTimer {
+
+	private final static int DEFAULT_DELAY = 30;
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private Event<TimerEvent> timerEvent;
+
+	@Inject
+	private LdapEntryManager ldapEntryManager;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private final ConcurrentMap<String, PendingUpdate> pendingUpdates = new ConcurrentHashMap<String, PendingUpdate>();
+
+	private final AtomicBoolean isActive = new AtomicBoolean(false);
+
+	public void initTimer() {
+		log.debug("Initializing Access Time Update Timer");
+
+		int interval = appConfiguration.getAccessTimeUpdateFlushInterval();
+		timerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_DELAY, interval), new AccessTimeUpdateEvent(),
+				Scheduled.Literal.INSTANCE));
+	}
+
+	@Asynchronous
+	public void process(@Observes @Scheduled AccessTimeUpdateEvent accessTimeUpdateEvent) {
+		if (!this.isActive.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			flush();
+		} finally {
+			this.isActive.set(false);
+		}
+	}
+
+	public void addUpdate(String dn, String[] objectClasses, String attributeName, Date time) {
+		while (true) {
+			PendingUpdate pendingUpdate = pendingUpdates.get(dn);
+			if (pendingUpdate == null) {
+				PendingUpdate newPendingUpdate = new PendingUpdate(objectClasses);
+				pendingUpdate = pendingUpdates.putIfAbsent(dn, newPendingUpdate);
+				if (pendingUpdate == null) {
+					pendingUpdate = newPendingUpdate;
+				}
+			}
+
+			// Update which is taken by flush already is not changed, new one is created instead
+			if (pendingUpdate.set(attributeName, time)) {
+				return;
+			}
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		flush();
+	}
+
+	private void flush() {
+		if (pendingUpdates.isEmpty()) {
+			return;
+		}
+
+		List<String> dns = new ArrayList<String>(pendingUpdates.keySet());
+		int written = 0;
+		for (String dn : dns) {
+			PendingUpdate pendingUpdate = pendingUpdates.remove(dn);
+			if (pendingUpdate == null) {
+				continue;
+			}
+
+			CustomEntry customEntry = pendingUpdate.close(dn);
+			try {
+				ldapEntryManager.merge(customEntry);
+				written++;
+			} catch (Exception ex) {
+				// Timestamps are not retried, next update of entry will write newer ones
+				log.error("Failed to update access time of entry '{}'", dn, ex);
+			}
+		}
+
+		log.debug("Written access time updates: '{}'", written);
+	}
+
+	private static class PendingUpdate {
+
+		private final String[] objectClasses;
+		private final Map<String, Date> attributes = new HashMap<String, Date>();
+		private boolean closed;
+
+		public PendingUpdate(String[] objectClasses) {
+			this.objectClasses = objectClasses;
+		}
+
+		public synchronized boolean set(String attributeName, Date time) {
+			if (closed) {
+				return false;
+			}
+
+			Date current = attributes.get(attributeName);
+			if ((current == null) || current.before(time)) {
+				attributes.put(attributeName, time);
+			}
+
+			return true;
+		}
+
+		public synchronized CustomEntry close(String dn) {
+			this.closed = true;
+
+			CustomEntry customEntry = new CustomEntry();
+			customEntry.setDn(dn);
+			customEntry.setCustomObjectClasses(objectClasses);
+			for (Map.Entry<String, Date> attribute : attributes.entrySet()) {
+				customEntry.getCustomAttributes().add(new CustomAttribute(attribute.getKey(), attribute.getValue()));
+			}
+
+			return customEntry;
+		}
+
+	}
+
+}
@@ -19,6 +19,8 @@ import org.xdi.exception.ConfigurationException;
 import org.xdi.model.SimpleProperty;
 import org.xdi.model.custom.script.CustomScriptType;
 import org.xdi.model.ldap.GluuLdapConfiguration;
+import org.xdi.oxauth.cert.validation.CrlStore;
+import org.xdi.oxauth.client.ClientHttpTransport;
 import org.xdi.oxauth.model.appliance.GluuAppliance;
 import org.xdi.oxauth.model.auth.AuthenticationMode;
 import org.xdi.oxauth.model.config.ConfigurationFactory;
@@ -27,6 +29,7 @@ import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.util.SecurityProviderUtility;
 import org.xdi.oxauth.service.cdi.event.*;
 import org.xdi.oxauth.service.external.ExternalAuthenticationService;
+import org.xdi.oxauth.service.fido.u2f.DeviceRegistrationUpdateTimer;
 import org.xdi.oxauth.service.status.ldap.LdapStatusTimer;
 import org.xdi.service.PythonService;
 import org.xdi.service.cdi.event.ConfigurationUpdate;
@@ -127,6 +130,15 @@ public class AppInitializer {
 	@Inject
 	private KeyGeneratorTimer keyGeneratorTimer;
 
+	@Inject
+	private PairwiseIdMigrationTimer pairwiseIdMigrationTimer;
+
+	@Inject
+	private DeviceRegistrationUpdateTimer deviceRegistrationUpdateTimer;
+
+	@Inject
+	private AccessTimeUpdateTimer accessTimeUpdateTimer;
+
 	@Inject
 	private LdapStatusTimer ldapStatusTimer;
 	
@@ -178,6 +190,9 @@ public class AppInitializer {
         cleanerTimer.initTimer();
         customScriptManager.initTimer(supportedCustomScriptTypes);
         keyGeneratorTimer.initTimer();
+        pairwiseIdMigrationTimer.initTimer();
+        deviceRegistrationUpdateTimer.initTimer();
+        accessTimeUpdateTimer.initTimer();
         initTimer();
 	}
 
@@ -213,6 +228,9 @@ public class AppInitializer {
         
     	List<LdapEntryManager> ldapAuthEntryManagers = ldapAuthEntryManagerInstance.get();
         closeLdapAuthEntryManagers(ldapAuthEntryManagers);
+
+        CrlStore.instance().shutdown();
+        ClientHttpTransport.shutdownInstance();
     }
     
     public void reloadConfigurationTimerEvent(@Observes @Scheduled AuthConfigurationEvent authConfigurationEvent) {
@@ -9,18 +9,14 @@ package org.xdi.oxauth.service;
 import org.apache.commons.lang.StringUtils;
 import org.gluu.jsf2.service.FacesService;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
-import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.CustomAttribute;
-import org.xdi.ldap.model.CustomEntry;
 import org.xdi.ldap.model.GluuStatus;
-import org.xdi.model.SimpleProperty;
 import org.xdi.model.ldap.GluuLdapConfiguration;
 import org.xdi.model.metric.MetricType;
 import org.xdi.model.security.Credentials;
 import org.xdi.oxauth.model.authorize.AuthorizeRequestParam;
 import org.xdi.oxauth.model.common.SessionState;
-import org.xdi.oxauth.model.common.SimpleUser;
 import org.xdi.oxauth.model.common.User;
 import org.xdi.oxauth.model.config.Constants;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
@@ -121,6 +117,12 @@ public class AuthenticationService {
     @Inject
     private FacesService facesService;
 
+    @Inject
+    private AccessTimeUpdateTimer accessTimeUpdateTimer;
+
+    @Inject
+    private ExternalLdapUserLocator externalLdapUserLocator;
+
     /**
      * Authenticate user.
      *
@@ -192,19 +194,16 @@ public class AuthenticationService {
     }
 
     private boolean externalAuthenticate(String keyValue, String password) {
+        if (isParallelLookup()) {
+            return parallelAuthenticate(keyValue, password, null, null);
+        }
+
         for (int i = 0; i < this.ldapAuthConfigs.size(); i++) {
             GluuLdapConfiguration ldapAuthConfig = this.ldapAuthConfigs.get(i);
             LdapEntryManager ldapAuthEntryManager = this.ldapAuthEntryManagers.get(i);
 
-            String primaryKey = "uid";
-            if (StringHelper.isNotEmpty(ldapAuthConfig.getPrimaryKey())) {
-                primaryKey = ldapAuthConfig.getPrimaryKey();
-            }
-
-            String localPrimaryKey = "uid";
-            if (StringHelper.isNotEmpty(ldapAuthConfig.getLocalPrimaryKey())) {
-                localPrimaryKey = ldapAuthConfig.getLocalPrimaryKey();
-            }
+            String primaryKey = ExternalLdapUserLocator.getPrimaryKey(ldapAuthConfig);
+            String localPrimaryKey = ExternalLdapUserLocator.getLocalPrimaryKey(ldapAuthConfig);
 
             boolean authenticated = authenticate(ldapAuthConfig, ldapAuthEntryManager, keyValue, password, primaryKey, localPrimaryKey);
             if (authenticated) {
@@ -224,13 +223,17 @@ public class AuthenticationService {
 
         com.codahale.metrics.Timer.Context timerContext = metricService.getTimer(MetricType.OXAUTH_USER_AUTHENTICATION_RATE).time();
         try {
-            for (int i = 0; i < this.ldapAuthConfigs.size(); i++) {
-                GluuLdapConfiguration ldapAuthConfig = this.ldapAuthConfigs.get(i);
-                LdapEntryManager ldapAuthEntryManager = this.ldapAuthEntryManagers.get(i);
+            if (isParallelLookup()) {
+                authenticated = parallelAuthenticate(keyValue, password, primaryKey, localPrimaryKey);
+            } else {
+                for (int i = 0; i < this.ldapAuthConfigs.size(); i++) {
+                    GluuLdapConfiguration ldapAuthConfig = this.ldapAuthConfigs.get(i);
+                    LdapEntryManager ldapAuthEntryManager = this.ldapAuthEntryManagers.get(i);
 
-                authenticated = authenticate(ldapAuthConfig, ldapAuthEntryManager, keyValue, password, primaryKey, localPrimaryKey);
-                if (authenticated) {
-                    break;
+                    authenticated = authenticate(ldapAuthConfig, ldapAuthEntryManager, keyValue, password, primaryKey, localPrimaryKey);
+                    if (authenticated) {
+                        break;
+                    }
                 }
             }
         } finally {
@@ -262,46 +265,64 @@ public class AuthenticationService {
             baseDNs = ldapAuthConfig.getBaseDNs();
         }
 
-        if (baseDNs != null && !baseDNs.isEmpty()) {
-            for (Object baseDnProperty : baseDNs) {
-                String baseDn;
-                if (baseDnProperty instanceof SimpleProperty) {
-                    baseDn = ((SimpleProperty) baseDnProperty).getValue();
-                } else {
-                    baseDn = baseDnProperty.toString();
-                }
+        ExternalLdapUserLocator.Result result = externalLdapUserLocator.bind(ldapAuthConfig, baseDNs, ldapAuthEntryManager, primaryKey, keyValue, password);
+        if (result.getUser() == null) {
+            return false;
+        }
 
-                User user = getUserByAttribute(ldapAuthEntryManager, baseDn, primaryKey, keyValue);
-                if (user != null) {
-                    String userDn = user.getDn();
-                    log.debug("Attempting to authenticate userDN: {}", userDn);
-                    if (ldapAuthEntryManager.authenticate(userDn, password)) {
-                        log.debug("User authenticated: {}", userDn);
+        return Boolean.TRUE.equals(authenticateLocalUser(result.getUser(), keyValue, localPrimaryKey));
+    }
 
-                        log.debug("Attempting to find userDN by local primary key: {}", localPrimaryKey);
-                        User localUser = userService.getUserByAttribute(localPrimaryKey, keyValue);
-                        if (localUser != null) {
-                            if (!checkUserStatus(localUser)) {
-                                return false;
-                            }
+    private boolean isParallelLookup() {
+        return appConfiguration.getLdapAuthParallelLookupEnabled() && (this.ldapAuthConfigs.size() > 1);
+    }
 
-                            configureAuthenticatedUser(localUser);
-                            updateLastLogonUserTime(localUser);
+    /*
+     * Finds and binds user in all backend LDAP auth servers concurrently, takes bound users until local user is found
+     */
+    private boolean parallelAuthenticate(String keyValue, String password, String primaryKey, String localPrimaryKey) {
+        log.debug("Attempting to find userDN in '{}' backends by key value: '{}', credentials: '{}'", this.ldapAuthConfigs.size(), keyValue, System.identityHashCode(credentials));
 
-                            log.trace("authenticate_external: credentials: '{}', credentials.userName: '{}', authenticatedUser.userId: '{}'", System.identityHashCode(credentials), credentials.getUsername(), getAuthenticatedUserId());
+        ExternalLdapUserLocator.Search search = externalLdapUserLocator.search(this.ldapAuthConfigs, this.ldapAuthEntryManagers, primaryKey, keyValue, password);
+        try {
+            ExternalLdapUserLocator.Result result;
+            while ((result = search.next()) != null) {
+                String backendLocalPrimaryKey = localPrimaryKey != null ? localPrimaryKey : ExternalLdapUserLocator.getLocalPrimaryKey(result.getLdapAuthConfig());
 
-                            return true;
-                        }
-                    }
+                Boolean authenticated = authenticateLocalUser(result.getUser(), keyValue, backendLocalPrimaryKey);
+                if (authenticated != null) {
+                    return authenticated;
                 }
             }
-        } else {
-            log.error("There are no baseDns specified in authentication configuration.");
+        } finally {
+            search.close();
         }
 
         return false;
     }
 
+    /*
+     * @return true if user is authenticated, false if local user is not active and null if there is no local user
+     */
+    private Boolean authenticateLocalUser(User user, String keyValue, String localPrimaryKey) {
+        log.debug("Attempting to find local user of userDN: '{}' by local primary key: {}", user.getDn(), localPrimaryKey);
+        User localUser = userService.getUserByAttribute(localPrimaryKey, keyValue);
+        if (localUser != null) {
+            if (!checkUserStatus(localUser)) {
+                return false;
+            }
+
+            configureAuthenticatedUser(localUser);
+            updateLastLogonUserTime(localUser);
+
+            log.trace("authenticate_external: credentials: '{}', credentials.userName: '{}', authenticatedUser.userId: '{}'", System.identityHashCode(credentials), credentials.getUsername(), getAuthenticatedUserId());
+
+            return true;
+        }
+
+        return null;
+    }
+
     public boolean authenticate(String userName) {
         log.debug("Authenticating user with LDAP: username: '{}', credentials: '{}'", userName, System.identityHashCode(credentials));
 
@@ -337,34 +358,6 @@ public class AuthenticationService {
         return authenticated;
     }
 
-    private User getUserByAttribute(LdapEntryManager ldapAuthEntryManager, String baseDn, String attributeName, String attributeValue) {
-        log.debug("Getting user information from LDAP: attributeName = '{}', attributeValue = '{}'", attributeName, attributeValue);
-
-        if (StringHelper.isEmpty(attributeValue)) {
-            return null;
-        }
-
-        SimpleUser sampleUser = new SimpleUser();
-        sampleUser.setDn(baseDn);
-
-        List<CustomAttribute> customAttributes = new ArrayList<CustomAttribute>();
-        customAttributes.add(new CustomAttribute(attributeName, attributeValue));
-
-        sampleUser.setCustomAttributes(customAttributes);
-
-        log.debug("Searching user by attributes: '{}', baseDn: '{}'", customAttributes, baseDn);
-        List<User> entries = ldapAuthEntryManager.findEntries(sampleUser, 1);
-        log.debug("Found '{}' entries", entries.size());
-
-        if (entries.size() > 0) {
-            SimpleUser foundUser = entries.get(0);
-
-            return ldapAuthEntryManager.find(User.class, foundUser.getDn());
-        } else {
-            return null;
-        }
-    }
-
     private boolean checkUserStatus(User user) {
         CustomAttribute userStatus = userService.getCustomAttribute(user, "gluuStatus");
 
@@ -381,18 +374,7 @@ public class AuthenticationService {
 			return;
 		}
 
-		CustomEntry customEntry = new CustomEntry();
-        customEntry.setDn(user.getDn());
-		customEntry.setCustomObjectClasses(UserService.USER_OBJECT_CLASSES);
-
-        CustomAttribute customAttribute = new CustomAttribute("oxLastLogonTime", new Date());
-        customEntry.getCustomAttributes().add(customAttribute);
-
-        try {
-            ldapEntryManager.merge(customEntry);
-        } catch (EntryPersistenceException epe) {
-            log.error("Failed to update oxLastLoginTime of user '{}'", user.getUserId());
-        }
+        accessTimeUpdateTimer.addUpdate(user.getDn(), UserService.USER_OBJECT_CLASSES, "oxLastLogonTime", new Date());
     }
 
     public SessionState configureSessionUser(SessionState sessionState, Map<String, String> sessionIdAttributes) {
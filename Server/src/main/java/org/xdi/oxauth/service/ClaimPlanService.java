@@ -0,0 +1,140 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.xdi.model.GluuAttribute;
+import org.xdi.oxauth.model.authorize.Claim;
+import org.xdi.oxauth.model.common.Scope;
+import org.xdi.oxauth.model.common.ScopeType;
+import org.xdi.oxauth.model.userinfo.ClaimPlan;
+import org.xdi.oxauth.model.userinfo.ClaimPlan.ClaimMapping;
+import org.xdi.oxauth.model.userinfo.ClaimPlan.ScopeClaims;
+import org.xdi.oxauth.service.cache.NearCacheService;
+
+/**
+ * Compiles and caches {@link ClaimPlan} per scope set and claims request. Plans live in
+ * near cache region "claimPlan", its TTL defines how fast scope/attribute changes are picked up.
+ *
+ * @version October 18, 2026
+ */
+@Stateless
+@Named
+public class ClaimPlanService {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ScopeService scopeService;
+
+    @Inject
+    private AttributeService attributeService;
+
+    @Inject
+    private NearCacheService nearCacheService;
+
+    /**
+     * @param requestedClaims claims from "claims" member of request object, may be null
+     */
+    public ClaimPlan getClaimPlan(Collection<String> scopes, List<Claim> requestedClaims) {
+        List<String> sortedScopes = new ArrayList<String>(scopes);
+        Collections.sort(sortedScopes);
+
+        String key = getKey(sortedScopes, requestedClaims);
+        ClaimPlan claimPlan = (ClaimPlan) nearCacheService.get(NearCacheService.CLAIM_PLAN_REGION, key);
+        if (claimPlan == null) {
+            claimPlan = compile(sortedScopes, requestedClaims);
+            nearCacheService.put(NearCacheService.CLAIM_PLAN_REGION, key, claimPlan);
+        }
+
+        return claimPlan;
+    }
+
+    private ClaimPlan compile(List<String> scopes, List<Claim> requestedClaims) {
+        List<ScopeClaims> scopeClaims = new ArrayList<ScopeClaims>();
+        List<Scope> dynamicScopes = new ArrayList<Scope>();
+        Set<String> returnAttributes = new LinkedHashSet<String>();
+        returnAttributes.add("inum");
+        returnAttributes.add("uid");
+
+        for (String scopeName : scopes) {
+            Scope scope = scopeService.getScopeByDisplayName(scopeName);
+            if (scope == null) {
+                log.trace("Scope '{}' is not found", scopeName);
+                continue;
+            }
+
+            if (ScopeType.DYNAMIC == scope.getScopeType()) {
+                dynamicScopes.add(scope);
+                continue;
+            }
+
+            if (scope.getOxAuthClaims() == null) {
+                continue;
+            }
+
+            List<ClaimMapping> claims = new ArrayList<ClaimMapping>();
+            for (String claimDn : scope.getOxAuthClaims()) {
+                GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
+                if (gluuAttribute == null) {
+                    continue;
+                }
+
+                String claimName = gluuAttribute.getOxAuthClaimName();
+                String ldapName = gluuAttribute.getName();
+                if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
+                    claims.add(new ClaimMapping(claimName, ldapName));
+                    returnAttributes.add(ldapName);
+                }
+            }
+
+            scopeClaims.add(new ScopeClaims(scope.getDisplayName(), scope.getIsOxAuthGroupClaims(), claims));
+        }
+
+        List<ClaimMapping> requestedClaimMappings = new ArrayList<ClaimMapping>();
+        if (requestedClaims != null) {
+            for (Claim claim : requestedClaims) {
+                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
+                if (gluuAttribute != null) {
+                    requestedClaimMappings.add(new ClaimMapping(claim.getName(), gluuAttribute.getName()));
+                    returnAttributes.add(gluuAttribute.getName());
+                }
+            }
+        }
+
+        // Dynamic scope scripts may use any attribute of user
+        String[] attributes = dynamicScopes.isEmpty() ? returnAttributes.toArray(new String[returnAttributes.size()]) : null;
+
+        return new ClaimPlan(scopeClaims, dynamicScopes, requestedClaimMappings, attributes);
+    }
+
+    private String getKey(List<String> sortedScopes, List<Claim> requestedClaims) {
+        StringBuilder key = new StringBuilder(StringUtils.join(sortedScopes, " "));
+        if (requestedClaims != null) {
+            key.append('|');
+            for (Claim claim : requestedClaims) {
+                key.append(claim.getName()).append(' ');
+            }
+        }
+
+        return key.toString();
+    }
+
+}
@@ -11,20 +11,34 @@ import org.gluu.site.ldap.persistence.LdapEntryManager;
 import org.slf4j.Logger;
 import org.xdi.model.ApplicationType;
 import org.xdi.oxauth.model.common.AuthorizationGrant;
+import org.xdi.ldap.model.SearchScope;
 import org.xdi.oxauth.model.common.AuthorizationGrantList;
+import org.xdi.oxauth.model.common.CleanerTask;
+import org.xdi.oxauth.model.common.uma.UmaRPT;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.configuration.CleanerTaskConfiguration;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
 import org.xdi.oxauth.model.fido.u2f.RequestMessageLdap;
+import org.xdi.oxauth.model.ldap.TokenLdap;
 import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.model.uma.persistence.ResourceSetPermission;
 import org.xdi.oxauth.service.cdi.event.CleanerEvent;
 import org.xdi.oxauth.service.fido.u2f.DeviceRegistrationService;
 import org.xdi.oxauth.service.fido.u2f.RequestService;
 import org.xdi.oxauth.service.uma.ResourceSetPermissionManager;
 import org.xdi.oxauth.service.uma.RptManager;
+import org.xdi.oxauth.util.ServerUtil;
+import org.xdi.service.cdi.event.ConfigurationUpdate;
 import org.xdi.service.cdi.event.Scheduled;
 import org.xdi.service.timer.event.TimerEvent;
 import org.xdi.service.timer.schedule.TimerSchedule;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.unboundid.ldap.sdk.Filter;
+
+import javax.annotation.PreDestroy;
 import javax.ejb.Asynchronous;
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
@@ -33,7 +47,13 @@ import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -45,8 +65,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Named
 public class CleanerTimer {
 
-    public final static int BATCH_SIZE = 100;
-    private final static int DEFAULT_INTERVAL = 600; // 10 minutes
+    public final static int BATCH_SIZE = CleanerTaskConfiguration.DEFAULT_BATCH_SIZE;
+    private final static int DEFAULT_DELAY = 30;
+
+    // Expired entries left after run are counted up to this limit
+    private final static int BACKLOG_LIMIT = 1000;
+    private final static int U2F_DEVICE_REGISTRATION_LIFETIME = 90;
 
     @Inject
     private Logger log;
@@ -87,55 +111,241 @@ public class CleanerTimer {
     @Inject
 	private Event<TimerEvent> cleanerEvent;
 
-    private AtomicBoolean isActive;
-    
+    private Map<CleanerTask, AtomicBoolean> activeTasks;
+    private Map<CleanerTask, AtomicLong> backlog;
+
+    private volatile ExecutorService tokenCleanerExecutor;
+    private int tokenCleanerThreads = 1;
+
     public void initTimer() {
         log.debug("Initializing Cleaner Timer");
-        this.isActive = new AtomicBoolean(false);
+        this.activeTasks = new EnumMap<CleanerTask, AtomicBoolean>(CleanerTask.class);
+        this.backlog = new EnumMap<CleanerTask, AtomicLong>(CleanerTask.class);
+
+        updateTokenCleanerExecutor(appConfiguration);
+
+        for (CleanerTask task : CleanerTask.values()) {
+            this.activeTasks.put(task, new AtomicBoolean(false));
+            this.backlog.put(task, new AtomicLong());
+            if (isBacklogCounted(task)) {
+                registerBacklogGauge(task);
+            }
+
+            CleanerTaskConfiguration taskConfiguration = appConfiguration.getCleanerTaskConfiguration(task);
+            if (!taskConfiguration.getEnabled()) {
+                log.debug("Cleaner task '{}' is disabled", task);
+                continue;
+            }
 
-        int interval = appConfiguration.getCleanServiceInterval();
-        if (interval <= 0) {
-            interval = DEFAULT_INTERVAL;
+            int interval = getInterval(taskConfiguration);
+            cleanerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_DELAY, interval), new CleanerEvent(task), Scheduled.Literal.INSTANCE));
+            log.debug("Scheduled cleaner task '{}' with interval '{}' seconds", task, interval);
         }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (this.tokenCleanerExecutor != null) {
+            this.tokenCleanerExecutor.shutdownNow();
+        }
+    }
 
-        cleanerEvent.fire(new TimerEvent(new TimerSchedule(30, 30), new CleanerEvent(), Scheduled.Literal.INSTANCE));
+    public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+        updateTokenCleanerExecutor(appConfiguration);
+    }
+
+    private synchronized void updateTokenCleanerExecutor(AppConfiguration appConfiguration) {
+        int threads = appConfiguration.getCleanerTaskConfiguration(CleanerTask.TOKEN).getThreads();
+        if (threads < 1) {
+            threads = 1;
+        }
+
+        if (threads == this.tokenCleanerThreads) {
+            return;
+        }
+
+        ExecutorService oldExecutor = this.tokenCleanerExecutor;
+        this.tokenCleanerExecutor = threads > 1 ? ServerUtil.createFixedExecutor(threads, "oxauth-token-cleaner") : null;
+        this.tokenCleanerThreads = threads;
+        log.debug("Token cleaner threads: '{}'", threads);
+
+        if (oldExecutor != null) {
+            // Let already submitted shards finish
+            oldExecutor.shutdown();
+        }
     }
 
     @Asynchronous
     public void process(@Observes @Scheduled CleanerEvent cleanerEvent) {
-        if (this.isActive.get()) {
+        final CleanerTask task = cleanerEvent.getTask();
+
+        // Each task is guarded separately, slow task doesn't block others
+        final AtomicBoolean isActive = this.activeTasks.get(task);
+        if (isActive.get()) {
             return;
         }
 
-        if (!this.isActive.compareAndSet(false, true)) {
+        if (!isActive.compareAndSet(false, true)) {
             return;
         }
 
+        final MetricRegistry registry = metricService.getLocalMetricRegistry();
+        final Timer.Context timerContext = registry.timer(MetricRegistry.name(CleanerTimer.class, task.getValue(), "duration")).time();
         try {
-            processAuthorizationGrantList();
-            processRegisteredClients();
+            final CleanerTaskConfiguration taskConfiguration = appConfiguration.getCleanerTaskConfiguration(task);
+            final int removed = processTask(task, taskConfiguration.getBatchSize());
 
-            Date now = new Date();
-            this.rptManager.cleanupRPTs(now);
-            this.resourceSetPermissionManager.cleanupResourceSetPermissions(now);
+            registry.meter(MetricRegistry.name(CleanerTimer.class, task.getValue(), "entries")).mark(removed);
+            log.debug("Cleaner task '{}' removed '{}' entries", task, removed);
 
-            processU2fRequests();
-            processU2fDeviceRegistrations();
-
-            processMetricEntries();
+            if (isBacklogCounted(task)) {
+                int left = countBacklog(task);
+                this.backlog.get(task).set(left);
+                if (left > 0) {
+                    log.debug("Cleaner task '{}' left '{}' expired entries", task, left);
+                }
+            }
+        } catch (Exception ex) {
+            log.error("Failed to process cleaner task '{}'", task, ex);
         } finally {
-            this.isActive.set(false);
+            timerContext.stop();
+            isActive.set(false);
+        }
+    }
+
+    private int processTask(CleanerTask task, int batchSize) {
+        switch (task) {
+            case TOKEN:
+                return processTokens(batchSize);
+            case GRANT:
+                return grantService.cleanUpGrants(batchSize);
+            case CLIENT:
+                return processRegisteredClients(batchSize);
+            case RPT:
+                return rptManager.cleanupRPTs(new Date(), batchSize);
+            case PERMISSION:
+                return resourceSetPermissionManager.cleanupResourceSetPermissions(new Date(), batchSize);
+            case U2F_REQUEST:
+                return processU2fRequests(batchSize);
+            case U2F_DEVICE:
+                return processU2fDeviceRegistrations(batchSize);
+            case METRIC:
+                processMetricEntries(batchSize);
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    private int getInterval(CleanerTaskConfiguration taskConfiguration) {
+        Integer interval = taskConfiguration.getInterval();
+        if ((interval == null) || (interval <= 0)) {
+            interval = CleanerTaskConfiguration.DEFAULT_INTERVAL;
+        }
+
+        return interval;
+    }
+
+    /**
+     * Backlog is counted for tasks which remove entries by expiration date. Grants without tokens, clients and
+     * metric entries are found by other criteria.
+     */
+    private boolean isBacklogCounted(CleanerTask task) {
+        switch (task) {
+            case TOKEN:
+            case RPT:
+            case PERMISSION:
+            case U2F_REQUEST:
+            case U2F_DEVICE:
+                return true;
+            default:
+                return false;
         }
     }
 
-    private void processAuthorizationGrantList() {
-        log.debug("Start AuthorizationGrant clean up");
-        grantService.cleanUp();
-        log.debug("End AuthorizationGrant clean up");
+    /**
+     * Count of entries which were still expired after last run of task (up to {@link #BACKLOG_LIMIT}). It grows if
+     * task doesn't keep up with expiration of entries. Count of removed entries is reported by "entries" meter.
+     */
+    private void registerBacklogGauge(CleanerTask task) {
+        final AtomicLong left = this.backlog.get(task);
+        final String name = MetricRegistry.name(CleanerTimer.class, task.getValue(), "backlog");
+
+        MetricRegistry registry = metricService.getLocalMetricRegistry();
+        registry.remove(name);
+        registry.register(name, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return left.get();
+            }
+        });
     }
 
-    private void processRegisteredClients() {
+    private int countBacklog(CleanerTask task) {
+        final Filter expirationFilter = Filter.createLessOrEqualFilter("oxAuthExpiration", ldapEntryManager.encodeGeneralizedTime(new Date()));
+        switch (task) {
+            case TOKEN:
+                return countEntries(TokenLdap.class, expirationFilter);
+            case RPT:
+                return countEntries(UmaRPT.class, expirationFilter);
+            case PERMISSION:
+                return countEntries(ResourceSetPermission.class, expirationFilter);
+            case U2F_REQUEST:
+                return u2fRequestService.isLdapStore() ?
+                        u2fRequestService.getExpiredRequestMessages(null, getU2fRequestExpirationDate(), BACKLOG_LIMIT).size() : 0;
+            case U2F_DEVICE:
+                return deviceRegistrationService.getExpiredDeviceRegistrations(null, getU2fDeviceExpirationDate(), BACKLOG_LIMIT).size();
+            default:
+                return 0;
+        }
+    }
+
+    private <T> int countEntries(Class<T> entryClass, Filter filter) {
+        return ldapEntryManager.findEntries(grantService.baseDn(), entryClass, filter, SearchScope.SUB, null, null, 0, BACKLOG_LIMIT, BACKLOG_LIMIT).size();
+    }
+
+    private int processTokens(final int batchSize) {
+        log.debug("Start token clean up");
+        final ExecutorService executor = this.tokenCleanerExecutor;
+        if (executor == null) {
+            int removed = grantService.cleanUpTokens(grantService.baseDn(), batchSize);
+            log.debug("End token clean up");
+
+            return removed;
+        }
+
+        // Tokens are stored under client entries, each client branch is processed as separate shard
+        final List<Client> clients = clientService.getAllClients(new String[] { "inum" });
+        final List<Future<Integer>> shards = new ArrayList<Future<Integer>>(clients.size());
+        for (final Client client : clients) {
+            shards.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return grantService.cleanUpTokens(clientService.buildClientDn(client.getClientId()), batchSize);
+                }
+            }));
+        }
+
+        int removed = 0;
+        for (Future<Integer> shard : shards) {
+            try {
+                removed += shard.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Token clean up was interrupted");
+                break;
+            } catch (ExecutionException ex) {
+                log.error("Failed to clean up tokens of client", ex.getCause());
+            }
+        }
+        log.debug("End token clean up, clients: '{}'", clients.size());
+
+        return removed;
+    }
+
+    private int processRegisteredClients(int batchSize) {
         log.debug("Start Client clean up");
+        final AtomicInteger removed = new AtomicInteger();
 
         BatchOperation<Client> clientBatchService = new BatchOperation<Client>(ldapEntryManager) {
             @Override
@@ -157,7 +367,9 @@ public class CleanerTimer {
                             log.debug("Removing Client: {}, Expiration date: {}",
                                     client.getClientId(),
                                     client.getClientSecretExpiresAt());
+                            grantService.removeGrantsOfClientFromCache(client.getClientId());
                             clientService.remove(client);
+                            removed.incrementAndGet();
                         }
                     } catch (Exception e) {
                         log.error("Failed to remove entry", e);
@@ -165,22 +377,28 @@ public class CleanerTimer {
                 }
             }
         };
-        clientBatchService.iterateAllByChunks(BATCH_SIZE);
+        clientBatchService.iterateAllByChunks(batchSize);
 
         log.debug("End Client clean up");
+        return removed.get();
     }
 
-    private void processU2fRequests() {
+    private int processU2fRequests(int batchSize) {
+        // Store type is checked on each run, it can be changed by configuration reload. Requests in cache expire there
+        if (!u2fRequestService.isLdapStore()) {
+            log.trace("Skipping U2F request clean up, requests are stored in cache");
+            return 0;
+        }
+
         log.debug("Start U2F request clean up");
+        final AtomicInteger removed = new AtomicInteger();
 
-        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
-        calendar.add(Calendar.SECOND, -90);
-        final Date expirationDate = calendar.getTime();
+        final Date expirationDate = getU2fRequestExpirationDate();
 
         BatchOperation<RequestMessageLdap> requestMessageLdapBatchService = new BatchOperation<RequestMessageLdap>(ldapEntryManager) {
             @Override
             protected List<RequestMessageLdap> getChunkOrNull(int chunkSize) {
-                return u2fRequestService.getExpiredRequestMessages(this, expirationDate);
+                return u2fRequestService.getExpiredRequestMessages(this, expirationDate, chunkSize);
             }
 
             @Override
@@ -190,28 +408,29 @@ public class CleanerTimer {
                         log.debug("Removing RequestMessageLdap: {}, Creation date: {}",
                                 requestMessageLdap.getRequestId(),
                                 requestMessageLdap.getCreationDate());
-                        u2fRequestService.removeRequestMessage(requestMessageLdap);
+                        u2fRequestService.removeLdapRequestMessage(requestMessageLdap);
+                        removed.incrementAndGet();
                     } catch (Exception e) {
                         log.error("Failed to remove entry", e);
                     }
                 }
             }
         };
-        requestMessageLdapBatchService.iterateAllByChunks(BATCH_SIZE);
+        requestMessageLdapBatchService.iterateAllByChunks(batchSize);
         log.debug("End U2F request clean up");
+        return removed.get();
     }
 
-    private void processU2fDeviceRegistrations() {
-        log.debug("Start U2F request clean up");
+    private int processU2fDeviceRegistrations(int batchSize) {
+        log.debug("Start U2F device registration clean up");
+        final AtomicInteger removed = new AtomicInteger();
 
-        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
-        calendar.add(Calendar.SECOND, -90);
-        final Date expirationDate = calendar.getTime();
+        final Date expirationDate = getU2fDeviceExpirationDate();
 
         BatchOperation<DeviceRegistration> deviceRegistrationBatchService = new BatchOperation<DeviceRegistration>(ldapEntryManager) {
             @Override
             protected List<DeviceRegistration> getChunkOrNull(int chunkSize) {
-                return deviceRegistrationService.getExpiredDeviceRegistrations(this, expirationDate);
+                return deviceRegistrationService.getExpiredDeviceRegistrations(this, expirationDate, chunkSize);
             }
 
             @Override
@@ -222,6 +441,7 @@ public class CleanerTimer {
                                 deviceRegistration.getId(),
                                 deviceRegistration.getCreationDate());
                         deviceRegistrationService.removeUserDeviceRegistration(deviceRegistration);
+                        removed.incrementAndGet();
                     }
                     catch (Exception e){
                         log.error("Failed to remove entry", e);
@@ -229,12 +449,25 @@ public class CleanerTimer {
                 }
             }
         };
-        deviceRegistrationBatchService.iterateAllByChunks(BATCH_SIZE);
+        deviceRegistrationBatchService.iterateAllByChunks(batchSize);
 
-        log.debug("End U2F request clean up");
+        log.debug("End U2F device registration clean up");
+        return removed.get();
+    }
+
+    private Date getU2fRequestExpirationDate() {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.add(Calendar.SECOND, -RequestService.REQUEST_MESSAGE_LIFETIME);
+        return calendar.getTime();
+    }
+
+    private Date getU2fDeviceExpirationDate() {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.add(Calendar.SECOND, -U2F_DEVICE_REGISTRATION_LIFETIME);
+        return calendar.getTime();
     }
 
-    private void processMetricEntries() {
+    private void processMetricEntries(int batchSize) {
         log.debug("Start metric entries clean up");
 
         int keepDataDays = appConfiguration.getMetricReporterKeepDataDays();
@@ -243,7 +476,7 @@ public class CleanerTimer {
         calendar.add(Calendar.DATE, -keepDataDays);
         Date expirationDate = calendar.getTime();
 
-        metricService.removeExpiredMetricEntries(BATCH_SIZE, expirationDate, ApplicationType.OX_AUTH, metricService.applianceInum());
+        metricService.removeExpiredMetricEntries(batchSize, expirationDate, ApplicationType.OX_AUTH, metricService.applianceInum());
 
         log.debug("End metric entries clean up");
     }
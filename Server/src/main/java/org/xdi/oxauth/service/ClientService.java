@@ -6,22 +6,22 @@
 
 package org.xdi.oxauth.service;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.unboundid.ldap.sdk.Filter;
 import org.codehaus.jettison.json.JSONArray;
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
-import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.python.jline.internal.Preconditions;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.CustomAttribute;
-import org.xdi.ldap.model.CustomEntry;
 import org.xdi.ldap.model.SearchScope;
 import org.xdi.oxauth.model.common.Scope;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.exception.InvalidClaimException;
 import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.service.cache.NearCacheService;
 import org.xdi.service.CacheService;
 import org.xdi.util.StringHelper;
 import org.xdi.util.security.StringEncrypter;
@@ -48,6 +48,8 @@ public class ClientService {
     private static final String CACHE_CLIENT_NAME = "ClientCache";
     private static final String CACHE_CLIENT_FILTER_NAME = "ClientFilterCache";
 
+    private static final int BULK_FILTER_SIZE = 100;
+
     @Inject
     private Logger log;
 
@@ -57,6 +59,9 @@ public class ClientService {
     @Inject
     private CacheService cacheService;
 
+    @Inject
+    private NearCacheService nearCacheService;
+
     @Inject
     private ScopeService scopeService;
 
@@ -72,6 +77,9 @@ public class ClientService {
     @Inject
     private StaticConfiguration staticConfiguration;
 
+    @Inject
+    private AccessTimeUpdateTimer accessTimeUpdateTimer;
+
     private static String getClientIdCacheKey(String clientId) {
         return "client_id_" + StringHelper.toLowerCase(clientId);
     }
@@ -141,6 +149,50 @@ public class ClientService {
         return null;
     }
 
+    /**
+     * Resolves clients from cache and loads the rest with one OR-filter search per chunk of client IDs.
+     *
+     * @param clientIds client IDs (inum)
+     * @return clients mapped by client ID, IDs without entry are not present in map
+     */
+    public Map<String, Client> getClientsByIds(Collection<String> clientIds) {
+        final Map<String, Client> result = new HashMap<String, Client>();
+        if (clientIds == null) {
+            return result;
+        }
+
+        final Set<String> notCached = new LinkedHashSet<String>();
+        for (String clientId : clientIds) {
+            if (StringHelper.isEmpty(clientId) || result.containsKey(clientId)) {
+                continue;
+            }
+
+            final Client client = fromCache(buildClientDn(clientId));
+            if (client != null) {
+                result.put(clientId, client);
+            } else {
+                notCached.add(clientId);
+            }
+        }
+
+        final String baseDN = staticConfiguration.getBaseDn().getClients();
+        for (List<String> chunk : Iterables.partition(notCached, BULK_FILTER_SIZE)) {
+            final List<Filter> inumFilters = new ArrayList<Filter>(chunk.size());
+            for (String clientId : chunk) {
+                inumFilters.add(Filter.createEqualityFilter("inum", clientId));
+            }
+
+            final List<Client> clients = ldapEntryManager.findEntries(baseDN, Client.class, Filter.createORFilter(inumFilters));
+            for (Client client : clients) {
+                putInCache(client);
+                result.put(client.getClientId(), client);
+            }
+        }
+        log.debug("Found {} entries for {} client ids, {} loaded from LDAP", result.size(), clientIds.size(), notCached.size());
+
+        return result;
+    }
+
     public Client getClient(String clientId, String registrationAccessToken) {
         String baseDN = staticConfiguration.getBaseDn().getClients();
 
@@ -206,6 +258,7 @@ public class ClientService {
         try {
             cacheService.put(CACHE_CLIENT_FILTER_NAME, getClientIdCacheKey(client.getClientId()), client);
             cacheService.put(CACHE_CLIENT_NAME, getClientDnCacheKey(client.getDn()), client);
+            nearCacheService.put(NearCacheService.CLIENT_REGION, getClientDnCacheKey(client.getDn()), client);
         } catch (Exception e) {
             log.error("Failed to put client in cache, client:" + client, e);
         }
@@ -214,7 +267,13 @@ public class ClientService {
     private Client fromCache(String dn) {
         try {
             String key = getClientDnCacheKey(dn);
-            return (Client) cacheService.get(CACHE_CLIENT_NAME, key);
+            Client client = (Client) nearCacheService.get(NearCacheService.CLIENT_REGION, key);
+            if (client == null) {
+                client = (Client) cacheService.get(CACHE_CLIENT_NAME, key);
+                nearCacheService.put(NearCacheService.CLIENT_REGION, key, client);
+            }
+
+            return client;
         } catch (Exception e) {
             log.error("Failed to fetch client from cache, dn: " + dn, e);
             return null;
@@ -271,6 +330,10 @@ public class ClientService {
         return dn.toString();
     }
 
+    /**
+     * Removes client with its subtree. Grants of client kept in cache have to be evicted by caller before, see
+     * {@link GrantService#removeGrantsOfClientFromCache(String)} (grant service depends on this service).
+     */
     public void remove(Client client) {
         if (client != null) {
             removeFromCache(client);
@@ -285,6 +348,7 @@ public class ClientService {
             String clientId = client.getClientId();
             String clientDn = client.getDn();
 
+            nearCacheService.remove(NearCacheService.CLIENT_REGION, getClientDnCacheKey(clientDn));
             cacheService.remove(CACHE_CLIENT_FILTER_NAME, getClientIdCacheKey(clientId));
             cacheService.remove(CACHE_CLIENT_NAME, getClientDnCacheKey(clientDn));
         } catch (Exception e) {
@@ -299,26 +363,16 @@ public class ClientService {
 
 		String clientDn = client.getDn();
 
-        CustomEntry customEntry = new CustomEntry();
-        customEntry.setDn(clientDn);
-		customEntry.setCustomObjectClasses(CLIENT_OBJECT_CLASSES);
-
+        // LDAP entry is updated in background, cached client is updated in place. It's not put in cache again,
+        // otherwise busy client would never expire from cache and wouldn't pick up changes made by admin
         Date now = new GregorianCalendar(TimeZone.getTimeZone("UTC")).getTime();
-        CustomAttribute customAttributeLastAccessTime = new CustomAttribute("oxLastAccessTime", now);
-        customEntry.getCustomAttributes().add(customAttributeLastAccessTime);
+        accessTimeUpdateTimer.addUpdate(clientDn, CLIENT_OBJECT_CLASSES, "oxLastAccessTime", now);
+        client.setLastAccessTime(now);
 
         if (isUpdateLogonTime) {
-            CustomAttribute customAttributeLastLogonTime = new CustomAttribute("oxLastLogonTime", now);
-            customEntry.getCustomAttributes().add(customAttributeLastLogonTime);
+            accessTimeUpdateTimer.addUpdate(clientDn, CLIENT_OBJECT_CLASSES, "oxLastLogonTime", now);
+            client.setLastLogonTime(now);
         }
-
-        try {
-            ldapEntryManager.merge(customEntry);
-        } catch (EntryPersistenceException epe) {
-            log.error("Failed to update oxLastAccessTime and oxLastLoginTime of client '{}'", clientDn);
-        }
-
-        removeFromCache(client);
     }
 
     public Object getAttribute(Client client, String clientAttribute) throws InvalidClaimException {
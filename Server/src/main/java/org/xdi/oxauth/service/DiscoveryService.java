@@ -0,0 +1,460 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import static org.xdi.oxauth.model.configuration.ConfigurationResponseClaim.*;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.DependsOn;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.Reception;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.xdi.ldap.model.GluuStatus;
+import org.xdi.model.GluuAttribute;
+import org.xdi.oxauth.model.common.Scope;
+import org.xdi.oxauth.model.common.ScopeType;
+import org.xdi.oxauth.model.config.WebKeysConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.uma.UmaScopeType;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.cdi.event.AuthScriptReloaded;
+import org.xdi.oxauth.service.external.ExternalAuthenticationService;
+import org.xdi.service.cdi.event.ConfigurationUpdate;
+
+/**
+ * Keeps pre-encoded OpenID Provider configuration (discovery) and JWKS documents. Documents are
+ * built once and rebuilt on configuration reload (which also delivers rotated keys) and
+ * authentication scripts reload, so requests don't touch LDAP or JSON library.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@DependsOn("appInitializer")
+@Named
+public class DiscoveryService {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private WebKeysConfiguration webKeysConfiguration;
+
+    @Inject
+    private AttributeService attributeService;
+
+    @Inject
+    private ScopeService scopeService;
+
+    @Inject
+    private ExternalAuthenticationService externalAuthenticationService;
+
+    private volatile Document openIdConfiguration;
+    private volatile Document jwks;
+
+    @PostConstruct
+    public void init() {
+        rebuildOpenIdConfiguration();
+        rebuildJwks();
+    }
+
+    public void updateConfiguration(@Observes(notifyObserver = Reception.IF_EXISTS) @ConfigurationUpdate AppConfiguration appConfiguration) {
+        rebuildOpenIdConfiguration();
+        rebuildJwks();
+    }
+
+    public void reloadAuthScript(@Observes(notifyObserver = Reception.IF_EXISTS) @AuthScriptReloaded String event) {
+        // acr_values_supported and auth_level_mapping depend on scripts
+        rebuildOpenIdConfiguration();
+    }
+
+    /**
+     * @return pre-encoded discovery document or null if it was never built successfully
+     */
+    public Document getOpenIdConfiguration() {
+        return openIdConfiguration;
+    }
+
+    /**
+     * @return pre-encoded JWKS document or null if it was never built successfully
+     */
+    public Document getJwks() {
+        return jwks;
+    }
+
+    public String getCacheControl() {
+        return "public, max-age=" + appConfiguration.getDiscoveryCacheControlMaxAge();
+    }
+
+    public void rebuildOpenIdConfiguration() {
+        try {
+            openIdConfiguration = new Document(buildOpenIdConfiguration());
+            log.debug("Rebuilt OpenID configuration document, ETag: {}", openIdConfiguration.getEtag());
+        } catch (Exception e) {
+            // Keep previous document
+            log.error("Failed to build OpenID configuration document", e);
+        }
+    }
+
+    public void rebuildJwks() {
+        try {
+            jwks = new Document(webKeysConfiguration.toString());
+            log.debug("Rebuilt JWKS document, ETag: {}", jwks.getEtag());
+        } catch (Exception e) {
+            log.error("Failed to build JWKS document", e);
+        }
+    }
+
+    private String buildOpenIdConfiguration() throws Exception {
+        JSONObject jsonObj = new JSONObject();
+
+        jsonObj.put(ISSUER, appConfiguration.getIssuer());
+        jsonObj.put(AUTHORIZATION_ENDPOINT, appConfiguration.getAuthorizationEndpoint());
+        jsonObj.put(TOKEN_ENDPOINT, appConfiguration.getTokenEndpoint());
+        jsonObj.put(USER_INFO_ENDPOINT, appConfiguration.getUserInfoEndpoint());
+        jsonObj.put(CLIENT_INFO_ENDPOINT, appConfiguration.getClientInfoEndpoint());
+        jsonObj.put(CHECK_SESSION_IFRAME, appConfiguration.getCheckSessionIFrame());
+        jsonObj.put(END_SESSION_ENDPOINT, appConfiguration.getEndSessionEndpoint());
+        jsonObj.put(JWKS_URI, appConfiguration.getJwksUri());
+        jsonObj.put(REGISTRATION_ENDPOINT, appConfiguration.getRegistrationEndpoint());
+        jsonObj.put(ID_GENERATION_ENDPOINT, appConfiguration.getIdGenerationEndpoint());
+        jsonObj.put(INTROSPECTION_ENDPOINT, appConfiguration.getIntrospectionEndpoint());
+
+        JSONArray scopesSupported = new JSONArray();
+        for (Scope scope : scopeService.getAllScopesList()) {
+            boolean isUmaAuthorization = UmaScopeType.AUTHORIZATION.getValue()
+                    .equals(scope.getDisplayName());
+            boolean isUmaProtection = UmaScopeType.PROTECTION.getValue().equals(scope.getDisplayName());
+            if (!isUmaAuthorization && !isUmaProtection)
+                scopesSupported.put(scope.getDisplayName());
+        }
+        if (scopesSupported.length() > 0) {
+            jsonObj.put(SCOPES_SUPPORTED, scopesSupported);
+        }
+
+        JSONArray responseTypesSupported = new JSONArray();
+        for (String responseType : appConfiguration.getResponseTypesSupported()) {
+            responseTypesSupported.put(responseType);
+        }
+        if (responseTypesSupported.length() > 0) {
+            jsonObj.put(RESPONSE_TYPES_SUPPORTED, responseTypesSupported);
+        }
+
+        JSONArray grantTypesSupported = new JSONArray();
+        for (String grantType : appConfiguration.getGrantTypesSupported()) {
+            grantTypesSupported.put(grantType);
+        }
+        if (grantTypesSupported.length() > 0) {
+            jsonObj.put(GRANT_TYPES_SUPPORTED, grantTypesSupported);
+        }
+
+        JSONArray acrValuesSupported = new JSONArray();
+        for (String acr : externalAuthenticationService.getAcrValuesList()) {
+            acrValuesSupported.put(acr);
+        }
+        jsonObj.put(ACR_VALUES_SUPPORTED, acrValuesSupported);
+        jsonObj.put(AUTH_LEVEL_MAPPING, createAuthLevelMapping());
+
+        JSONArray subjectTypesSupported = new JSONArray();
+        for (String subjectType : appConfiguration.getSubjectTypesSupported()) {
+            subjectTypesSupported.put(subjectType);
+        }
+        if (subjectTypesSupported.length() > 0) {
+            jsonObj.put(SUBJECT_TYPES_SUPPORTED, subjectTypesSupported);
+        }
+
+        JSONArray userInfoSigningAlgValuesSupported = new JSONArray();
+        for (String userInfoSigningAlg : appConfiguration.getUserInfoSigningAlgValuesSupported()) {
+            userInfoSigningAlgValuesSupported.put(userInfoSigningAlg);
+        }
+        if (userInfoSigningAlgValuesSupported.length() > 0) {
+            jsonObj.put(USER_INFO_SIGNING_ALG_VALUES_SUPPORTED, userInfoSigningAlgValuesSupported);
+        }
+
+        JSONArray userInfoEncryptionAlgValuesSupported = new JSONArray();
+        for (String userInfoEncryptionAlg : appConfiguration.getUserInfoEncryptionAlgValuesSupported()) {
+            userInfoEncryptionAlgValuesSupported.put(userInfoEncryptionAlg);
+        }
+        if (userInfoEncryptionAlgValuesSupported.length() > 0) {
+            jsonObj.put(USER_INFO_ENCRYPTION_ALG_VALUES_SUPPORTED, userInfoEncryptionAlgValuesSupported);
+        }
+
+        JSONArray userInfoEncryptionEncValuesSupported = new JSONArray();
+        for (String userInfoEncryptionEnc : appConfiguration.getUserInfoEncryptionEncValuesSupported()) {
+            userInfoEncryptionEncValuesSupported.put(userInfoEncryptionEnc);
+        }
+        if (userInfoEncryptionAlgValuesSupported.length() > 0) {
+            jsonObj.put(USER_INFO_ENCRYPTION_ENC_VALUES_SUPPORTED, userInfoEncryptionAlgValuesSupported);
+        }
+
+        JSONArray idTokenSigningAlgValuesSupported = new JSONArray();
+        for (String idTokenSigningAlg : appConfiguration.getIdTokenSigningAlgValuesSupported()) {
+            idTokenSigningAlgValuesSupported.put(idTokenSigningAlg);
+        }
+        if (idTokenSigningAlgValuesSupported.length() > 0) {
+            jsonObj.put(ID_TOKEN_SIGNING_ALG_VALUES_SUPPORTED, idTokenSigningAlgValuesSupported);
+        }
+
+        JSONArray idTokenEncryptionAlgValuesSupported = new JSONArray();
+        for (String idTokenEncryptionAlg : appConfiguration.getIdTokenEncryptionAlgValuesSupported()) {
+            idTokenEncryptionAlgValuesSupported.put(idTokenEncryptionAlg);
+        }
+        if (idTokenEncryptionAlgValuesSupported.length() > 0) {
+            jsonObj.put(ID_TOKEN_ENCRYPTION_ALG_VALUES_SUPPORTED, idTokenEncryptionAlgValuesSupported);
+        }
+
+        JSONArray idTokenEncryptionEncValuesSupported = new JSONArray();
+        for (String idTokenEncryptionEnc : appConfiguration.getIdTokenEncryptionEncValuesSupported()) {
+            idTokenEncryptionEncValuesSupported.put(idTokenEncryptionEnc);
+        }
+        if (idTokenEncryptionEncValuesSupported.length() > 0) {
+            jsonObj.put(ID_TOKEN_ENCRYPTION_ENC_VALUES_SUPPORTED, idTokenEncryptionEncValuesSupported);
+        }
+
+        JSONArray requestObjectSigningAlgValuesSupported = new JSONArray();
+        for (String requestObjectSigningAlg : appConfiguration.getRequestObjectSigningAlgValuesSupported()) {
+            requestObjectSigningAlgValuesSupported.put(requestObjectSigningAlg);
+        }
+        if (requestObjectSigningAlgValuesSupported.length() > 0) {
+            jsonObj.put(REQUEST_OBJECT_SIGNING_ALG_VALUES_SUPPORTED,
+                    requestObjectSigningAlgValuesSupported);
+        }
+
+        JSONArray requestObjectEncryptionAlgValuesSupported = new JSONArray();
+        for (String requestObjectEncryptionAlg : appConfiguration
+                .getRequestObjectEncryptionAlgValuesSupported()) {
+            requestObjectEncryptionAlgValuesSupported.put(requestObjectEncryptionAlg);
+        }
+        if (requestObjectEncryptionAlgValuesSupported.length() > 0) {
+            jsonObj.put(REQUEST_OBJECT_ENCRYPTION_ALG_VALUES_SUPPORTED,
+                    requestObjectEncryptionAlgValuesSupported);
+        }
+
+        JSONArray requestObjectEncryptionEncValuesSupported = new JSONArray();
+        for (String requestObjectEncryptionEnc : appConfiguration
+                .getRequestObjectEncryptionEncValuesSupported()) {
+            requestObjectEncryptionEncValuesSupported.put(requestObjectEncryptionEnc);
+        }
+        if (requestObjectEncryptionEncValuesSupported.length() > 0) {
+            jsonObj.put(REQUEST_OBJECT_ENCRYPTION_ENC_VALUES_SUPPORTED,
+                    requestObjectEncryptionEncValuesSupported);
+        }
+
+        JSONArray tokenEndpointAuthMethodsSupported = new JSONArray();
+        for (String tokenEndpointAuthMethod : appConfiguration.getTokenEndpointAuthMethodsSupported()) {
+            tokenEndpointAuthMethodsSupported.put(tokenEndpointAuthMethod);
+        }
+        if (tokenEndpointAuthMethodsSupported.length() > 0) {
+            jsonObj.put(TOKEN_ENDPOINT_AUTH_METHODS_SUPPORTED, tokenEndpointAuthMethodsSupported);
+        }
+
+        JSONArray tokenEndpointAuthSigningAlgValuesSupported = new JSONArray();
+        for (String tokenEndpointAuthSigningAlg : appConfiguration
+                .getTokenEndpointAuthSigningAlgValuesSupported()) {
+            tokenEndpointAuthSigningAlgValuesSupported.put(tokenEndpointAuthSigningAlg);
+        }
+        if (tokenEndpointAuthSigningAlgValuesSupported.length() > 0) {
+            jsonObj.put(TOKEN_ENDPOINT_AUTH_SIGNING_ALG_VALUES_SUPPORTED,
+                    tokenEndpointAuthSigningAlgValuesSupported);
+        }
+
+        JSONArray displayValuesSupported = new JSONArray();
+        for (String display : appConfiguration.getDisplayValuesSupported()) {
+            displayValuesSupported.put(display);
+        }
+        if (displayValuesSupported.length() > 0) {
+            jsonObj.put(DISPLAY_VALUES_SUPPORTED, displayValuesSupported);
+        }
+
+        JSONArray claimTypesSupported = new JSONArray();
+        for (String claimType : appConfiguration.getClaimTypesSupported()) {
+            claimTypesSupported.put(claimType);
+        }
+        if (claimTypesSupported.length() > 0) {
+            jsonObj.put(CLAIM_TYPES_SUPPORTED, claimTypesSupported);
+        }
+
+        JSONArray claimsSupported = new JSONArray();
+        List<GluuAttribute> gluuAttributes = attributeService.getAllAttributes();
+
+        // Preload all scopes to avoid sending request to LDAP per
+        // claim
+        List<org.xdi.oxauth.model.common.Scope> scopes = scopeService.getAllScopesList();
+
+        for (GluuAttribute gluuAttribute : gluuAttributes) {
+            if (GluuStatus.ACTIVE.equals(gluuAttribute.getStatus())) {
+                String claimName = gluuAttribute.getOxAuthClaimName();
+                if (StringUtils.isNotBlank(claimName)) {
+                    List<org.xdi.oxauth.model.common.Scope> scopesByClaim = scopeService
+                            .getScopesByClaim(scopes, gluuAttribute.getDn());
+                    for (org.xdi.oxauth.model.common.Scope scope : scopesByClaim) {
+                        if (ScopeType.OPENID.equals(scope.getScopeType())) {
+                            claimsSupported.put(claimName);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (claimsSupported.length() > 0) {
+            jsonObj.put(CLAIMS_SUPPORTED, claimsSupported);
+        }
+
+        jsonObj.put(SERVICE_DOCUMENTATION, appConfiguration.getServiceDocumentation());
+
+        JSONArray claimsLocalesSupported = new JSONArray();
+        for (String claimLocale : appConfiguration.getClaimsLocalesSupported()) {
+            claimsLocalesSupported.put(claimLocale);
+        }
+        if (claimsLocalesSupported.length() > 0) {
+            jsonObj.put(CLAIMS_LOCALES_SUPPORTED, claimsLocalesSupported);
+        }
+
+        JSONArray uiLocalesSupported = new JSONArray();
+        for (String uiLocale : appConfiguration.getUiLocalesSupported()) {
+            uiLocalesSupported.put(uiLocale);
+        }
+        if (uiLocalesSupported.length() > 0) {
+            jsonObj.put(UI_LOCALES_SUPPORTED, uiLocalesSupported);
+        }
+
+        jsonObj.put(SCOPE_TO_CLAIMS_MAPPING, createScopeToClaimsMapping());
+
+        jsonObj.put(CLAIMS_PARAMETER_SUPPORTED, appConfiguration.getClaimsParameterSupported());
+        jsonObj.put(REQUEST_PARAMETER_SUPPORTED, appConfiguration.getRequestParameterSupported());
+        jsonObj.put(REQUEST_URI_PARAMETER_SUPPORTED, appConfiguration.getRequestUriParameterSupported());
+        jsonObj.put(REQUIRE_REQUEST_URI_REGISTRATION, appConfiguration.getRequireRequestUriRegistration());
+        jsonObj.put(OP_POLICY_URI, appConfiguration.getOpPolicyUri());
+        jsonObj.put(OP_TOS_URI, appConfiguration.getOpTosUri());
+        jsonObj.put(FRONTCHANNEL_LOGOUT_SUPPORTED, "true");
+        jsonObj.put(FRONTCHANNEL_LOGOUT_SESSION_SUPPORTED, "true");
+        jsonObj.put(FRONT_CHANNEL_LOGOUT_SESSION_SUPPORTED, appConfiguration.getFrontChannelLogoutSessionSupported());
+
+        return jsonObj.toString(4).replace("\\/", "/");
+    }
+
+    /**
+     * @deprecated theses params:
+     * <ul>
+     * <li>id_generation_endpoint</li>
+     * <li>introspection_endpoint</li>
+     * <li>auth_level_mapping</li>
+     * <li>scope_to_claims_mapping</li>
+     * </ul>
+     * will be moved from /.well-known/openid-configuration
+     * to /.well-known/gluu-configuration
+     */
+    @Deprecated
+    private JSONArray createScopeToClaimsMapping() {
+        final JSONArray result = new JSONArray();
+        try {
+            for (Scope scope : scopeService.getAllScopesList()) {
+                final JSONArray claimsList = new JSONArray();
+                final JSONObject mapping = new JSONObject();
+                mapping.put(scope.getDisplayName(), claimsList);
+
+                result.put(mapping);
+
+                final List<String> claimIdList = scope.getOxAuthClaims();
+                if (claimIdList != null && !claimIdList.isEmpty()) {
+                    for (String claimDn : claimIdList) {
+                        final GluuAttribute attribute = attributeService.getAttributeByDn(claimDn);
+                        final String claimName = attribute.getOxAuthClaimName();
+                        if (StringUtils.isNotBlank(claimName)) {
+                            claimsList.put(claimName);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * @deprecated theses params:
+     * <ul>
+     * <li>id_generation_endpoint</li>
+     * <li>introspection_endpoint</li>
+     * <li>auth_level_mapping</li>
+     * <li>scope_to_claims_mapping</li>
+     * </ul>
+     * will be moved from /.well-known/openid-configuration to
+     * /.well-known/gluu-configuration
+     */
+    @Deprecated
+    private JSONObject createAuthLevelMapping() {
+        final JSONObject mappings = new JSONObject();
+        try {
+            Map<Integer, Set<String>> map = externalAuthenticationService.levelToAcrMapping();
+            for (Integer level : map.keySet())
+                mappings.put(level.toString(), map.get(level));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return mappings;
+    }
+
+    /**
+     * Encoded document with strong ETag
+     */
+    public static final class Document {
+
+        private final byte[] content;
+        private final String etag;
+
+        public Document(String content) throws UnsupportedEncodingException {
+            this.content = content.getBytes(Util.UTF8_STRING_ENCODING);
+            this.etag = "\"" + DigestUtils.sha256Hex(this.content) + "\"";
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @param ifNoneMatch value of If-None-Match request header
+         * @return true if client already has actual document
+         */
+        public boolean isNotModified(String ifNoneMatch) {
+            if (StringUtils.isBlank(ifNoneMatch)) {
+                return false;
+            }
+
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = StringUtils.removeStart(tag.trim(), "W/");
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
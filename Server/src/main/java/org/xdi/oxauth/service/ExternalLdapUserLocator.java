@@ -0,0 +1,388 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.slf4j.Logger;
+import org.xdi.ldap.model.CustomAttribute;
+import org.xdi.model.SimpleProperty;
+import org.xdi.model.ldap.GluuLdapConfiguration;
+import org.xdi.oxauth.model.common.SimpleUser;
+import org.xdi.oxauth.model.common.User;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.util.ServerUtil;
+import org.xdi.util.StringHelper;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Finds and binds user in backend LDAP auth servers.
+ *
+ * In parallel mode ({@link #search}) all configured backends are queried concurrently. Results are taken in order of
+ * completion until bind succeeds in some backend, lookups in other backends are cancelled then. Backends which didn't
+ * answer in {@link AppConfiguration#getLdapAuthLookupTimeout()} are skipped. Each backend has own lookup threads,
+ * so lookups hung on slow backend don't hold up other backends.
+ *
+ * Backends where user was not found are remembered for {@link AppConfiguration#getLdapAuthNegativeCacheLifetime()}
+ * seconds, they are not queried for this user during that time.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class ExternalLdapUserLocator {
+
+    private static final int MAX_NEGATIVE_CACHE_SIZE = 100000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private MetricService metricService;
+
+    private ConcurrentMap<String, ExecutorService> lookupExecutors;
+
+    private Cache<String, Boolean> negativeCache;
+
+    @PostConstruct
+    public void init() {
+        this.lookupExecutors = new ConcurrentHashMap<String, ExecutorService>();
+
+        int negativeCacheLifetime = appConfiguration.getLdapAuthNegativeCacheLifetime();
+        if (negativeCacheLifetime > 0) {
+            this.negativeCache = CacheBuilder.newBuilder().maximumSize(MAX_NEGATIVE_CACHE_SIZE)
+                    .expireAfterWrite(negativeCacheLifetime, TimeUnit.SECONDS).build();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (ExecutorService lookupExecutor : lookupExecutors.values()) {
+            lookupExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts lookups of user in all backends. Caller must close returned search.
+     *
+     * @param primaryKey attribute to find user by, if null then primary key of each backend configuration is used
+     */
+    public Search search(List<GluuLdapConfiguration> ldapAuthConfigs, List<LdapEntryManager> ldapAuthEntryManagers,
+                         String primaryKey, String keyValue, String password) {
+        Meter timeouts = metricService.getLocalMetricRegistry().meter(MetricRegistry.name(ExternalLdapUserLocator.class, "timeouts"));
+        Search search = new Search(log, timeouts, appConfiguration.getLdapAuthLookupTimeout());
+        if (StringHelper.isEmpty(keyValue)) {
+            return search;
+        }
+
+        for (int i = 0; i < ldapAuthConfigs.size(); i++) {
+            GluuLdapConfiguration ldapAuthConfig = ldapAuthConfigs.get(i);
+            String backendPrimaryKey = primaryKey != null ? primaryKey : getPrimaryKey(ldapAuthConfig);
+
+            String negativeKey = getNegativeKey(ldapAuthConfig, backendPrimaryKey, keyValue);
+            if ((negativeCache != null) && (negativeCache.getIfPresent(negativeKey) != null)) {
+                log.trace("Skipping backend '{}', user is not there: '{}'", ldapAuthConfig.getConfigId(), keyValue);
+                continue;
+            }
+
+            search.submit(getLookupExecutor(ldapAuthConfig), new Lookup(ldapAuthConfig, ldapAuthEntryManagers.get(i),
+                    backendPrimaryKey, keyValue, password, negativeKey));
+        }
+
+        return search;
+    }
+
+    /**
+     * Finds user in base DNs and binds as found user. Base DNs are tried in order until bind succeeds.
+     *
+     * @return result with bound user, user of result is null if user is not found or bind failed
+     */
+    public Result bind(GluuLdapConfiguration ldapAuthConfig, List<?> baseDNs, LdapEntryManager ldapAuthEntryManager,
+                       String primaryKey, String keyValue, String password) {
+        boolean found = false;
+        if ((baseDNs == null) || baseDNs.isEmpty()) {
+            log.error("There are no baseDns specified in authentication configuration.");
+            return new Result(ldapAuthConfig, ldapAuthEntryManager, null, found);
+        }
+
+        for (Object baseDnProperty : baseDNs) {
+            String baseDn;
+            if (baseDnProperty instanceof SimpleProperty) {
+                baseDn = ((SimpleProperty) baseDnProperty).getValue();
+            } else {
+                baseDn = baseDnProperty.toString();
+            }
+
+            User user = getUserByAttribute(ldapAuthEntryManager, baseDn, primaryKey, keyValue);
+            if (user != null) {
+                found = true;
+
+                String userDn = user.getDn();
+                log.debug("Attempting to authenticate userDN: {}", userDn);
+                if (ldapAuthEntryManager.authenticate(userDn, password)) {
+                    log.debug("User authenticated: {}", userDn);
+                    return new Result(ldapAuthConfig, ldapAuthEntryManager, user, found);
+                }
+            }
+        }
+
+        return new Result(ldapAuthConfig, ldapAuthEntryManager, null, found);
+    }
+
+    public User getUserByAttribute(LdapEntryManager ldapAuthEntryManager, String baseDn, String attributeName, String attributeValue) {
+        log.debug("Getting user information from LDAP: attributeName = '{}', attributeValue = '{}'", attributeName, attributeValue);
+
+        if (StringHelper.isEmpty(attributeValue)) {
+            return null;
+        }
+
+        SimpleUser sampleUser = new SimpleUser();
+        sampleUser.setDn(baseDn);
+
+        List<CustomAttribute> customAttributes = new ArrayList<CustomAttribute>();
+        customAttributes.add(new CustomAttribute(attributeName, attributeValue));
+
+        sampleUser.setCustomAttributes(customAttributes);
+
+        log.debug("Searching user by attributes: '{}', baseDn: '{}'", customAttributes, baseDn);
+        List<User> entries = ldapAuthEntryManager.findEntries(sampleUser, 1);
+        log.debug("Found '{}' entries", entries.size());
+
+        if (entries.size() > 0) {
+            SimpleUser foundUser = entries.get(0);
+
+            return ldapAuthEntryManager.find(User.class, foundUser.getDn());
+        } else {
+            return null;
+        }
+    }
+
+    public static String getPrimaryKey(GluuLdapConfiguration ldapAuthConfig) {
+        if ((ldapAuthConfig != null) && StringHelper.isNotEmpty(ldapAuthConfig.getPrimaryKey())) {
+            return ldapAuthConfig.getPrimaryKey();
+        }
+
+        return "uid";
+    }
+
+    public static String getLocalPrimaryKey(GluuLdapConfiguration ldapAuthConfig) {
+        if ((ldapAuthConfig != null) && StringHelper.isNotEmpty(ldapAuthConfig.getLocalPrimaryKey())) {
+            return ldapAuthConfig.getLocalPrimaryKey();
+        }
+
+        return "uid";
+    }
+
+    private ExecutorService getLookupExecutor(GluuLdapConfiguration ldapAuthConfig) {
+        String configId = ldapAuthConfig.getConfigId();
+        ExecutorService lookupExecutor = lookupExecutors.get(configId);
+        if (lookupExecutor == null) {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ExecutorService newLookupExecutor = ServerUtil.createFixedExecutor(threads, "ldap-auth-lookup-" + configId);
+
+            lookupExecutor = lookupExecutors.putIfAbsent(configId, newLookupExecutor);
+            if (lookupExecutor == null) {
+                lookupExecutor = newLookupExecutor;
+            } else {
+                newLookupExecutor.shutdown();
+            }
+        }
+
+        return lookupExecutor;
+    }
+
+    private String getNegativeKey(GluuLdapConfiguration ldapAuthConfig, String primaryKey, String keyValue) {
+        return ldapAuthConfig.getConfigId() + "|" + primaryKey + "|" + keyValue;
+    }
+
+    private class Lookup implements Callable<Result> {
+
+        private final GluuLdapConfiguration ldapAuthConfig;
+        private final LdapEntryManager ldapAuthEntryManager;
+        private final String primaryKey;
+        private final String keyValue;
+        private final String password;
+        private final String negativeKey;
+
+        public Lookup(GluuLdapConfiguration ldapAuthConfig, LdapEntryManager ldapAuthEntryManager, String primaryKey,
+                      String keyValue, String password, String negativeKey) {
+            this.ldapAuthConfig = ldapAuthConfig;
+            this.ldapAuthEntryManager = ldapAuthEntryManager;
+            this.primaryKey = primaryKey;
+            this.keyValue = keyValue;
+            this.password = password;
+            this.negativeKey = negativeKey;
+        }
+
+        @Override
+        public Result call() {
+            com.codahale.metrics.Timer.Context timerContext = metricService.getLocalMetricRegistry()
+                    .timer(MetricRegistry.name(ExternalLdapUserLocator.class, ldapAuthConfig.getConfigId(), "lookup")).time();
+            try {
+                Result result = bind(ldapAuthConfig, ldapAuthConfig.getBaseDNs(), ldapAuthEntryManager, primaryKey, keyValue, password);
+                if (!result.isFound() && (negativeCache != null)) {
+                    negativeCache.put(negativeKey, Boolean.TRUE);
+                }
+
+                return result.getUser() != null ? result : null;
+            } finally {
+                timerContext.stop();
+            }
+        }
+
+    }
+
+    /**
+     * Lookups started in backends. Bound results are returned by {@link #next()} in order of completion.
+     */
+    public static class Search {
+
+        private final Logger log;
+        private final Meter timeouts;
+        private final long deadline;
+
+        private final BlockingQueue<Future<Result>> completed = new LinkedBlockingQueue<Future<Result>>();
+        private final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+        private int taken;
+        private boolean timedOut;
+
+        Search(Logger log, Meter timeouts, long timeout) {
+            this.log = log;
+            this.timeouts = timeouts;
+            this.deadline = System.currentTimeMillis() + timeout;
+        }
+
+        void submit(ExecutorService executor, Callable<Result> lookup) {
+            FutureTask<Result> future = new FutureTask<Result>(lookup) {
+                @Override
+                protected void done() {
+                    completed.add(this);
+                }
+            };
+
+            try {
+                executor.execute(future);
+                futures.add(future);
+            } catch (RejectedExecutionException ex) {
+                log.error("Failed to start lookup in backend LDAP auth server", ex);
+            }
+        }
+
+        /**
+         * @return next result with bound user or null if there are no more results or time is out
+         */
+        public Result next() {
+            try {
+                while (taken < futures.size()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    Future<Result> future = remaining > 0 ? completed.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                    if (future == null) {
+                        log.warn("Backend LDAP auth servers didn't answer in time");
+                        if (timeouts != null) {
+                            timeouts.mark();
+                        }
+                        timedOut = true;
+                        return null;
+                    }
+                    taken++;
+
+                    try {
+                        Result result = future.get();
+                        if (result != null) {
+                            return result;
+                        }
+                    } catch (ExecutionException ex) {
+                        log.error("Failed to find user in backend LDAP auth server", ex.getCause());
+                    } catch (CancellationException ex) {
+                        log.trace("Lookup in backend LDAP auth server was cancelled");
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            return null;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Cancels lookups which are still running
+         */
+        public void close() {
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+    }
+
+    public static class Result {
+
+        private final GluuLdapConfiguration ldapAuthConfig;
+        private final LdapEntryManager ldapAuthEntryManager;
+        private final User user;
+        private final boolean found;
+
+        public Result(GluuLdapConfiguration ldapAuthConfig, LdapEntryManager ldapAuthEntryManager, User user, boolean found) {
+            this.ldapAuthConfig = ldapAuthConfig;
+            this.ldapAuthEntryManager = ldapAuthEntryManager;
+            this.user = user;
+            this.found = found;
+        }
+
+        public GluuLdapConfiguration getLdapAuthConfig() {
+            return ldapAuthConfig;
+        }
+
+        public LdapEntryManager getLdapAuthEntryManager() {
+            return ldapAuthEntryManager;
+        }
+
+        /**
+         * @return bound user or null if user was not found or bind failed
+         */
+        public User getUser() {
+            return user;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+    }
+
+}
@@ -10,13 +10,17 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
@@ -30,7 +34,8 @@ import org.xdi.oxauth.model.common.MemcachedGrant;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.ldap.Grant;
 import org.xdi.oxauth.model.ldap.TokenLdap;
-import org.xdi.oxauth.util.TokenHashUtil;
+import org.xdi.oxauth.model.util.TokenHashUtil;
+import org.xdi.oxauth.service.token.JwtAccessTokenService;
 import org.xdi.service.CacheService;
 
 import com.unboundid.ldap.sdk.Filter;
@@ -64,6 +69,9 @@ public class GrantService {
     @Inject
     private StaticConfiguration staticConfiguration;
 
+    @Inject
+    private JwtAccessTokenService jwtAccessTokenService;
+
     public static String generateGrantId() {
         return UUID.randomUUID().toString();
     }
@@ -81,11 +89,13 @@ public class GrantService {
 
     public void merge(TokenLdap p_token) {
         ldapEntryManager.merge(p_token);
+        putInCache(p_token);
     }
 
     public void mergeSilently(TokenLdap p_token) {
         try {
             ldapEntryManager.merge(p_token);
+            putInCache(p_token);
         } catch (Exception e) {
             log.trace(e.getMessage(), e);
         }
@@ -95,6 +105,7 @@ public class GrantService {
         prepareGrantBranch(p_token.getGrantId(), p_token.getClientId());
         p_token.setTokenCode(TokenHashUtil.getHashedToken(p_token.getTokenCode()));
         ldapEntryManager.persist(p_token);
+        putInCache(p_token);
     }
 
     public void remove(Grant grant) {
@@ -103,6 +114,7 @@ public class GrantService {
     }
 
     public void remove(TokenLdap p_token) {
+        removeFromCache(p_token);
         ldapEntryManager.remove(p_token);
         log.trace("Removed token, code: " + p_token.getTokenCode());
     }
@@ -171,6 +183,15 @@ public class GrantService {
         return Collections.emptyList();
     }
 
+    /**
+     * Evicts cached grants of client, it has to be called before client is removed otherwise cached grants stay valid.
+     */
+    public void removeGrantsOfClientFromCache(String p_clientId) {
+        for (TokenLdap token : getGrantsOfClient(p_clientId)) {
+            removeFromCache(token);
+        }
+    }
+
     public TokenLdap getGrantsByCodeAndClient(String p_code, String p_clientId) {
         return load(clientService.buildClientDn(p_clientId), p_code);
     }
@@ -180,10 +201,20 @@ public class GrantService {
     }
 
     private TokenLdap load(String p_baseDn, String p_code) {
+        final String hashedCode = TokenHashUtil.getHashedToken(p_code);
+
+        // Token is cached at issue time, it allows to avoid subtree search in most cases
+        final TokenLdap cachedToken = fromCache(hashedCode);
+        if (cachedToken != null && StringUtils.endsWithIgnoreCase(cachedToken.getDn(), p_baseDn)) {
+            return cachedToken;
+        }
+
         try {
-            final List<TokenLdap> entries = ldapEntryManager.findEntries(p_baseDn, TokenLdap.class, Filter.create(String.format("oxAuthTokenCode=%s", TokenHashUtil.getHashedToken(p_code))));
+            final List<TokenLdap> entries = ldapEntryManager.findEntries(p_baseDn, TokenLdap.class, Filter.create(String.format("oxAuthTokenCode=%s", hashedCode)));
             if (entries != null && !entries.isEmpty()) {
-                return entries.get(0);
+                final TokenLdap token = entries.get(0);
+                putInCache(token);
+                return token;
             }
         } catch (LDAPException e) {
             log.trace(e.getMessage(), e);
@@ -226,6 +257,7 @@ public class GrantService {
 
     public void removeAllTokensBySession(String sessionDn) {
         removeSilently(getGrantsBySessionDn(sessionDn));
+        jwtAccessTokenService.revokeSession(sessionDn);
     }
 
     /**
@@ -242,26 +274,50 @@ public class GrantService {
     }
 
     public void removeAllByAuthorizationCode(String p_authorizationCode) {
-        removeSilently(getGrantsByAuthorizationCode(p_authorizationCode));
+        final List<TokenLdap> tokens = getGrantsByAuthorizationCode(p_authorizationCode);
+        removeSilently(tokens);
+
+        // JWT access tokens are not stored in LDAP, they are revoked by grant id recorded for the code
+        // and by grant id of tokens issued for the same code
+        jwtAccessTokenService.revokeAuthorizationCode(p_authorizationCode);
+        final Set<String> grantIds = new HashSet<String>();
+        for (TokenLdap token : tokens) {
+            if (StringUtils.isNotBlank(token.getGrantId()) && grantIds.add(token.getGrantId())) {
+                jwtAccessTokenService.revokeGrant(token.getGrantId());
+            }
+        }
     }
 
     public void removeAllByGrantId(String p_grantId) {
         removeSilently(getGrantsByGrantId(p_grantId));
+        jwtAccessTokenService.revokeGrant(p_grantId);
     }
 
     public void cleanUp() {
+        cleanUpTokens(baseDn(), CleanerTimer.BATCH_SIZE);
+        cleanUpGrants(CleanerTimer.BATCH_SIZE);
+    }
+
+    /**
+     * Removes expired tokens under given base DN (all clients or one client branch).
+     *
+     * @return count of removed tokens
+     */
+    public int cleanUpTokens(final String p_baseDn, int p_batchSize) {
+        final AtomicInteger removed = new AtomicInteger();
 
         // Cleaning oxAuthToken
         BatchOperation<TokenLdap> tokenBatchService = new BatchOperation<TokenLdap>(ldapEntryManager) {
             @Override
             protected List<TokenLdap> getChunkOrNull(int chunkSize) {
-                return ldapEntryManager.findEntries(baseDn(), TokenLdap.class, getFilter(), SearchScope.SUB, null, this, 0, chunkSize, chunkSize);
+                return ldapEntryManager.findEntries(p_baseDn, TokenLdap.class, getFilter(), SearchScope.SUB, null, this, 0, chunkSize, chunkSize);
             }
 
             @Override
             protected void performAction(List<TokenLdap> entries) {
                 auditLogging(entries);
                 remove(entries);
+                removed.addAndGet(entries.size());
             }
 
             private Filter getFilter() {
@@ -273,7 +329,18 @@ public class GrantService {
                 }
             }
         };
-        tokenBatchService.iterateAllByChunks(CleanerTimer.BATCH_SIZE);
+        tokenBatchService.iterateAllByChunks(p_batchSize);
+
+        return removed.get();
+    }
+
+    /**
+     * Removes empty grant branches.
+     *
+     * @return count of removed grants
+     */
+    public int cleanUpGrants(int p_batchSize) {
+        final AtomicInteger removed = new AtomicInteger();
 
         // Cleaning oxAuthGrant
         BatchOperation<Grant> grantBatchService = new BatchOperation<Grant>(ldapEntryManager) {
@@ -285,6 +352,7 @@ public class GrantService {
             @Override
             protected void performAction(List<Grant> entries) {
                 removeGrants(entries);
+                removed.addAndGet(entries.size());
             }
 
             private Filter getFilter() {
@@ -298,7 +366,7 @@ public class GrantService {
                 }
             }
         };
-        grantBatchService.iterateAllByChunks(CleanerTimer.BATCH_SIZE);
+        grantBatchService.iterateAllByChunks(p_batchSize);
 
         // Cleaning old oxAuthGrant
         // Note: This block should be removed, it is used only to delete old legacy data.
@@ -311,6 +379,7 @@ public class GrantService {
             @Override
             protected void performAction(List<Grant> entries) {
                 removeGrants(entries);
+                removed.addAndGet(entries.size());
             }
 
             private Filter getFilter() {
@@ -322,7 +391,53 @@ public class GrantService {
                 }
             }
         };
-        oldGrantBatchService.iterateAllByChunks(CleanerTimer.BATCH_SIZE);
+        oldGrantBatchService.iterateAllByChunks(p_batchSize);
+
+        return removed.get();
+    }
+
+    private void putInCache(TokenLdap p_token) {
+        if (p_token == null || StringUtils.isBlank(p_token.getTokenCode()) || p_token.getExpirationDate() == null) {
+            return;
+        }
+
+        final int expiresIn = (int) ((p_token.getExpirationDate().getTime() - System.currentTimeMillis()) / 1000);
+        if (expiresIn <= 0) {
+            return;
+        }
+
+        try {
+            cacheService.put(Integer.toString(expiresIn), tokenCacheKey(p_token.getTokenCode()), p_token); // first parameter is expiration instead of region for memcached
+        } catch (Exception e) {
+            log.error("Failed to put token in cache, dn: " + p_token.getDn(), e);
+        }
+    }
+
+    private TokenLdap fromCache(String p_hashedCode) {
+        try {
+            final Object cachedToken = cacheService.get(null, tokenCacheKey(p_hashedCode));
+            // In-memory cache returns shared instance, callers get own copy which they are free to modify
+            return cachedToken instanceof TokenLdap ? (TokenLdap) SerializationUtils.clone((TokenLdap) cachedToken) : null;
+        } catch (Exception e) {
+            log.error("Failed to fetch token from cache", e);
+            return null;
+        }
+    }
+
+    private void removeFromCache(TokenLdap p_token) {
+        if (StringUtils.isBlank(p_token.getTokenCode())) {
+            return;
+        }
+
+        try {
+            cacheService.remove(null, tokenCacheKey(p_token.getTokenCode()));
+        } catch (Exception e) {
+            log.error("Failed to remove token from cache, dn: " + p_token.getDn(), e);
+        }
+    }
+
+    private static String tokenCacheKey(String p_hashedCode) {
+        return "token_" + p_hashedCode;
     }
 
     private void addGrantBranch(final String p_grantId, final String p_clientId) {
@@ -0,0 +1,335 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import static org.xdi.oxauth.model.jwk.JWKParameter.JSON_WEB_KEY_SET;
+import static org.xdi.oxauth.model.jwk.JWKParameter.KEY_ID;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.crypto.AbstractCryptoProvider;
+import org.xdi.oxauth.model.crypto.CryptoProviderFactory;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.util.ServerUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Resolves JWKS published at client's jwks_uri.
+ *
+ * Parsed keys are cached per URI and indexed by kid, for the time allowed by Cache-Control/Expires response headers
+ * but not longer than {@link AppConfiguration#getJwksCacheLifetime()} (which is also used if there are no such
+ * headers). Expired entry is revalidated in background while callers keep getting previous keys. If remote host fails,
+ * last good keys are served. Unknown kid causes refetch on calling thread, but not more often than once per
+ * {@link #REFETCH_INTERVAL}. Concurrent requests with unknown kid share single refetch.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class JwksResolver {
+
+    private static final int CONNECT_TIMEOUT = 5000; // 5 seconds
+    private static final int READ_TIMEOUT = 10000; // 10 seconds
+    private static final int MAX_RESPONSE_SIZE = 1024 * 1024; // 1Mb
+    private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    public static final long REFETCH_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age\\s*=\\s*(\\d+)");
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder().maximumSize(10000)
+            .expireAfterAccess(1, TimeUnit.DAYS).build();
+
+    private final ExecutorService refreshExecutor = ServerUtil.createFixedExecutor(2, "jwks-uri");
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * @return JWKS published at jwks_uri or null if it was never resolved successfully
+     */
+    public JSONObject getJwks(String jwksUri) {
+        Entry entry = getEntry(jwksUri);
+        return entry != null ? entry.jwks : null;
+    }
+
+    /**
+     * Same as {@link #getJwks(String)} but refetches JWKS if it doesn't have key with given kid (client may have
+     * rotated its keys).
+     */
+    public JSONObject getJwks(String jwksUri, String keyId) {
+        Entry entry = getEntry(jwksUri, keyId);
+        return entry != null ? entry.jwks : null;
+    }
+
+    /**
+     * @return decoded public key with given kid or null if there is no such key
+     */
+    public PublicKey getPublicKey(String jwksUri, String keyId) {
+        Entry entry = getEntry(jwksUri, keyId);
+        return (entry != null) && (keyId != null) ? entry.publicKeys.get(keyId) : null;
+    }
+
+    public void evict(String jwksUri) {
+        entries.invalidate(jwksUri);
+    }
+
+    private Entry getEntry(String jwksUri) {
+        if (StringUtils.isBlank(jwksUri)) {
+            return null;
+        }
+
+        Entry entry = entries.getIfPresent(jwksUri);
+        if (entry == null) {
+            // Nothing to serve yet
+            return revalidate(jwksUri, null);
+        }
+
+        if (entry.isExpired()) {
+            scheduleRevalidation(jwksUri, entry);
+        }
+
+        return entry;
+    }
+
+    private Entry getEntry(String jwksUri, String keyId) {
+        Entry entry = getEntry(jwksUri);
+        if ((entry == null) || StringUtils.isBlank(keyId) || entry.publicKeys.containsKey(keyId)) {
+            return entry;
+        }
+
+        if (System.currentTimeMillis() - entry.fetchedAt < REFETCH_INTERVAL) {
+            log.trace("Key '{}' is not found in JWKS, it was fetched recently: {}", keyId, jwksUri);
+            return entry;
+        }
+
+        // Entry is replaced on refetch, so concurrent callers with same unknown kid wait for single refetch
+        synchronized (entry) {
+            Entry current = entries.getIfPresent(jwksUri);
+            if ((current != null) && (current != entry)) {
+                log.trace("Key '{}' is not found in JWKS, it was refetched by other request: {}", keyId, jwksUri);
+                return current;
+            }
+
+            log.debug("Key '{}' is not found in JWKS, refetching: {}", keyId, jwksUri);
+            return revalidate(jwksUri, entry);
+        }
+    }
+
+    private void scheduleRevalidation(final String jwksUri, final Entry entry) {
+        if (!entry.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        revalidate(jwksUri, entry);
+                    } finally {
+                        entry.revalidating.set(false);
+                    }
+                }
+            });
+        } catch (Exception ex) {
+            entry.revalidating.set(false);
+            log.error("Failed to schedule revalidation of jwks_uri: " + jwksUri, ex);
+        }
+    }
+
+    private Entry revalidate(String jwksUri, Entry entry) {
+        HttpURLConnection con = null;
+        try {
+            con = (HttpURLConnection) new URL(jwksUri).openConnection();
+            con.setConnectTimeout(CONNECT_TIMEOUT);
+            con.setReadTimeout(READ_TIMEOUT);
+            con.setUseCaches(false);
+            con.setRequestProperty("Accept", "application/json");
+            if ((entry != null) && (entry.jwks != null)) {
+                if (entry.etag != null) {
+                    con.setRequestProperty("If-None-Match", entry.etag);
+                }
+                if (entry.lastModified > 0) {
+                    con.setIfModifiedSince(entry.lastModified);
+                }
+            }
+
+            int status = con.getResponseCode();
+            if ((status == HttpURLConnection.HTTP_NOT_MODIFIED) && (entry != null) && (entry.jwks != null)) {
+                Entry newEntry = new Entry(entry, entry.etag, entry.lastModified, getExpiresAt(con));
+                entries.put(jwksUri, newEntry);
+                log.trace("JWKS is not modified: {}", jwksUri);
+
+                return newEntry;
+            }
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                log.error("Failed to get JWKS, uri: '{}', status: '{}'", jwksUri, status);
+                return failed(jwksUri, entry);
+            }
+
+            String content;
+            InputStream in = new BoundedInputStream(con.getInputStream(), MAX_RESPONSE_SIZE);
+            try {
+                content = IOUtils.toString(in, Util.UTF8_STRING_ENCODING);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+
+            JSONObject jwks = new JSONObject(content);
+            Entry newEntry = new Entry(jwks, decodePublicKeys(jwksUri, jwks), con.getHeaderField("ETag"),
+                    con.getLastModified(), getExpiresAt(con));
+            entries.put(jwksUri, newEntry);
+            log.debug("Resolved JWKS: '{}', keys: '{}'", jwksUri, newEntry.publicKeys.size());
+
+            return newEntry;
+        } catch (Exception ex) {
+            log.error("Failed to get JWKS: " + jwksUri, ex);
+            return failed(jwksUri, entry);
+        } finally {
+            if (con != null) {
+                con.disconnect();
+            }
+        }
+    }
+
+    private Map<String, PublicKey> decodePublicKeys(String jwksUri, JSONObject jwks) throws Exception {
+        AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
+
+        Map<String, PublicKey> publicKeys = new HashMap<String, PublicKey>();
+        JSONArray keys = jwks.getJSONArray(JSON_WEB_KEY_SET);
+        for (int i = 0; i < keys.length(); i++) {
+            JSONObject key = keys.getJSONObject(i);
+            String keyId = key.optString(KEY_ID, null);
+            if (keyId == null) {
+                continue;
+            }
+
+            PublicKey publicKey = null;
+            try {
+                publicKey = cryptoProvider.decodePublicKey(key);
+            } catch (Exception ex) {
+                log.warn("Failed to decode key '{}' of JWKS: '{}', {}", keyId, jwksUri, ex.getMessage());
+            }
+
+            // Key id is known even if key can't be decoded, it doesn't cause refetch
+            publicKeys.put(keyId, publicKey);
+        }
+
+        return publicKeys;
+    }
+
+    private Entry failed(String jwksUri, Entry entry) {
+        // Keep last good keys (if any) and don't try again on each request
+        Entry newEntry = entry == null ? new Entry(null, Collections.<String, PublicKey>emptyMap(), null, 0, System.currentTimeMillis() + RETRY_INTERVAL)
+                : new Entry(entry, entry.etag, entry.lastModified, System.currentTimeMillis() + RETRY_INTERVAL);
+        entries.put(jwksUri, newEntry);
+
+        return newEntry;
+    }
+
+    private long getExpiresAt(HttpURLConnection con) {
+        return getExpiresAt(con.getHeaderField("Cache-Control"), con.getExpiration(), System.currentTimeMillis(),
+                TimeUnit.SECONDS.toMillis(appConfiguration.getJwksCacheLifetime()));
+    }
+
+    /**
+     * @param maxLifetime lifetime used if there are no cache headers, it's also upper bound of lifetime set by headers
+     */
+    static long getExpiresAt(String cacheControl, long expires, long now, long maxLifetime) {
+        if (StringUtils.isNotBlank(cacheControl)) {
+            cacheControl = cacheControl.toLowerCase();
+            if (cacheControl.contains("no-cache") || cacheControl.contains("no-store")) {
+                return now;
+            }
+
+            Matcher matcher = MAX_AGE_PATTERN.matcher(cacheControl);
+            if (matcher.find()) {
+                String maxAge = matcher.group(1);
+                if (maxAge.length() > 9) {
+                    // More than 30 years, don't overflow
+                    return now + maxLifetime;
+                }
+
+                return now + Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(maxAge)), maxLifetime);
+            }
+        }
+
+        if (expires > 0) {
+            return Math.min(expires, now + maxLifetime);
+        }
+
+        return now + maxLifetime;
+    }
+
+    private static class Entry {
+
+        private final JSONObject jwks; // null if JWKS was never resolved
+        private final Map<String, PublicKey> publicKeys;
+        private final String etag;
+        private final long lastModified;
+        private final long expiresAt;
+        private final long fetchedAt;
+
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        public Entry(JSONObject jwks, Map<String, PublicKey> publicKeys, String etag, long lastModified, long expiresAt) {
+            this.jwks = jwks;
+            this.publicKeys = publicKeys;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Keeps keys of previous entry
+         */
+        public Entry(Entry previous, String etag, long lastModified, long expiresAt) {
+            this(previous.jwks, previous.publicKeys, etag, lastModified, expiresAt);
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+    }
+
+}
@@ -110,6 +110,9 @@ public class KeyGeneratorTimer {
 		conf.setRevision(nextRevision);
 		ldapEntryManager.merge(conf);
 
+		// Reload key store and decoded keys on next sign/verify
+		CryptoProviderFactory.reset();
+
 		return conf.getWebKeys();
 	}
 
@@ -9,6 +9,10 @@ package org.xdi.oxauth.service;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.annotation.PreDestroy;
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
@@ -27,6 +31,8 @@ public class MetricService extends org.xdi.service.metric.MetricService {
 	
 	public static final String METRIC_SERVICE_COMPONENT_NAME = "metricService";
 
+	private static final String LOCAL_METRICS_DOMAIN = "org.xdi.oxauth.metrics";
+
 	private static final long serialVersionUID = 7875838160379126796L;
 
 	@Inject
@@ -41,10 +47,31 @@ public class MetricService extends org.xdi.service.metric.MetricService {
 	@Inject
     private StaticConfiguration staticConfiguration;
 
+	private final transient MetricRegistry localMetricRegistry = new MetricRegistry();
+	private transient JmxReporter localMetricReporter;
+
     public void initTimer() {
     	initTimer(this.appConfiguration.getMetricReporterInterval());
+
+    	this.localMetricReporter = JmxReporter.forRegistry(localMetricRegistry).inDomain(LOCAL_METRICS_DOMAIN).build();
+    	this.localMetricReporter.start();
     }
 
+	@PreDestroy
+	public void destroyLocalMetricReporter() {
+		if (this.localMetricReporter != null) {
+			this.localMetricReporter.stop();
+		}
+	}
+
+	/**
+	 * Registry for runtime metrics of this node which have no {@link org.xdi.model.metric.MetricType}.
+	 * These metrics are not stored in LDAP, they are exposed over JMX only.
+	 */
+	public MetricRegistry getLocalMetricRegistry() {
+		return localMetricRegistry;
+	}
+
 	@Override
 	public String baseDn() {
 		return staticConfiguration.getBaseDn().getMetric();
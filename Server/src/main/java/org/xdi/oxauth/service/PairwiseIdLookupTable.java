@@ -0,0 +1,83 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Immutable table of pairwise identifiers issued in persistent mode. (user inum, sector identifier) pair is
+ * kept as 64 bit hash in sorted array with identifiers in parallel array, lookup is binary search.
+ *
+ * @version October 18, 2026
+ */
+public class PairwiseIdLookupTable {
+
+    private final long[] keys;
+    private final String[] ids;
+
+    private PairwiseIdLookupTable(long[] keys, String[] ids) {
+        this.keys = keys;
+        this.ids = ids;
+    }
+
+    /**
+     * @return pairwise identifier issued in persistent mode or null if there is no such identifier
+     */
+    public String get(String userInum, String sectorIdentifier) {
+        int index = Arrays.binarySearch(keys, key(userInum, sectorIdentifier));
+
+        return index >= 0 ? ids[index] : null;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    private static long key(String userInum, String sectorIdentifier) {
+        byte[] hash = DigestUtils.sha256(userInum + "|" + sectorIdentifier);
+        return ByteBuffer.wrap(hash).getLong();
+    }
+
+    public static class Builder {
+
+        private final Map<Long, String> entries = new TreeMap<Long, String>();
+
+        /**
+         * @return false if there is identifier for this pair already
+         */
+        public boolean add(String userInum, String sectorIdentifier, String id) {
+            Long key = key(userInum, sectorIdentifier);
+            if (entries.containsKey(key)) {
+                return false;
+            }
+
+            entries.put(key, id);
+            return true;
+        }
+
+        public PairwiseIdLookupTable build() {
+            long[] keys = new long[entries.size()];
+            String[] ids = new String[entries.size()];
+
+            int i = 0;
+            for (Map.Entry<Long, String> entry : entries.entrySet()) {
+                keys[i] = entry.getKey();
+                ids[i] = entry.getValue();
+                i++;
+            }
+
+            return new PairwiseIdLookupTable(keys, ids);
+        }
+
+    }
+
+}
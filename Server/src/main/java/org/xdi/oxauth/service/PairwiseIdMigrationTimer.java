@@ -0,0 +1,182 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ejb.Asynchronous;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.gluu.site.ldap.persistence.BatchOperation;
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.slf4j.Logger;
+import org.xdi.ldap.model.SearchScope;
+import org.xdi.oxauth.model.common.PairwiseIdType;
+import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
+import org.xdi.oxauth.service.cdi.event.PairwiseIdMigrationEvent;
+import org.xdi.service.cdi.event.Scheduled;
+import org.xdi.service.timer.event.TimerEvent;
+import org.xdi.service.timer.schedule.TimerSchedule;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+
+/**
+ * Online migration from persistent to algorithmic pairwise identifiers. When pairwiseIdType is
+ * algorithmic and pairwiseIdMigrationEnabled is set, identifiers issued in persistent mode are loaded
+ * in background into compact {@link PairwiseIdLookupTable}, so subjects which RPs already know stay the same.
+ * Table is rebuilt periodically to pick up identifiers created by servers which still run in persistent mode.
+ * Timer ticks every minute and rebuild interval is checked on each tick, so reloaded interval is applied
+ * without restart.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class PairwiseIdMigrationTimer {
+
+	private final static int DEFAULT_DELAY = 60;
+	private final static int TICK_INTERVAL = 60;
+	private final static int BATCH_SIZE = 500;
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private Event<TimerEvent> timerEvent;
+
+	@Inject
+	private LdapEntryManager ldapEntryManager;
+
+	@Inject
+	private StaticConfiguration staticConfiguration;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private AtomicBoolean isActive;
+
+	private volatile PairwiseIdLookupTable lookupTable;
+	private volatile long lastLoadTime;
+
+	public void initTimer() {
+		log.debug("Initializing Pairwise Identifier Migration Timer");
+
+		this.isActive = new AtomicBoolean(false);
+
+		timerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_DELAY, TICK_INTERVAL), new PairwiseIdMigrationEvent(),
+				Scheduled.Literal.INSTANCE));
+	}
+
+	@Asynchronous
+	public void process(@Observes @Scheduled PairwiseIdMigrationEvent pairwiseIdMigrationEvent) {
+		if (!isMigrationMode()) {
+			this.lookupTable = null;
+			this.lastLoadTime = 0;
+			return;
+		}
+
+		long interval = TimeUnit.SECONDS.toMillis(appConfiguration.getPairwiseIdMigrationInterval());
+		if ((this.lookupTable != null) && (System.currentTimeMillis() - this.lastLoadTime < interval)) {
+			return;
+		}
+
+		if (this.isActive.get()) {
+			return;
+		}
+
+		if (!this.isActive.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			long start = System.currentTimeMillis();
+			this.lookupTable = buildLookupTable();
+			this.lastLoadTime = System.currentTimeMillis();
+			log.info("Loaded persistent pairwise identifiers: '{}', took: '{}' ms", lookupTable.size(), System.currentTimeMillis() - start);
+		} catch (Exception ex) {
+			log.error("Failed to load persistent pairwise identifiers", ex);
+		} finally {
+			this.isActive.set(false);
+		}
+	}
+
+	public boolean isMigrationMode() {
+		return appConfiguration.getPairwiseIdMigrationEnabled()
+				&& (PairwiseIdType.ALGORITHMIC == PairwiseIdType.fromString(appConfiguration.getPairwiseIdType()));
+	}
+
+	/**
+	 * @return table of identifiers issued in persistent mode or null if it's not loaded yet
+	 */
+	public PairwiseIdLookupTable getLookupTable() {
+		return lookupTable;
+	}
+
+	private PairwiseIdLookupTable buildLookupTable() {
+		final String peopleBaseDn = staticConfiguration.getBaseDn().getPeople();
+		final Filter filter = Filter.createEqualityFilter("objectClass", "pairwiseIdentifier");
+		final PairwiseIdLookupTable.Builder builder = new PairwiseIdLookupTable.Builder();
+		final AtomicInteger duplicates = new AtomicInteger();
+
+		BatchOperation<PairwiseIdentifier> batchOperation = new BatchOperation<PairwiseIdentifier>(ldapEntryManager) {
+			@Override
+			protected List<PairwiseIdentifier> getChunkOrNull(int chunkSize) {
+				return ldapEntryManager.findEntries(peopleBaseDn, PairwiseIdentifier.class, filter, SearchScope.SUB, null, this, 0, chunkSize, chunkSize);
+			}
+
+			@Override
+			protected void performAction(List<PairwiseIdentifier> entries) {
+				for (PairwiseIdentifier pairwiseIdentifier : entries) {
+					String userInum = getUserInum(pairwiseIdentifier.getDn());
+					if (userInum == null) {
+						continue;
+					}
+
+					if (!builder.add(userInum, pairwiseIdentifier.getSectorIdentifier(), pairwiseIdentifier.getId())) {
+						duplicates.incrementAndGet();
+					}
+				}
+			}
+		};
+		batchOperation.iterateAllByChunks(BATCH_SIZE);
+
+		if (duplicates.get() > 0) {
+			log.error("Found more then one pairwise identifier per sector identifier, ignored: '{}'", duplicates.get());
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * @param dn oxId=...,ou=pairwiseIdentifiers,inum=...,ou=people,...
+	 */
+	private String getUserInum(String dn) {
+		try {
+			DN branchDn = new DN(dn).getParent();
+			DN userDn = branchDn != null ? branchDn.getParent() : null;
+			if (userDn != null) {
+				return userDn.getRDN().getAttributeValues()[0];
+			}
+		} catch (LDAPException ex) {
+			log.error("Failed to get user inum from pairwise identifier DN: " + dn, ex);
+		}
+
+		return null;
+	}
+
+}
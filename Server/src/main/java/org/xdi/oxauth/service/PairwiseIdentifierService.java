@@ -8,24 +8,33 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.common.PairwiseIdType;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
 import org.xdi.oxauth.model.util.SubjectIdentifierGenerator;
+import org.xdi.oxauth.service.cache.NearCacheService;
+import org.xdi.service.CacheService;
 import org.xdi.util.StringHelper;
 
 import com.unboundid.ldap.sdk.Filter;
 
 /**
+ * Persistent pairwise identifiers are cached per (user inum, sector identifier). Branch for them is created
+ * on first write only. In algorithmic mode identifiers issued before switch are taken from
+ * {@link PairwiseIdMigrationTimer} lookup table if migration is enabled.
+ *
  * @author Javier Rojas Blum
- * @version July 31, 2016
+ * @version October 18, 2026
  */
 @Stateless
 @Named
 public class PairwiseIdentifierService {
 
+    private static final String CACHE_KEY_PREFIX = "pairwise_id_";
+
     @Inject
     private Logger log;
 
@@ -38,6 +47,15 @@ public class PairwiseIdentifierService {
     @Inject
     private AppConfiguration appConfiguration;
 
+    @Inject
+    private CacheService cacheService;
+
+    @Inject
+    private NearCacheService nearCacheService;
+
+    @Inject
+    private PairwiseIdMigrationTimer pairwiseIdMigrationTimer;
+
     public void addBranch(final String userInum) {
         SimpleBranch branch = new SimpleBranch();
         branch.setOrganizationalUnitName("pairwiseIdentifiers");
@@ -59,26 +77,17 @@ public class PairwiseIdentifierService {
 
     public PairwiseIdentifier findPairWiseIdentifier(String userInum, String sectorIdentifierUri) throws Exception {
         PairwiseIdType pairwiseIdType = PairwiseIdType.fromString(appConfiguration.getPairwiseIdType());
-        String sectorIdentifier = URI.create(sectorIdentifierUri).getHost();
 
         if (PairwiseIdType.PERSISTENT == pairwiseIdType) {
-            prepareBranch(userInum);
-
-            String baseDnForPairwiseIdentifiers = getBaseDnForPairwiseIdentifiers(userInum);
-            Filter filter = Filter.createEqualityFilter("oxSectorIdentifier", sectorIdentifier);
-
-            List<PairwiseIdentifier> entries = ldapEntryManager.findEntries(baseDnForPairwiseIdentifiers, PairwiseIdentifier.class, filter);
-            if (entries != null && !entries.isEmpty()) {
-                // if more then one entry then it's problem, non-deterministic behavior, id must be unique
-                if (entries.size() > 1) {
-                    log.error("Found more then one pairwise identifier by sector identifier: {}" + sectorIdentifier);
-                    for (PairwiseIdentifier pairwiseIdentifier : entries) {
-                        log.error("PairwiseIdentifier: {}", pairwiseIdentifier);
-                    }
+            return findPersistentPairwiseIdentifier(userInum, sectorIdentifierUri);
+        } else { // PairwiseIdType.ALGORITHMIC
+            if (pairwiseIdMigrationTimer.isMigrationMode()) {
+                PairwiseIdentifier pairwiseIdentifier = findMigratedPairwiseIdentifier(userInum, sectorIdentifierUri);
+                if (pairwiseIdentifier != null) {
+                    return pairwiseIdentifier;
                 }
-                return entries.get(0);
             }
-        } else { // PairwiseIdType.ALGORITHMIC
+
             String key = appConfiguration.getPairwiseCalculationKey();
             String salt = appConfiguration.getPairwiseCalculationSalt();
 
@@ -90,8 +99,6 @@ public class PairwiseIdentifierService {
 
             return pairwiseIdentifier;
         }
-
-        return null;
     }
 
     public void addPairwiseIdentifier(String userInum, PairwiseIdentifier pairwiseIdentifier) {
@@ -99,6 +106,95 @@ public class PairwiseIdentifierService {
         userService.addUserAttributeByUserInum(userInum, "oxPPID", pairwiseIdentifier.getId());
 
         ldapEntryManager.persist(pairwiseIdentifier);
+        putInCache(getCacheKey(userInum, pairwiseIdentifier.getSectorIdentifier()), pairwiseIdentifier.getId());
+    }
+
+    private PairwiseIdentifier findPersistentPairwiseIdentifier(String userInum, String sectorIdentifierUri) {
+        String sectorIdentifier = URI.create(sectorIdentifierUri).getHost();
+        String cacheKey = getCacheKey(userInum, sectorIdentifier);
+
+        String cachedId = fromCache(cacheKey);
+        if (cachedId != null) {
+            return newPairwiseIdentifier(userInum, sectorIdentifierUri, cachedId);
+        }
+
+        String baseDnForPairwiseIdentifiers = getBaseDnForPairwiseIdentifiers(userInum);
+        Filter filter = Filter.createEqualityFilter("oxSectorIdentifier", sectorIdentifier);
+
+        List<PairwiseIdentifier> entries;
+        try {
+            entries = ldapEntryManager.findEntries(baseDnForPairwiseIdentifiers, PairwiseIdentifier.class, filter);
+        } catch (EntryPersistenceException ex) {
+            // Branch is created on first write, check it only if search failed
+            if (!containsBranch(userInum)) {
+                return null;
+            }
+            throw ex;
+        }
+
+        if (entries != null && !entries.isEmpty()) {
+            // if more then one entry then it's problem, non-deterministic behavior, id must be unique
+            if (entries.size() > 1) {
+                log.error("Found more then one pairwise identifier by sector identifier: {}" + sectorIdentifier);
+                for (PairwiseIdentifier pairwiseIdentifier : entries) {
+                    log.error("PairwiseIdentifier: {}", pairwiseIdentifier);
+                }
+            }
+
+            PairwiseIdentifier pairwiseIdentifier = entries.get(0);
+            putInCache(cacheKey, pairwiseIdentifier.getId());
+
+            return pairwiseIdentifier;
+        }
+
+        return null;
+    }
+
+    private PairwiseIdentifier findMigratedPairwiseIdentifier(String userInum, String sectorIdentifierUri) {
+        PairwiseIdLookupTable lookupTable = pairwiseIdMigrationTimer.getLookupTable();
+        if (lookupTable == null) {
+            // Table is not loaded yet
+            return findPersistentPairwiseIdentifier(userInum, sectorIdentifierUri);
+        }
+
+        String id = lookupTable.get(userInum, URI.create(sectorIdentifierUri).getHost());
+        return id != null ? newPairwiseIdentifier(userInum, sectorIdentifierUri, id) : null;
+    }
+
+    private PairwiseIdentifier newPairwiseIdentifier(String userInum, String sectorIdentifierUri, String id) {
+        PairwiseIdentifier pairwiseIdentifier = new PairwiseIdentifier(sectorIdentifierUri);
+        pairwiseIdentifier.setId(id);
+        pairwiseIdentifier.setDn(getDnForPairwiseIdentifier(id, userInum));
+
+        return pairwiseIdentifier;
+    }
+
+    private String getCacheKey(String userInum, String sectorIdentifier) {
+        return CACHE_KEY_PREFIX + userInum + "_" + sectorIdentifier;
+    }
+
+    private String fromCache(String key) {
+        try {
+            String id = (String) nearCacheService.get(NearCacheService.PAIRWISE_REGION, key);
+            if (id == null) {
+                id = (String) cacheService.get(null, key);
+                nearCacheService.put(NearCacheService.PAIRWISE_REGION, key, id);
+            }
+
+            return id;
+        } catch (Exception ex) {
+            log.error("Failed to fetch pairwise identifier from cache, key: " + key, ex);
+            return null;
+        }
+    }
+
+    private void putInCache(String key, String id) {
+        try {
+            cacheService.put(Integer.toString(appConfiguration.getPairwiseIdCacheLifetime()), key, id);
+            nearCacheService.put(NearCacheService.PAIRWISE_REGION, key, id);
+        } catch (Exception ex) {
+            log.error("Failed to put pairwise identifier in cache, key: " + key, ex);
+        }
     }
 
     public String getDnForPairwiseIdentifier(String oxId, String userInum) {
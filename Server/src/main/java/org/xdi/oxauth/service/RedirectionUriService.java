@@ -6,24 +6,18 @@
 
 package org.xdi.oxauth.service;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.HttpMethod;
 
 import org.apache.commons.lang.StringUtils;
-import org.codehaus.jettison.json.JSONArray;
-import org.jboss.resteasy.client.ClientRequest;
-import org.jboss.resteasy.client.ClientResponse;
 import org.slf4j.Logger;
-import org.xdi.oxauth.client.QueryStringDecoder;
 import org.xdi.oxauth.model.common.SessionState;
 import org.xdi.oxauth.model.error.ErrorResponseFactory;
 import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.model.registration.RegisteredUriMatcher;
 import org.xdi.oxauth.model.session.EndSessionErrorResponseType;
 import org.xdi.oxauth.model.util.Util;
 
@@ -47,58 +41,34 @@ public class RedirectionUriService {
     @Inject
     private ErrorResponseFactory errorResponseFactory;
 
+    @Inject
+    private SectorIdentifierUriResolver sectorIdentifierUriResolver;
+
     public String validateRedirectionUri(String clientIdentifier, String redirectionUri) {
         try {
             Client client = clientService.getClient(clientIdentifier);
 
             if (client != null) {
                 String sectorIdentifierUri = client.getSectorIdentifierUri();
-                String[] redirectUris = client.getRedirectUris();
+                RegisteredUriMatcher redirectUriMatcher = client.getRedirectUriMatcher();
 
                 if (StringUtils.isNotBlank(sectorIdentifierUri)) {
-                    ClientRequest clientRequest = new ClientRequest(sectorIdentifierUri);
-                    clientRequest.setHttpMethod(HttpMethod.GET);
-
-                    ClientResponse<String> clientResponse = clientRequest.get(String.class);
-                    int status = clientResponse.getStatus();
-
-                    if (status == 200) {
-                        String entity = clientResponse.getEntity(String.class);
-                        JSONArray sectorIdentifierJsonArray = new JSONArray(entity);
-                        redirectUris = new String[sectorIdentifierJsonArray.length()];
-                        for (int i = 0; i < sectorIdentifierJsonArray.length(); i++) {
-                            redirectUris[i] = sectorIdentifierJsonArray.getString(i);
-                        }
-                    } else {
+                    redirectUriMatcher = sectorIdentifierUriResolver.getRedirectUriMatcher(sectorIdentifierUri);
+                    if (redirectUriMatcher == null) {
                         return null;
                     }
                 }
 
                 if (StringUtils.isNotBlank(redirectionUri)) {
                     log.debug("Validating redirection URI: clientIdentifier = {}, redirectionUri = {}, found = {}",
-                            clientIdentifier, redirectionUri, redirectUris.length);
-
-                    final String redirectUriWithoutParams = uriWithoutParams(redirectionUri);
+                            clientIdentifier, redirectionUri, redirectUriMatcher.getUris().size());
 
-                    for (String uri : redirectUris) {
-                        log.debug("Comparing {} == {}", uri, redirectionUri);
-                        if (uri.equals(redirectionUri)) { // compare complete uri
-                            return redirectionUri;
-                        }
-
-                        String uriWithoutParams = uriWithoutParams(uri);
-                        final Map<String, String> params = getParams(uri);
-
-                        if ((uriWithoutParams.equals(redirectUriWithoutParams) && params.size() == 0 && getParams(redirectionUri).size() == 0) ||
-                                uriWithoutParams.equals(redirectUriWithoutParams) && params.size() > 0 && compareParams(redirectionUri, uri)) {
-                            return redirectionUri;
-                        }
+                    if (redirectUriMatcher.matches(redirectionUri)) {
+                        return redirectionUri;
                     }
                 } else {
                     // Accept Request Without redirect_uri when One Registered
-                    if (redirectUris != null && redirectUris.length == 1) {
-                        return redirectUris[0];
-                    }
+                    return redirectUriMatcher.getSingleUri();
                 }
             }
         } catch (Exception e) {
@@ -115,22 +85,20 @@ public class RedirectionUriService {
         Client client = clientService.getClient(clientId);
 
         if (client != null) {
-            String[] postLogoutRedirectUris = client.getPostLogoutRedirectUris();
+            RegisteredUriMatcher postLogoutRedirectUriMatcher = client.getPostLogoutRedirectUriMatcher();
 
-            if (postLogoutRedirectUris != null && StringUtils.isNotBlank(postLogoutRedirectUri)) {
+            if (!postLogoutRedirectUriMatcher.isEmpty() && StringUtils.isNotBlank(postLogoutRedirectUri)) {
                 log.debug("Validating post logout redirect URI: clientId = {}, postLogoutRedirectUri = {}",
                         clientId, postLogoutRedirectUri);
 
-                for (String uri : postLogoutRedirectUris) {
-                    log.debug("Comparing {} == {}", uri, postLogoutRedirectUri);
-                    if (uri.equals(postLogoutRedirectUri)) {
-                        return postLogoutRedirectUri;
-                    }
+                if (postLogoutRedirectUriMatcher.matchesExactly(postLogoutRedirectUri)) {
+                    return postLogoutRedirectUri;
                 }
             } else {
                 // Accept Request Without post_logout_redirect_uri when One Registered
-                if (postLogoutRedirectUris != null && postLogoutRedirectUris.length == 1) {
-                    return postLogoutRedirectUris[0];
+                String singleUri = postLogoutRedirectUriMatcher.getSingleUri();
+                if (singleUri != null) {
+                    return singleUri;
                 }
             }
         }
@@ -155,54 +123,13 @@ public class RedirectionUriService {
 		log.trace("Validating post logout redirect URI: postLogoutRedirectUri = {}", postLogoutRedirectUri);
 
 		for (Client client : clientsByDns) {
-			String[] postLogoutRedirectUris = client.getPostLogoutRedirectUris();
-			if (postLogoutRedirectUris == null) {
-				continue;
-			}
-
-			for (String uri : postLogoutRedirectUris) {
-				log.debug("Comparing {} == {}, clientId: {}", uri, postLogoutRedirectUri, client.getClientId());
-				if (uri.equals(postLogoutRedirectUri)) {
-					return postLogoutRedirectUri;
-				}
+			if (client.getPostLogoutRedirectUriMatcher().matchesExactly(postLogoutRedirectUri)) {
+				log.debug("Post logout redirect URI is registered by clientId: {}", client.getClientId());
+				return postLogoutRedirectUri;
 			}
 		}
 
         errorResponseFactory.throwBadRequestException(EndSessionErrorResponseType.INVALID_REQUEST);
         return null;
 	}
-
-    private Map<String, String> getParams(String uri) {
-        Map<String, String> params = new HashMap<String, String>();
-
-        if (uri != null) {
-            int paramsIndex = uri.indexOf("?");
-            if (paramsIndex != -1) {
-                String queryString = uri.substring(paramsIndex + 1);
-                params = QueryStringDecoder.decode(queryString);
-            }
-        }
-        return params;
-    }
-
-    private String uriWithoutParams(String uri) {
-        if (uri != null) {
-            int paramsIndex = uri.indexOf("?");
-            if (paramsIndex != -1) {
-                return uri.substring(0, paramsIndex);
-            }
-        }
-        return uri;
-    }
-
-    private boolean compareParams(String uri1, String uri2) {
-        if (StringUtils.isBlank(uri1) || StringUtils.isBlank(uri2)) {
-            return false;
-        }
-
-        Map<String, String> params1 = getParams(uri1);
-        Map<String, String> params2 = getParams(uri2);
-
-        return params1.equals(params2);
-    }
 }
\ No newline at end of file
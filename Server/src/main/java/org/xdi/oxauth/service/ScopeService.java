@@ -16,6 +16,7 @@ import javax.inject.Named;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.service.cache.NearCacheService;
 import org.xdi.service.CacheService;
 import org.xdi.util.StringHelper;
 
@@ -37,6 +38,9 @@ public class ScopeService {
 	@Inject
 	private CacheService cacheService;
 
+	@Inject
+	private NearCacheService nearCacheService;
+
     @Inject
     private LdapEntryManager ldapEntryManager;
 
@@ -177,6 +181,8 @@ public class ScopeService {
     	try {
             cacheService.put(CACHE_SCOPE_NAME, getScopeNameCacheKey(scope.getDisplayName()), scope);
             cacheService.put(CACHE_SCOPE_NAME, getScopeDnCacheKey(scope.getDn()), scope);
+            nearCacheService.put(NearCacheService.SCOPE_REGION, getScopeNameCacheKey(scope.getDisplayName()), scope);
+            nearCacheService.put(NearCacheService.SCOPE_REGION, getScopeDnCacheKey(scope.getDn()), scope);
         } catch (Exception ex) {
             log.error("Failed to put scope in cache, scope: '{}'", scope, ex);
         }
@@ -189,6 +195,7 @@ public class ScopeService {
     	try {
         	String key = getClaimDnCacheKey(claimDn);
             cacheService.put(CACHE_SCOPE_NAME, key, scopes);
+            nearCacheService.put(NearCacheService.SCOPE_REGION, key, scopes);
         } catch (Exception ex) {
             log.error("Failed to put scopes in cache, claimDn: '{}'", claimDn, ex);
         }
@@ -197,7 +204,7 @@ public class ScopeService {
     private org.xdi.oxauth.model.common.Scope fromCacheByDn(String dn) {
         try {
             String key = getScopeDnCacheKey(dn);
-            return (org.xdi.oxauth.model.common.Scope) cacheService.get(CACHE_SCOPE_NAME, key);
+            return (org.xdi.oxauth.model.common.Scope) fromCache(key);
         } catch (Exception ex) {
             log.error("Failed to get scope from cache, scopeDn: '{}'", dn, ex);
             return null;
@@ -207,7 +214,7 @@ public class ScopeService {
     private org.xdi.oxauth.model.common.Scope fromCacheByName(String name) {
         try {
             String key = getScopeNameCacheKey(name);
-            return (org.xdi.oxauth.model.common.Scope) cacheService.get(CACHE_SCOPE_NAME, key);
+            return (org.xdi.oxauth.model.common.Scope) fromCache(key);
         } catch (Exception ex) {
             log.error("Failed to get scope from cache, name: '{}'", name, ex);
             return null;
@@ -217,13 +224,23 @@ public class ScopeService {
     private List<org.xdi.oxauth.model.common.Scope> fromCacheByClaimDn(String claimDn) {
         try {
         	String key = getClaimDnCacheKey(claimDn);
-            return (List<org.xdi.oxauth.model.common.Scope>) cacheService.get(CACHE_SCOPE_NAME, key);
+            return (List<org.xdi.oxauth.model.common.Scope>) fromCache(key);
         } catch (Exception ex) {
             log.error("Failed to get scopes from cache, claimDn: '{}'", claimDn, ex);
             return null;
         }
     }
 
+    private Object fromCache(String key) {
+        Object value = nearCacheService.get(NearCacheService.SCOPE_REGION, key);
+        if (value == null) {
+            value = cacheService.get(CACHE_SCOPE_NAME, key);
+            nearCacheService.put(NearCacheService.SCOPE_REGION, key, value);
+        }
+
+        return value;
+    }
+
     private static String getClaimDnCacheKey(String claimDn) {
         return "claim_dn" + StringHelper.toLowerCase(claimDn);
     }
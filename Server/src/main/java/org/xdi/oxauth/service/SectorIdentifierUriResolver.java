@@ -0,0 +1,256 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.registration.RegisteredUriMatcher;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.util.ServerUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Resolves redirect URIs published at client's sector_identifier_uri.
+ *
+ * Parsed content is cached per URI for the time allowed by Cache-Control/Expires response headers
+ * ({@link AppConfiguration#getSectorIdentifierUriCacheLifetime()} if there are no such headers). Expired
+ * entry is revalidated in background with If-None-Match/If-Modified-Since while callers keep getting
+ * previous content. If remote host fails, last good content is served and revalidation is retried later.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class SectorIdentifierUriResolver {
+
+    private static final int CONNECT_TIMEOUT = 5000; // 5 seconds
+    private static final int READ_TIMEOUT = 10000; // 10 seconds
+    private static final int MAX_RESPONSE_SIZE = 1024 * 1024; // 1Mb
+    private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age\\s*=\\s*(\\d+)");
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder().maximumSize(1000)
+            .expireAfterAccess(1, TimeUnit.DAYS).build();
+
+    private final ExecutorService refreshExecutor = ServerUtil.createFixedExecutor(2, "sector-identifier-uri");
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * @return redirect URIs published at sector_identifier_uri compiled once per resolved content or null if they
+     * were never resolved successfully
+     */
+    public RegisteredUriMatcher getRedirectUriMatcher(String sectorIdentifierUri) {
+        Entry entry = entries.getIfPresent(sectorIdentifierUri);
+        if (entry == null) {
+            entry = revalidate(sectorIdentifierUri, null);
+        } else if (entry.isExpired()) {
+            scheduleRevalidation(sectorIdentifierUri, entry);
+        }
+
+        return entry.redirectUriMatcher;
+    }
+
+    /**
+     * Revalidates content on calling thread. It's used at registration time when RP may just have updated its document.
+     *
+     * @return actual redirect URIs or last good ones if remote host fails, null if they were never resolved successfully
+     */
+    public Set<String> resolve(String sectorIdentifierUri) {
+        Entry entry = revalidate(sectorIdentifierUri, entries.getIfPresent(sectorIdentifierUri));
+        return entry != null ? entry.redirectUris : null;
+    }
+
+    /**
+     * Drops cached content, it's called when client stops using sector_identifier_uri.
+     */
+    public void evict(String sectorIdentifierUri) {
+        entries.invalidate(sectorIdentifierUri);
+    }
+
+    private void scheduleRevalidation(final String sectorIdentifierUri, final Entry entry) {
+        if (!entry.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        revalidate(sectorIdentifierUri, entry);
+                    } finally {
+                        entry.revalidating.set(false);
+                    }
+                }
+            });
+        } catch (Exception ex) {
+            entry.revalidating.set(false);
+            log.error("Failed to schedule revalidation of sector_identifier_uri: " + sectorIdentifierUri, ex);
+        }
+    }
+
+    private Entry revalidate(String sectorIdentifierUri, Entry entry) {
+        HttpURLConnection con = null;
+        try {
+            con = (HttpURLConnection) new URL(sectorIdentifierUri).openConnection();
+            con.setConnectTimeout(CONNECT_TIMEOUT);
+            con.setReadTimeout(READ_TIMEOUT);
+            con.setUseCaches(false);
+            con.setRequestProperty("Accept", "application/json");
+            if (entry != null) {
+                if (entry.etag != null) {
+                    con.setRequestProperty("If-None-Match", entry.etag);
+                }
+                if (entry.lastModified > 0) {
+                    con.setIfModifiedSince(entry.lastModified);
+                }
+            }
+
+            int status = con.getResponseCode();
+            if ((status == HttpURLConnection.HTTP_NOT_MODIFIED) && (entry != null) && (entry.redirectUris != null)) {
+                Entry newEntry = new Entry(entry, entry.etag, entry.lastModified, getExpiresAt(con));
+                entries.put(sectorIdentifierUri, newEntry);
+                log.trace("Sector identifier URI content is not modified: {}", sectorIdentifierUri);
+
+                return newEntry;
+            }
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                log.error("Failed to get sector identifier URI content, uri: '{}', status: '{}'", sectorIdentifierUri, status);
+                return failed(sectorIdentifierUri, entry);
+            }
+
+            String content;
+            InputStream in = new BoundedInputStream(con.getInputStream(), MAX_RESPONSE_SIZE);
+            try {
+                content = IOUtils.toString(in, Util.UTF8_STRING_ENCODING);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+
+            JSONArray sectorIdentifierJsonArray = new JSONArray(content);
+            Set<String> redirectUris = new LinkedHashSet<String>(Util.asList(sectorIdentifierJsonArray));
+
+            Entry newEntry = new Entry(Collections.unmodifiableSet(redirectUris), con.getHeaderField("ETag"),
+                    con.getLastModified(), getExpiresAt(con));
+            entries.put(sectorIdentifierUri, newEntry);
+            log.debug("Resolved sector identifier URI: '{}', redirect URIs: '{}'", sectorIdentifierUri, redirectUris.size());
+
+            return newEntry;
+        } catch (Exception ex) {
+            log.error("Failed to get sector identifier URI content: " + sectorIdentifierUri, ex);
+            return failed(sectorIdentifierUri, entry);
+        } finally {
+            if (con != null) {
+                con.disconnect();
+            }
+        }
+    }
+
+    private Entry failed(String sectorIdentifierUri, Entry entry) {
+        // Keep last good content (if any) and don't try again on each request
+        Entry newEntry = entry == null ? new Entry(null, null, 0, System.currentTimeMillis() + RETRY_INTERVAL)
+                : new Entry(entry, entry.etag, entry.lastModified, System.currentTimeMillis() + RETRY_INTERVAL);
+        entries.put(sectorIdentifierUri, newEntry);
+
+        return newEntry;
+    }
+
+    private long getExpiresAt(HttpURLConnection con) {
+        long now = System.currentTimeMillis();
+
+        String cacheControl = con.getHeaderField("Cache-Control");
+        if (StringUtils.isNotBlank(cacheControl)) {
+            cacheControl = cacheControl.toLowerCase();
+            if (cacheControl.contains("no-cache") || cacheControl.contains("no-store")) {
+                return now;
+            }
+
+            Matcher matcher = MAX_AGE_PATTERN.matcher(cacheControl);
+            if (matcher.find()) {
+                return now + TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+            }
+        }
+
+        long expires = con.getExpiration();
+        if (expires > 0) {
+            return expires;
+        }
+
+        return now + TimeUnit.SECONDS.toMillis(appConfiguration.getSectorIdentifierUriCacheLifetime());
+    }
+
+    private static class Entry {
+
+        private final Set<String> redirectUris; // null if content was never resolved
+        private final RegisteredUriMatcher redirectUriMatcher;
+        private final String etag;
+        private final long lastModified;
+        private final long expiresAt;
+
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        public Entry(Set<String> redirectUris, String etag, long lastModified, long expiresAt) {
+            this.redirectUris = redirectUris;
+            this.redirectUriMatcher = redirectUris == null ? null : RegisteredUriMatcher.of(redirectUris);
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Keeps content (and its compiled matcher) of previous entry
+         */
+        public Entry(Entry previous, String etag, long lastModified, long expiresAt) {
+            this.redirectUris = previous.redirectUris;
+            this.redirectUriMatcher = previous.redirectUriMatcher;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+    }
+
+}
@@ -6,16 +6,14 @@
 
 package org.xdi.oxauth.service;
 
-import com.unboundid.ldap.sdk.LDAPException;
-import com.unboundid.ldap.sdk.ResultCode;
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.commons.lang.StringUtils;
-import org.gluu.site.ldap.persistence.exception.EmptyEntryPersistenceException;
-import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.oxauth.audit.ApplicationAuditLogger;
 import org.xdi.oxauth.model.audit.Action;
 import org.xdi.oxauth.model.audit.OAuth2AuditLog;
 import org.xdi.oxauth.model.common.Prompt;
+import org.xdi.oxauth.model.common.SessionIdAccessMap;
 import org.xdi.oxauth.model.common.SessionIdState;
 import org.xdi.oxauth.model.common.SessionState;
 import org.xdi.oxauth.model.config.StaticConfiguration;
@@ -28,9 +26,10 @@ import org.xdi.oxauth.model.jwt.JwtClaimName;
 import org.xdi.oxauth.model.jwt.JwtSubClaimObject;
 import org.xdi.oxauth.model.token.JwtSigner;
 import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.cache.NearCacheService;
 import org.xdi.oxauth.service.external.ExternalAuthenticationService;
+import org.xdi.oxauth.service.session.SessionStore;
 import org.xdi.oxauth.util.ServerUtil;
-import org.xdi.service.CacheService;
 import org.xdi.util.StringHelper;
 
 import javax.ejb.Stateless;
@@ -86,7 +85,10 @@ public class SessionStateService  {
     private ExternalContext externalContext;
 
     @Inject
-    private CacheService cacheService;
+    private SessionStore sessionStore;
+
+    @Inject
+    private NearCacheService nearCacheService;
 
     public String getAcr(SessionState session) {
         if (session == null || session.getSessionAttributes() == null) {
@@ -476,11 +478,7 @@ public class SessionStateService  {
             	}
             	
             	if (update) {
-            		try {
-						mergeWithRetry(sessionState, 3);
-					} catch (EmptyEntryPersistenceException ex) {
-						log.warn("Faield to update session entry '{}': '{}'", sessionState.getId(), ex.getMessage());
-					}
+            		updateWithRetry(sessionState, 3);
             	}
             }
         } catch (Exception e) {
@@ -491,42 +489,140 @@ public class SessionStateService  {
         return true;
     }
 
-    private void putInCache(SessionState sessionState) {
-        int expirationInSeconds = sessionState.getState() == SessionIdState.UNAUTHENTICATED ?
+    private int getLifetime(SessionState sessionState) {
+        return sessionState.getState() == SessionIdState.UNAUTHENTICATED ?
                 appConfiguration.getSessionIdUnauthenticatedUnusedLifetime() :
                 appConfiguration.getSessionIdUnusedLifetime();
-        cacheService.put(Integer.toString(expirationInSeconds), sessionState.getId(), sessionState); // first parameter is expiration instead of region for memcached
+    }
+
+    private void putInCache(SessionState sessionState) {
+        sessionStore.put(sessionState, getLifetime(sessionState));
+        putInNearCache(sessionState);
     }
 
     private SessionState getFromCache(String sessionId) {
-        return (SessionState) cacheService.get(null, sessionId);
+        SessionState sessionState = (SessionState) nearCacheService.get(NearCacheService.SESSION_REGION, sessionId);
+        if (sessionState != null) {
+            return copy(sessionState);
+        }
+
+        sessionState = sessionStore.get(sessionId);
+        if (sessionState != null) {
+            putInNearCache(sessionState);
+        }
+
+        return sessionState;
+    }
+
+    /*
+     * Near cache keeps its own copy, requests change their copies of session
+     */
+    private void putInNearCache(SessionState sessionState) {
+        if (nearCacheService.isEnabled(NearCacheService.SESSION_REGION)) {
+            nearCacheService.put(NearCacheService.SESSION_REGION, sessionState.getId(), copy(sessionState));
+        }
+    }
+
+    /**
+     * Copies session together with its state in session store (revision, stored attributes and record).
+     */
+    static SessionState copy(SessionState sessionState) {
+        SessionState copy = (SessionState) SerializationUtils.clone(sessionState);
+        copy.setPersisted(sessionState.isPersisted());
+        copy.setRevision(sessionState.getRevision());
+        if (sessionState.getStoredSessionAttributes() != null) {
+            copy.setStoredSessionAttributes(new HashMap<String, String>(sessionState.getStoredSessionAttributes()));
+        }
+        // Stored record is never changed, it's replaced by session store
+        copy.setStoredRecord(sessionState.getStoredRecord());
+        copy.setStoredAt(sessionState.getStoredAt());
+
+        return copy;
     }
 
-	private SessionState mergeWithRetry(final SessionState sessionState, int maxAttempts) {
-		EntryPersistenceException lastException = null;
-		for (int i = 1; i <= maxAttempts; i++) {
-			try {
+    /*
+     * Writes only last used time if nothing else is changed. Otherwise writes session if it wasn't changed in store
+     * since it was read, if it was then changes made in this request are applied to actual session and write is retried.
+     */
+    private void updateWithRetry(final SessionState sessionState, int maxAttempts) {
+        final int lifetime = getLifetime(sessionState);
+
+        if (!sessionStore.isModified(sessionState)) {
+            sessionStore.touch(sessionState, lifetime);
+            return;
+        }
+
+        for (int i = 1; i <= maxAttempts; i++) {
+            if (sessionStore.compareAndSet(sessionState, lifetime)) {
+                putInNearCache(sessionState);
+                return;
+            }
+
+            SessionState actualSessionState = sessionStore.get(sessionState.getId());
+            if (actualSessionState == null) {
                 putInCache(sessionState);
-				return sessionState;
-			} catch (EntryPersistenceException ex) {
-				lastException = ex;
-				if (ex.getCause() instanceof LDAPException) {
-					LDAPException parentEx = ((LDAPException) ex.getCause());
-					log.debug("LDAP exception resultCode: '{}'", parentEx.getResultCode().intValue());
-					if ((parentEx.getResultCode().intValue() == ResultCode.NO_SUCH_ATTRIBUTE_INT_VALUE) ||
-						(parentEx.getResultCode().intValue() == ResultCode.ATTRIBUTE_OR_VALUE_EXISTS_INT_VALUE)) {
-						log.warn("Session entry update attempt '{}' was unsuccessfull", i);
-						continue;
-					}
-				}
-				
-				throw ex;
-			}
-		}
+                return;
+            }
+
+            log.debug("Session '{}' was changed concurrently, update attempt '{}'", sessionState.getId(), i);
+            rebase(sessionState, actualSessionState);
+        }
 
         log.error("Session entry update attempt was unsuccessfull after '{}' attempts", maxAttempts);
-		throw lastException;
-	}
+        throw new IllegalStateException("Failed to update session: " + sessionState.getId());
+    }
+
+    /*
+     * Applies attributes added, changed or removed in this request to actual session attributes, access maps are merged.
+     * Other fields are set by this request.
+     */
+    static void rebase(SessionState sessionState, SessionState actualSessionState) {
+        Map<String, String> storedAttributes = sessionState.getStoredSessionAttributes();
+        Map<String, String> attributes = new HashMap<String, String>(actualSessionState.getSessionAttributes());
+        for (Entry<String, String> attribute : sessionState.getSessionAttributes().entrySet()) {
+            if ((storedAttributes == null) || !StringUtils.equals(storedAttributes.get(attribute.getKey()), attribute.getValue())
+                    || !storedAttributes.containsKey(attribute.getKey())) {
+                attributes.put(attribute.getKey(), attribute.getValue());
+            }
+        }
+        if (storedAttributes != null) {
+            for (String name : storedAttributes.keySet()) {
+                if (!sessionState.getSessionAttributes().containsKey(name)) {
+                    attributes.remove(name);
+                }
+            }
+        }
+        sessionState.setSessionAttributes(attributes);
+
+        if (sessionState.getPermissionGrantedMap() == null) {
+            sessionState.setPermissionGrantedMap(actualSessionState.getPermissionGrantedMap());
+        } else {
+            mergeAccessMap(sessionState.getPermissionGrantedMap(), actualSessionState.getPermissionGrantedMap());
+        }
+        mergeAccessMap(sessionState.getInvolvedClients(), actualSessionState.getInvolvedClients());
+
+        Date actualLastUsedAt = actualSessionState.getLastUsedAt();
+        if ((actualLastUsedAt != null) && ((sessionState.getLastUsedAt() == null) || actualLastUsedAt.after(sessionState.getLastUsedAt()))) {
+            sessionState.setLastUsedAt(actualLastUsedAt);
+        }
+
+        sessionState.setRevision(actualSessionState.getRevision());
+        sessionState.setStoredSessionAttributes(actualSessionState.getStoredSessionAttributes());
+        sessionState.setStoredRecord(actualSessionState.getStoredRecord());
+        sessionState.setStoredAt(actualSessionState.getStoredAt());
+    }
+
+    private static void mergeAccessMap(SessionIdAccessMap accessMap, SessionIdAccessMap actualAccessMap) {
+        if ((actualAccessMap == null) || (actualAccessMap.getPermissionGranted() == null)) {
+            return;
+        }
+
+        for (Entry<String, Boolean> entry : actualAccessMap.getPermissionGranted().entrySet()) {
+            if ((accessMap.getPermissionGranted() == null) || !accessMap.getPermissionGranted().containsKey(entry.getKey())) {
+                accessMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 
 	public void updateSessionStateIfNeeded(SessionState sessionState, boolean modified) {
 		updateSessionState(sessionState, true, false, modified);
@@ -582,7 +678,8 @@ public class SessionStateService  {
 
     public boolean remove(SessionState sessionState) {
         try {
-            cacheService.remove(null, sessionState.getId());
+            nearCacheService.remove(NearCacheService.SESSION_REGION, sessionState.getId());
+            sessionStore.remove(sessionState.getId());
         } catch (Exception e) {
             log.error(e.getMessage(), e);
 
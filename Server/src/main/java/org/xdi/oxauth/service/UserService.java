@@ -8,8 +8,13 @@ package org.xdi.oxauth.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import javax.ejb.Stateless;
@@ -26,6 +31,7 @@ import org.xdi.oxauth.model.token.PersistentJwt;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.util.StringHelper;
 
+import com.google.common.collect.Iterables;
 import com.unboundid.ldap.sdk.Filter;
 
 /**
@@ -40,6 +46,8 @@ public class UserService {
 
 	public static final String[] USER_OBJECT_CLASSES = new String[] { "gluuPerson" };
 
+	private static final int BULK_FILTER_SIZE = 100;
+
     @Inject
     private Logger log;
 
@@ -98,6 +106,44 @@ public class UserService {
 		}
 	}
 
+	/**
+	 * Loads users with one OR-filter search per chunk of user IDs.
+	 *
+	 * @param userIds user IDs (uid)
+	 * @return users mapped by lower case user ID, IDs without entry are not present in map
+	 */
+	public Map<String, User> getUsers(Collection<String> userIds, String... returnAttributes) {
+		final Map<String, User> result = new HashMap<String, User>();
+		if (userIds == null) {
+			return result;
+		}
+
+		final Set<String> uniqueIds = new LinkedHashSet<String>();
+		for (String userId : userIds) {
+			if (StringHelper.isNotEmpty(userId)) {
+				uniqueIds.add(StringHelper.toLowerCase(userId));
+			}
+		}
+
+		final String peopleBaseDn = staticConfiguration.getBaseDn().getPeople();
+		for (List<String> chunk : Iterables.partition(uniqueIds, BULK_FILTER_SIZE)) {
+			final List<Filter> uidFilters = new ArrayList<Filter>(chunk.size());
+			for (String userId : chunk) {
+				uidFilters.add(Filter.createEqualityFilter("uid", userId));
+			}
+
+			final List<User> entries = ldapEntryManager.findEntries(peopleBaseDn, User.class, returnAttributes, Filter.createORFilter(uidFilters));
+			for (User user : entries) {
+				if (StringHelper.isNotEmpty(user.getUserId())) {
+					result.put(StringHelper.toLowerCase(user.getUserId()), user);
+				}
+			}
+		}
+		log.debug("Found {} entries for {} user ids", result.size(), uniqueIds.size());
+
+		return result;
+	}
+
 	public String getUserInum(User user) {
 		if (user == null) {
 			return null;
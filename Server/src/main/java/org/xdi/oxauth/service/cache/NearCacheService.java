@@ -0,0 +1,201 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.configuration.NearCacheConfiguration;
+import org.xdi.oxauth.service.MetricService;
+import org.xdi.service.cdi.event.ConfigurationUpdate;
+import org.xdi.util.StringHelper;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded in-process (L1) cache which sits in front of {@link org.xdi.service.CacheService}.
+ * Each region is configured independently in {@link AppConfiguration#getNearCacheConfigurations()}
+ * with own maximum size and TTL. Not configured regions are disabled and all calls are no-op.
+ *
+ * Entries are shared between threads, callers must treat returned objects the same way as
+ * objects returned by in-memory {@link org.xdi.service.CacheService}.
+ *
+ * Regions are local to node and are not invalidated when entry is changed on another node, entry stays
+ * stale there up to region TTL.
+ *
+ * Hit/miss/eviction counters and size of each region are exposed as gauges of local metric registry
+ * ({@link MetricService#getLocalMetricRegistry()}).
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class NearCacheService {
+
+	public static final String CLIENT_REGION = "client";
+	public static final String SCOPE_REGION = "scope";
+	/**
+	 * Holds copies of sessions, each request gets own copy. Session changed or removed on another node is seen
+	 * by this node only after TTL, so TTL of this region has to be short. Concurrent change is detected by
+	 * revision check when session is written.
+	 */
+	public static final String SESSION_REGION = "session";
+	public static final String PAIRWISE_REGION = "pairwise";
+	public static final String CLAIM_PLAN_REGION = "claimPlan";
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private MetricService metricService;
+
+	private volatile Map<String, Cache<String, Object>> regions = Collections.emptyMap();
+
+	@PostConstruct
+	public void init() {
+		initRegions(appConfiguration);
+	}
+
+	public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+		initRegions(appConfiguration);
+	}
+
+	private void initRegions(AppConfiguration appConfiguration) {
+		Map<String, Cache<String, Object>> newRegions = new HashMap<String, Cache<String, Object>>();
+		for (NearCacheConfiguration regionConfiguration : appConfiguration.getNearCacheConfigurations()) {
+			if (!regionConfiguration.getEnabled() || StringHelper.isEmpty(regionConfiguration.getRegion())) {
+				continue;
+			}
+
+			Cache<String, Object> cache = CacheBuilder.newBuilder()
+					.maximumSize(regionConfiguration.getMaxSize())
+					.expireAfterWrite(regionConfiguration.getTtl(), TimeUnit.SECONDS)
+					.recordStats().build();
+			newRegions.put(regionConfiguration.getRegion(), cache);
+			registerGauges(regionConfiguration.getRegion());
+
+			log.debug("Near cache region '{}' enabled, maxSize: '{}', ttl: '{}'", regionConfiguration.getRegion(),
+					regionConfiguration.getMaxSize(), regionConfiguration.getTtl());
+		}
+
+		// Drop previous regions entirely, configuration change may mean stale data
+		this.regions = Collections.unmodifiableMap(newRegions);
+	}
+
+	public boolean isEnabled(String region) {
+		return regions.containsKey(region);
+	}
+
+	public Object get(String region, String key) {
+		Cache<String, Object> cache = regions.get(region);
+		if ((cache == null) || (key == null)) {
+			return null;
+		}
+
+		return cache.getIfPresent(key);
+	}
+
+	public void put(String region, String key, Object value) {
+		Cache<String, Object> cache = regions.get(region);
+		if ((cache == null) || (key == null) || (value == null)) {
+			return;
+		}
+
+		cache.put(key, value);
+	}
+
+	public void remove(String region, String key) {
+		Cache<String, Object> cache = regions.get(region);
+		if ((cache == null) || (key == null)) {
+			return;
+		}
+
+		cache.invalidate(key);
+	}
+
+	public void clear(String region) {
+		Cache<String, Object> cache = regions.get(region);
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	private void registerGauges(final String region) {
+		MetricRegistry registry = metricService.getLocalMetricRegistry();
+		if (registry.getGauges().containsKey(MetricRegistry.name(NearCacheService.class, region, "hits"))) {
+			// Gauges read actual regions, they survive configuration reload
+			return;
+		}
+
+		registry.register(MetricRegistry.name(NearCacheService.class, region, "hits"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				CacheStats stats = getStatistics(region);
+				return stats != null ? stats.hitCount() : 0L;
+			}
+		});
+		registry.register(MetricRegistry.name(NearCacheService.class, region, "misses"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				CacheStats stats = getStatistics(region);
+				return stats != null ? stats.missCount() : 0L;
+			}
+		});
+		registry.register(MetricRegistry.name(NearCacheService.class, region, "evictions"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				CacheStats stats = getStatistics(region);
+				return stats != null ? stats.evictionCount() : 0L;
+			}
+		});
+		registry.register(MetricRegistry.name(NearCacheService.class, region, "size"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				Cache<String, Object> cache = regions.get(region);
+				return cache != null ? cache.size() : 0L;
+			}
+		});
+	}
+
+	/**
+	 * @return hit/miss/eviction counters of region or null if region is not enabled
+	 */
+	public CacheStats getStatistics(String region) {
+		Cache<String, Object> cache = regions.get(region);
+		return cache != null ? cache.stats() : null;
+	}
+
+	/**
+	 * @return hit/miss/eviction counters per enabled region
+	 */
+	public Map<String, CacheStats> getStatistics() {
+		Map<String, CacheStats> result = new HashMap<String, CacheStats>();
+		for (Map.Entry<String, Cache<String, Object>> entry : regions.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().stats());
+		}
+
+		return result;
+	}
+
+}
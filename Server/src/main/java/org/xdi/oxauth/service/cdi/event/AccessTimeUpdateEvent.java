@@ -0,0 +1,13 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.cdi.event;
+
+/**
+ * @version October 18, 2026
+ */
+public class AccessTimeUpdateEvent {
+}
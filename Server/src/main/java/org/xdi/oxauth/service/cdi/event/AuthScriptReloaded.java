@@ -0,0 +1,31 @@
+package org.xdi.oxauth.service.cdi.event;
+
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Qualifier;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Fired after person authentication scripts were reloaded and acr values may have changed
+ *
+ * @version October 18, 2026
+ */
+@Qualifier
+@Retention(RUNTIME)
+@Target({ METHOD, FIELD, PARAMETER, TYPE })
+@Documented
+public @interface AuthScriptReloaded {
+
+    public static final class Literal extends AnnotationLiteral<AuthScriptReloaded> implements AuthScriptReloaded {
+
+        public static final Literal INSTANCE = new Literal();
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+}
@@ -1,7 +1,19 @@
 package org.xdi.oxauth.service.cdi.event;
 
+import org.xdi.oxauth.model.common.CleanerTask;
+
 /**
  * @author Yuriy Movchan Date: 04/13/2017
  */
 public class CleanerEvent {
+
+    private final CleanerTask task;
+
+    public CleanerEvent(CleanerTask task) {
+        this.task = task;
+    }
+
+    public CleanerTask getTask() {
+        return task;
+    }
 }
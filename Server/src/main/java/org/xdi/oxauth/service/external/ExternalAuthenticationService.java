@@ -17,6 +17,7 @@ import org.xdi.model.custom.script.model.auth.AuthenticationCustomScript;
 import org.xdi.model.custom.script.type.auth.PersonAuthenticationType;
 import org.xdi.model.ldap.GluuLdapConfiguration;
 import org.xdi.oxauth.service.AppInitializer;
+import org.xdi.oxauth.service.cdi.event.AuthScriptReloaded;
 import org.xdi.oxauth.service.cdi.event.ReloadAuthScript;
 import org.xdi.oxauth.service.external.internal.InternalDefaultPersonAuthenticationType;
 import org.xdi.service.custom.script.ExternalScriptService;
@@ -25,6 +26,7 @@ import org.xdi.util.StringHelper;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,6 +44,7 @@ import java.util.Map.Entry;
 public class ExternalAuthenticationService extends ExternalScriptService {
 
 	public final static String MODIFIED_INTERNAL_TYPES_EVENT_TYPE = "CustomScriptModifiedInternlTypesEvent";
+	public final static String AUTH_SCRIPT_RELOADED_EVENT_TYPE = "AuthScriptReloadedEvent";
 
     @Inject @Named(AppInitializer.LDAP_AUTH_CONFIG_NAME)
     private List<GluuLdapConfiguration> ldapAuthConfigs;
@@ -49,6 +52,9 @@ public class ExternalAuthenticationService extends ExternalScriptService {
     @Inject
     private InternalDefaultPersonAuthenticationType internalDefaultPersonAuthenticationType;
 
+    @Inject
+    private Event<String> authScriptReloadedEvent;
+
 	private static final long serialVersionUID = 7339887464253044927L;
 
 	private Map<AuthenticationScriptUsageType, List<CustomScriptConfiguration>> customScriptConfigurationsMapByUsageType;
@@ -69,6 +75,8 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 
 		// Determine default authenticator for every usage type
 		this.defaultExternalAuthenticators = determineDefaultCustomScriptConfigurationsMap(this.customScriptConfigurationsNameMap);
+
+		authScriptReloadedEvent.select(AuthScriptReloaded.Literal.INSTANCE).fire(AUTH_SCRIPT_RELOADED_EVENT_TYPE);
 	}
 
 	@Override
@@ -9,6 +9,7 @@ package org.xdi.oxauth.service.external;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
@@ -19,13 +20,21 @@ import org.xdi.model.SimpleCustomProperty;
 import org.xdi.model.custom.script.CustomScriptType;
 import org.xdi.model.custom.script.conf.CustomScriptConfiguration;
 import org.xdi.model.custom.script.type.uma.AuthorizationPolicyType;
+import org.xdi.oxauth.service.MetricService;
 import org.xdi.oxauth.service.uma.authorization.AuthorizationContext;
 import org.xdi.service.LookupService;
 import org.xdi.service.custom.script.ExternalScriptService;
 import org.xdi.util.StringHelper;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
- * Provides factory methods needed to create external UMA authorization policies extension
+ * Provides factory methods needed to create external UMA authorization policies extension.
+ * Policy may declare "decision_cache_ttl" configuration attribute (seconds) to cache its decisions,
+ * cached decisions are dropped on policies reload.
  *
  * @author Yuriy Movchan Date: 01/14/2015
  */
@@ -35,12 +44,22 @@ import org.xdi.util.StringHelper;
 public class ExternalUmaAuthorizationPolicyService extends ExternalScriptService {
 
 	private static final long serialVersionUID = -8609727759114795432L;
-	
+
+	public static final String DECISION_CACHE_TTL_ATTRIBUTE = "decision_cache_ttl";
+
+	private static final int DECISION_CACHE_MAX_SIZE = 10000;
+	private static final int DECISION_CACHE_MAX_TTL = 3600;
+
 	@Inject
 	private LookupService lookupService;
 
+	@Inject
+	private MetricService metricService;
+
 	protected Map<String, CustomScriptConfiguration> customScriptConfigurationsInumMap;
 
+	private transient volatile Cache<String, CachedDecision> decisionCache = newDecisionCache();
+
 	public ExternalUmaAuthorizationPolicyService() {
 		super(CustomScriptType.UMA_AUTHORIZATION_POLICY);
 	}
@@ -48,6 +67,12 @@ public class ExternalUmaAuthorizationPolicyService extends ExternalScriptService
 	@Override
 	protected void reloadExternal() {
 		this.customScriptConfigurationsInumMap = buildExternalConfigurationsInumMap(this.customScriptConfigurations);
+		this.decisionCache = newDecisionCache();
+	}
+
+	private static Cache<String, CachedDecision> newDecisionCache() {
+		return CacheBuilder.newBuilder().maximumSize(DECISION_CACHE_MAX_SIZE)
+				.expireAfterWrite(DECISION_CACHE_MAX_TTL, TimeUnit.SECONDS).build();
 	}
 
 	private Map<String, CustomScriptConfiguration> buildExternalConfigurationsInumMap(List<CustomScriptConfiguration> customScriptConfigurations) {
@@ -74,17 +99,98 @@ public class ExternalUmaAuthorizationPolicyService extends ExternalScriptService
 		return this.customScriptConfigurationsInumMap.get(inum);
 	}
 
-	public boolean executeExternalAuthorizeMethod(CustomScriptConfiguration customScriptConfiguration, AuthorizationContext authorizationContext) {
+	/**
+	 * @return decision of policy or null if script failed, such result must not be cached
+	 */
+	public Boolean executeExternalAuthorizeMethod(CustomScriptConfiguration customScriptConfiguration, AuthorizationContext authorizationContext) {
 		try {
 			log.debug("Executing python 'authorize' method");
 			AuthorizationPolicyType externalType = (AuthorizationPolicyType) customScriptConfiguration.getExternalType();
 			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalType.authorize(authorizationContext, configurationAttributes);
+
+			final Timer.Context timerContext = metricService.getLocalMetricRegistry().timer(
+					MetricRegistry.name(ExternalUmaAuthorizationPolicyService.class, customScriptConfiguration.getName(), "duration")).time();
+			try {
+				return externalType.authorize(authorizationContext, configurationAttributes);
+			} finally {
+				timerContext.stop();
+			}
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
 		
-		return false;
+		return null;
+	}
+
+	/**
+	 * @return cached decision of policy or null if there is no cached decision
+	 */
+	public Boolean getCachedDecision(CustomScriptConfiguration customScriptConfiguration, String key) {
+		if (getDecisionCacheTtl(customScriptConfiguration) <= 0) {
+			return null;
+		}
+
+		String cacheKey = customScriptConfiguration.getInum() + "|" + key;
+		CachedDecision cachedDecision = decisionCache.getIfPresent(cacheKey);
+		if (cachedDecision == null) {
+			return null;
+		}
+
+		if (cachedDecision.isExpired()) {
+			decisionCache.invalidate(cacheKey);
+			return null;
+		}
+
+		metricService.getLocalMetricRegistry().meter(
+				MetricRegistry.name(ExternalUmaAuthorizationPolicyService.class, customScriptConfiguration.getName(), "cacheHits")).mark();
+		return cachedDecision.getDecision();
+	}
+
+	/**
+	 * Caches decision if policy declares decision cache TTL, otherwise does nothing.
+	 */
+	public void putDecision(CustomScriptConfiguration customScriptConfiguration, String key, boolean decision) {
+		int ttl = getDecisionCacheTtl(customScriptConfiguration);
+		if (ttl <= 0) {
+			return;
+		}
+
+		long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.min(ttl, DECISION_CACHE_MAX_TTL));
+		decisionCache.put(customScriptConfiguration.getInum() + "|" + key, new CachedDecision(decision, expiresAt));
+	}
+
+	private int getDecisionCacheTtl(CustomScriptConfiguration customScriptConfiguration) {
+		Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+		if (configurationAttributes == null) {
+			return 0;
+		}
+
+		SimpleCustomProperty ttlProperty = configurationAttributes.get(DECISION_CACHE_TTL_ATTRIBUTE);
+		if ((ttlProperty == null) || StringHelper.isEmpty(ttlProperty.getValue2())) {
+			return 0;
+		}
+
+		return StringHelper.toInteger(ttlProperty.getValue2().trim(), 0);
+	}
+
+	private static class CachedDecision {
+
+		private final boolean decision;
+		private final long expiresAt;
+
+		public CachedDecision(boolean decision, long expiresAt) {
+			this.decision = decision;
+			this.expiresAt = expiresAt;
+		}
+
+		public boolean getDecision() {
+			return decision;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > expiresAt;
+		}
+
 	}
 
 }
@@ -18,7 +18,6 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.gluu.site.ldap.persistence.LdapEntryManager;
 import org.slf4j.Logger;
 import org.xdi.oxauth.crypto.random.ChallengeGenerator;
 import org.xdi.oxauth.exception.fido.u2f.DeviceCompromisedException;
@@ -38,8 +37,6 @@ import org.xdi.oxauth.model.util.Base64Util;
 import org.xdi.oxauth.service.UserService;
 import org.xdi.util.StringHelper;
 
-import com.unboundid.ldap.sdk.Filter;
-
 /**
  * Provides operations with U2F authentication request
  *
@@ -52,9 +49,6 @@ public class AuthenticationService extends RequestService {
 	@Inject
 	private Logger log;
 
-	@Inject
-	private LdapEntryManager ldapEntryManager;
-
 	@Inject
 	private ApplicationService applicationService;
 
@@ -192,13 +186,13 @@ public class AuthenticationService extends RequestService {
 		AuthenticateRequestMessageLdap authenticateRequestMessageLdap = new AuthenticateRequestMessageLdap(getDnForAuthenticateRequestMessage(authenticateRequestMessageId),
 				authenticateRequestMessageId, now, sessionState, userInum, requestMessage);
 
-		ldapEntryManager.persist(authenticateRequestMessageLdap);
+		persistRequestMessage(authenticateRequestMessageLdap);
 	}
 
 	public AuthenticateRequestMessage getAuthenticationRequestMessage(String oxId) {
 		String requestDn = getDnForAuthenticateRequestMessage(oxId);
 
-		AuthenticateRequestMessageLdap authenticateRequestMessageLdap = ldapEntryManager.find(AuthenticateRequestMessageLdap.class, requestDn);
+		AuthenticateRequestMessageLdap authenticateRequestMessageLdap = findRequestMessage(AuthenticateRequestMessageLdap.class, requestDn, oxId);
 		if (authenticateRequestMessageLdap == null) {
 			return null;
 		}
@@ -208,15 +202,8 @@ public class AuthenticationService extends RequestService {
 
 	public AuthenticateRequestMessageLdap getAuthenticationRequestMessageByRequestId(String requestId) {
 		String baseDn = getDnForAuthenticateRequestMessage(null);
-		Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
-
-		List<AuthenticateRequestMessageLdap> authenticateRequestMessagesLdap = ldapEntryManager.findEntries(baseDn, AuthenticateRequestMessageLdap.class,
-				requestIdFilter);
-		if ((authenticateRequestMessagesLdap == null) || authenticateRequestMessagesLdap.isEmpty()) {
-			return null;
-		}
 
-		return authenticateRequestMessagesLdap.get(0);
+		return findRequestMessageByRequestId(AuthenticateRequestMessageLdap.class, baseDn, requestId);
 	}
 
 	public void removeAuthenticationRequestMessage(AuthenticateRequestMessageLdap authenticateRequestMessageLdap) {
@@ -8,29 +8,37 @@ package org.xdi.oxauth.service.fido.u2f;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.SerializationUtils;
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.SearchScope;
 import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistrationStatus;
 import org.xdi.oxauth.model.util.Base64Util;
-import org.xdi.oxauth.service.CleanerTimer;
 import org.xdi.oxauth.service.UserService;
+import org.xdi.service.CacheService;
 import org.xdi.util.StringHelper;
 
 import com.unboundid.ldap.sdk.Filter;
 
 /**
- * Provides operations with user U2F devices
+ * Provides operations with user U2F devices. User device registrations and key handle to device DN index
+ * are kept in cache, counter updates are written to LDAP by {@link DeviceRegistrationUpdateTimer}. Until update
+ * is written it's also kept in cache, so other servers of cluster don't load older counter from LDAP.
  *
  * @author Yuriy Movchan Date: 05/14/2015
  */
@@ -38,6 +46,13 @@ import com.unboundid.ldap.sdk.Filter;
 @Named
 public class DeviceRegistrationService {
 
+	private static final String USER_DEVICES_CACHE_KEY_PREFIX = "u2f_devices_";
+	private static final String KEY_HANDLE_CACHE_KEY_PREFIX = "u2f_key_handle_";
+	private static final String PENDING_UPDATE_CACHE_KEY_PREFIX = "u2f_pending_";
+
+	// Pending update has to outlive few flushes, failed flush is retried on next run
+	private static final int PENDING_UPDATE_FLUSHES = 10;
+
 	@Inject
 	private Logger log;
 
@@ -50,6 +65,15 @@ public class DeviceRegistrationService {
 	@Inject
 	private StaticConfiguration staticConfiguration;
 
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private CacheService cacheService;
+
+	@Inject
+	private DeviceRegistrationUpdateTimer deviceRegistrationUpdateTimer;
+
 	public void addBranch(final String userInum) {
 		SimpleBranch branch = new SimpleBranch();
 		branch.setOrganizationalUnitName("fido");
@@ -78,12 +102,52 @@ public class DeviceRegistrationService {
 	}
 
 	public List<DeviceRegistration> findUserDeviceRegistrations(String userInum, String appId, String ... returnAttributes) {
+		if ((returnAttributes != null) && (returnAttributes.length > 0)) {
+			prepareBranch(userInum);
+
+			String baseDnForU2fDevices = getBaseDnForU2fUserDevices(userInum);
+			Filter appIdFilter = Filter.createEqualityFilter("oxApplication", appId);
+
+			return ldapEntryManager.findEntries(baseDnForU2fDevices, DeviceRegistration.class, returnAttributes, appIdFilter);
+		}
+
+		List<DeviceRegistration> result = new ArrayList<DeviceRegistration>();
+		for (Map.Entry<String, DeviceRegistration> entry : getUserDeviceRegistrations(userInum).entrySet()) {
+			if (StringHelper.equals(appId, entry.getValue().getApplication())) {
+				result.add(copy(entry.getKey(), entry.getValue()));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return all user device registrations by DN, they are shared and must not be modified
+	 */
+	private LinkedHashMap<String, DeviceRegistration> getUserDeviceRegistrations(String userInum) {
+		String key = USER_DEVICES_CACHE_KEY_PREFIX + userInum;
+		LinkedHashMap<String, DeviceRegistration> deviceRegistrations = getFromCache(key);
+		if (deviceRegistrations != null) {
+			return deviceRegistrations;
+		}
+
 		prepareBranch(userInum);
 
 		String baseDnForU2fDevices = getBaseDnForU2fUserDevices(userInum);
-		Filter appIdFilter = Filter.createEqualityFilter("oxApplication", appId);
+		Filter deviceObjectClassFilter = Filter.createEqualityFilter("objectClass", "oxDeviceRegistration");
 
-		return ldapEntryManager.findEntries(baseDnForU2fDevices, DeviceRegistration.class, returnAttributes, appIdFilter);
+		List<DeviceRegistration> entries = ldapEntryManager.findEntries(baseDnForU2fDevices, DeviceRegistration.class, new String[0], deviceObjectClassFilter);
+
+		deviceRegistrations = new LinkedHashMap<String, DeviceRegistration>();
+		for (DeviceRegistration entry : entries) {
+			// Counter which is not written yet (by this or another server) is newer than one in LDAP
+			applyPendingUpdate(entry, getPendingUpdate(entry.getDn()));
+			deviceRegistrations.put(entry.getDn(), entry);
+		}
+
+		putToCache(key, deviceRegistrations);
+
+		return deviceRegistrations;
 	}
 
 	public List<DeviceRegistration> findDeviceRegistrationsByKeyHandle(String appId, String keyHandle, String ... returnAttributes) {
@@ -91,6 +155,21 @@ public class DeviceRegistrationService {
 			return new ArrayList<DeviceRegistration>(0);
 		}
 
+		// Device DN is taken from index, LDAP lookup by DN verifies that device still exists
+		String cacheKey = getKeyHandleCacheKey(appId, keyHandle);
+		String deviceDn = getFromCache(cacheKey);
+		if (deviceDn != null) {
+			try {
+				List<DeviceRegistration> deviceRegistrations = new ArrayList<DeviceRegistration>(1);
+				deviceRegistrations.add(ldapEntryManager.find(DeviceRegistration.class, deviceDn, returnAttributes));
+
+				return deviceRegistrations;
+			} catch (EntryPersistenceException ex) {
+				log.trace("Device registration '{}' from key handle index is not found", deviceDn);
+				removeFromCache(cacheKey);
+			}
+		}
+
 		byte[] keyHandleDecoded = Base64Util.base64urldecode(keyHandle);
 
 		String baseDn = userService.getDnForUser(null);
@@ -102,7 +181,12 @@ public class DeviceRegistrationService {
 
 		Filter filter = Filter.createANDFilter(deviceObjectClassFilter, deviceHashCodeFilter, appIdFilter, deviceKeyHandleFilter);
 
-		return ldapEntryManager.findEntries(baseDn, DeviceRegistration.class, returnAttributes, filter);
+		List<DeviceRegistration> deviceRegistrations = ldapEntryManager.findEntries(baseDn, DeviceRegistration.class, returnAttributes, filter);
+		if (deviceRegistrations.size() == 1) {
+			putToCache(cacheKey, deviceRegistrations.get(0).getDn());
+		}
+
+		return deviceRegistrations;
 	}
 
 	public DeviceRegistration findOneStepUserDeviceRegistration(String deviceId, String... returnAttributes) {
@@ -115,6 +199,11 @@ public class DeviceRegistrationService {
 		prepareBranch(userInum);
 
 		ldapEntryManager.persist(deviceRegistration);
+
+		removeFromCache(USER_DEVICES_CACHE_KEY_PREFIX + userInum);
+		if (StringHelper.isNotEmpty(deviceRegistration.getApplication()) && StringHelper.isNotEmpty(deviceRegistration.getKeyHandle())) {
+			putToCache(getKeyHandleCacheKey(deviceRegistration.getApplication(), deviceRegistration.getKeyHandle()), deviceRegistration.getDn());
+		}
 	}
 
 	public boolean attachUserDeviceRegistration(String userInum, String oneStepDeviceId) {
@@ -142,27 +231,148 @@ public class DeviceRegistrationService {
 		ldapEntryManager.persist(deviceRegistration);
 	}
 
+	/**
+	 * Cached user device registrations are updated immediately, LDAP entry is updated in background.
+	 */
 	public void updateDeviceRegistration(String userInum, DeviceRegistration deviceRegistration) {
-		prepareBranch(userInum);
-
-		ldapEntryManager.merge(deviceRegistration);
+		String deviceDn = deviceRegistration.getDn();
+		DeviceRegistration update = copy(deviceDn, deviceRegistration);
+		deviceRegistrationUpdateTimer.addUpdate(update);
+		putPendingUpdate(update);
+
+		String key = USER_DEVICES_CACHE_KEY_PREFIX + userInum;
+		LinkedHashMap<String, DeviceRegistration> deviceRegistrations = getFromCache(key);
+		if (deviceRegistrations != null) {
+			LinkedHashMap<String, DeviceRegistration> updatedDeviceRegistrations = new LinkedHashMap<String, DeviceRegistration>(deviceRegistrations);
+			updatedDeviceRegistrations.put(deviceDn, update);
+			putToCache(key, updatedDeviceRegistrations);
+		}
 	}
 
 	public void disableUserDeviceRegistration(DeviceRegistration deviceRegistration) {
 		deviceRegistration.setStatus(DeviceRegistrationStatus.COMPROMISED);
 
+		deviceRegistrationUpdateTimer.cancelUpdate(deviceRegistration.getDn());
+		removeFromCache(getPendingUpdateCacheKey(deviceRegistration.getDn()));
 		ldapEntryManager.merge(deviceRegistration);
+
+		removeUserDeviceRegistrationsFromCache(deviceRegistration);
 	}
 
 	public void removeUserDeviceRegistration(DeviceRegistration deviceRegistration) {
+		deviceRegistrationUpdateTimer.cancelUpdate(deviceRegistration.getDn());
+		removeFromCache(getPendingUpdateCacheKey(deviceRegistration.getDn()));
 		ldapEntryManager.remove(deviceRegistration);
+
+		removeUserDeviceRegistrationsFromCache(deviceRegistration);
+		if (StringHelper.isNotEmpty(deviceRegistration.getApplication()) && StringHelper.isNotEmpty(deviceRegistration.getKeyHandle())) {
+			removeFromCache(getKeyHandleCacheKey(deviceRegistration.getApplication(), deviceRegistration.getKeyHandle()));
+		}
+	}
+
+	private void removeUserDeviceRegistrationsFromCache(DeviceRegistration deviceRegistration) {
+		String userInum = userService.getUserInumByDn(deviceRegistration.getDn());
+		if (StringHelper.isNotEmpty(userInum)) {
+			removeFromCache(USER_DEVICES_CACHE_KEY_PREFIX + userInum);
+		}
+	}
+
+	/**
+	 * @return newest not written update of device registration or null if there is no such update
+	 */
+	private DeviceRegistration getPendingUpdate(String deviceDn) {
+		DeviceRegistration localUpdate = deviceRegistrationUpdateTimer.getPendingUpdate(deviceDn);
+		DeviceRegistration sharedUpdate = getFromCache(getPendingUpdateCacheKey(deviceDn));
+		if (sharedUpdate != null) {
+			sharedUpdate = copy(deviceDn, sharedUpdate);
+		}
+
+		return newer(localUpdate, sharedUpdate);
+	}
+
+	private void putPendingUpdate(DeviceRegistration update) {
+		int lifetime = Math.max(appConfiguration.getU2fDeviceCacheLifetime(),
+				appConfiguration.getU2fDeviceUpdateFlushInterval() * PENDING_UPDATE_FLUSHES);
+		try {
+			cacheService.put(Integer.toString(lifetime), getPendingUpdateCacheKey(update.getDn()), update);
+		} catch (Exception ex) {
+			log.error("Failed to put pending update of '{}' to cache", update.getDn(), ex);
+		}
+	}
+
+	/**
+	 * Takes only counter and last access time from pending update, status and other attributes are taken from LDAP
+	 */
+	private void applyPendingUpdate(DeviceRegistration deviceRegistration, DeviceRegistration pendingUpdate) {
+		if ((pendingUpdate != null) && (pendingUpdate.getCounter() > deviceRegistration.getCounter())) {
+			deviceRegistration.setCounter(pendingUpdate.getCounter());
+			deviceRegistration.setLastAccessTime(pendingUpdate.getLastAccessTime());
+		}
+	}
+
+	/**
+	 * Counter only grows, so registration with greater counter is newer
+	 */
+	private DeviceRegistration newer(DeviceRegistration deviceRegistration1, DeviceRegistration deviceRegistration2) {
+		if (deviceRegistration1 == null) {
+			return deviceRegistration2;
+		}
+		if (deviceRegistration2 == null) {
+			return deviceRegistration1;
+		}
+
+		return deviceRegistration2.getCounter() > deviceRegistration1.getCounter() ? deviceRegistration2 : deviceRegistration1;
+	}
+
+	private String getPendingUpdateCacheKey(String deviceDn) {
+		return PENDING_UPDATE_CACHE_KEY_PREFIX + DigestUtils.sha256Hex(deviceDn);
+	}
+
+	private String getKeyHandleCacheKey(String appId, String keyHandle) {
+		return KEY_HANDLE_CACHE_KEY_PREFIX + DigestUtils.sha256Hex(appId + " " + keyHandle);
+	}
+
+	/**
+	 * Entries are copied because cached ones are shared. DN is set explicitly, it's not serialized by all entries.
+	 */
+	private DeviceRegistration copy(String deviceDn, DeviceRegistration deviceRegistration) {
+		DeviceRegistration copy = (DeviceRegistration) SerializationUtils.clone(deviceRegistration);
+		copy.setDn(deviceDn);
+
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getFromCache(String key) {
+		try {
+			return (T) cacheService.get(null, key);
+		} catch (Exception ex) {
+			log.error("Failed to get '{}' from cache", key, ex);
+			return null;
+		}
+	}
+
+	private void putToCache(String key, Object value) {
+		try {
+			cacheService.put(Integer.toString(appConfiguration.getU2fDeviceCacheLifetime()), key, value);
+		} catch (Exception ex) {
+			log.error("Failed to put '{}' to cache", key, ex);
+		}
+	}
+
+	private void removeFromCache(String key) {
+		try {
+			cacheService.remove(null, key);
+		} catch (Exception ex) {
+			log.error("Failed to remove '{}' from cache", key, ex);
+		}
 	}
 
-	public List<DeviceRegistration> getExpiredDeviceRegistrations(BatchOperation<DeviceRegistration> batchOperation, Date expirationDate) {
+	public List<DeviceRegistration> getExpiredDeviceRegistrations(BatchOperation<DeviceRegistration> batchOperation, Date expirationDate, int batchSize) {
 		final String u2fBaseDn = getDnForOneStepU2fDevice(null);
 		Filter expirationFilter = Filter.createLessOrEqualFilter("creationDate", ldapEntryManager.encodeGeneralizedTime(expirationDate));
 
-		List<DeviceRegistration> deviceRegistrations = ldapEntryManager.findEntries(u2fBaseDn, DeviceRegistration.class, expirationFilter, SearchScope.SUB, null, batchOperation, 0, CleanerTimer.BATCH_SIZE, CleanerTimer.BATCH_SIZE);
+		List<DeviceRegistration> deviceRegistrations = ldapEntryManager.findEntries(u2fBaseDn, DeviceRegistration.class, expirationFilter, SearchScope.SUB, null, batchOperation, 0, batchSize, batchSize);
 
 		return deviceRegistrations;
 	}
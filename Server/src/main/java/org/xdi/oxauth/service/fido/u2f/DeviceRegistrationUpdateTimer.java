@@ -0,0 +1,165 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.fido.u2f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.Asynchronous;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.slf4j.Logger;
+import org.xdi.ldap.model.CustomAttribute;
+import org.xdi.ldap.model.CustomEntry;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
+import org.xdi.oxauth.service.cdi.event.DeviceRegistrationUpdateEvent;
+import org.xdi.service.cdi.event.Scheduled;
+import org.xdi.service.timer.event.TimerEvent;
+import org.xdi.service.timer.schedule.TimerSchedule;
+
+/**
+ * Write-behind of U2F device registration updates (counter and last access time). Updates are coalesced
+ * by device DN and merged into LDAP in batches. Pending updates are kept until they are written, so device
+ * registrations loaded from LDAP in meantime are overlaid with them.
+ * <p>
+ * Only oxCounter and oxLastAccessTime are written. Status and other attributes of pending copy may be stale
+ * (device can be disabled on other server while update is pending), they are never written from here.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class DeviceRegistrationUpdateTimer {
+
+	private final static int DEFAULT_DELAY = 30;
+
+	private final static String[] DEVICE_OBJECT_CLASSES = new String[] { "top", "oxDeviceRegistration" };
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private Event<TimerEvent> timerEvent;
+
+	@Inject
+	private LdapEntryManager ldapEntryManager;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private final Map<String, DeviceRegistration> pendingUpdates = new ConcurrentHashMap<String, DeviceRegistration>();
+
+	private final AtomicBoolean isActive = new AtomicBoolean(false);
+
+	public void initTimer() {
+		log.debug("Initializing U2F Device Registration Update Timer");
+
+		int interval = appConfiguration.getU2fDeviceUpdateFlushInterval();
+		timerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_DELAY, interval), new DeviceRegistrationUpdateEvent(),
+				Scheduled.Literal.INSTANCE));
+	}
+
+	@Asynchronous
+	public void process(@Observes @Scheduled DeviceRegistrationUpdateEvent deviceRegistrationUpdateEvent) {
+		if (!this.isActive.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			flush();
+		} finally {
+			this.isActive.set(false);
+		}
+	}
+
+	/**
+	 * @param deviceRegistration copy of device registration, it should not be modified by caller after this call
+	 */
+	public void addUpdate(DeviceRegistration deviceRegistration) {
+		pendingUpdates.put(deviceRegistration.getDn(), deviceRegistration);
+	}
+
+	/**
+	 * @return not written update of device registration or null if there is no such update
+	 */
+	public DeviceRegistration getPendingUpdate(String deviceDn) {
+		return pendingUpdates.get(deviceDn);
+	}
+
+	/**
+	 * Drops pending update, it's used before device registration is removed or updated directly.
+	 */
+	public void cancelUpdate(String deviceDn) {
+		pendingUpdates.remove(deviceDn);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		flush();
+	}
+
+	private void flush() {
+		if (pendingUpdates.isEmpty()) {
+			return;
+		}
+
+		List<String> deviceDns = new ArrayList<String>(pendingUpdates.keySet());
+		int written = 0;
+		for (String deviceDn : deviceDns) {
+			DeviceRegistration deviceRegistration = pendingUpdates.get(deviceDn);
+			if (deviceRegistration == null) {
+				continue;
+			}
+
+			try {
+				ldapEntryManager.merge(toCustomEntry(deviceRegistration));
+				// Keep newer update which came during merge
+				pendingUpdates.remove(deviceDn, deviceRegistration);
+				written++;
+			} catch (Exception ex) {
+				log.error("Failed to update device registration: '{}'", deviceDn, ex);
+				// Update is retried on next run unless device registration was removed
+				if (isRemoved(deviceDn)) {
+					pendingUpdates.remove(deviceDn, deviceRegistration);
+				}
+			}
+		}
+
+		log.debug("Written U2F device registration updates: '{}'", written);
+	}
+
+	private CustomEntry toCustomEntry(DeviceRegistration deviceRegistration) {
+		CustomEntry customEntry = new CustomEntry();
+		customEntry.setDn(deviceRegistration.getDn());
+		customEntry.setCustomObjectClasses(DEVICE_OBJECT_CLASSES);
+		customEntry.getCustomAttributes().add(new CustomAttribute("oxCounter", String.valueOf(deviceRegistration.getCounter())));
+		if (deviceRegistration.getLastAccessTime() != null) {
+			customEntry.getCustomAttributes().add(new CustomAttribute("oxLastAccessTime", deviceRegistration.getLastAccessTime()));
+		}
+
+		return customEntry;
+	}
+
+	private boolean isRemoved(String deviceDn) {
+		try {
+			return !ldapEntryManager.contains(DeviceRegistration.class, deviceDn);
+		} catch (Exception ex) {
+			return false;
+		}
+	}
+
+}
@@ -18,7 +18,6 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.gluu.site.ldap.persistence.LdapEntryManager;
 import org.slf4j.Logger;
 import org.xdi.oxauth.crypto.random.ChallengeGenerator;
 import org.xdi.oxauth.exception.fido.u2f.DeviceCompromisedException;
@@ -41,8 +40,6 @@ import org.xdi.oxauth.service.UserService;
 import org.xdi.oxauth.util.ServerUtil;
 import org.xdi.util.StringHelper;
 
-import com.unboundid.ldap.sdk.Filter;
-
 /**
  * Provides operations with U2F registration requests
  *
@@ -55,9 +52,6 @@ public class RegistrationService extends RequestService {
 	@Inject
 	private Logger log;
 
-	@Inject
-	private LdapEntryManager ldapEntryManager;
-
 	@Inject
 	private ApplicationService applicationService;
 
@@ -191,13 +185,13 @@ public class RegistrationService extends RequestService {
 		RequestMessageLdap registerRequestMessageLdap = new RegisterRequestMessageLdap(getDnForRegisterRequestMessage(registerRequestMessageId),
 				registerRequestMessageId, now, sessionState, userInum, requestMessage);
 
-		ldapEntryManager.persist(registerRequestMessageLdap);
+		persistRequestMessage(registerRequestMessageLdap);
 	}
 
 	public RegisterRequestMessage getRegisterRequestMessage(String oxId) {
 		String requestDn = getDnForRegisterRequestMessage(oxId);
 
-		RegisterRequestMessageLdap registerRequestMessageLdap = ldapEntryManager.find(RegisterRequestMessageLdap.class, requestDn);
+		RegisterRequestMessageLdap registerRequestMessageLdap = findRequestMessage(RegisterRequestMessageLdap.class, requestDn, oxId);
 		if (registerRequestMessageLdap == null) {
 			return null;
 		}
@@ -207,15 +201,8 @@ public class RegistrationService extends RequestService {
 
 	public RegisterRequestMessageLdap getRegisterRequestMessageByRequestId(String requestId) {
 		String baseDn = getDnForRegisterRequestMessage(null);
-		Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
-
-		List<RegisterRequestMessageLdap> registerRequestMessagesLdap = ldapEntryManager.findEntries(baseDn, RegisterRequestMessageLdap.class,
-				requestIdFilter);
-		if ((registerRequestMessagesLdap == null) || registerRequestMessagesLdap.isEmpty()) {
-			return null;
-		}
 
-		return registerRequestMessagesLdap.get(0);
+		return findRequestMessageByRequestId(RegisterRequestMessageLdap.class, baseDn, requestId);
 	}
 
 	public void removeRegisterRequestMessage(RequestMessageLdap registerRequestMessageLdap) {
@@ -17,14 +17,17 @@ import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.SearchScope;
+import org.xdi.oxauth.model.common.U2fRequestStoreType;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.fido.u2f.RequestMessageLdap;
-import org.xdi.oxauth.service.CleanerTimer;
+import org.xdi.service.CacheService;
 
 import com.unboundid.ldap.sdk.Filter;
 
 /**
- * Provides generic operations with U2F requests
+ * Provides generic operations with U2F requests. Request messages are kept in cache with native expiration
+ * or in LDAP, depending on u2fRequestStoreType configuration property.
  *
  * @author Yuriy Movchan Date: 05/19/2015
  */
@@ -32,6 +35,14 @@ import com.unboundid.ldap.sdk.Filter;
 @Named("u2fRequestService")
 public class RequestService {
 
+	/**
+	 * Lifetime of request message in seconds
+	 */
+	public static final int REQUEST_MESSAGE_LIFETIME = 90;
+
+	private static final String REQUEST_ID_CACHE_KEY_PREFIX = "u2f_request_id_";
+	private static final String ID_CACHE_KEY_PREFIX = "u2f_request_oxid_";
+
 	@Inject
 	private Logger log;
 
@@ -41,16 +52,88 @@ public class RequestService {
 	@Inject
 	private StaticConfiguration staticConfiguration;
 
-	public List<RequestMessageLdap> getExpiredRequestMessages(BatchOperation<RequestMessageLdap> batchOperation, Date expirationDate) {
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private CacheService cacheService;
+
+	public boolean isLdapStore() {
+		return appConfiguration.getU2fRequestStoreType() == U2fRequestStoreType.LDAP;
+	}
+
+	public void persistRequestMessage(RequestMessageLdap requestMessage) {
+		if (isLdapStore()) {
+			ldapEntryManager.persist(requestMessage);
+			return;
+		}
+
+		String expiration = Integer.toString(REQUEST_MESSAGE_LIFETIME);
+		cacheService.put(expiration, REQUEST_ID_CACHE_KEY_PREFIX + requestMessage.getRequestId(), requestMessage);
+		cacheService.put(expiration, ID_CACHE_KEY_PREFIX + requestMessage.getId(), requestMessage);
+	}
+
+	/**
+	 * @param requestDn DN of request message, it's used by LDAP store only
+	 */
+	public <T extends RequestMessageLdap> T findRequestMessage(Class<T> entryClass, String requestDn, String oxId) {
+		if (isLdapStore()) {
+			return ldapEntryManager.find(entryClass, requestDn);
+		}
+
+		return getFromCache(entryClass, ID_CACHE_KEY_PREFIX + oxId);
+	}
+
+	/**
+	 * @param baseDn base DN of request messages, it's used by LDAP store only
+	 */
+	public <T extends RequestMessageLdap> T findRequestMessageByRequestId(Class<T> entryClass, String baseDn, String requestId) {
+		if (isLdapStore()) {
+			Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
+
+			List<T> requestMessages = ldapEntryManager.findEntries(baseDn, entryClass, requestIdFilter);
+			if ((requestMessages == null) || requestMessages.isEmpty()) {
+				return null;
+			}
+
+			return requestMessages.get(0);
+		}
+
+		return getFromCache(entryClass, REQUEST_ID_CACHE_KEY_PREFIX + requestId);
+	}
+
+	private <T extends RequestMessageLdap> T getFromCache(Class<T> entryClass, String key) {
+		Object requestMessage = cacheService.get(null, key);
+		if (!entryClass.isInstance(requestMessage)) {
+			return null;
+		}
+
+		return entryClass.cast(requestMessage);
+	}
+
+	public List<RequestMessageLdap> getExpiredRequestMessages(BatchOperation<RequestMessageLdap> batchOperation, Date expirationDate, int batchSize) {
 		final String u2fBaseDn = staticConfiguration.getBaseDn().getU2fBase(); // ou=u2f,o=@!1111,o=gluu
 		Filter expirationFilter = Filter.createLessOrEqualFilter("creationDate", ldapEntryManager.encodeGeneralizedTime(expirationDate));
 
-		List<RequestMessageLdap> requestMessageLdap = ldapEntryManager.findEntries(u2fBaseDn, RequestMessageLdap.class, expirationFilter, SearchScope.SUB, null, batchOperation, 0, CleanerTimer.BATCH_SIZE, CleanerTimer.BATCH_SIZE);
+		List<RequestMessageLdap> requestMessageLdap = ldapEntryManager.findEntries(u2fBaseDn, RequestMessageLdap.class, expirationFilter, SearchScope.SUB, null, batchOperation, 0, batchSize, batchSize);
 
 		return requestMessageLdap;
 	}
 
 	public void removeRequestMessage(RequestMessageLdap requestMessageLdap) {
+		if (isLdapStore()) {
+			ldapEntryManager.remove(requestMessageLdap);
+			return;
+		}
+
+		cacheService.remove(null, REQUEST_ID_CACHE_KEY_PREFIX + requestMessageLdap.getRequestId());
+		cacheService.remove(null, ID_CACHE_KEY_PREFIX + requestMessageLdap.getId());
+	}
+
+	/**
+	 * Removes request message from LDAP regardless of configured store, it's used by clean up of expired messages.
+	 */
+	public void removeLdapRequestMessage(RequestMessageLdap requestMessageLdap) {
 		ldapEntryManager.remove(requestMessageLdap);
 	}
 
@@ -0,0 +1,622 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import net.spy.memcached.CASResponse;
+import net.spy.memcached.CASValue;
+import net.spy.memcached.MemcachedClient;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.common.SessionIdAccessMap;
+import org.xdi.oxauth.model.common.SessionIdState;
+import org.xdi.oxauth.model.common.SessionState;
+import org.xdi.service.CacheService;
+import org.xdi.service.cache.CacheProvider;
+
+/**
+ * Session store on top of {@link CacheService}. Session is kept as compact versioned record under session id,
+ * its revision and last used time are kept under separate keys. So revision check and last used time update
+ * don't transfer whole session.
+ * <p>
+ * Session record is rewritten only if fields other than attributes are changed. Attributes added, changed or
+ * removed after that are written as delta record which refers to revision of session record it applies to, delta
+ * is dropped when session record is rewritten. Delta which is not much smaller than session record is not written.
+ * <p>
+ * Revision is checked and incremented with memcached gets/cas when cache provider is memcached, so only one of
+ * concurrent writes of the same revision succeeds. Other cache providers have no compare-and-set operation, there
+ * revision is checked and written with separate calls. It detects concurrent updates made in different requests
+ * but two writes at the same moment may still overwrite each other.
+ * <p>
+ * Session and revision are kept in cache up to twice as long as session lifetime and are rewritten by
+ * {@link #touch} before less than lifetime is left. So session used within its lifetime is never evicted, expiration
+ * of unused session is checked by last used time when it's read. Session without lifetime is kept without
+ * expiration and isn't rewritten by {@link #touch}.
+ *
+ * @version October 18, 2026
+ */
+@ApplicationScoped
+@Named
+public class CacheSessionStore implements SessionStore {
+
+    /**
+     * Version of session and attribute delta records, it's first byte of record and has to be changed if layout
+     * is changed.
+     */
+    public static final byte RECORD_VERSION = 1;
+
+    private static final String REVISION_KEY_SUFFIX = "_rev";
+    private static final String LAST_USED_KEY_SUFFIX = "_last_used";
+    private static final String ATTRIBUTES_KEY_SUFFIX = "_attrs";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Longer expiration is treated by memcached as absolute unix time
+    private static final int MAX_RELATIVE_EXPIRATION = (int) TimeUnit.DAYS.toSeconds(30);
+
+    private static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String key1, String key2) {
+            if (key1 == null) {
+                return key2 == null ? 0 : -1;
+            }
+
+            return key2 == null ? 1 : key1.compareTo(key2);
+        }
+    };
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private CacheService cacheService;
+
+    @Inject
+    private CacheProvider cacheProvider;
+
+    @Override
+    public SessionState get(String id) {
+        Object cached = cacheService.get(null, id);
+        if (cached instanceof SessionState) {
+            // Session put in cache before upgrade
+            return (SessionState) cached;
+        }
+
+        if (!(cached instanceof byte[])) {
+            return null;
+        }
+
+        SessionState sessionState;
+        try {
+            sessionState = decode((byte[]) cached);
+
+            Object delta = cacheService.get(null, id + ATTRIBUTES_KEY_SUFFIX);
+            if (delta instanceof byte[]) {
+                applyDelta(sessionState, (byte[]) delta);
+            }
+        } catch (IOException ex) {
+            log.error("Failed to decode session: " + id, ex);
+            return null;
+        }
+
+        Object lastUsedAt = cacheService.get(null, id + LAST_USED_KEY_SUFFIX);
+        if ((lastUsedAt instanceof Long) && ((sessionState.getLastUsedAt() == null) || ((Long) lastUsedAt > sessionState.getLastUsedAt().getTime()))) {
+            sessionState.setLastUsedAt(new Date((Long) lastUsedAt));
+        }
+
+        return sessionState;
+    }
+
+    @Override
+    public void put(SessionState sessionState, int lifetime) {
+        long revision = sessionState.getRevision() + 1;
+
+        // Delta of record which was overwritten or evicted may be left in cache
+        writeRecord(sessionState, revision, lifetime, true);
+        cacheService.put(Integer.toString(getExpiration(lifetime)), sessionState.getId() + REVISION_KEY_SUFFIX, revision);
+    }
+
+    @Override
+    public boolean compareAndSet(SessionState sessionState, int lifetime) {
+        long revision = sessionState.getRevision() + 1;
+        if (!compareAndSetRevision(sessionState.getId(), sessionState.getRevision(), revision, lifetime)) {
+            log.trace("Session '{}' was changed, expected revision: '{}'", sessionState.getId(), sessionState.getRevision());
+            return false;
+        }
+
+        if (!writeDelta(sessionState, revision, lifetime)) {
+            writeRecord(sessionState, revision, lifetime, hasDelta(sessionState));
+        }
+
+        return true;
+    }
+
+    @Override
+    public void touch(SessionState sessionState, int lifetime) {
+        // Record has to stay in cache for lifetime after this use, rewrite it with delta applied if less is left
+        if (isExpiring(sessionState.getStoredAt(), lifetime, System.currentTimeMillis())) {
+            long revision = sessionState.getRevision() + 1;
+            if (compareAndSetRevision(sessionState.getId(), sessionState.getRevision(), revision, lifetime)) {
+                writeRecord(sessionState, revision, lifetime, hasDelta(sessionState));
+                return;
+            }
+        }
+
+        if (sessionState.getLastUsedAt() != null) {
+            cacheService.put(Integer.toString(lifetime), sessionState.getId() + LAST_USED_KEY_SUFFIX, sessionState.getLastUsedAt().getTime());
+        }
+    }
+
+    @Override
+    public boolean isModified(SessionState sessionState) {
+        byte[] storedRecord = sessionState.getStoredRecord();
+        if (storedRecord == null) {
+            return true;
+        }
+
+        return !isRecordOf(storedRecord, encodeCore(sessionState))
+                || !sessionState.getSessionAttributes().equals(sessionState.getStoredSessionAttributes());
+    }
+
+    @Override
+    public void remove(String id) {
+        cacheService.remove(null, id);
+        cacheService.remove(null, id + REVISION_KEY_SUFFIX);
+        cacheService.remove(null, id + LAST_USED_KEY_SUFFIX);
+        cacheService.remove(null, id + ATTRIBUTES_KEY_SUFFIX);
+    }
+
+    private boolean compareAndSetRevision(String id, long expected, long revision, int lifetime) {
+        String key = id + REVISION_KEY_SUFFIX;
+        int expiration = getExpiration(lifetime);
+
+        Object delegate = cacheProvider.getDelegate();
+        if (!(delegate instanceof MemcachedClient)) {
+            Object current = cacheService.get(null, key);
+            if ((current instanceof Long) && ((Long) current != expected)) {
+                return false;
+            }
+
+            cacheService.put(Integer.toString(expiration), key, revision);
+            return true;
+        }
+
+        MemcachedClient memcachedClient = (MemcachedClient) delegate;
+        try {
+            CASValue<Object> current = memcachedClient.gets(key);
+            if (current == null) {
+                // New session or revision was evicted
+                return memcachedClient.add(key, expiration, revision).get();
+            }
+
+            if (!(current.getValue() instanceof Long) || ((Long) current.getValue() != expected)) {
+                return false;
+            }
+
+            return memcachedClient.cas(key, current.getCas(), expiration, revision) == CASResponse.OK;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while updating revision of session: " + id, ex);
+        } catch (ExecutionException ex) {
+            log.error("Failed to update revision of session: " + id, ex);
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes attribute delta if only attributes were changed since session record was written.
+     *
+     * @return false if session record has to be written
+     */
+    private boolean writeDelta(SessionState sessionState, long revision, int lifetime) {
+        byte[] storedRecord = sessionState.getStoredRecord();
+        if (storedRecord == null) {
+            return false;
+        }
+
+        byte[] core = encodeCore(sessionState);
+        if (!isRecordOf(storedRecord, core)) {
+            return false;
+        }
+
+        byte[] delta = encodeDelta(getRecordRevision(storedRecord), revision, getRecordAttributes(storedRecord, core.length),
+                sessionState.getSessionAttributes());
+        if (delta.length * 2 > storedRecord.length) {
+            return false;
+        }
+
+        cacheService.put(Integer.toString(getExpiration(lifetime)), sessionState.getId() + ATTRIBUTES_KEY_SUFFIX, delta);
+
+        // Stored record and time still describe session record
+        sessionState.setRevision(revision);
+        sessionState.setStoredSessionAttributes(new HashMap<String, String>(sessionState.getSessionAttributes()));
+
+        return true;
+    }
+
+    private void writeRecord(SessionState sessionState, long revision, int lifetime, boolean removeDelta) {
+        long now = System.currentTimeMillis();
+        byte[] body = encodeBody(sessionState);
+
+        // First parameter is expiration instead of region for memcached
+        cacheService.put(Integer.toString(getExpiration(lifetime)), sessionState.getId(), encode(sessionState, revision, now, body));
+        if (removeDelta) {
+            cacheService.remove(null, sessionState.getId() + ATTRIBUTES_KEY_SUFFIX);
+        }
+
+        setStored(sessionState, revision, body, now);
+    }
+
+    /**
+     * @return true if attribute delta was applied to session when it was read or written
+     */
+    private static boolean hasDelta(SessionState sessionState) {
+        return (sessionState.getStoredRecord() != null) && (getRecordRevision(sessionState.getStoredRecord()) != sessionState.getRevision());
+    }
+
+    /**
+     * @return time in seconds to keep session record in cache
+     */
+    static int getExpiration(int lifetime) {
+        if (lifetime <= 0) {
+            return lifetime;
+        }
+
+        return (int) Math.max(lifetime, Math.min(2L * lifetime, MAX_RELATIVE_EXPIRATION));
+    }
+
+    /**
+     * @return true if session record written at given time is kept in cache less than lifetime after now
+     */
+    static boolean isExpiring(long storedAt, int lifetime, long now) {
+        if (lifetime <= 0) {
+            return false;
+        }
+
+        return now - storedAt >= TimeUnit.SECONDS.toMillis(getExpiration(lifetime) - lifetime);
+    }
+
+    static byte[] encode(SessionState sessionState, long revision, long storedAt) {
+        return encode(sessionState, revision, storedAt, encodeBody(sessionState));
+    }
+
+    private static byte[] encode(SessionState sessionState, long revision, long storedAt, byte[] body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(RECORD_VERSION);
+            out.writeLong(revision);
+            out.writeLong(storedAt);
+            writeDate(out, sessionState.getLastUsedAt());
+            out.write(body);
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Not possible, data is written to memory
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static SessionState decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported session record version: " + version);
+        }
+
+        long revision = in.readLong();
+        long storedAt = in.readLong();
+        Date lastUsedAt = readDate(in);
+        byte[] body = Arrays.copyOfRange(record, record.length - in.available(), record.length);
+
+        SessionState sessionState = new SessionState();
+        sessionState.setLastUsedAt(lastUsedAt);
+        sessionState.setDn(readString(in));
+        sessionState.setId(readString(in));
+        sessionState.setUserDn(readString(in));
+        sessionState.setAuthenticationTime(readDate(in));
+        String state = readString(in);
+        sessionState.setState(state != null ? SessionIdState.getByValue(state) : null);
+        sessionState.setPermissionGranted(readBoolean(in));
+        sessionState.setIsJwt(readBoolean(in));
+        sessionState.setJwt(readString(in));
+        sessionState.setPermissionGrantedMap(readAccessMap(in));
+        sessionState.setInvolvedClients(readAccessMap(in));
+        sessionState.setSessionAttributes(readStringMap(in));
+        sessionState.setPersisted(true);
+
+        setStored(sessionState, revision, body, storedAt);
+
+        return sessionState;
+    }
+
+    /**
+     * Delta holds attributes added or changed and names of attributes removed since session record was written.
+     */
+    static byte[] encodeDelta(long recordRevision, long revision, Map<String, String> recordAttributes, Map<String, String> attributes) {
+        Set<String> names = new HashSet<String>(recordAttributes.keySet());
+        names.addAll(attributes.keySet());
+
+        List<String> changed = new ArrayList<String>();
+        for (String name : names) {
+            boolean present = attributes.containsKey(name);
+            if ((present != recordAttributes.containsKey(name)) || !StringUtils.equals(attributes.get(name), recordAttributes.get(name))) {
+                changed.add(name);
+            }
+        }
+        Collections.sort(changed, KEY_ORDER);
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(RECORD_VERSION);
+            out.writeLong(recordRevision);
+            out.writeLong(revision);
+            out.writeInt(changed.size());
+            for (String name : changed) {
+                writeString(out, name);
+                boolean present = attributes.containsKey(name);
+                out.writeBoolean(present);
+                if (present) {
+                    writeString(out, attributes.get(name));
+                }
+            }
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Not possible, data is written to memory
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Applies attribute delta to session read from session record.
+     *
+     * @return false if delta was written for another session record
+     */
+    static boolean applyDelta(SessionState sessionState, byte[] delta) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported session attributes record version: " + version);
+        }
+
+        long recordRevision = in.readLong();
+        long revision = in.readLong();
+        if (recordRevision != getRecordRevision(sessionState.getStoredRecord())) {
+            return false;
+        }
+
+        Map<String, String> attributes = sessionState.getSessionAttributes();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            if (in.readBoolean()) {
+                attributes.put(name, readString(in));
+            } else {
+                attributes.remove(name);
+            }
+        }
+
+        sessionState.setRevision(revision);
+        sessionState.setStoredSessionAttributes(new HashMap<String, String>(attributes));
+
+        return true;
+    }
+
+    /*
+     * Stored record of session is revision of session record followed by record body. Body starts with encoded
+     * fields other than attributes and ends with attributes.
+     */
+    private static void setStored(SessionState sessionState, long revision, byte[] body, long storedAt) {
+        byte[] storedRecord = new byte[8 + body.length];
+        ByteBuffer.wrap(storedRecord).putLong(revision).put(body);
+
+        sessionState.setRevision(revision);
+        sessionState.setStoredRecord(storedRecord);
+        sessionState.setStoredSessionAttributes(new HashMap<String, String>(sessionState.getSessionAttributes()));
+        sessionState.setStoredAt(storedAt);
+    }
+
+    private static long getRecordRevision(byte[] storedRecord) {
+        return ByteBuffer.wrap(storedRecord).getLong();
+    }
+
+    /**
+     * @return true if fields other than attributes are same as in session record
+     */
+    private static boolean isRecordOf(byte[] storedRecord, byte[] core) {
+        if (storedRecord.length < 8 + core.length) {
+            return false;
+        }
+
+        for (int i = 0; i < core.length; i++) {
+            if (storedRecord[8 + i] != core[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Map<String, String> getRecordAttributes(byte[] storedRecord, int coreLength) {
+        try {
+            int offset = 8 + coreLength;
+            return readStringMap(new DataInputStream(new ByteArrayInputStream(storedRecord, offset, storedRecord.length - offset)));
+        } catch (IOException ex) {
+            // Not possible, record was encoded by this store
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] encodeBody(SessionState sessionState) {
+        try {
+            byte[] core = encodeCore(sessionState);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(core.length + 256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(core);
+            writeStringMap(out, sessionState.getSessionAttributes());
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Not possible, data is written to memory
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] encodeCore(SessionState sessionState) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, sessionState.getDn());
+            writeString(out, sessionState.getId());
+            writeString(out, sessionState.getUserDn());
+            writeDate(out, sessionState.getAuthenticationTime());
+            writeString(out, sessionState.getState() != null ? sessionState.getState().getValue() : null);
+            writeBoolean(out, sessionState.getPermissionGranted());
+            writeBoolean(out, sessionState.getIsJwt());
+            writeString(out, sessionState.getJwt());
+            writeAccessMap(out, sessionState.getPermissionGrantedMap());
+            writeAccessMap(out, sessionState.getInvolvedClients());
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Not possible, data is written to memory
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : (value ? 1 : 0));
+    }
+
+    private static Boolean readBoolean(DataInputStream in) throws IOException {
+        byte value = in.readByte();
+        return value < 0 ? null : Boolean.valueOf(value == 1);
+    }
+
+    private static void writeStringMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (String key : sortedKeys(map)) {
+            writeString(out, key);
+            writeString(out, map.get(key));
+        }
+    }
+
+    private static Map<String, String> readStringMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+
+        return map;
+    }
+
+    private static void writeAccessMap(DataOutputStream out, SessionIdAccessMap accessMap) throws IOException {
+        if ((accessMap == null) || (accessMap.getPermissionGranted() == null)) {
+            out.writeInt(-1);
+            return;
+        }
+
+        Map<String, Boolean> map = accessMap.getPermissionGranted();
+        out.writeInt(map.size());
+        for (String key : sortedKeys(map)) {
+            writeString(out, key);
+            writeBoolean(out, map.get(key));
+        }
+    }
+
+    /*
+     * Same map has to be encoded same way, otherwise session is considered modified
+     */
+    private static List<String> sortedKeys(Map<String, ?> map) {
+        List<String> keys = new ArrayList<String>(map.keySet());
+        Collections.sort(keys, KEY_ORDER);
+
+        return keys;
+    }
+
+    private static SessionIdAccessMap readAccessMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+
+        Map<String, Boolean> map = new HashMap<String, Boolean>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readBoolean(in));
+        }
+
+        return new SessionIdAccessMap(map);
+    }
+
+}
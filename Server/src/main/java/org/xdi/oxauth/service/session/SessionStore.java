@@ -0,0 +1,55 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.session;
+
+import org.xdi.oxauth.model.common.SessionState;
+
+/**
+ * Storage of session states shared between oxAuth nodes. Default implementation is {@link CacheSessionStore},
+ * another one can be provided as CDI alternative.
+ * <p>
+ * Implementations keep revision of each session and maintain {@link SessionState#getRevision()},
+ * {@link SessionState#getStoredSessionAttributes()}, {@link SessionState#getStoredRecord()} and
+ * {@link SessionState#getStoredAt()} of sessions they read and write.
+ *
+ * @version October 18, 2026
+ */
+public interface SessionStore {
+
+    /**
+     * @return session or null if there is no such session
+     */
+    SessionState get(String id);
+
+    /**
+     * Writes whole session regardless of its revision in store.
+     *
+     * @param lifetime time in seconds to keep session in store
+     */
+    void put(SessionState sessionState, int lifetime);
+
+    /**
+     * Writes session if it was not changed in store since it was read or written by caller. Implementation may write
+     * only fields changed since then.
+     *
+     * @return false if session was changed by someone else, nothing is written in this case
+     */
+    boolean compareAndSet(SessionState sessionState, int lifetime);
+
+    /**
+     * Records last used time of session without rewriting whole session.
+     */
+    void touch(SessionState sessionState, int lifetime);
+
+    /**
+     * @return true if session (excluding last used time) differs from one which was read or written last time
+     */
+    boolean isModified(SessionState sessionState);
+
+    void remove(String id);
+
+}
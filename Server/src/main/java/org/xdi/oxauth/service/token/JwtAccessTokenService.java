@@ -0,0 +1,248 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.token;
+
+import java.util.Date;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.common.AccessToken;
+import org.xdi.oxauth.model.common.AuthorizationGrant;
+import org.xdi.oxauth.model.config.WebKeysConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.crypto.AbstractCryptoProvider;
+import org.xdi.oxauth.model.crypto.CryptoProviderFactory;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithmFamily;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.jwt.JwtClaimName;
+import org.xdi.oxauth.model.ldap.TokenType;
+import org.xdi.oxauth.model.token.JwtSigner;
+import org.xdi.oxauth.model.util.TokenHashUtil;
+import org.xdi.service.CacheService;
+
+/**
+ * Issues and validates self-contained (JWT) access tokens. Such tokens are not stored in LDAP,
+ * they are validated by signature, issuer and expiration only.
+ *
+ * Revocation (logout, authorization code reuse) is tracked in compact list kept in cache service:
+ * one marker per revoked session or grant which lives as long as the longest access token can live.
+ * Grant id of token issued for authorization code is recorded by code hash, so code reuse revokes the token
+ * even if nothing else was stored for the code.
+ *
+ * @version October 18, 2026
+ */
+@Stateless
+@Named
+public class JwtAccessTokenService {
+
+    public static final String CLIENT_ID = "client_id";
+    public static final String SCOPE = "scope";
+    public static final String USERNAME = "username";
+    public static final String GRANT_ID = "grant_id";
+    public static final String GRANT_TYPE = "grant_type";
+    public static final String SESSION_ID = "sid";
+    public static final String TOKEN_TYPE = "token_type";
+
+    private static final String REVOKED_SESSION_KEY_PREFIX = "jwt_at_revoked_session_";
+    private static final String REVOKED_GRANT_KEY_PREFIX = "jwt_at_revoked_grant_";
+    private static final String CODE_GRANT_KEY_PREFIX = "jwt_at_code_grant_";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private WebKeysConfiguration webKeysConfiguration;
+
+    @Inject
+    private CacheService cacheService;
+
+    public boolean isJwt(String token) {
+        return StringUtils.countMatches(token, ".") == 2;
+    }
+
+    /**
+     * Signs access token issued for grant. Handle of access token becomes jti of JWT.
+     *
+     * @return encoded JWT which must be used as code of access token
+     */
+    public String createJwt(AuthorizationGrant grant, AccessToken accessToken) throws Exception {
+        JwtSigner jwtSigner = new JwtSigner(appConfiguration, webKeysConfiguration, getSignatureAlgorithm(), grant.getClientId());
+        Jwt jwt = jwtSigner.newJwt();
+
+        jwt.getClaims().setJwtId(accessToken.getCode());
+        jwt.getClaims().setClaim(TOKEN_TYPE, TokenType.ACCESS_TOKEN.getValue());
+        jwt.getClaims().setIssuedAt(accessToken.getCreationDate());
+        jwt.getClaims().setExpirationTime(accessToken.getExpirationDate());
+        jwt.getClaims().setClaim(CLIENT_ID, grant.getClientId());
+        jwt.getClaims().setClaim(SCOPE, grant.getScopesAsString());
+        jwt.getClaims().setClaim(GRANT_ID, grant.getGrantId());
+        if (grant.getAuthorizationGrantType() != null) {
+            jwt.getClaims().setClaim(GRANT_TYPE, grant.getAuthorizationGrantType().getParamName());
+        }
+        if (StringUtils.isNotBlank(grant.getUserId())) {
+            jwt.getClaims().setClaim(USERNAME, grant.getUserId());
+        }
+        if (StringUtils.isNotBlank(accessToken.getAuthMode())) {
+            jwt.getClaims().setClaim(JwtClaimName.AUTHENTICATION_CONTEXT_CLASS_REFERENCE, accessToken.getAuthMode());
+        }
+        if (grant.getAuthenticationTime() != null) {
+            jwt.getClaims().setClaim(JwtClaimName.AUTHENTICATION_TIME, grant.getAuthenticationTime());
+        }
+        if (StringUtils.isNotBlank(accessToken.getSessionDn())) {
+            // Session DN contains session id, expose only its hash
+            jwt.getClaims().setClaim(SESSION_ID, TokenHashUtil.getHashedToken(accessToken.getSessionDn()));
+        }
+
+        final String encodedJwt = jwtSigner.sign().toString();
+        putCodeGrant(grant);
+
+        return encodedJwt;
+    }
+
+    /**
+     * Validates JWT access token without LDAP lookup.
+     *
+     * @return parsed JWT or null if token is malformed, not signed by this server, expired or revoked
+     */
+    public Jwt validate(String token) {
+        if (!isJwt(token)) {
+            return null;
+        }
+
+        try {
+            Jwt jwt = Jwt.parse(token);
+
+            // id_token is signed with the same keys, it must not be accepted as access token
+            if (!TokenType.ACCESS_TOKEN.getValue().equals(jwt.getClaims().getClaimAsString(TOKEN_TYPE))) {
+                return null;
+            }
+
+            SignatureAlgorithm signatureAlgorithm = jwt.getHeader().getAlgorithm();
+            if (!isAllowedSignatureAlgorithm(signatureAlgorithm)) {
+                log.debug("JWT access token signed with not allowed algorithm: '{}'", signatureAlgorithm);
+                return null;
+            }
+
+            if (!StringUtils.equals(appConfiguration.getIssuer(), jwt.getClaims().getClaimAsString(JwtClaimName.ISSUER))) {
+                log.debug("JWT access token issued by another issuer");
+                return null;
+            }
+
+            Date expiration = jwt.getClaims().getClaimAsDate(JwtClaimName.EXPIRATION_TIME);
+            if ((expiration == null) || expiration.before(new Date())) {
+                log.debug("JWT access token is expired");
+                return null;
+            }
+
+            AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
+            boolean validSignature = cryptoProvider.verifySignature(jwt.getSigningInput(), jwt.getEncodedSignature(),
+                    jwt.getHeader().getKeyId(), webKeysConfiguration.toJSONObject(), null, signatureAlgorithm);
+            if (!validSignature) {
+                log.debug("JWT access token has invalid signature");
+                return null;
+            }
+
+            if (isRevoked(jwt)) {
+                log.debug("JWT access token is revoked, jti: '{}'", jwt.getClaims().getClaimAsString(JwtClaimName.JWT_ID));
+                return null;
+            }
+
+            return jwt;
+        } catch (InvalidJwtException ex) {
+            log.debug("Failed to parse JWT access token", ex);
+        } catch (Exception ex) {
+            log.error("Failed to validate JWT access token", ex);
+        }
+
+        return null;
+    }
+
+    public void revokeSession(String sessionDn) {
+        if (appConfiguration.getJwtAccessTokenRevocationEnabled() && StringUtils.isNotBlank(sessionDn)) {
+            putRevoked(REVOKED_SESSION_KEY_PREFIX + TokenHashUtil.getHashedToken(sessionDn));
+        }
+    }
+
+    public void revokeGrant(String grantId) {
+        if (appConfiguration.getJwtAccessTokenRevocationEnabled() && StringUtils.isNotBlank(grantId)) {
+            putRevoked(REVOKED_GRANT_KEY_PREFIX + grantId);
+        }
+    }
+
+    /**
+     * Revokes JWT access tokens issued for authorization code. Used when code is presented again.
+     */
+    public void revokeAuthorizationCode(String code) {
+        if (!appConfiguration.getJwtAccessTokenRevocationEnabled() || StringUtils.isBlank(code)) {
+            return;
+        }
+
+        Object grantId = cacheService.get(null, CODE_GRANT_KEY_PREFIX + TokenHashUtil.getHashedToken(code));
+        if (grantId instanceof String) {
+            revokeGrant((String) grantId);
+        }
+    }
+
+    private void putCodeGrant(AuthorizationGrant grant) {
+        if (!appConfiguration.getJwtAccessTokenRevocationEnabled() || (grant.getAuthorizationCode() == null)
+                || StringUtils.isBlank(grant.getAuthorizationCode().getCode()) || StringUtils.isBlank(grant.getGrantId())) {
+            return;
+        }
+
+        // Code may be reused while any token issued for it is valid
+        cacheService.put(Integer.toString(getMaxAccessTokenLifetime()),
+                CODE_GRANT_KEY_PREFIX + TokenHashUtil.getHashedToken(grant.getAuthorizationCode().getCode()), grant.getGrantId());
+    }
+
+    private boolean isRevoked(Jwt jwt) {
+        if (!appConfiguration.getJwtAccessTokenRevocationEnabled()) {
+            return false;
+        }
+
+        String sessionId = jwt.getClaims().getClaimAsString(SESSION_ID);
+        if (StringUtils.isNotBlank(sessionId) && (cacheService.get(null, REVOKED_SESSION_KEY_PREFIX + sessionId) != null)) {
+            return true;
+        }
+
+        String grantId = jwt.getClaims().getClaimAsString(GRANT_ID);
+        return StringUtils.isNotBlank(grantId) && (cacheService.get(null, REVOKED_GRANT_KEY_PREFIX + grantId) != null);
+    }
+
+    private void putRevoked(String key) {
+        // Marker must outlive any access token issued before revocation
+        cacheService.put(Integer.toString(getMaxAccessTokenLifetime()), key, Boolean.TRUE);
+    }
+
+    private int getMaxAccessTokenLifetime() {
+        return Math.max(appConfiguration.getShortLivedAccessTokenLifetime(), appConfiguration.getLongLivedAccessTokenLifetime());
+    }
+
+    private SignatureAlgorithm getSignatureAlgorithm() {
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.fromString(appConfiguration.getDefaultSignatureAlgorithm());
+        if (!isAllowedSignatureAlgorithm(signatureAlgorithm)) {
+            // Resource servers have to be able to validate token with public keys only
+            return SignatureAlgorithm.RS256;
+        }
+
+        return signatureAlgorithm;
+    }
+
+    private boolean isAllowedSignatureAlgorithm(SignatureAlgorithm signatureAlgorithm) {
+        return (signatureAlgorithm != null) && (signatureAlgorithm != SignatureAlgorithm.NONE)
+                && !SignatureAlgorithmFamily.HMAC.equals(signatureAlgorithm.getFamily());
+    }
+
+}
@@ -28,7 +28,7 @@ public interface IRPTManager {
 
     public void deleteRPT(String rptCode);
 
-    public void cleanupRPTs(Date now);
+    public int cleanupRPTs(Date now, int batchSize);
 
     public void addPermissionToRPT(UmaRPT p_rpt, ResourceSetPermission p_permission);
 
@@ -28,5 +28,5 @@ public interface IResourceSetPermissionManager {
 
     public void deleteResourceSetPermission(String resourceSetPermissionTicket);
 
-    public void cleanupResourceSetPermissions(Date now);
+    public int cleanupResourceSetPermissions(Date now, int batchSize);
 }
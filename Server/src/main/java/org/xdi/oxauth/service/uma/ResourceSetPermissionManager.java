@@ -8,6 +8,7 @@ package org.xdi.oxauth.service.uma;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -20,7 +21,6 @@ import org.xdi.ldap.model.SearchScope;
 import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.uma.persistence.ResourceSetPermission;
-import org.xdi.oxauth.service.CleanerTimer;
 
 import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPException;
@@ -117,7 +117,9 @@ public class ResourceSetPermissionManager extends AbstractResourceSetPermissionM
     }
 
     @Override
-    public void cleanupResourceSetPermissions(final Date now) {
+    public int cleanupResourceSetPermissions(final Date now, int batchSize) {
+        final AtomicInteger removed = new AtomicInteger();
+
         BatchOperation<ResourceSetPermission> resourceSetPermissionBatchService = new BatchOperation<ResourceSetPermission>(ldapEntryManager) {
             @Override
             protected List<ResourceSetPermission> getChunkOrNull(int chunkSize) {
@@ -129,6 +131,7 @@ public class ResourceSetPermissionManager extends AbstractResourceSetPermissionM
                 for (ResourceSetPermission p : entries) {
                     try {
                         ldapEntryManager.remove(p);
+                        removed.incrementAndGet();
                     } catch (Exception e) {
                         log.error("Failed to remove entry", e);
                     }
@@ -144,7 +147,9 @@ public class ResourceSetPermissionManager extends AbstractResourceSetPermissionM
                 }
             }
         };
-        resourceSetPermissionBatchService.iterateAllByChunks(CleanerTimer.BATCH_SIZE);
+        resourceSetPermissionBatchService.iterateAllByChunks(batchSize);
+
+        return removed.get();
     }
 
     public void addBranch(String clientDn) {
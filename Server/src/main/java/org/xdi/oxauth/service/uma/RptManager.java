@@ -16,12 +16,13 @@ import org.xdi.ldap.model.SearchScope;
 import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.common.AuthorizationGrantList;
 import org.xdi.oxauth.model.common.IAuthorizationGrant;
+import org.xdi.oxauth.model.common.uma.CachedRpt;
 import org.xdi.oxauth.model.common.uma.UmaRPT;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.uma.persistence.ResourceSetPermission;
 import org.xdi.oxauth.model.util.Util;
-import org.xdi.oxauth.service.CleanerTimer;
 import org.xdi.oxauth.service.token.TokenService;
+import org.xdi.service.CacheService;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -30,9 +31,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * RPT manager component
+ * RPT manager component. RPT found by code is cached together with its resolved permissions
+ * until RPT expires, so repeated introspection doesn't hit LDAP.
  *
  * @author Yuriy Zabrovarnyy Date: 10/16/2012
  */
@@ -57,6 +60,9 @@ public class RptManager extends AbstractRPTManager {
     @Inject
     private StaticConfiguration staticConfiguration;
 
+    @Inject
+    private CacheService cacheService;
+
     public static String getDn(String clientDn, String uniqueIdentifier) {
         return String.format("uniqueIdentifier=%s,%s", uniqueIdentifier, branchDn(clientDn));
     }
@@ -80,6 +86,19 @@ public class RptManager extends AbstractRPTManager {
 
     @Override
     public UmaRPT getRPTByCode(String p_code) {
+        final CachedRpt cachedRpt = fromCache(p_code);
+        if (cachedRpt != null) {
+            return cachedRpt.getRpt();
+        }
+
+        final UmaRPT rpt = findRPTByCode(p_code);
+        if (rpt != null) {
+            putInCache(new CachedRpt(rpt, null));
+        }
+        return rpt;
+    }
+
+    private UmaRPT findRPTByCode(String p_code) {
         try {
             final Filter filter = Filter.create(String.format("&(oxAuthTokenCode=%s)", p_code));
             final String baseDn = staticConfiguration.getBaseDn().getClients();
@@ -96,7 +115,8 @@ public class RptManager extends AbstractRPTManager {
     @Override
     public void deleteRPT(String rptCode) {
         try {
-            final UmaRPT t = getRPTByCode(rptCode);
+            removeFromCache(rptCode);
+            final UmaRPT t = findRPTByCode(rptCode);
             if (t != null) {
                 ldapEntryManager.remove(t);
             }
@@ -106,7 +126,9 @@ public class RptManager extends AbstractRPTManager {
     }
 
     @Override
-    public void cleanupRPTs(final Date now) {
+    public int cleanupRPTs(final Date now, int batchSize) {
+        final AtomicInteger removed = new AtomicInteger();
+
         BatchOperation<UmaRPT> rptBatchService = new BatchOperation<UmaRPT>(ldapEntryManager) {
             @Override
             protected List<UmaRPT> getChunkOrNull(int chunkSize) {
@@ -118,6 +140,7 @@ public class RptManager extends AbstractRPTManager {
                 for (UmaRPT p : entries) {
                     try {
                         ldapEntryManager.remove(p);
+                        removed.incrementAndGet();
                     } catch (Exception e) {
                         log.error("Failed to remove entry", e);
                     }
@@ -133,7 +156,9 @@ public class RptManager extends AbstractRPTManager {
                 }
             }
         };
-        rptBatchService.iterateAllByChunks(CleanerTimer.BATCH_SIZE);
+        rptBatchService.iterateAllByChunks(batchSize);
+
+        return removed.get();
     }
 
     @Override
@@ -149,11 +174,29 @@ public class RptManager extends AbstractRPTManager {
             ldapEntryManager.merge(p_rpt);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
+        } finally {
+            removeFromCache(p_rpt.getCode());
         }
     }
 
     @Override
     public List<ResourceSetPermission> getRptPermissions(UmaRPT p_rpt) {
+        if (p_rpt == null) {
+            return new ArrayList<ResourceSetPermission>();
+        }
+
+        final CachedRpt cachedRpt = fromCache(p_rpt.getCode());
+        if (cachedRpt != null && cachedRpt.getPermissions() != null) {
+            return new ArrayList<ResourceSetPermission>(cachedRpt.getPermissions());
+        }
+
+        final List<ResourceSetPermission> result = findRptPermissions(p_rpt);
+        putInCache(new CachedRpt(cachedRpt != null ? cachedRpt.getRpt() : p_rpt, result));
+
+        return new ArrayList<ResourceSetPermission>(result);
+    }
+
+    private List<ResourceSetPermission> findRptPermissions(UmaRPT p_rpt) {
         final List<ResourceSetPermission> result = new ArrayList<ResourceSetPermission>();
         try {
             if (p_rpt != null && p_rpt.getPermissions() != null) {
@@ -186,10 +229,8 @@ public class RptManager extends AbstractRPTManager {
     public ResourceSetPermission getPermissionFromRPTByResourceSetId(UmaRPT p_rpt, String p_resourceSetId) {
         try {
             if (p_rpt != null && p_rpt.getPermissions() != null && Util.allNotBlank(p_resourceSetId)) {
-                final List<String> permissionDns = p_rpt.getPermissions();
-                for (String permissionDn : permissionDns) {
-                    final ResourceSetPermission permissionObject = ldapEntryManager.find(ResourceSetPermission.class, permissionDn);
-                    if (permissionObject != null && p_resourceSetId.equals(permissionObject.getResourceSetId())) {
+                for (ResourceSetPermission permissionObject : getRptPermissions(p_rpt)) {
+                    if (p_resourceSetId.equals(permissionObject.getResourceSetId())) {
                         return permissionObject;
                     }
                 }
@@ -217,4 +258,40 @@ public class RptManager extends AbstractRPTManager {
         return ldapEntryManager.contains(SimpleBranch.class, branchDn(clientDn));
     }
 
+    private CachedRpt fromCache(String rptCode) {
+        try {
+            return (CachedRpt) cacheService.get(null, CachedRpt.cacheKey(rptCode));
+        } catch (Exception e) {
+            log.error("Failed to fetch RPT from cache", e);
+            return null;
+        }
+    }
+
+    private void putInCache(CachedRpt cachedRpt) {
+        final UmaRPT rpt = cachedRpt.getRpt();
+        if (rpt.getExpirationDate() == null) {
+            return;
+        }
+
+        // Entry must not outlive RPT
+        final long expiresIn = (rpt.getExpirationDate().getTime() - System.currentTimeMillis()) / 1000;
+        if (expiresIn <= 0) {
+            return;
+        }
+
+        try {
+            cacheService.put(Long.toString(expiresIn), CachedRpt.cacheKey(rpt.getCode()), cachedRpt);
+        } catch (Exception e) {
+            log.error("Failed to put RPT in cache", e);
+        }
+    }
+
+    private void removeFromCache(String rptCode) {
+        try {
+            cacheService.remove(null, CachedRpt.cacheKey(rptCode));
+        } catch (Exception e) {
+            log.error("Failed to remove RPT from cache", e);
+        }
+    }
+
 }
@@ -24,6 +24,8 @@ import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -71,9 +73,10 @@ public class AuthorizationService {
         } else {
             final UnmodifiableAuthorizationGrant unmodifiableAuthorizationGrant = new UnmodifiableAuthorizationGrant(grant);
             final AuthorizationContext context = new AuthorizationContext(attributeService, rpt, permission, unmodifiableAuthorizationGrant, httpRequest, claims);
+            final String decisionKey = getDecisionKey(grant, scopes);
             for (String authorizationPolicy : authorizationPolicies) {
                 // if at least one policy returns false then whole result is false
-                if (!applyPolicy(authorizationPolicy, context)) {
+                if (!applyPolicy(authorizationPolicy, context, decisionKey)) {
                     log.trace("Reject access. Policy dn: '{}'", authorizationPolicy);
                     return false;
                 }
@@ -97,13 +100,44 @@ public class AuthorizationService {
         return result;
     }
 
-    private boolean applyPolicy(String authorizationPolicyDn, AuthorizationContext authorizationContext) {
+    /**
+     * Key of policy decision: requesting party, client and scopes (policy inum is added by policy service).
+     */
+    private String getDecisionKey(AuthorizationGrant grant, List<ScopeDescription> scopes) {
+        List<String> scopeDns = new ArrayList<String>(scopes.size());
+        for (ScopeDescription scope : scopes) {
+            scopeDns.add(scope.getDn());
+        }
+        Collections.sort(scopeDns);
+
+        StringBuilder key = new StringBuilder();
+        key.append(grant.getUserId()).append('|').append(grant.getClientId());
+        for (String scopeDn : scopeDns) {
+            key.append('|').append(scopeDn);
+        }
+
+        return key.toString();
+    }
+
+    private boolean applyPolicy(String authorizationPolicyDn, AuthorizationContext authorizationContext, String decisionKey) {
         log.trace("Apply policy dn: '{}' ...", authorizationPolicyDn);
 
         final CustomScriptConfiguration customScriptConfiguration = externalUmaAuthorizationPolicyService.getAuthorizationPolicyByDn(authorizationPolicyDn);
         if (customScriptConfiguration != null) {
-            final boolean result = externalUmaAuthorizationPolicyService.executeExternalAuthorizeMethod(customScriptConfiguration, authorizationContext);
-            log.trace("Policy '{}' result: {}", authorizationPolicyDn, result);
+            final Boolean cachedResult = externalUmaAuthorizationPolicyService.getCachedDecision(customScriptConfiguration, decisionKey);
+            if (cachedResult != null) {
+                log.trace("Policy '{}' cached result: {}", authorizationPolicyDn, cachedResult);
+                return cachedResult;
+            }
+
+            final Boolean scriptResult = externalUmaAuthorizationPolicyService.executeExternalAuthorizeMethod(customScriptConfiguration, authorizationContext);
+            log.trace("Policy '{}' result: {}", authorizationPolicyDn, scriptResult);
+            if (scriptResult == null) {
+                // Script failed, access is rejected but decision is not cached
+                return false;
+            }
+
+            final boolean result = scriptResult;
 
             // if false check whether "need_info" objects are set, if yes then throw WebApplicationException directly here
             if (!result) {
@@ -114,6 +148,8 @@ public class AuthorizationService {
                 }
 
             }
+
+            externalUmaAuthorizationPolicyService.putDecision(customScriptConfiguration, decisionKey, result);
             return result;
         } else {
             log.error("Unable to load custom script dn: '{}'", authorizationPolicyDn);
@@ -186,17 +186,8 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
         }
 
         for (Client client : clientsByDns) {
-            String[] logoutUris = client.getFrontChannelLogoutUri();
-
-            if (logoutUris == null) {
-                continue;
-            }
-
-            for (String logoutUri : logoutUris) {
-                if (Util.isNullOrEmpty(logoutUri)) {
-                    continue; // skip client if logout_uri is blank
-                }
-
+            // Blank logout URIs are skipped by matcher
+            for (String logoutUri : client.getFrontChannelLogoutUriMatcher().getUris()) {
                 if (client.getFrontChannelLogoutSessionRequired() != null && client.getFrontChannelLogoutSessionRequired()) {
                     if (logoutUri.contains("?")) {
                         logoutUri = logoutUri + "&sid=" + sessionState.getId();
@@ -11,7 +11,6 @@ import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
-import org.xdi.model.GluuAttribute;
 import org.xdi.oxauth.audit.ApplicationAuditLogger;
 import org.xdi.oxauth.model.audit.Action;
 import org.xdi.oxauth.model.audit.OAuth2AuditLog;
@@ -37,9 +36,9 @@ import org.xdi.oxauth.model.jwt.JwtSubClaimObject;
 import org.xdi.oxauth.model.jwt.JwtType;
 import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
 import org.xdi.oxauth.model.token.JsonWebResponse;
+import org.xdi.oxauth.model.userinfo.ClaimPlan;
 import org.xdi.oxauth.model.userinfo.UserInfoErrorResponseType;
 import org.xdi.oxauth.model.userinfo.UserInfoParamsValidator;
-import org.xdi.oxauth.model.util.JwtUtil;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.*;
 import org.xdi.oxauth.service.external.ExternalDynamicScopeService;
@@ -84,10 +83,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
     private ClientService clientService;
 
     @Inject
-    private ScopeService scopeService;
-
-    @Inject
-    private AttributeService attributeService;
+    private ClaimPlanService claimPlanService;
 
     @Inject
     private UserService userService;
@@ -104,6 +100,9 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
     @Inject
     private WebKeysConfiguration webKeysConfiguration;
 
+    @Inject
+    private JwksResolver jwksResolver;
+
     @Override
     public Response requestUserInfoGet(String accessToken, String authorization, HttpServletRequest request, SecurityContext securityContext) {
         return requestUserInfo(accessToken, authorization, request, securityContext);
@@ -151,9 +150,11 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                     builder.cacheControl(cacheControl);
                     builder.header("Pragma", "no-cache");
 
+                    ClaimPlan claimPlan = claimPlanService.getClaimPlan(authorizationGrant.getScopes(), getRequestedClaims(authorizationGrant));
+
                     User currentUser = authorizationGrant.getUser();
                     try {
-                        currentUser = userService.getUserByDn(authorizationGrant.getUserDn());
+                        currentUser = userService.getUserByDn(authorizationGrant.getUserDn(), claimPlan.getReturnAttributes());
                     } catch (EntryPersistenceException ex) {
                         log.warn("Failed to reload user entry: '{}'", authorizationGrant.getUserDn());
                     }
@@ -169,7 +170,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                                 blockEncryptionAlgorithm,
                                 currentUser,
                                 authorizationGrant,
-                                authorizationGrant.getScopes()));
+                                claimPlan));
                     } else if (authorizationGrant.getClient() != null
                             && authorizationGrant.getClient().getUserInfoSignedResponseAlg() != null) {
                         SignatureAlgorithm algorithm = SignatureAlgorithm.fromString(authorizationGrant.getClient().getUserInfoSignedResponseAlg());
@@ -177,12 +178,12 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                         builder.entity(getJwtResponse(algorithm,
                                 currentUser,
                                 authorizationGrant,
-                                authorizationGrant.getScopes()));
+                                claimPlan));
                     } else {
                         builder.type((MediaType.APPLICATION_JSON + ";charset=UTF-8"));
                         builder.entity(getJSonResponse(currentUser,
                                 authorizationGrant,
-                                authorizationGrant.getScopes()));
+                                claimPlan));
                     }
                 }
             }
@@ -208,7 +209,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
     }
 
     public String getJwtResponse(SignatureAlgorithm signatureAlgorithm, User user, AuthorizationGrant authorizationGrant,
-                                 Collection<String> scopes) throws Exception {
+                                 ClaimPlan claimPlan) throws Exception {
         Jwt jwt = new Jwt();
         AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
 
@@ -222,60 +223,38 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         }
 
         // Claims
-        List<Scope> dynamicScopes = new ArrayList<Scope>();
-        for (String scopeName : scopes) {
-            Scope scope = scopeService.getScopeByDisplayName(scopeName);
-            if (org.xdi.oxauth.model.common.ScopeType.DYNAMIC == scope.getScopeType()) {
-                dynamicScopes.add(scope);
-                continue;
-            }
-
-            if (scope.getOxAuthClaims() != null) {
-                for (String claimDn : scope.getOxAuthClaims()) {
-                    GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
-                    String claimName = gluuAttribute.getOxAuthClaimName();
-                    String ldapName = gluuAttribute.getName();
-                    String attributeValue = null;
-
-                    if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                        if (ldapName.equals("uid")) {
-                            attributeValue = user.getUserId();
-                        } else {
-                            attributeValue = user.getAttribute(gluuAttribute.getName());
-                        }
-
-                        jwt.getClaims().setClaim(claimName, attributeValue);
-                    }
+        List<Scope> dynamicScopes = new ArrayList<Scope>(claimPlan.getDynamicScopes());
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopeClaims()) {
+            for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+                String attributeValue;
+                if (claimMapping.isUserId()) {
+                    attributeValue = user.getUserId();
+                } else {
+                    attributeValue = user.getAttribute(claimMapping.getLdapName());
                 }
+
+                jwt.getClaims().setClaim(claimMapping.getClaimName(), attributeValue);
             }
         }
 
-        if (authorizationGrant.getJwtAuthorizationRequest() != null
-                && authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember() != null) {
-            for (Claim claim : authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember().getClaims()) {
-                boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
-                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
-
-                if (gluuAttribute != null) {
-                    String ldapClaimName = gluuAttribute.getName();
-                    Object attribute = user.getAttribute(ldapClaimName, optional);
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            jwt.getClaims().setClaim(claim.getName(), values);
-                        } else {
-                            String value = (String) attribute;
-                            jwt.getClaims().setClaim(claim.getName(), value);
+        for (ClaimPlan.ClaimMapping claimMapping : claimPlan.getRequestedClaims()) {
+            boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
+
+            Object attribute = user.getAttribute(claimMapping.getLdapName(), optional);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    jwt.getClaims().setClaim(claimMapping.getClaimName(), values);
+                } else {
+                    String value = (String) attribute;
+                    jwt.getClaims().setClaim(claimMapping.getClaimName(), value);
                 }
             }
         }
@@ -327,7 +306,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
 
     public String getJweResponse(
             KeyEncryptionAlgorithm keyEncryptionAlgorithm, BlockEncryptionAlgorithm blockEncryptionAlgorithm,
-            User user, AuthorizationGrant authorizationGrant, Collection<String> scopes) throws Exception {
+            User user, AuthorizationGrant authorizationGrant, ClaimPlan claimPlan) throws Exception {
         Jwe jwe = new Jwe();
 
         // Header
@@ -336,60 +315,37 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         jwe.getHeader().setEncryptionMethod(blockEncryptionAlgorithm);
 
         // Claims
-        List<Scope> dynamicScopes = new ArrayList<Scope>();
-        for (String scopeName : scopes) {
-            Scope scope = scopeService.getScopeByDisplayName(scopeName);
-            if (org.xdi.oxauth.model.common.ScopeType.DYNAMIC == scope.getScopeType()) {
-                dynamicScopes.add(scope);
-                continue;
-            }
-
-            if (scope.getOxAuthClaims() != null) {
-                for (String claimDn : scope.getOxAuthClaims()) {
-                    GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
-                    String claimName = gluuAttribute.getOxAuthClaimName();
-                    String ldapName = gluuAttribute.getName();
-                    String attributeValue = null;
-
-                    if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                        if (ldapName.equals("uid")) {
-                            attributeValue = user.getUserId();
-                        } else {
-                            attributeValue = user.getAttribute(gluuAttribute.getName());
-                        }
-
-                        jwe.getClaims().setClaim(claimName, attributeValue);
-                    }
+        List<Scope> dynamicScopes = new ArrayList<Scope>(claimPlan.getDynamicScopes());
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopeClaims()) {
+            for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+                String attributeValue;
+                if (claimMapping.isUserId()) {
+                    attributeValue = user.getUserId();
+                } else {
+                    attributeValue = user.getAttribute(claimMapping.getLdapName());
                 }
+
+                jwe.getClaims().setClaim(claimMapping.getClaimName(), attributeValue);
             }
         }
-        if (authorizationGrant.getJwtAuthorizationRequest() != null
-                && authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember() != null) {
-            for (Claim claim : authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember().getClaims()) {
-                boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
-                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
-
-                if (gluuAttribute != null) {
-                    String ldapClaimName = gluuAttribute.getName();
-
-                    Object attribute = user.getAttribute(ldapClaimName, optional);
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            jwe.getClaims().setClaim(claim.getName(), values);
-                        } else {
-                            String value = (String) attribute;
-                            jwe.getClaims().setClaim(claim.getName(), value);
+        for (ClaimPlan.ClaimMapping claimMapping : claimPlan.getRequestedClaims()) {
+            boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
+
+            Object attribute = user.getAttribute(claimMapping.getLdapName(), optional);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    jwe.getClaims().setClaim(claimMapping.getClaimName(), values);
+                } else {
+                    String value = (String) attribute;
+                    jwe.getClaims().setClaim(claimMapping.getClaimName(), value);
                 }
             }
         }
@@ -430,10 +386,11 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         // Encryption
         if (keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA_OAEP
                 || keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA1_5) {
-            JSONObject jsonWebKeys = JwtUtil.getJSONWebKeys(authorizationGrant.getClient().getJwksUri());
+            String jwksUri = authorizationGrant.getClient().getJwksUri();
+            JSONObject jsonWebKeys = jwksResolver.getJwks(jwksUri);
             AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
             String keyId = cryptoProvider.getKeyId(JSONWebKeySet.fromJSONObject(jsonWebKeys), SignatureAlgorithm.RS256);
-            PublicKey publicKey = cryptoProvider.getPublicKey(keyId, jsonWebKeys);
+            PublicKey publicKey = jwksResolver.getPublicKey(jwksUri, keyId);
 
             if (publicKey != null) {
                 JweEncrypter jweEncrypter = new JweEncrypterImpl(keyEncryptionAlgorithm, blockEncryptionAlgorithm, publicKey);
@@ -462,24 +419,18 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
     /**
      * Builds a JSon String with the response parameters.
      */
-    public String getJSonResponse(User user, AuthorizationGrant authorizationGrant, Collection<String> scopes)
+    public String getJSonResponse(User user, AuthorizationGrant authorizationGrant, ClaimPlan claimPlan)
             throws Exception {
         JsonWebResponse jsonWebResponse = new JsonWebResponse();
 
         // Claims
-        List<Scope> dynamicScopes = new ArrayList<Scope>();
-        for (String scopeName : scopes) {
-            org.xdi.oxauth.model.common.Scope scope = scopeService.getScopeByDisplayName(scopeName);
-            if ((scope != null) && (org.xdi.oxauth.model.common.ScopeType.DYNAMIC == scope.getScopeType())) {
-                dynamicScopes.add(scope);
-                continue;
-            }
-
-            Map<String, Object> claims = getClaims(user, scope);
+        List<Scope> dynamicScopes = new ArrayList<Scope>(claimPlan.getDynamicScopes());
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopeClaims()) {
+            Map<String, Object> claims = getClaims(user, scopeClaims);
 
-            if (scope.getIsOxAuthGroupClaims()) {
+            if (scopeClaims.isGroupClaims()) {
                 JwtSubClaimObject groupClaim = new JwtSubClaimObject();
-                groupClaim.setName(scope.getDisplayName());
+                groupClaim.setName(scopeClaims.getScopeName());
                 for (Map.Entry<String, Object> entry : claims.entrySet()) {
                     String key = entry.getKey();
                     Object value = entry.getValue();
@@ -491,7 +442,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                     }
                 }
 
-                jsonWebResponse.getClaims().setClaim(scope.getDisplayName(), groupClaim);
+                jsonWebResponse.getClaims().setClaim(scopeClaims.getScopeName(), groupClaim);
             } else {
                 for (Map.Entry<String, Object> entry : claims.entrySet()) {
                     String key = entry.getKey();
@@ -508,32 +459,24 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
             jsonWebResponse.getClaims().setSubjectIdentifier(authorizationGrant.getUser().getAttribute("inum"));
         }
 
-        if (authorizationGrant.getJwtAuthorizationRequest() != null
-                && authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember() != null) {
-            for (Claim claim : authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember().getClaims()) {
-                boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
-                GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
-
-                if (gluuAttribute != null) {
-                    String ldapClaimName = gluuAttribute.getName();
-
-                    Object attribute = user.getAttribute(ldapClaimName, optional);
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            jsonWebResponse.getClaims().setClaim(claim.getName(), values);
-                        } else {
-                            String value = (String) attribute;
-                            jsonWebResponse.getClaims().setClaim(claim.getName(), value);
+        for (ClaimPlan.ClaimMapping claimMapping : claimPlan.getRequestedClaims()) {
+            boolean optional = true; // ClaimValueType.OPTIONAL.equals(claim.getClaimValue().getClaimValueType());
+
+            Object attribute = user.getAttribute(claimMapping.getLdapName(), optional);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    jsonWebResponse.getClaims().setClaim(claimMapping.getClaimName(), values);
+                } else {
+                    String value = (String) attribute;
+                    jsonWebResponse.getClaims().setClaim(claimMapping.getClaimName(), value);
                 }
             }
         }
@@ -574,39 +517,39 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         return jsonWebResponse.toString();
     }
 
-    public Map<String, Object> getClaims(User user, Scope scope) throws InvalidClaimException {
-        Map<String, Object> claims = new HashMap<String, Object>();
+    private List<Claim> getRequestedClaims(AuthorizationGrant authorizationGrant) {
+        if (authorizationGrant.getJwtAuthorizationRequest() != null
+                && authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember() != null) {
+            return authorizationGrant.getJwtAuthorizationRequest().getUserInfoMember().getClaims();
+        }
 
-        if (scope != null && scope.getOxAuthClaims() != null) {
-            for (String claimDn : scope.getOxAuthClaims()) {
-                GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
+        return null;
+    }
 
-                String claimName = gluuAttribute.getOxAuthClaimName();
-                String ldapName = gluuAttribute.getName();
-                Object attribute = null;
+    public Map<String, Object> getClaims(User user, ClaimPlan.ScopeClaims scopeClaims) throws InvalidClaimException {
+        Map<String, Object> claims = new HashMap<String, Object>();
 
-                if (StringUtils.isNotBlank(claimName) && StringUtils.isNotBlank(ldapName)) {
-                    if (ldapName.equals("uid")) {
-                        attribute = user.getUserId();
-                    } else {
-                        attribute = user.getAttribute(gluuAttribute.getName(), true);
-                    }
+        for (ClaimPlan.ClaimMapping claimMapping : scopeClaims.getClaims()) {
+            Object attribute;
+            if (claimMapping.isUserId()) {
+                attribute = user.getUserId();
+            } else {
+                attribute = user.getAttribute(claimMapping.getLdapName(), true);
+            }
 
-                    if (attribute != null) {
-                        if (attribute instanceof JSONArray) {
-                            JSONArray jsonArray = (JSONArray) attribute;
-                            List<String> values = new ArrayList<String>();
-                            for (int i = 0; i < jsonArray.length(); i++) {
-                                String value = jsonArray.optString(i);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-                            claims.put(claimName, values);
-                        } else {
-                            claims.put(claimName, attribute);
+            if (attribute != null) {
+                if (attribute instanceof JSONArray) {
+                    JSONArray jsonArray = (JSONArray) attribute;
+                    List<String> values = new ArrayList<String>();
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
                         }
                     }
+                    claims.put(claimMapping.getClaimName(), values);
+                } else {
+                    claims.put(claimMapping.getClaimName(), attribute);
                 }
             }
         }
@@ -44,9 +44,11 @@ import java.net.URLDecoder;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -158,6 +160,18 @@ public class ServerUtil {
         });
     }
 
+    public static ExecutorService createFixedExecutor(int p_threads, final String p_threadNamePrefix) {
+        return Executors.newFixedThreadPool(p_threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            public Thread newThread(Runnable p_r) {
+                Thread thread = new Thread(p_r, p_threadNamePrefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     public static UmaPermission convert(ResourceSetPermission p_permission, ScopeService p_umaScopeService) {
         if (p_permission != null) {
             final UmaPermission result = new UmaPermission();
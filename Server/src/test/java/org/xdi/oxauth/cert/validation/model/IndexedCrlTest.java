@@ -0,0 +1,112 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509CRL;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * @version October 18, 2026
+ */
+public class IndexedCrlTest {
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	private KeyPair issuerKeyPair;
+
+	@BeforeClass
+	public void init() throws Exception {
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		keyPairGenerator.initialize(2048);
+		issuerKeyPair = keyPairGenerator.generateKeyPair();
+	}
+
+	@Test
+	public void emptyCrl() throws Exception {
+		X509CRL crl = createCrl(new LinkedHashMap<BigInteger, Date>());
+		IndexedCrl indexedCrl = IndexedCrl.index(crl, issuerKeyPair.getPublic());
+
+		assertEquals(indexedCrl.getRevokedCount(), 0);
+		assertNull(indexedCrl.getRevocationDate(BigInteger.ONE));
+		assertEquals(indexedCrl.getIssuer(), crl.getIssuerX500Principal());
+		assertEquals(indexedCrl.getIssuerKey(), issuerKeyPair.getPublic());
+		assertEquals(indexedCrl.getThisUpdate(), crl.getThisUpdate());
+		assertEquals(indexedCrl.getNextUpdate(), crl.getNextUpdate());
+	}
+
+	@Test
+	public void revokedSerialsAreFound() throws Exception {
+		// Serials of different lengths in unsorted order, 128 and 255 need extra sign byte
+		Map<BigInteger, Date> revoked = new LinkedHashMap<BigInteger, Date>();
+		revoked.put(new BigInteger("65536"), revocationDate(1));
+		revoked.put(BigInteger.ONE, revocationDate(2));
+		revoked.put(new BigInteger("255"), revocationDate(3));
+		revoked.put(new BigInteger("127"), revocationDate(4));
+		revoked.put(new BigInteger("128"), revocationDate(5));
+		revoked.put(new BigInteger("123456789012345678901234567890"), revocationDate(6));
+		revoked.put(new BigInteger("256"), revocationDate(7));
+
+		IndexedCrl indexedCrl = IndexedCrl.index(createCrl(revoked), issuerKeyPair.getPublic());
+
+		assertEquals(indexedCrl.getRevokedCount(), revoked.size());
+		for (Map.Entry<BigInteger, Date> entry : revoked.entrySet()) {
+			assertEquals(indexedCrl.getRevocationDate(entry.getKey()), entry.getValue(), "Serial: " + entry.getKey());
+		}
+	}
+
+	@Test
+	public void notRevokedSerialsAreNotFound() throws Exception {
+		Map<BigInteger, Date> revoked = new LinkedHashMap<BigInteger, Date>();
+		revoked.put(new BigInteger("10"), revocationDate(1));
+		revoked.put(new BigInteger("300"), revocationDate(2));
+		revoked.put(new BigInteger("70000"), revocationDate(3));
+
+		IndexedCrl indexedCrl = IndexedCrl.index(createCrl(revoked), issuerKeyPair.getPublic());
+
+		assertNull(indexedCrl.getRevocationDate(BigInteger.ZERO));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("9")));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("11")));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("299")));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("69999")));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("70001")));
+		assertNull(indexedCrl.getRevocationDate(new BigInteger("123456789012345678901234567890")));
+	}
+
+	private Date revocationDate(int daysAgo) {
+		// CRL keeps dates with seconds precision
+		long now = System.currentTimeMillis() / 1000 * 1000;
+		return new Date(now - daysAgo * DAY);
+	}
+
+	private X509CRL createCrl(Map<BigInteger, Date> revoked) throws Exception {
+		Date now = new Date();
+		X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), now);
+		builder.setNextUpdate(new Date(now.getTime() + DAY));
+		for (Map.Entry<BigInteger, Date> entry : revoked.entrySet()) {
+			builder.addCRLEntry(entry.getKey(), entry.getValue(), CRLReason.keyCompromise);
+		}
+
+		return new JcaX509CRLConverter().getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(issuerKeyPair.getPrivate())));
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.model.common.AuthorizationCodeGrant;
+import org.xdi.oxauth.model.common.AuthorizationGrantList;
+import org.xdi.oxauth.model.common.MemcachedGrant;
+import org.xdi.oxauth.model.common.User;
+import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.UserService;
+import org.xdi.service.CacheService;
+
+/**
+ * Authorization code grants are read from cache both as compact records and as full grants put in cache before
+ * upgrade.
+ *
+ * @version October 18, 2026
+ */
+public class CachedCodeGrantTest extends BaseComponentTest {
+
+	private static final int LIFETIME = 60; // 1 minute
+
+	@Inject
+	private AuthorizationGrantList authorizationGrantList;
+
+	@Inject
+	private CacheService cacheService;
+
+	@Inject
+	private ClientService clientService;
+
+	@Inject
+	private UserService userService;
+
+	@Parameters({"clientId", "userInum"})
+	@Test
+	public void recordIsRead(String clientId, String userInum) {
+		final MemcachedGrant memcachedGrant = createGrant(clientId, userService.getDnForUser(userInum));
+
+		cacheService.put(Integer.toString(LIFETIME), memcachedGrant.cacheKey(), memcachedGrant.toBytes());
+		try {
+			assertGrant(authorizationGrantList.getAuthorizationCodeGrant(clientId, memcachedGrant.getAuthorizationCodeString()),
+					memcachedGrant, clientId);
+		} finally {
+			cacheService.remove(null, memcachedGrant.cacheKey());
+		}
+	}
+
+	@Parameters({"clientId", "userInum"})
+	@Test
+	public void legacyGrantIsRead(String clientId, String userInum) {
+		final User user = userService.getUserByDn(userService.getDnForUser(userInum));
+		final MemcachedGrant memcachedGrant = createGrant(null, null);
+		memcachedGrant.setUser(user);
+		memcachedGrant.setClient(clientService.getClient(clientId));
+
+		cacheService.put(Integer.toString(LIFETIME), memcachedGrant.cacheKey(), memcachedGrant);
+		try {
+			assertGrant(authorizationGrantList.getAuthorizationCodeGrant(clientId, memcachedGrant.getAuthorizationCodeString()),
+					memcachedGrant, clientId);
+		} finally {
+			cacheService.remove(null, memcachedGrant.cacheKey());
+		}
+	}
+
+	@Parameters({"clientId"})
+	@Test
+	public void corruptedRecordIsIgnored(String clientId) {
+		final String code = UUID.randomUUID().toString();
+		final String key = MemcachedGrant.cacheKey(clientId, code);
+
+		cacheService.put(Integer.toString(LIFETIME), key, new byte[] { MemcachedGrant.RECORD_VERSION, 0x7f, 0, 0, 0 });
+		try {
+			assertNull(authorizationGrantList.getAuthorizationCodeGrant(clientId, code));
+		} finally {
+			cacheService.remove(null, key);
+		}
+	}
+
+	private MemcachedGrant createGrant(String clientId, String userDn) {
+		final long now = System.currentTimeMillis();
+
+		final MemcachedGrant memcachedGrant = new MemcachedGrant();
+		memcachedGrant.setAuthorizationCodeString(UUID.randomUUID().toString());
+		memcachedGrant.setAuthorizationCodeCreationDate(new Date(now));
+		memcachedGrant.setAuthorizationCodeExpirationDate(new Date(now + LIFETIME * 1000L));
+		memcachedGrant.setClientId(clientId);
+		memcachedGrant.setUserDn(userDn);
+		memcachedGrant.setAuthenticationTime(new Date(now));
+		memcachedGrant.setScopes(new HashSet<String>(Arrays.asList("openid", "profile")));
+		memcachedGrant.setGrantId(UUID.randomUUID().toString());
+		memcachedGrant.setNonce("nonce");
+		memcachedGrant.setCodeChallenge("challenge");
+		memcachedGrant.setCodeChallengeMethod("S256");
+		memcachedGrant.setAcrValues("basic");
+		memcachedGrant.setSessionDn("oxAuthSessionId=" + UUID.randomUUID() + ",ou=session,o=gluu");
+		return memcachedGrant;
+	}
+
+	private void assertGrant(AuthorizationCodeGrant grant, MemcachedGrant expected, String clientId) {
+		assertNotNull(grant);
+		assertEquals(grant.getAuthorizationCode().getCode(), expected.getAuthorizationCodeString());
+		assertEquals(grant.getAuthorizationCode().getCreationDate(), expected.getAuthorizationCodeCreationDate());
+		assertEquals(grant.getAuthorizationCode().getExpirationDate(), expected.getAuthorizationCodeExpirationDate());
+		assertEquals(grant.getClient().getClientId(), clientId);
+		assertNotNull(grant.getUser());
+		assertEquals(grant.getScopes(), expected.getScopes());
+		assertEquals(grant.getGrantId(), expected.getGrantId());
+		assertEquals(grant.getNonce(), expected.getNonce());
+		assertEquals(grant.getCodeChallenge(), expected.getCodeChallenge());
+		assertEquals(grant.getCodeChallengeMethod(), expected.getCodeChallengeMethod());
+		assertEquals(grant.getAcrValues(), expected.getAcrValues());
+		assertEquals(grant.getSessionDn(), expected.getSessionDn());
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.service.JwksResolver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Concurrent requests with unknown kid must cause single refetch of JWKS.
+ *
+ * @version October 18, 2026
+ */
+public class JwksRefetchTest extends BaseComponentTest {
+
+	private static final int THREADS = 10;
+
+	@Inject
+	private JwksResolver jwksResolver;
+
+	private HttpServer server;
+	private String jwksUri;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@BeforeClass
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/jwks", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				// Client rotates its key after first request
+				String keyId = requests.incrementAndGet() == 1 ? "old" : "new";
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+
+				byte[] body = ("{\"keys\":[{\"kid\":\"" + keyId + "\",\"kty\":\"RSA\"}]}").getBytes("UTF-8");
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				try {
+					out.write(body);
+				} finally {
+					out.close();
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		jwksUri = "http://localhost:" + server.getAddress().getPort() + "/jwks";
+	}
+
+	@AfterClass
+	public void stopServer() {
+		jwksResolver.evict(jwksUri);
+		server.stop(0);
+	}
+
+	@Test
+	public void unknownKeyIdIsRefetchedOnce() throws Exception {
+		assertNotNull(jwksResolver.getJwks(jwksUri, "old"));
+		assertEquals(requests.get(), 1);
+
+		// Unknown kid doesn't cause refetch right after fetch
+		Thread.sleep(JwksResolver.REFETCH_INTERVAL + 1000);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<JSONObject>> futures = new ArrayList<Future<JSONObject>>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(new Callable<JSONObject>() {
+					@Override
+					public JSONObject call() {
+						return jwksResolver.getJwks(jwksUri, "new");
+					}
+				}));
+			}
+
+			for (Future<JSONObject> future : futures) {
+				JSONObject jwks = future.get();
+				assertNotNull(jwks);
+				assertTrue(jwks.toString().contains("\"new\""));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(requests.get(), 2);
+	}
+
+}
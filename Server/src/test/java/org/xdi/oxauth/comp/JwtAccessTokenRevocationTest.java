@@ -0,0 +1,151 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.testng.SkipException;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.model.common.AccessToken;
+import org.xdi.oxauth.model.common.AuthorizationCodeGrant;
+import org.xdi.oxauth.model.common.AuthorizationGrantList;
+import org.xdi.oxauth.model.common.User;
+import org.xdi.oxauth.model.config.WebKeysConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.ldap.TokenLdap;
+import org.xdi.oxauth.model.ldap.TokenType;
+import org.xdi.oxauth.model.token.JwtSigner;
+import org.xdi.oxauth.model.util.TokenHashUtil;
+import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.GrantService;
+import org.xdi.oxauth.service.UserService;
+import org.xdi.oxauth.service.token.JwtAccessTokenService;
+
+/**
+ * Authorization code reuse must revoke JWT access tokens issued for the code.
+ *
+ * @version October 18, 2026
+ */
+public class JwtAccessTokenRevocationTest extends BaseComponentTest {
+
+	private static final int LIFETIME = 300; // 5 minutes
+
+	@Inject
+	private GrantService grantService;
+
+	@Inject
+	private JwtAccessTokenService jwtAccessTokenService;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private WebKeysConfiguration webKeysConfiguration;
+
+	@Inject
+	private AuthorizationGrantList authorizationGrantList;
+
+	@Inject
+	private ClientService clientService;
+
+	@Inject
+	private UserService userService;
+
+	@Parameters(value = "clientId")
+	@Test
+	public void accessTokenIsRejectedAfterCodeReuse(String clientId) throws Exception {
+		if (!appConfiguration.getJwtAccessTokenRevocationEnabled()) {
+			throw new SkipException("JWT access token revocation is disabled");
+		}
+
+		final String code = UUID.randomUUID().toString();
+		final String grantId = GrantService.generateGrantId();
+		final String refreshTokenCode = UUID.randomUUID().toString();
+
+		// Refresh token issued together with JWT access token, it's stored in LDAP with authorization code
+		final TokenLdap refreshToken = createToken(clientId, grantId, refreshTokenCode, code);
+		grantService.persist(refreshToken);
+		try {
+			final String accessToken = createAccessToken(clientId, grantId);
+			assertNotNull(jwtAccessTokenService.validate(accessToken));
+
+			grantService.removeAllByAuthorizationCode(code);
+
+			assertNull(jwtAccessTokenService.validate(accessToken));
+			assertNull(grantService.getGrantsByCode(refreshTokenCode));
+		} finally {
+			grantService.removeSilently(refreshToken);
+		}
+	}
+
+	@Parameters({"clientId", "userInum"})
+	@Test
+	public void accessTokenWithoutRefreshTokenIsRejectedAfterCodeReuse(String clientId, String userInum) throws Exception {
+		if (!appConfiguration.getJwtAccessTokenRevocationEnabled()) {
+			throw new SkipException("JWT access token revocation is disabled");
+		}
+
+		final User user = userService.getUserByDn(userService.getDnForUser(userInum));
+		final AuthorizationCodeGrant grant = authorizationGrantList.createAuthorizationCodeGrant(user,
+				clientService.getClient(clientId), new Date());
+		final String code = grant.getAuthorizationCode().getCode();
+		try {
+			// Only JWT access token is issued, nothing is stored in LDAP for the code
+			final String accessToken = jwtAccessTokenService.createJwt(grant, new AccessToken(LIFETIME));
+			assertNotNull(jwtAccessTokenService.validate(accessToken));
+			assertTrue(grantService.getGrantsByAuthorizationCode(code).isEmpty());
+
+			grantService.removeAllByAuthorizationCode(code);
+
+			assertNull(jwtAccessTokenService.validate(accessToken));
+		} finally {
+			grantService.removeByCode(code, clientId);
+		}
+	}
+
+	private TokenLdap createToken(String clientId, String grantId, String tokenCode, String code) {
+		final String id = GrantService.generateGrantId();
+
+		final TokenLdap t = new TokenLdap();
+		t.setId(id);
+		t.setDn(grantService.buildDn(id, grantId, clientId));
+		t.setGrantId(grantId);
+		t.setClientId(clientId);
+		t.setTokenCode(tokenCode); // hashed by grant service
+		t.setTokenType(TokenType.REFRESH_TOKEN.getValue());
+		t.setAuthorizationCode(TokenHashUtil.getHashedToken(code));
+		t.setCreationDate(new Date());
+		t.setExpirationDate(new Date(System.currentTimeMillis() + LIFETIME * 1000L));
+		return t;
+	}
+
+	private String createAccessToken(String clientId, String grantId) throws Exception {
+		final JwtSigner jwtSigner = new JwtSigner(appConfiguration, webKeysConfiguration, SignatureAlgorithm.RS256, clientId);
+		final Jwt jwt = jwtSigner.newJwt();
+
+		jwt.getClaims().setJwtId(UUID.randomUUID().toString());
+		jwt.getClaims().setClaim(JwtAccessTokenService.TOKEN_TYPE, TokenType.ACCESS_TOKEN.getValue());
+		jwt.getClaims().setIssuedAt(new Date());
+		jwt.getClaims().setExpirationTime(new Date(System.currentTimeMillis() + LIFETIME * 1000L));
+		jwt.getClaims().setClaim(JwtAccessTokenService.CLIENT_ID, clientId);
+		jwt.getClaims().setClaim(JwtAccessTokenService.GRANT_ID, grantId);
+
+		return jwtSigner.sign().toString();
+	}
+
+}
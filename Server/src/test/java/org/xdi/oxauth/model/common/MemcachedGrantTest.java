@@ -0,0 +1,164 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.common;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.registration.Client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class MemcachedGrantTest {
+
+    @Test
+    public void allFieldsAreRestored() throws Exception {
+        MemcachedGrant grant = createGrant();
+
+        MemcachedGrant restored = MemcachedGrant.fromBytes(grant.toBytes());
+
+        assertEquals(restored.getAuthorizationCodeString(), "code");
+        assertEquals(restored.getAuthorizationCodeCreationDate(), new Date(1000L));
+        assertEquals(restored.getAuthorizationCodeExpirationDate(), new Date(2000L));
+        assertEquals(restored.getUserDn(), "inum=@!1111,ou=people,o=gluu");
+        assertEquals(restored.getClientId(), "@!1111!0008!0001");
+        assertEquals(restored.getAuthenticationTime(), new Date(500L));
+        assertEquals(restored.getScopes(), new HashSet<String>(Arrays.asList("openid", "profile", "émail")));
+        assertEquals(restored.getGrantId(), "grant");
+        assertEquals(restored.getNonce(), "nonce");
+        assertEquals(restored.getCodeChallenge(), "challenge");
+        assertEquals(restored.getCodeChallengeMethod(), "S256");
+        assertEquals(restored.getAcrValues(), "basic");
+        assertEquals(restored.getSessionDn(), "oxAuthSessionId=1,ou=session,o=gluu");
+
+        // User and client are loaded by caller
+        assertNull(restored.getUser());
+        assertNull(restored.getClient());
+    }
+
+    @Test
+    public void nullFieldsAreRestored() throws Exception {
+        MemcachedGrant restored = MemcachedGrant.fromBytes(new MemcachedGrant().toBytes());
+
+        assertNull(restored.getAuthorizationCodeString());
+        assertNull(restored.getAuthorizationCodeCreationDate());
+        assertNull(restored.getAuthorizationCodeExpirationDate());
+        assertNull(restored.getUserDn());
+        assertNull(restored.getClientId());
+        assertNull(restored.getAuthenticationTime());
+        assertNull(restored.getScopes());
+        assertNull(restored.getGrantId());
+        assertNull(restored.getNonce());
+        assertNull(restored.getCodeChallenge());
+        assertNull(restored.getCodeChallengeMethod());
+        assertNull(restored.getAcrValues());
+        assertNull(restored.getSessionDn());
+    }
+
+    @Test
+    public void emptyScopesAreRestored() throws Exception {
+        MemcachedGrant grant = new MemcachedGrant();
+        grant.setScopes(new HashSet<String>());
+
+        assertEquals(MemcachedGrant.fromBytes(grant.toBytes()).getScopes(), new HashSet<String>());
+    }
+
+    @Test
+    public void clientIdIsTakenFromClient() throws Exception {
+        Client client = new Client();
+        client.setClientId("@!1111!0008!0002");
+
+        MemcachedGrant grant = new MemcachedGrant();
+        grant.setClient(client);
+
+        assertEquals(MemcachedGrant.fromBytes(grant.toBytes()).getClientId(), "@!1111!0008!0002");
+    }
+
+    @Test
+    public void legacyEntryIsReadAsObject() {
+        // Grants put in cache before upgrade are serialized objects with user and client
+        Client client = new Client();
+        client.setClientId("@!1111!0008!0002");
+
+        MemcachedGrant grant = createGrant();
+        grant.setClientId(null);
+        grant.setClient(client);
+
+        MemcachedGrant restored = (MemcachedGrant) SerializationUtils.deserialize(SerializationUtils.serialize(grant));
+
+        assertEquals(restored.getAuthorizationCodeString(), "code");
+        assertEquals(restored.getClientId(), "@!1111!0008!0002");
+        assertEquals(restored.getGrantId(), "grant");
+        assertEquals(restored.cacheKey(), MemcachedGrant.cacheKey("@!1111!0008!0002", "code"));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void unsupportedVersionIsRejected() throws Exception {
+        byte[] record = createGrant().toBytes();
+        record[0] = MemcachedGrant.RECORD_VERSION + 1;
+
+        MemcachedGrant.fromBytes(record);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void truncatedRecordIsRejected() throws Exception {
+        byte[] record = createGrant().toBytes();
+
+        MemcachedGrant.fromBytes(Arrays.copyOf(record, record.length - 3));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void negativeStringLengthIsRejected() throws Exception {
+        MemcachedGrant.fromBytes(recordWithCodeLength(-2));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void tooLargeStringLengthIsRejected() throws Exception {
+        MemcachedGrant.fromBytes(recordWithCodeLength(Integer.MAX_VALUE));
+    }
+
+    private byte[] recordWithCodeLength(int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MemcachedGrant.RECORD_VERSION);
+        out.writeInt(length);
+        out.write(new byte[16]);
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private MemcachedGrant createGrant() {
+        MemcachedGrant grant = new MemcachedGrant();
+        grant.setAuthorizationCodeString("code");
+        grant.setAuthorizationCodeCreationDate(new Date(1000L));
+        grant.setAuthorizationCodeExpirationDate(new Date(2000L));
+        grant.setUserDn("inum=@!1111,ou=people,o=gluu");
+        grant.setClientId("@!1111!0008!0001");
+        grant.setAuthenticationTime(new Date(500L));
+        grant.setScopes(new HashSet<String>(Arrays.asList("openid", "profile", "émail")));
+        grant.setGrantId("grant");
+        grant.setNonce("nonce");
+        grant.setCodeChallenge("challenge");
+        grant.setCodeChallengeMethod("S256");
+        grant.setAcrValues("basic");
+        grant.setSessionDn("oxAuthSessionId=1,ou=session,o=gluu");
+
+        return grant;
+    }
+
+}
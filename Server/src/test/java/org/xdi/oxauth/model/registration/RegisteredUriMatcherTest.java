@@ -0,0 +1,99 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.registration;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class RegisteredUriMatcherTest {
+
+    private static final String[] REGISTERED = new String[]{
+            "https://client.example.com/cb",
+            "https://client.example.com/cb1?a=1&b=2",
+            "",
+            "https://client.example.com/cb2"
+    };
+
+    @Test
+    public void emptyMatcherMatchesNothing() {
+        assertSame(RegisteredUriMatcher.of((String[]) null), RegisteredUriMatcher.EMPTY);
+        assertSame(RegisteredUriMatcher.of(new String[0]), RegisteredUriMatcher.EMPTY);
+        assertSame(RegisteredUriMatcher.of(Collections.<String>emptyList()), RegisteredUriMatcher.EMPTY);
+
+        assertTrue(RegisteredUriMatcher.EMPTY.isEmpty());
+        assertFalse(RegisteredUriMatcher.EMPTY.matches("https://client.example.com/cb"));
+        assertNull(RegisteredUriMatcher.EMPTY.getSingleUri());
+    }
+
+    @Test
+    public void blankUrisAreSkipped() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(REGISTERED);
+
+        assertFalse(matcher.isEmpty());
+        assertEquals(matcher.getUris(), Arrays.asList("https://client.example.com/cb",
+                "https://client.example.com/cb1?a=1&b=2", "https://client.example.com/cb2"));
+        assertNull(matcher.getSingleUri());
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    public void singleUri() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(new String[]{"", "https://client.example.com/cb"});
+
+        assertEquals(matcher.getSingleUri(), "https://client.example.com/cb");
+    }
+
+    @Test
+    public void exactUriMatches() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(REGISTERED);
+
+        assertTrue(matcher.matches("https://client.example.com/cb"));
+        assertTrue(matcher.matches("https://client.example.com/cb2"));
+        assertTrue(matcher.matchesExactly("https://client.example.com/cb1?a=1&b=2"));
+        assertFalse(matcher.matchesExactly("https://client.example.com/cb1?b=2&a=1"));
+        assertFalse(matcher.matchesExactly(null));
+    }
+
+    @Test
+    public void paramsMatchInAnyOrder() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(REGISTERED);
+
+        assertTrue(matcher.matches("https://client.example.com/cb1?a=1&b=2"));
+        assertTrue(matcher.matches("https://client.example.com/cb1?b=2&a=1"));
+    }
+
+    @Test
+    public void differentParamsDontMatch() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(REGISTERED);
+
+        assertFalse(matcher.matches("https://client.example.com/cb1?a=1"));
+        assertFalse(matcher.matches("https://client.example.com/cb1?a=1&b=3"));
+        assertFalse(matcher.matches("https://client.example.com/cb1?a=1&b=2&c=3"));
+        assertFalse(matcher.matches("https://client.example.com/cb1"));
+        assertFalse(matcher.matches("https://client.example.com/cb?a=1"));
+    }
+
+    @Test
+    public void differentBaseDoesntMatch() {
+        RegisteredUriMatcher matcher = RegisteredUriMatcher.of(REGISTERED);
+
+        assertFalse(matcher.matches("https://client.example.com/cb3"));
+        assertFalse(matcher.matches("https://client.example.com/cb/"));
+        assertFalse(matcher.matches("http://client.example.com/cb"));
+        assertFalse(matcher.matches("https://client.example.com/cb1/x?a=1&b=2"));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.userinfo;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.Scope;
+import org.xdi.oxauth.model.userinfo.ClaimPlan.ClaimMapping;
+import org.xdi.oxauth.model.userinfo.ClaimPlan.ScopeClaims;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class ClaimPlanTest {
+
+    @Test
+    public void planKeepsScopeClaimsAndRequestedClaims() {
+        ClaimMapping name = new ClaimMapping("name", "displayName");
+        ClaimMapping email = new ClaimMapping("email", "mail");
+        ScopeClaims profile = new ScopeClaims("profile", false, Arrays.asList(name));
+
+        ClaimPlan claimPlan = new ClaimPlan(Arrays.asList(profile), Collections.<Scope>emptyList(),
+                Arrays.asList(email), new String[]{"inum", "uid", "displayName", "mail"});
+
+        assertEquals(claimPlan.getScopeClaims().size(), 1);
+        assertEquals(claimPlan.getScopeClaims().get(0).getScopeName(), "profile");
+        assertFalse(claimPlan.getScopeClaims().get(0).isGroupClaims());
+        assertEquals(claimPlan.getScopeClaims().get(0).getClaims().get(0).getClaimName(), "name");
+        assertEquals(claimPlan.getScopeClaims().get(0).getClaims().get(0).getLdapName(), "displayName");
+        assertEquals(claimPlan.getRequestedClaims().get(0).getClaimName(), "email");
+        assertTrue(claimPlan.getDynamicScopes().isEmpty());
+        assertEquals(claimPlan.getReturnAttributes(), new String[]{"inum", "uid", "displayName", "mail"});
+    }
+
+    @Test
+    public void planIsNotChangedByCallers() {
+        List<ScopeClaims> scopeClaims = new ArrayList<ScopeClaims>();
+        String[] returnAttributes = new String[]{"inum", "uid"};
+        ClaimPlan claimPlan = new ClaimPlan(scopeClaims, new ArrayList<Scope>(), new ArrayList<ClaimMapping>(), returnAttributes);
+
+        claimPlan.getReturnAttributes()[0] = "userPassword";
+        assertEquals(claimPlan.getReturnAttributes(), new String[]{"inum", "uid"});
+
+        try {
+            claimPlan.getScopeClaims().add(new ScopeClaims("openid", false, new ArrayList<ClaimMapping>()));
+            fail("Scope claims must be unmodifiable");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+
+        try {
+            claimPlan.getRequestedClaims().add(new ClaimMapping("email", "mail"));
+            fail("Requested claims must be unmodifiable");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void allAttributesAreLoadedForDynamicScopes() {
+        ClaimPlan claimPlan = new ClaimPlan(new ArrayList<ScopeClaims>(), Arrays.asList(new Scope()),
+                new ArrayList<ClaimMapping>(), null);
+
+        assertNull(claimPlan.getReturnAttributes());
+        assertEquals(claimPlan.getDynamicScopes().size(), 1);
+    }
+
+    @Test
+    public void userIdClaimIsMappedToUid() {
+        assertTrue(new ClaimMapping("user_name", "uid").isUserId());
+        assertFalse(new ClaimMapping("email", "mail").isUserId());
+        assertFalse(new ClaimMapping("uid", null).isUserId());
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.User;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class ExternalLdapUserLocatorTest {
+
+    private static final long TIMEOUT = 2000;
+
+    private ExecutorService fastBackend;
+    private ExecutorService slowBackend;
+    private CountDownLatch hung;
+
+    @BeforeMethod
+    public void setUp() {
+        fastBackend = Executors.newSingleThreadExecutor();
+        slowBackend = Executors.newSingleThreadExecutor();
+        hung = new CountDownLatch(1);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        hung.countDown();
+        fastBackend.shutdownNow();
+        slowBackend.shutdownNow();
+    }
+
+    @Test
+    public void searchContinuesAfterFailedBind() {
+        ExternalLdapUserLocator.Result bound = result("inum=@!2222,ou=people,o=gluu");
+
+        ExternalLdapUserLocator.Search search = newSearch(TIMEOUT);
+        search.submit(fastBackend, answer(null, 0));
+        search.submit(slowBackend, answer(bound, 200));
+        try {
+            assertSame(search.next(), bound);
+            assertNull(search.next());
+            assertFalse(search.isTimedOut());
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void allBoundResultsAreReturnedInOrderOfCompletion() {
+        ExternalLdapUserLocator.Result first = result("inum=@!1111,ou=people,o=gluu");
+        ExternalLdapUserLocator.Result second = result("inum=@!2222,ou=people,o=gluu");
+
+        ExternalLdapUserLocator.Search search = newSearch(TIMEOUT);
+        search.submit(slowBackend, answer(second, 300));
+        search.submit(fastBackend, answer(first, 0));
+        try {
+            assertSame(search.next(), first);
+            assertSame(search.next(), second);
+            assertNull(search.next());
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void failedLookupIsSkipped() {
+        ExternalLdapUserLocator.Result bound = result("inum=@!2222,ou=people,o=gluu");
+
+        ExternalLdapUserLocator.Search search = newSearch(TIMEOUT);
+        search.submit(fastBackend, new Callable<ExternalLdapUserLocator.Result>() {
+            @Override
+            public ExternalLdapUserLocator.Result call() {
+                throw new IllegalStateException("Backend is down");
+            }
+        });
+        search.submit(slowBackend, answer(bound, 100));
+        try {
+            assertSame(search.next(), bound);
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void hungBackendIsSkippedAfterTimeout() {
+        ExternalLdapUserLocator.Search search = newSearch(300);
+        search.submit(fastBackend, answer(null, 0));
+        search.submit(slowBackend, hang());
+        try {
+            long started = System.currentTimeMillis();
+            assertNull(search.next());
+            assertTrue(search.isTimedOut());
+            assertTrue(System.currentTimeMillis() - started < TIMEOUT);
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void emptySearch() {
+        ExternalLdapUserLocator.Search search = newSearch(TIMEOUT);
+
+        assertNull(search.next());
+        assertFalse(search.isTimedOut());
+        search.close();
+    }
+
+    @Test
+    public void lookupIsNotStartedOnStoppedBackend() {
+        slowBackend.shutdownNow();
+
+        ExternalLdapUserLocator.Search search = newSearch(TIMEOUT);
+        search.submit(slowBackend, answer(result("inum=@!1111,ou=people,o=gluu"), 0));
+
+        assertNull(search.next());
+        assertFalse(search.isTimedOut());
+    }
+
+    @Test
+    public void primaryKeysDefaultToUid() {
+        assertEquals(ExternalLdapUserLocator.getPrimaryKey(null), "uid");
+        assertEquals(ExternalLdapUserLocator.getLocalPrimaryKey(null), "uid");
+    }
+
+    private ExternalLdapUserLocator.Search newSearch(long timeout) {
+        return new ExternalLdapUserLocator.Search(LoggerFactory.getLogger(ExternalLdapUserLocatorTest.class), null, timeout);
+    }
+
+    private ExternalLdapUserLocator.Result result(String userDn) {
+        User user = new User();
+        user.setDn(userDn);
+
+        return new ExternalLdapUserLocator.Result(null, null, user, true);
+    }
+
+    private Callable<ExternalLdapUserLocator.Result> answer(final ExternalLdapUserLocator.Result result, final long delay) {
+        return new Callable<ExternalLdapUserLocator.Result>() {
+            @Override
+            public ExternalLdapUserLocator.Result call() throws Exception {
+                Thread.sleep(delay);
+                return result;
+            }
+        };
+    }
+
+    private Callable<ExternalLdapUserLocator.Result> hang() {
+        return new Callable<ExternalLdapUserLocator.Result>() {
+            @Override
+            public ExternalLdapUserLocator.Result call() throws Exception {
+                hung.await(1, TimeUnit.MINUTES);
+                return null;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class JwksResolverTest {
+
+    private static final long NOW = 1000000000000L;
+    private static final long MAX_LIFETIME = 3600000L; // 1 hour
+
+    @Test
+    public void defaultLifetimeWithoutHeaders() {
+        assertEquals(JwksResolver.getExpiresAt(null, 0, NOW, MAX_LIFETIME), NOW + MAX_LIFETIME);
+        assertEquals(JwksResolver.getExpiresAt("public", 0, NOW, MAX_LIFETIME), NOW + MAX_LIFETIME);
+    }
+
+    @Test
+    public void maxAgeIsUsed() {
+        assertEquals(JwksResolver.getExpiresAt("public, max-age=600", 0, NOW, MAX_LIFETIME), NOW + 600000L);
+        assertEquals(JwksResolver.getExpiresAt("Max-Age = 60", 0, NOW, MAX_LIFETIME), NOW + 60000L);
+        assertEquals(JwksResolver.getExpiresAt("max-age=0", 0, NOW, MAX_LIFETIME), NOW);
+    }
+
+    @Test
+    public void maxAgeIsCapped() {
+        assertEquals(JwksResolver.getExpiresAt("max-age=31536000", 0, NOW, MAX_LIFETIME), NOW + MAX_LIFETIME);
+        assertEquals(JwksResolver.getExpiresAt("max-age=99999999999999999999", 0, NOW, MAX_LIFETIME), NOW + MAX_LIFETIME);
+    }
+
+    @Test
+    public void maxAgeWinsOverExpires() {
+        assertEquals(JwksResolver.getExpiresAt("max-age=600", NOW + 1200000L, NOW, MAX_LIFETIME), NOW + 600000L);
+    }
+
+    @Test
+    public void expiresIsUsed() {
+        assertEquals(JwksResolver.getExpiresAt(null, NOW + 1200000L, NOW, MAX_LIFETIME), NOW + 1200000L);
+        assertEquals(JwksResolver.getExpiresAt(null, NOW - 1000L, NOW, MAX_LIFETIME), NOW - 1000L);
+    }
+
+    @Test
+    public void expiresIsCapped() {
+        assertEquals(JwksResolver.getExpiresAt(null, NOW + 10 * MAX_LIFETIME, NOW, MAX_LIFETIME), NOW + MAX_LIFETIME);
+    }
+
+    @Test
+    public void noCacheExpiresImmediately() {
+        assertEquals(JwksResolver.getExpiresAt("no-cache", NOW + 1200000L, NOW, MAX_LIFETIME), NOW);
+        assertEquals(JwksResolver.getExpiresAt("no-store, max-age=600", 0, NOW, MAX_LIFETIME), NOW);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class PairwiseIdLookupTableTest {
+
+    private static final String SECTOR_1 = "https://rp1.example.com";
+    private static final String SECTOR_2 = "https://rp2.example.com";
+
+    @Test
+    public void emptyTable() {
+        PairwiseIdLookupTable table = new PairwiseIdLookupTable.Builder().build();
+
+        assertEquals(table.size(), 0);
+        assertNull(table.get("@!1111", SECTOR_1));
+    }
+
+    @Test
+    public void identifiersAreFoundByUserAndSector() {
+        PairwiseIdLookupTable.Builder builder = new PairwiseIdLookupTable.Builder();
+        assertTrue(builder.add("@!1111", SECTOR_1, "id-1-1"));
+        assertTrue(builder.add("@!1111", SECTOR_2, "id-1-2"));
+        assertTrue(builder.add("@!2222", SECTOR_1, "id-2-1"));
+
+        PairwiseIdLookupTable table = builder.build();
+
+        assertEquals(table.size(), 3);
+        assertEquals(table.get("@!1111", SECTOR_1), "id-1-1");
+        assertEquals(table.get("@!1111", SECTOR_2), "id-1-2");
+        assertEquals(table.get("@!2222", SECTOR_1), "id-2-1");
+    }
+
+    @Test
+    public void unknownPairsAreNotFound() {
+        PairwiseIdLookupTable.Builder builder = new PairwiseIdLookupTable.Builder();
+        builder.add("@!1111", SECTOR_1, "id-1-1");
+        PairwiseIdLookupTable table = builder.build();
+
+        assertNull(table.get("@!2222", SECTOR_1));
+        assertNull(table.get("@!1111", SECTOR_2));
+        assertNull(table.get(SECTOR_1, "@!1111"));
+    }
+
+    @Test
+    public void firstIdentifierOfPairWins() {
+        PairwiseIdLookupTable.Builder builder = new PairwiseIdLookupTable.Builder();
+        assertTrue(builder.add("@!1111", SECTOR_1, "first"));
+        assertFalse(builder.add("@!1111", SECTOR_1, "second"));
+
+        PairwiseIdLookupTable table = builder.build();
+
+        assertEquals(table.size(), 1);
+        assertEquals(table.get("@!1111", SECTOR_1), "first");
+    }
+
+    @Test
+    public void manyIdentifiers() {
+        PairwiseIdLookupTable.Builder builder = new PairwiseIdLookupTable.Builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.add("@!" + i, SECTOR_1, "id-" + i);
+        }
+
+        PairwiseIdLookupTable table = builder.build();
+
+        assertEquals(table.size(), 10000);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(table.get("@!" + i, SECTOR_1), "id-" + i);
+        }
+        assertNull(table.get("@!10000", SECTOR_1));
+    }
+
+}
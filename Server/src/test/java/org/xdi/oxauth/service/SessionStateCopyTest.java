@@ -0,0 +1,76 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.SessionIdAccessMap;
+import org.xdi.oxauth.model.common.SessionIdState;
+import org.xdi.oxauth.model.common.SessionState;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class SessionStateCopyTest {
+
+    @Test
+    public void copyIsIndependent() {
+        SessionState sessionState = createSession();
+        SessionState copy = SessionStateService.copy(sessionState);
+
+        copy.getSessionAttributes().put("acr", "u2f");
+        copy.getPermissionGrantedMap().put("c2", true);
+        copy.getLastUsedAt().setTime(2000L);
+        copy.setState(SessionIdState.UNAUTHENTICATED);
+        copy.getStoredSessionAttributes().put("acr", "u2f");
+
+        assertEquals(sessionState.getSessionAttributes().get("acr"), "basic");
+        assertFalse(sessionState.getPermissionGrantedMap().getPermissionGranted().containsKey("c2"));
+        assertEquals(sessionState.getLastUsedAt(), new Date(1000L));
+        assertEquals(sessionState.getState(), SessionIdState.AUTHENTICATED);
+        assertEquals(sessionState.getStoredSessionAttributes().get("acr"), "basic");
+    }
+
+    @Test
+    public void storedStateIsCopied() {
+        SessionState sessionState = createSession();
+        SessionState copy = SessionStateService.copy(sessionState);
+
+        assertEquals(copy.getId(), sessionState.getId());
+        assertEquals(copy.getSessionAttributes(), sessionState.getSessionAttributes());
+        assertTrue(copy.isPersisted());
+        assertEquals(copy.getRevision(), 3);
+        assertEquals(copy.getStoredAt(), 500L);
+        assertSame(copy.getStoredRecord(), sessionState.getStoredRecord());
+        assertEquals(copy.getStoredSessionAttributes(), sessionState.getStoredSessionAttributes());
+    }
+
+    private SessionState createSession() {
+        SessionState sessionState = new SessionState();
+        sessionState.setId("1234");
+        sessionState.setDn("oxAuthSessionId=1234,ou=session,o=gluu");
+        sessionState.setState(SessionIdState.AUTHENTICATED);
+        sessionState.setLastUsedAt(new Date(1000L));
+        sessionState.getSessionAttributes().put("acr", "basic");
+        sessionState.setPermissionGrantedMap(new SessionIdAccessMap());
+        sessionState.getPermissionGrantedMap().put("c1", true);
+
+        sessionState.setPersisted(true);
+        sessionState.setRevision(3);
+        sessionState.setStoredAt(500L);
+        sessionState.setStoredRecord(new byte[]{1, 2, 3});
+        sessionState.setStoredSessionAttributes(new HashMap<String, String>(sessionState.getSessionAttributes()));
+
+        return sessionState;
+    }
+
+}
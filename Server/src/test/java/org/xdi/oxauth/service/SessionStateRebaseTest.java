@@ -0,0 +1,154 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.SessionIdAccessMap;
+import org.xdi.oxauth.model.common.SessionState;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class SessionStateRebaseTest {
+
+    @Test
+    public void attributeChangesAreAppliedToActualSession() {
+        SessionState sessionState = storedSession(attributes("a", "1", "b", "2", "c", "3"));
+        // Request keeps a, changes b, removes c and adds d
+        sessionState.setSessionAttributes(attributes("a", "1", "b", "20", "d", "4"));
+
+        // Other request changed a and added e
+        SessionState actualSessionState = storedSession(attributes("a", "10", "b", "2", "c", "3", "e", "5"));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        assertEquals(sessionState.getSessionAttributes(), attributes("a", "10", "b", "20", "d", "4", "e", "5"));
+    }
+
+    @Test
+    public void attributeRemovedConcurrentlyStaysRemoved() {
+        SessionState sessionState = storedSession(attributes("a", "1", "b", "2"));
+        sessionState.setSessionAttributes(attributes("a", "1", "b", "2"));
+
+        SessionState actualSessionState = storedSession(attributes("a", "1"));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        assertEquals(sessionState.getSessionAttributes(), attributes("a", "1"));
+    }
+
+    @Test
+    public void nullAttributeValueIsApplied() {
+        SessionState sessionState = storedSession(attributes("a", "1"));
+        sessionState.setSessionAttributes(attributes("a", null));
+
+        SessionState actualSessionState = storedSession(attributes("a", "1"));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        assertTrue(sessionState.getSessionAttributes().containsKey("a"));
+        assertNull(sessionState.getSessionAttributes().get("a"));
+    }
+
+    @Test
+    public void accessMapsAreMerged() {
+        SessionState sessionState = storedSession(attributes());
+        sessionState.setPermissionGrantedMap(accessMap("c1", true));
+        sessionState.setInvolvedClients(accessMap("c1", true));
+
+        SessionState actualSessionState = storedSession(attributes());
+        actualSessionState.setPermissionGrantedMap(accessMap("c1", false, "c2", true));
+        actualSessionState.setInvolvedClients(accessMap("c3", false));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        // Entries set by this request win
+        assertEquals(sessionState.getPermissionGrantedMap().getPermissionGranted(), accessMap("c1", true, "c2", true).getPermissionGranted());
+        assertEquals(sessionState.getInvolvedClients().getPermissionGranted(), accessMap("c1", true, "c3", false).getPermissionGranted());
+    }
+
+    @Test
+    public void actualAccessMapIsTakenIfThereIsNone() {
+        SessionState sessionState = storedSession(attributes());
+
+        SessionState actualSessionState = storedSession(attributes());
+        actualSessionState.setPermissionGrantedMap(accessMap("c2", true));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        assertEquals(sessionState.getPermissionGrantedMap().getPermissionGranted(), accessMap("c2", true).getPermissionGranted());
+    }
+
+    @Test
+    public void laterLastUsedTimeIsKept() {
+        SessionState sessionState = storedSession(attributes());
+        sessionState.setLastUsedAt(new Date(2000L));
+        SessionState actualSessionState = storedSession(attributes());
+        actualSessionState.setLastUsedAt(new Date(1000L));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+        assertEquals(sessionState.getLastUsedAt(), new Date(2000L));
+
+        actualSessionState.setLastUsedAt(new Date(3000L));
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+        assertEquals(sessionState.getLastUsedAt(), new Date(3000L));
+    }
+
+    @Test
+    public void storedStateIsTakenFromActualSession() {
+        SessionState sessionState = storedSession(attributes("a", "1"));
+        sessionState.setRevision(3);
+        sessionState.setStoredAt(1000L);
+
+        SessionState actualSessionState = storedSession(attributes("a", "1", "b", "2"));
+        actualSessionState.setRevision(4);
+        actualSessionState.setStoredAt(2000L);
+        actualSessionState.setStoredRecord(new byte[]{1, 2, 3});
+
+        SessionStateService.rebase(sessionState, actualSessionState);
+
+        assertEquals(sessionState.getRevision(), 4);
+        assertEquals(sessionState.getStoredAt(), 2000L);
+        assertSame(sessionState.getStoredRecord(), actualSessionState.getStoredRecord());
+        assertEquals(sessionState.getStoredSessionAttributes(), attributes("a", "1", "b", "2"));
+    }
+
+    private SessionState storedSession(Map<String, String> attributes) {
+        SessionState sessionState = new SessionState();
+        sessionState.setSessionAttributes(new HashMap<String, String>(attributes));
+        sessionState.setStoredSessionAttributes(new HashMap<String, String>(attributes));
+
+        return sessionState;
+    }
+
+    private Map<String, String> attributes(String... entries) {
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (int i = 0; i < entries.length; i += 2) {
+            attributes.put(entries[i], entries[i + 1]);
+        }
+
+        return attributes;
+    }
+
+    private SessionIdAccessMap accessMap(Object... entries) {
+        SessionIdAccessMap accessMap = new SessionIdAccessMap();
+        for (int i = 0; i < entries.length; i += 2) {
+            accessMap.put((String) entries[i], (Boolean) entries[i + 1]);
+        }
+
+        return accessMap;
+    }
+
+}
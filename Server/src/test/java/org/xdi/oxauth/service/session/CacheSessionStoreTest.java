@@ -0,0 +1,234 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.session;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.SessionIdAccessMap;
+import org.xdi.oxauth.model.common.SessionIdState;
+import org.xdi.oxauth.model.common.SessionState;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * @version October 18, 2026
+ */
+
+public class CacheSessionStoreTest {
+
+    private static final int DAY = 24 * 60 * 60;
+
+    @Test
+    public void allFieldsAreRestored() throws Exception {
+        SessionState sessionState = createSession();
+
+        byte[] record = CacheSessionStore.encode(sessionState, 5, 1000L);
+        SessionState restored = CacheSessionStore.decode(record);
+
+        assertEquals(restored.getDn(), "oxAuthSessionId=1234,ou=session,o=gluu");
+        assertEquals(restored.getId(), "1234");
+        assertEquals(restored.getUserDn(), "inum=@!1111,ou=people,o=gluu");
+        assertEquals(restored.getAuthenticationTime(), new Date(500L));
+        assertEquals(restored.getLastUsedAt(), new Date(900L));
+        assertEquals(restored.getState(), SessionIdState.AUTHENTICATED);
+        assertEquals(restored.getPermissionGranted(), Boolean.TRUE);
+        assertEquals(restored.getIsJwt(), Boolean.FALSE);
+        assertEquals(restored.getJwt(), "jwt");
+        assertEquals(restored.getPermissionGrantedMap().getPermissionGranted(), accessMap("c1", true, "c2", false).getPermissionGranted());
+        assertEquals(restored.getInvolvedClients().getPermissionGranted(), accessMap("c1", true).getPermissionGranted());
+        assertEquals(restored.getSessionAttributes(), sessionState.getSessionAttributes());
+        assertTrue(restored.isPersisted());
+
+        assertEquals(restored.getRevision(), 5);
+        assertEquals(restored.getStoredAt(), 1000L);
+        assertEquals(restored.getStoredSessionAttributes(), sessionState.getSessionAttributes());
+        assertFalse(new CacheSessionStore().isModified(restored));
+    }
+
+    @Test
+    public void nullFieldsAreRestored() throws Exception {
+        SessionState restored = CacheSessionStore.decode(CacheSessionStore.encode(new SessionState(), 1, 1000L));
+
+        assertNull(restored.getDn());
+        assertNull(restored.getId());
+        assertNull(restored.getUserDn());
+        assertNull(restored.getAuthenticationTime());
+        assertNull(restored.getLastUsedAt());
+        assertNull(restored.getState());
+        assertNull(restored.getPermissionGranted());
+        assertNull(restored.getIsJwt());
+        assertNull(restored.getJwt());
+        assertNull(restored.getPermissionGrantedMap());
+        assertTrue(restored.getSessionAttributes().isEmpty());
+    }
+
+    @Test
+    public void storedSessionIsNotModified() throws Exception {
+        CacheSessionStore sessionStore = new CacheSessionStore();
+        assertTrue(sessionStore.isModified(createSession()));
+
+        SessionState sessionState = CacheSessionStore.decode(CacheSessionStore.encode(createSession(), 1, 1000L));
+        assertFalse(sessionStore.isModified(sessionState));
+
+        // Last used time is written separately
+        sessionState.setLastUsedAt(new Date());
+        assertFalse(sessionStore.isModified(sessionState));
+
+        sessionState.getSessionAttributes().put("acr", "u2f");
+        assertTrue(sessionStore.isModified(sessionState));
+    }
+
+    @Test
+    public void mapsAreEncodedInKeyOrder() {
+        // Same entries in maps of different capacity are iterated in different order
+        Map<String, String> attributes1 = new HashMap<String, String>(2);
+        Map<String, String> attributes2 = new HashMap<String, String>(256);
+        Map<String, Boolean> clients1 = new HashMap<String, Boolean>(2);
+        Map<String, Boolean> clients2 = new HashMap<String, Boolean>(256);
+        for (int i = 0; i < 50; i++) {
+            attributes1.put("attribute" + i, "value" + i);
+            attributes2.put("attribute" + (49 - i), "value" + (49 - i));
+            clients1.put("client" + i, i % 2 == 0);
+            clients2.put("client" + (49 - i), (49 - i) % 2 == 0);
+        }
+        attributes1.put(null, "null key");
+        attributes2.put(null, "null key");
+
+        SessionState sessionState1 = new SessionState();
+        sessionState1.setSessionAttributes(attributes1);
+        sessionState1.setInvolvedClients(new SessionIdAccessMap(clients1));
+
+        SessionState sessionState2 = new SessionState();
+        sessionState2.setSessionAttributes(attributes2);
+        sessionState2.setInvolvedClients(new SessionIdAccessMap(clients2));
+
+        assertTrue(Arrays.equals(CacheSessionStore.encode(sessionState1, 1, 1000L), CacheSessionStore.encode(sessionState2, 1, 1000L)));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void unsupportedVersionIsRejected() throws Exception {
+        byte[] record = CacheSessionStore.encode(createSession(), 1, 1000L);
+        record[0] = CacheSessionStore.RECORD_VERSION + 1;
+
+        CacheSessionStore.decode(record);
+    }
+
+    @Test
+    public void recordIsKeptLongerThanLifetime() {
+        assertEquals(CacheSessionStore.getExpiration(3600), 7200);
+        assertEquals(CacheSessionStore.getExpiration(20 * DAY), 30 * DAY);
+        assertEquals(CacheSessionStore.getExpiration(40 * DAY), 40 * DAY);
+        assertEquals(CacheSessionStore.getExpiration(0), 0);
+        assertEquals(CacheSessionStore.getExpiration(-1), -1);
+    }
+
+    @Test
+    public void attributeDeltaIsApplied() throws Exception {
+        SessionState sessionState = CacheSessionStore.decode(CacheSessionStore.encode(createSession(), 5, 1000L));
+        Map<String, String> recordAttributes = new HashMap<String, String>(sessionState.getSessionAttributes());
+
+        Map<String, String> attributes = new HashMap<String, String>(recordAttributes);
+        attributes.put("acr", "u2f");
+        attributes.remove("prompt");
+        attributes.put("state", "xyz");
+        byte[] delta = CacheSessionStore.encodeDelta(5, 7, recordAttributes, attributes);
+
+        assertTrue(CacheSessionStore.applyDelta(sessionState, delta));
+        assertEquals(sessionState.getSessionAttributes(), attributes);
+        assertEquals(sessionState.getRevision(), 7);
+        assertEquals(sessionState.getStoredAt(), 1000L);
+        assertFalse(new CacheSessionStore().isModified(sessionState));
+    }
+
+    @Test
+    public void deltaContainsChangedAttributesOnly() {
+        Map<String, String> recordAttributes = new HashMap<String, String>();
+        for (int i = 0; i < 50; i++) {
+            recordAttributes.put("attribute" + i, "value" + i);
+        }
+        Map<String, String> attributes = new HashMap<String, String>(recordAttributes);
+        attributes.put("attribute1", "changed");
+
+        byte[] delta = CacheSessionStore.encodeDelta(1, 2, recordAttributes, attributes);
+        byte[] emptyDelta = CacheSessionStore.encodeDelta(1, 2, recordAttributes, recordAttributes);
+
+        assertEquals(delta.length, emptyDelta.length + 4 + "attribute1".length() + 1 + 4 + "changed".length());
+    }
+
+    @Test
+    public void deltaOfAnotherRecordIsIgnored() throws Exception {
+        SessionState sessionState = CacheSessionStore.decode(CacheSessionStore.encode(createSession(), 5, 1000L));
+        Map<String, String> recordAttributes = new HashMap<String, String>(sessionState.getSessionAttributes());
+
+        Map<String, String> attributes = new HashMap<String, String>(recordAttributes);
+        attributes.put("acr", "u2f");
+
+        // Delta left from record of revision 3
+        assertFalse(CacheSessionStore.applyDelta(sessionState, CacheSessionStore.encodeDelta(3, 4, recordAttributes, attributes)));
+        assertEquals(sessionState.getSessionAttributes(), recordAttributes);
+        assertEquals(sessionState.getRevision(), 5);
+    }
+
+    @Test
+    public void recordFieldsAndAttributesAreComparedSeparately() throws Exception {
+        CacheSessionStore sessionStore = new CacheSessionStore();
+        SessionState sessionState = CacheSessionStore.decode(CacheSessionStore.encode(createSession(), 1, 1000L));
+
+        sessionState.getSessionAttributes().remove("acr");
+        assertTrue(sessionStore.isModified(sessionState));
+
+        sessionState.setSessionAttributes(new HashMap<String, String>(sessionState.getStoredSessionAttributes()));
+        sessionState.setState(SessionIdState.UNAUTHENTICATED);
+        assertTrue(sessionStore.isModified(sessionState));
+    }
+
+    @Test
+    public void recordIsRewrittenBeforeLessThanLifetimeIsLeft() {
+        assertFalse(CacheSessionStore.isExpiring(1000L, 3600, 1000L + 3599000L));
+        assertTrue(CacheSessionStore.isExpiring(1000L, 3600, 1000L + 3600000L));
+
+        // Record of session without lifetime doesn't expire
+        assertFalse(CacheSessionStore.isExpiring(1000L, 0, 1000L + 3600000L));
+        assertFalse(CacheSessionStore.isExpiring(1000L, -1, 1000L));
+    }
+
+    private SessionState createSession() {
+        SessionState sessionState = new SessionState();
+        sessionState.setDn("oxAuthSessionId=1234,ou=session,o=gluu");
+        sessionState.setId("1234");
+        sessionState.setUserDn("inum=@!1111,ou=people,o=gluu");
+        sessionState.setAuthenticationTime(new Date(500L));
+        sessionState.setLastUsedAt(new Date(900L));
+        sessionState.setState(SessionIdState.AUTHENTICATED);
+        sessionState.setPermissionGranted(true);
+        sessionState.setIsJwt(false);
+        sessionState.setJwt("jwt");
+        sessionState.setPermissionGrantedMap(accessMap("c1", true, "c2", false));
+        sessionState.setInvolvedClients(accessMap("c1", true));
+        sessionState.getSessionAttributes().put("acr", "basic");
+        sessionState.getSessionAttributes().put("redirect_uri", "https://client.example.com/cb");
+        sessionState.getSessionAttributes().put("prompt", "");
+        sessionState.getSessionAttributes().put("nonce", null);
+
+        return sessionState;
+    }
+
+    private SessionIdAccessMap accessMap(Object... entries) {
+        SessionIdAccessMap accessMap = new SessionIdAccessMap();
+        for (int i = 0; i < entries.length; i += 2) {
+            accessMap.put((String) entries[i], (Boolean) entries[i + 1]);
+        }
+
+        return accessMap;
+    }
+
+}